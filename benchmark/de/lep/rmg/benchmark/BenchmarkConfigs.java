@@ -0,0 +1,62 @@
+package de.lep.rmg.benchmark;
+
+import java.util.Arrays;
+
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.instruments.helper.InstrumentHelper;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Die Größen von {@link SongConfig}s, mit denen die Benchmarks laufen.<br>
+ * Die Werte entsprechen den Schiebereglern der Kontroll-Panels: SMALL sind die Standardwerte,
+ * LARGE die Maximalwerte und HUGE ein Vielfaches davon für lange Stücke, wie sie der {@link de.lep.rmg.BatchGenerator} erzeugt.<br>
+ * Alle Konfigurationen haben einen festen Startwert, damit jeder Durchlauf das gleiche Stück erzeugt.
+ */
+public enum BenchmarkConfigs {
+	//         Kanon: chordNr, repeats, voices | Fuge: chordNr, repeats, voices
+	SMALL(                4,       2,      4,                2,       2,      3 ),
+	LARGE(               12,       3,      6,                4,       3,      6 ),
+	HUGE(                48,      12,      6,               16,      12,      6 );
+
+	/**
+	 * Startwert aller Konfigurationen
+	 */
+	public static final long SEED = 20170301L;
+
+	private final int canonChordNr, canonRepeats, canonVoices;
+	private final int fugeChordNr, fugeRepeats, fugeVoices;
+
+	private BenchmarkConfigs( int canonChordNr, int canonRepeats, int canonVoices, int fugeChordNr, int fugeRepeats, int fugeVoices ) {
+		this.canonChordNr = canonChordNr;
+		this.canonRepeats = canonRepeats;
+		this.canonVoices = canonVoices;
+		this.fugeChordNr = fugeChordNr;
+		this.fugeRepeats = fugeRepeats;
+		this.fugeVoices = fugeVoices;
+	}
+
+	/**
+	 * @return Eine Konfiguration für den {@link de.lep.rmg.musicgen.CanonGenerator} (Akkorddauer 2 wie im Kanon-Panel)
+	 */
+	public SongConfig canon() {
+		return new SongConfig( canonChordNr, canonRepeats, canonVoices, 2, key(), instruments( canonVoices ), SEED );
+	}
+
+	/**
+	 * @return Eine Konfiguration für den {@link de.lep.rmg.musicgen.fuge.FugenGenerator} (Akkorddauer 4 wie im Fugen-Panel)
+	 */
+	public SongConfig fuge() {
+		return new SongConfig( fugeChordNr, fugeRepeats, fugeVoices, 4, key(), instruments( fugeVoices ), SEED );
+	}
+
+	private static SChord key() {
+		return new SChord( SNote.C, CType.MAJOR );
+	}
+
+	private static Instrument[] instruments( int voices ) {
+		return Arrays.copyOf( InstrumentHelper.getAllInstr(), voices );
+	}
+}
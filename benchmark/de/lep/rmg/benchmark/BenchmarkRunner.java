@@ -0,0 +1,29 @@
+package de.lep.rmg.benchmark;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Startet alle Benchmarks dieses Pakets mit dem GC-Profiler, der die Allokationsrate
+ * (gc.alloc.rate und gc.alloc.rate.norm, also Bytes pro Aufruf) neben der Laufzeit ausgibt.<br>
+ * <br>
+ * Die Benchmarks liegen in einem eigenen Maven-Modul (<code>benchmark/pom.xml</code>), das
+ * <code>jmh-core</code> und den Annotation-Processor <code>jmh-generator-annprocess</code> einbindet;
+ * der Annotation-Processor erzeugt beim Kompilieren die eigentlichen Benchmark-Klassen.
+ * <code>mvn -pl benchmark exec:exec</code> startet sie ebenfalls mit dem GC-Profiler.<br>
+ * Aufruf: <code>BenchmarkRunner [Regex]</code>, ohne Regex laufen alle Benchmarks.
+ */
+public class BenchmarkRunner {
+
+	public static void main( String[] args ) throws RunnerException {
+		String include = args.length > 0 ? args[ 0 ] : BenchmarkRunner.class.getPackage().getName() + ".*";
+		Options options = new OptionsBuilder()
+				.include( include )
+				.addProfiler( GCProfiler.class )
+				.build();
+		new Runner( options ).run();
+	}
+}
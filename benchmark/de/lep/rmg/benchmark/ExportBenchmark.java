@@ -0,0 +1,100 @@
+package de.lep.rmg.benchmark;
+
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.Sequence;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+import de.lep.rmg.out.midi.MidiFileWriter;
+import de.lep.rmg.out.midi.SequenceGenerator;
+import de.lep.rmg.out.midi.TrackFactory;
+import de.lep.rmg.out.xml.XMLException;
+import de.lep.rmg.out.xml.XMLGenerator;
+
+/**
+ * Benchmarks für die Ausgabe eines fertigen Songs als MIDI und Music-XML.<br>
+ * Der Song (eine Fuge, da sie die meisten Stimmen hat) wird einmal pro Trial generiert.
+ * Die Ausgabe geht in einen Stream, der alle Bytes verwirft, damit keine Festplatte mitgemessen wird.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ExportBenchmark {
+
+	@Param( { "SMALL", "LARGE", "HUGE" } )
+	public BenchmarkConfigs size;
+
+	private Song song;
+	private SongBuffer buffer;
+	private OutputStream nullStream;
+
+	/**
+	 * Anzahl der verworfenen Bytes, damit das Schreiben nicht wegoptimiert werden kann
+	 */
+	private long written;
+
+	@Setup
+	public void setup() {
+		song = new FugenGenerator( null, new FugenMelodyGenerator() ).generateSong( size.fuge() );
+		buffer = SongBuffer.fromSong( song );
+		nullStream = new OutputStream() {
+			@Override
+			public void write( int b ) {
+				written++;
+			}
+
+			@Override
+			public void write( byte[] b, int off, int len ) {
+				written += len;
+			}
+		};
+	}
+
+	@Benchmark
+	public SongBuffer songBufferFromSong() {
+		return SongBuffer.fromSong( song );
+	}
+
+	@Benchmark
+	public Sequence trackFactoryCreateTracks() {
+		Sequence seq = new SequenceGenerator().createSequence();
+		new TrackFactory().createTracks( seq, song );
+		return seq;
+	}
+
+	@Benchmark
+	public Sequence sequenceGeneratorCreateSequence() {
+		return new SequenceGenerator().createSequence( song, false );
+	}
+
+	@Benchmark
+	public ByteBuffer midiFileWriterEncode() {
+		return new MidiFileWriter().encode( buffer, false );
+	}
+
+	@Benchmark
+	public long xmlGeneratorSave() throws XMLException {
+		new XMLGenerator().save( nullStream, song );
+		return written;
+	}
+}
@@ -0,0 +1,97 @@
+package de.lep.rmg.benchmark;
+
+import java.util.ArrayList;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.notes.INote;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.ChordGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.musicgen.RhythmGenerator;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+
+/**
+ * Benchmarks für die Generierung von Songs.<br>
+ * Jeder Aufruf erzeugt seinen Zufallsgenerator neu aus dem festen Startwert der Konfiguration,
+ * so wird in jeder Iteration die gleiche Arbeit gemessen.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class GenerationBenchmark {
+
+	@Param( { "SMALL", "LARGE", "HUGE" } )
+	public BenchmarkConfigs size;
+
+	private SongConfig canonConfig, fugeConfig;
+
+	//Eingaben für MelodyGenerator#generateMelodies, wie sie der CanonGenerator erzeugt
+	private SChord key;
+	private SChord[] chords;
+	private ArrayList<Integer>[][] rhythm;
+
+	@Setup
+	public void setup() {
+		canonConfig = size.canon();
+		fugeConfig = size.fuge();
+
+		Random rand = canonConfig.createRandom();
+		key = canonConfig.getKey();
+		chords = ChordGenerator.generateChords( key, canonConfig.getChordNr(), rand );
+		rhythm = RhythmGenerator.generateRhythm( canonConfig, rand );
+	}
+
+	@Benchmark
+	public Song canonGenerateSong() {
+		return new CanonGenerator( null, new MelodyGenerator() ).generateSong( canonConfig );
+	}
+
+	@Benchmark
+	public Song fugeGenerateSong() {
+		return new FugenGenerator( null, new FugenMelodyGenerator() ).generateSong( fugeConfig );
+	}
+
+	@Benchmark
+	public ArrayList<SNote>[][] melodyGenerateMelodies() {
+		return new MelodyGenerator().generateMelodies( key, chords, rhythm, canonConfig, canonConfig.createRandom() );
+	}
+
+	@Benchmark
+	public ArrayList<INote> rhythmGenerateMotif( MotifState motif ) {
+		return RhythmGenerator.generateMotif( fugeConfig, motif.motifLength, fugeConfig.createRandom() );
+	}
+
+	/**
+	 * Eigener State, damit der Parameter nur für {@link GenerationBenchmark#rhythmGenerateMotif(MotifState)} gilt
+	 */
+	@State( Scope.Thread )
+	public static class MotifState {
+
+		/**
+		 * Länge des Motivs in {@link RhythmGenerator#generateMotif(SongConfig, int, Random)}: 1 für Themen, höher für freie Stimmen
+		 */
+		@Param( { "1", "4" } )
+		public int motifLength;
+	}
+}
@@ -0,0 +1,74 @@
+package de.lep.rmg.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.model.notes.helper.ChordHelper;
+import de.lep.rmg.model.notes.helper.NoteHelper;
+
+/**
+ * Benchmarks für die Nachschlagetabellen von {@link ChordHelper} und {@link NoteHelper}.<br>
+ * Jeder Aufruf geht alle Töne zweier Oktaven durch, wie es der {@link de.lep.rmg.musicgen.MelodyGenerator}
+ * für die Kandidaten eines Tons tut. Die Auswirkung auf die ganze Melodie misst
+ * {@link GenerationBenchmark#melodyGenerateMelodies()}.
+ */
+@State( Scope.Thread )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.NANOSECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class HelperBenchmark {
+
+	private SChord key;
+
+	@Setup
+	public void setup() {
+		key = new SChord( SNote.A, CType.MINOR );
+	}
+
+	@Benchmark
+	public int noteHelperAddInterval() {
+		int sum = 0;
+		for( int tone = -12; tone < 12; tone++ )
+			sum += NoteHelper.addInterval( tone, tone % 5, key );
+		return sum;
+	}
+
+	@Benchmark
+	public int noteHelperGetInterval() {
+		int sum = 0;
+		for( int tone = -12; tone < 12; tone++ )
+			sum += NoteHelper.getInterval( SNote.A, tone * 2 + 1 );
+		return sum;
+	}
+
+	@Benchmark
+	public int chordHelperGetPositionOnScale() {
+		int sum = 0;
+		for( int tone = -12; tone < 12; tone++ )
+			sum += ChordHelper.getPositionOnScale( tone, key );
+		return sum;
+	}
+
+	@Benchmark
+	public int chordHelperGetScaleTone() {
+		int sum = 0;
+		for( int step = 0; step < 7; step++ )
+			sum += ChordHelper.getScaleTone( key, step );
+		return sum;
+	}
+}
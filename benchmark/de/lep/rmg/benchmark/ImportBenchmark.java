@@ -0,0 +1,126 @@
+package de.lep.rmg.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+import de.lep.rmg.out.midi.MidiDecoder;
+import de.lep.rmg.out.midi.MidiFileWriter;
+
+/**
+ * Durchsatz des {@link MidiDecoder}s über alle .midi-Dateien eines Ordners.<br>
+ * Ohne Angabe von <code>directory</code> werden beim Setup Kanons und Fugen in der Größe von <code>size</code>
+ * in einen temporären Ordner geschrieben. Ein Aufruf liest alle Dateien des Ordners,
+ * die Ops/s sind also Ordner pro Sekunde, die Anzahl der Dateien steht im Setup-Log.
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.Throughput )
+@OutputTimeUnit( TimeUnit.SECONDS )
+@Warmup( iterations = 5, time = 1 )
+@Measurement( iterations = 5, time = 1 )
+@Fork( 1 )
+public class ImportBenchmark {
+
+	/**
+	 * Der Ordner mit .midi-Dateien, leer für generierte Dateien
+	 */
+	@Param( "" )
+	public String directory;
+
+	@Param( { "SMALL", "LARGE" } )
+	public BenchmarkConfigs size;
+
+	/**
+	 * Die Anzahl der Songs pro Art, falls die Dateien generiert werden
+	 */
+	@Param( "20" )
+	public int songs;
+
+	private File[] files;
+	private File generated;
+
+	@Setup( Level.Trial )
+	public void setup() throws IOException {
+		File dir;
+		if( directory.isEmpty() ) {
+			generated = Files.createTempDirectory( "rmg-import" ).toFile();
+			MidiFileWriter writer = new MidiFileWriter();
+			for( int i = 0; i < songs; i++ ) {
+				SongConfig canon = size.canon().toBuilder().setSeed( BenchmarkConfigs.SEED + i ).build();
+				SongConfig fuge = size.fuge().toBuilder().setSeed( BenchmarkConfigs.SEED + i ).build();
+				writer.write( SongBuffer.fromSong( new CanonGenerator( null, new MelodyGenerator() ).generateSong( canon ) ),
+						false, new File( generated, "kanon" + i + ".midi" ) );
+				writer.write( SongBuffer.fromSong( new FugenGenerator( null, new FugenMelodyGenerator() ).generateSong( fuge ) ),
+						i % 2 == 0, new File( generated, "fuge" + i + ".midi" ) );
+			}
+			dir = generated;
+		} else {
+			dir = new File( directory );
+		}
+		files = dir.listFiles( ( d, name ) -> name.endsWith( ".midi" ) || name.endsWith( ".mid" ) );
+		if( files == null || files.length == 0 )
+			throw new IOException( "No MIDI-files in " + dir );
+		Arrays.sort( files );
+		System.out.println( files.length + " MIDI-Dateien in " + dir );
+	}
+
+	@TearDown( Level.Trial )
+	public void tearDown() {
+		if( generated == null )
+			return;
+		for( File file : generated.listFiles() )
+			file.delete();
+		generated.delete();
+	}
+
+	/**
+	 * Liest und dekodiert alle Dateien des Ordners
+	 * @return Die Anzahl der gelesenen Ereignisse, damit nichts wegoptimiert wird
+	 */
+	@Benchmark
+	public long decodeDirectory() throws IOException {
+		MidiDecoder decoder = new MidiDecoder();
+		long events = 0;
+		for( File file : files ) {
+			SongBuffer song = decoder.decode( file );
+			for( int p = 0; p < song.getPartCount(); p++ )
+				events += song.getPart( p ).size();
+		}
+		return events;
+	}
+
+	/**
+	 * Wie {@link #decodeDirectory()}, baut aber zusätzlich die {@link de.lep.rmg.model.Song}s auf
+	 * @return Die Anzahl der gelesenen Parts
+	 */
+	@Benchmark
+	public long decodeDirectoryToSong() throws IOException {
+		MidiDecoder decoder = new MidiDecoder();
+		long parts = 0;
+		for( File file : files )
+			parts += decoder.decodeSong( file ).size();
+		return parts;
+	}
+}
@@ -0,0 +1,231 @@
+package de.lep.rmg;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import de.lep.rmg.metrics.HistogramMetrics;
+import de.lep.rmg.metrics.Metrics;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.IMusicGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.musicgen.SongCache;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+import de.lep.rmg.out.ISongSink;
+import de.lep.rmg.out.midi.MidiSongSink;
+import de.lep.rmg.out.xml.XMLSongSink;
+
+/**
+ * Generiert viele Songs ohne GUI auf einem Pool mit fester Anzahl an Threads.<br>
+ * Jeder fertige {@link Song} wird sofort an alle {@link ISongSink}s weitergereicht und danach verworfen,
+ * so dass auch große Durchläufe mit wenig Speicher auskommen.<br>
+ * Am Ende wird eine {@link BatchStatistics} mit Songs pro Sekunde und den Latenzen pro Song zurückgegeben.<br><br>
+ * 
+ * Jeder Song bekommt einen eigenen {@link IMusicGenerator}, da z.B. der {@link FugenGenerator} während der
+ * Generierung Zustand hält. Die Generatoren werden ohne {@link de.lep.rmg.out.midi.MidiPlayer} erzeugt.<br>
+ * Optional laufen alle Generierungen über einen gemeinsamen {@link SongCache}, Songs mit gleichen Einstellungen und
+ * gleichem Startwert werden dann nur einmal generiert, auch wenn sie gleichzeitig angefragt werden.
+ */
+public class BatchGenerator {
+	
+	/**
+	 * Die Art der zu generierenden Songs
+	 */
+	public enum GeneratorType {
+		KANON, FUGE;
+		
+		/**
+		 * @return Einen neuen Generator dieses Typs ohne MidiPlayer
+		 */
+		public IMusicGenerator createGenerator() {
+			if( this == FUGE )
+				return new FugenGenerator( null, new FugenMelodyGenerator() );
+			return new CanonGenerator( null, new MelodyGenerator() );
+		}
+	}
+	
+	private final GeneratorType type;
+	private final int threads;
+	private final List<ISongSink> sinks;
+	//null, falls jeder Song ohne Zwischenspeicher generiert wird
+	private final SongCache cache;
+	
+	/**
+	 * @param type Die Art der Songs
+	 * @param threads Die maximale Anzahl gleichzeitig arbeitender Threads
+	 * @param sinks Die Ausgabeziele, an die jeder Song weitergereicht wird (darf leer sein)
+	 */
+	public BatchGenerator( GeneratorType type, int threads, List<ISongSink> sinks ) {
+		this( type, threads, sinks, 0 );
+	}
+	
+	/**
+	 * @param type Die Art der Songs
+	 * @param threads Die maximale Anzahl gleichzeitig arbeitender Threads
+	 * @param sinks Die Ausgabeziele, an die jeder Song weitergereicht wird (darf leer sein)
+	 * @param cacheSize Die Anzahl der Songs im {@link SongCache} oder 0, falls ohne Zwischenspeicher generiert wird
+	 */
+	public BatchGenerator( GeneratorType type, int threads, List<ISongSink> sinks, int cacheSize ) {
+		if( threads < 1 )
+			throw new IllegalArgumentException( "threads must be at least 1: " + threads );
+		if( cacheSize < 0 )
+			throw new IllegalArgumentException( "cacheSize must not be negative: " + cacheSize );
+		this.type = type;
+		this.threads = threads;
+		this.sinks = new ArrayList<ISongSink>( sinks );
+		cache = cacheSize > 0 ? new SongCache( type::createGenerator, cacheSize, null ) : null;
+	}
+	
+	/**
+	 * @return Der Zwischenspeicher der Songs oder null, falls ohne Zwischenspeicher generiert wird
+	 */
+	public SongCache getCache() {
+		return cache;
+	}
+	
+	/**
+	 * Generiert <code>count</code> Songs mit den Einstellungen der Vorlage.<br>
+	 * Für jeden Song wird eine eigene {@link SongConfig} mit den Werten der Vorlage erzeugt,
+	 * so dass sich die zufälligen Wahrscheinlichkeiten der Songs unterscheiden.<br>
+	 * Die Startwerte der Songs werden aus dem Startwert der Vorlage abgeleitet, daher ergibt die gleiche Vorlage
+	 * unabhängig von der Anzahl an Threads immer die gleichen Songs.
+	 * 
+	 * @param count Die Anzahl zu generierender Songs
+	 * @param template Die Vorlage für alle Songs
+	 * @return Die Statistik des Durchlaufs
+	 */
+	public BatchStatistics generate( int count, SongConfig template ) {
+		List<Callable<Long>> jobs = new ArrayList<Callable<Long>>( count );
+		SplittableRandom seeds = new SplittableRandom( template.getSeed() );
+		for( int i = 0; i < count; i++ )
+			jobs.add( new GenerationJob( template, true, seeds.nextLong(), i ) );
+		return run( jobs );
+	}
+	
+	/**
+	 * Generiert für jede übergebene {@link SongConfig} einen Song.<br>
+	 * Eine SongConfig darf nicht mehrmals in der Liste vorkommen, da sie von genau einer Generierung verwendet wird.
+	 * 
+	 * @param configs Die Einstellungen der einzelnen Songs
+	 * @return Die Statistik des Durchlaufs
+	 */
+	public BatchStatistics generate( List<SongConfig> configs ) {
+		List<Callable<Long>> jobs = new ArrayList<Callable<Long>>( configs.size() );
+		for( int i = 0; i < configs.size(); i++ )
+			jobs.add( new GenerationJob( configs.get( i ), false, 0, i ) );
+		return run( jobs );
+	}
+	
+	private BatchStatistics run( List<Callable<Long>> jobs ) {
+		ExecutorService pool = new ForkJoinPool( threads );
+		long start = System.nanoTime();
+		long[] latencies = new long[ jobs.size() ];
+		int songs = 0, failures = 0;
+		try {
+			List<Future<Long>> results = new ArrayList<Future<Long>>( jobs.size() );
+			for( Callable<Long> job : jobs )
+				results.add( pool.submit( job ) );
+			for( Future<Long> result : results ) {
+				try {
+					latencies[ songs ] = result.get();
+					songs++;
+				} catch( ExecutionException e ) {
+					failures++;
+					System.out.println( "Failed to generate Song" );
+					e.getCause().printStackTrace();
+				}
+			}
+		} catch( InterruptedException e ) {
+			Thread.currentThread().interrupt();
+		} finally {
+			pool.shutdownNow();
+		}
+		long[] successful = new long[ songs ];
+		System.arraycopy( latencies, 0, successful, 0, songs );
+		return new BatchStatistics( successful, failures, System.nanoTime() - start );
+	}
+	
+	/**
+	 * Generiert einen einzelnen Song, gibt ihn an alle Sinks weiter und misst dabei die Latenz.
+	 */
+	private class GenerationJob implements Callable<Long> {
+		
+		private final SongConfig config;
+		private final boolean copyConfig;
+		private final long seed;
+		private final int index;
+		
+		/**
+		 * @param config Die Einstellungen des Songs oder die Vorlage
+		 * @param copyConfig true, falls <code>config</code> eine Vorlage ist, aus der eine neue SongConfig erzeugt wird
+		 * @param seed Der Startwert der neuen SongConfig, falls <code>copyConfig</code> true ist
+		 * @param index Die laufende Nummer des Songs
+		 */
+		GenerationJob( SongConfig config, boolean copyConfig, long seed, int index ) {
+			this.config = config;
+			this.copyConfig = copyConfig;
+			this.seed = seed;
+			this.index = index;
+		}
+
+		@Override
+		public Long call() throws IOException {
+			long start = System.nanoTime();
+			SongConfig songConfig = config;
+			if( copyConfig )//neue Wahrscheinlichkeiten aus dem Startwert, alle anderen Einstellungen wie in der Vorlage
+				songConfig = config.toBuilder().setSeed( seed ).setIntervals( null ).setNoteDurations( null ).build();
+			IMusicGenerator generator = cache != null ? cache : type.createGenerator();
+			Song song = generator.generateSong( songConfig );
+			for( ISongSink sink : sinks )
+				sink.accept( song, index );
+			return System.nanoTime() - start;
+		}
+	}
+	
+	/**
+	 * Startet eine Massengenerierung ohne GUI.<br>
+	 * Parameter: <code>&lt;kanon|fuge&gt; &lt;Anzahl&gt; &lt;Ausgabeordner&gt; [Threads] [Startwert]</code><br>
+	 * Jeder Song wird als .midi- und .xml-Datei in den Ausgabeordner geschrieben.
+	 * Am Ende werden die Dauern der einzelnen Abschnitte ausgegeben (s. {@link HistogramMetrics}).
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 3 ) {
+			System.out.println( "Usage: BatchGenerator <kanon|fuge> <count> <outputDir> [threads] [seed]" );
+			return;
+		}
+		GeneratorType type = GeneratorType.valueOf( args[ 0 ].toUpperCase() );
+		int count = Integer.parseInt( args[ 1 ] );
+		File dir = new File( args[ 2 ] );
+		int threads = Runtime.getRuntime().availableProcessors();
+		if( args.length > 3 )
+			threads = Integer.parseInt( args[ 3 ] );
+		if( !dir.isDirectory() && !dir.mkdirs() ) {
+			System.out.println( "Could not create directory " + dir );
+			return;
+		}
+		
+		List<ISongSink> sinks = new ArrayList<ISongSink>();
+		sinks.add( new MidiSongSink( dir, type.name().toLowerCase(), false ) );
+		sinks.add( new XMLSongSink( dir, type.name().toLowerCase() ) );
+		
+		SongConfig template = args.length > 4 ? new SongConfig( Long.parseLong( args[ 4 ] ) ) : new SongConfig();
+		if( type == GeneratorType.FUGE )//Fugen verwenden wie im FugenControllPanel ganztaktige Akkorde
+			template = new SongConfig( template.getChordNr(), template.getRepeats(), template.getMelodyNr(), 4,
+					template.getKey(), template.getInstruments(), template.getSeed() );
+		HistogramMetrics metrics = new HistogramMetrics();
+		Metrics.set( metrics );
+		BatchStatistics stats = new BatchGenerator( type, threads, sinks ).generate( count, template );
+		System.out.println( stats );
+		System.out.print( metrics );
+	}
+}
@@ -0,0 +1,74 @@
+package de.lep.rmg;
+
+import java.util.Arrays;
+
+/**
+ * Ergebnis eines Durchlaufs des {@link BatchGenerator}s.<br>
+ * Speichert die Latenzen aller erfolgreich generierten Songs und die Gesamtdauer,
+ * um daraus Durchsatz und Perzentile zu berechnen.
+ */
+public class BatchStatistics {
+	
+	/**
+	 * Latenzen der erfolgreichen Songs in Nanosekunden, aufsteigend sortiert
+	 */
+	private final long[] latencies;
+	private final int failures;
+	private final long wallNanos;
+	
+	BatchStatistics( long[] latencies, int failures, long wallNanos ) {
+		this.latencies = latencies.clone();
+		Arrays.sort( this.latencies );
+		this.failures = failures;
+		this.wallNanos = wallNanos;
+	}
+	
+	/**
+	 * @return Die Anzahl erfolgreich generierter und ausgegebener Songs
+	 */
+	public int getSongs() {
+		return latencies.length;
+	}
+	
+	/**
+	 * @return Die Anzahl Songs, bei deren Generierung oder Ausgabe ein Fehler aufgetreten ist
+	 */
+	public int getFailures() {
+		return failures;
+	}
+	
+	/**
+	 * @return Die Dauer des gesamten Durchlaufs in Nanosekunden
+	 */
+	public long getWallNanos() {
+		return wallNanos;
+	}
+	
+	/**
+	 * @return Erfolgreiche Songs pro Sekunde
+	 */
+	public double getSongsPerSecond() {
+		if( wallNanos == 0 )
+			return 0;
+		return latencies.length / ( wallNanos / 1e9 );
+	}
+	
+	/**
+	 * Gibt das Perzentil der Latenz pro Song zurück (Nearest-Rank-Verfahren).
+	 * @param percent Das Perzentil zwischen 0 und 100, z.B. 50 für den Median
+	 * @return Die Latenz in Nanosekunden oder 0, falls kein Song erfolgreich war
+	 */
+	public long getLatencyPercentile( double percent ) {
+		if( latencies.length == 0 )
+			return 0;
+		int rank = (int) Math.ceil( percent / 100 * latencies.length );
+		return latencies[ Math.min( Math.max( rank - 1, 0 ), latencies.length - 1 ) ];
+	}
+	
+	@Override
+	public String toString() {
+		return String.format( "%d Songs in %.2f s (%.1f Songs/s), Latenz p50: %.2f ms, p99: %.2f ms, Fehler: %d",
+				getSongs(), wallNanos / 1e9, getSongsPerSecond(),
+				getLatencyPercentile( 50 ) / 1e6, getLatencyPercentile( 99 ) / 1e6, failures );
+	}
+}
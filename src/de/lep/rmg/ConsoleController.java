@@ -0,0 +1,245 @@
+package de.lep.rmg;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntFunction;
+
+import de.lep.rmg.BatchGenerator.GeneratorType;
+import de.lep.rmg.metrics.HistogramMetrics;
+import de.lep.rmg.metrics.Metrics;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.out.ISongSink;
+import de.lep.rmg.out.binary.RmgsFile;
+import de.lep.rmg.out.binary.RmgsSongSink;
+import de.lep.rmg.out.audio.WavRenderer;
+import de.lep.rmg.out.audio.WavSongSink;
+import de.lep.rmg.out.midi.MidiSongSink;
+import de.lep.rmg.out.xml.XMLSongSink;
+
+/**
+ * Kommandozeilen-Einstieg für den Musikgenerator, ohne {@link de.lep.rmg.view.Window} und {@link de.lep.rmg.out.midi.MidiPlayer}.<br>
+ * Im Gegensatz zum {@link Controller} wird weder AWT noch der Sequencer verwendet, das Programm läuft also auch auf
+ * Servern ohne Bildschirm und Soundkarte. Die Songs werden mit dem {@link BatchGenerator} generiert und als .midi-,
+ * .xml-, .wav- und/oder .rmgs-Dateien in einen Ordner geschrieben. Am Ende werden Songs pro Sekunde und geschriebene Bytes ausgegeben.<br><br>
+ *
+ * Parameter haben die Form <code>--name=wert</code>:
+ * <ul>
+ * <li><code>--type=kanon|fuge</code> Die Art der Songs (Standard: kanon)</li>
+ * <li><code>--count=N</code> Die Anzahl der Songs (Standard: 1)</li>
+ * <li><code>--out=Ordner</code> Der Ausgabeordner (Standard: res/saves)</li>
+ * <li><code>--formats=midi,xml,wav,rmgs</code> Die Ausgabeformate (Standard: midi,xml), rmgs s. {@link RmgsFile}</li>
+ * <li><code>--midi0</code> midi0- statt midi1-Dateien</li>
+ * <li><code>--tempo=BPM</code> Die Geschwindigkeit der WAV-Dateien (Standard: 120)</li>
+ * <li><code>--threads=N</code> Die Anzahl der Threads (Standard: Anzahl der Prozessoren)</li>
+ * <li><code>--cache=N</code> Hält bis zu N Songs in einem {@link de.lep.rmg.musicgen.SongCache}, gleiche Songs werden nur einmal generiert (Standard: 0, kein Zwischenspeicher)</li>
+ * <li><code>--config=Datei</code> Eine Properties-Datei mit Einstellungen des {@link SongConfig}s</li>
+ * <li><code>--metrics</code> Gibt zusätzlich die Dauern der einzelnen Abschnitte aus (s. {@link HistogramMetrics})</li>
+ * </ul>
+ * Alle Schlüssel von {@link SongConfig.Builder#readArgs(Properties)} können ebenfalls angegeben werden, z.B.
+ * <code>--seed=42 --chordNr=8 --key=F+M</code>, und überschreiben die Werte aus der Datei.
+ * Mit <code>--count</code> größer 1 ist <code>seed</code> der Startwert, aus dem die Startwerte der Songs abgeleitet werden.
+ */
+public class ConsoleController {
+
+	/**
+	 * Die Schlüssel, die an {@link SongConfig.Builder#readArgs(Properties)} weitergegeben werden
+	 */
+	private static final Set<String> CONFIG_KEYS = new HashSet<String>( Arrays.asList( "seed", "chordNr", "chordDuration",
+			"repeats", "melodyNr", "key", "instruments", "clef", "title", "composer", "restProbability" ) );
+	private static final Set<String> OPTIONS = new HashSet<String>( Arrays.asList( "type", "count", "out", "formats",
+			"midi0", "tempo", "threads", "cache", "config", "metrics", "help" ) );
+
+	public static void main( String[] args ) {
+		System.setProperty( "java.awt.headless", "true" );
+		int status = run( args, System.out );
+		if( status != 0 )
+			System.exit( status );
+	}
+
+	/**
+	 * Generiert die Songs entsprechend der Parameter und gibt die Zusammenfassung aus
+	 * @param args Die Parameter (s. {@link ConsoleController})
+	 * @param out Der Stream für Zusammenfassung und Fehlermeldungen
+	 * @return 0, falls alle Songs geschrieben wurden, 1 bei fehlgeschlagenen Songs, 2 bei ungültigen Parametern
+	 */
+	public static int run( String[] args, PrintStream out ) {
+		Properties options = new Properties();
+		Properties songArgs = new Properties();
+		for( String arg : args ) {
+			if( !arg.startsWith( "--" ) ) {
+				out.println( "Invalid argument " + arg );
+				printUsage( out );
+				return 2;
+			}
+			int split = arg.indexOf( '=' );
+			String name = split < 0 ? arg.substring( 2 ) : arg.substring( 2, split );
+			String value = split < 0 ? "true" : arg.substring( split + 1 );
+			if( OPTIONS.contains( name ) )
+				options.setProperty( name, value );
+			else if( CONFIG_KEYS.contains( name ) )
+				songArgs.setProperty( name, value );
+			else {
+				out.println( "Unknown argument " + arg );
+				printUsage( out );
+				return 2;
+			}
+		}
+		if( options.containsKey( "help" ) ) {
+			printUsage( out );
+			return 0;
+		}
+
+		GeneratorType type;
+		int count, threads, cacheSize;
+		float tempo;
+		SongConfig template;
+		try {
+			type = GeneratorType.valueOf( options.getProperty( "type", "kanon" ).toUpperCase() );
+			count = Integer.parseInt( options.getProperty( "count", "1" ) );
+			threads = Integer.parseInt( options.getProperty( "threads", String.valueOf( Runtime.getRuntime().availableProcessors() ) ) );
+			cacheSize = Integer.parseInt( options.getProperty( "cache", "0" ) );
+			tempo = Float.parseFloat( options.getProperty( "tempo", "120" ) );
+			SongConfig.Builder builder = new SongConfig.Builder();
+			if( type == GeneratorType.FUGE )//Fugen verwenden wie im FugenControllPanel ganztaktige Akkorde
+				builder.setChordDuration( 4 );
+			if( options.containsKey( "config" ) )
+				builder.readArgs( load( new File( options.getProperty( "config" ) ) ) );
+			template = builder.readArgs( songArgs ).build();
+		} catch( IllegalArgumentException | IOException e ) {
+			out.println( "Invalid arguments: " + e.getMessage() );
+			printUsage( out );
+			return 2;
+		}
+		if( count < 1 || threads < 1 ) {
+			out.println( "count and threads must be at least 1" );
+			return 2;
+		}
+		if( cacheSize < 0 ) {
+			out.println( "cache must not be negative" );
+			return 2;
+		}
+		if( type == GeneratorType.KANON && !template.hasFullMeasures() ) {
+			out.println( "chordNr * chordDuration must be a multiple of " + template.getBeats() );
+			return 2;
+		}
+
+		File dir = new File( options.getProperty( "out", "res/saves" ) );
+		if( !dir.isDirectory() && !dir.mkdirs() ) {
+			out.println( "Could not create directory " + dir );
+			return 2;
+		}
+		String prefix = type.name().toLowerCase();
+		List<CountingSink> sinks = new ArrayList<CountingSink>();
+		for( String format : options.getProperty( "formats", "midi,xml" ).split( "," ) ) {
+			switch( format.trim().toLowerCase() ) {
+			case "midi":
+				MidiSongSink midi = new MidiSongSink( dir, prefix, options.containsKey( "midi0" ) );
+				sinks.add( new CountingSink( midi, midi::getFile ) );
+				break;
+			case "xml":
+				XMLSongSink xml = new XMLSongSink( dir, prefix );
+				sinks.add( new CountingSink( xml, xml::getFile ) );
+				break;
+			case "wav":
+				try {
+					WavRenderer.checkAvailable();
+				} catch( IOException e ) {
+					out.println( e.getMessage() );
+					return 2;
+				}
+				WavSongSink wav = new WavSongSink( dir, prefix, tempo );
+				sinks.add( new CountingSink( wav, wav::getFile ) );
+				break;
+			case "rmgs":
+				RmgsSongSink rmgs = new RmgsSongSink( dir, prefix );
+				sinks.add( new CountingSink( rmgs, rmgs::getFile ) );
+				break;
+			default:
+				out.println( "Unknown format " + format );
+				printUsage( out );
+				return 2;
+			}
+		}
+
+		HistogramMetrics metrics = null;
+		if( options.containsKey( "metrics" ) ) {
+			metrics = new HistogramMetrics();
+			Metrics.set( metrics );
+		}
+		BatchStatistics stats;
+		BatchGenerator generator = new BatchGenerator( type, threads, new ArrayList<ISongSink>( sinks ), cacheSize );
+		try {
+			if( count == 1 )//ein einzelner Song verwendet genau den angegebenen Startwert
+				stats = generator.generate( Arrays.asList( template ) );
+			else
+				stats = generator.generate( count, template );
+		} finally {
+			if( metrics != null )
+				Metrics.set( null );
+		}
+
+		long files = 0, bytes = 0;
+		for( CountingSink sink : sinks ) {
+			files += sink.files.sum();
+			bytes += sink.bytes.sum();
+		}
+		out.println( stats );
+		out.println( String.format( "%d Dateien, %d Bytes (%.2f MB/s) in %s", files, bytes,
+				stats.getWallNanos() == 0 ? 0 : bytes / 1e6 / ( stats.getWallNanos() / 1e9 ), dir ) );
+		if( generator.getCache() != null )
+			out.println( String.format( "Zwischenspeicher: %d Treffer, %d generiert", generator.getCache().getHits(), generator.getCache().getMisses() ) );
+		if( metrics != null )
+			out.print( metrics );
+		return stats.getFailures() == 0 ? 0 : 1;
+	}
+
+	private static Properties load( File file ) throws IOException {
+		Properties properties = new Properties();
+		try( Reader reader = new InputStreamReader( new FileInputStream( file ), StandardCharsets.UTF_8 ) ) {
+			properties.load( reader );
+		}
+		return properties;
+	}
+
+	private static void printUsage( PrintStream out ) {
+		out.println( "Usage: ConsoleController [--type=kanon|fuge] [--count=N] [--out=dir] [--formats=midi,xml,wav,rmgs] [--midi0]" );
+		out.println( "       [--tempo=bpm] [--threads=N] [--cache=N] [--config=file.properties] [--metrics]" );
+		out.println( "       [--seed=N] [--chordNr=N] [--chordDuration=N] [--repeats=N] [--melodyNr=N] [--key=C-D]" );
+		out.println( "       [--instruments=Piano,Flute] [--clef=G|F|TAB] [--title=text] [--composer=text] [--restProbability=p]" );
+	}
+
+	/**
+	 * Zählt die Dateien und Bytes, die ein {@link ISongSink} schreibt
+	 */
+	private static class CountingSink implements ISongSink {
+
+		private final ISongSink sink;
+		private final IntFunction<File> fileOf;
+		final LongAdder files = new LongAdder(), bytes = new LongAdder();
+
+		CountingSink( ISongSink sink, IntFunction<File> fileOf ) {
+			this.sink = sink;
+			this.fileOf = fileOf;
+		}
+
+		@Override
+		public void accept( Song song, int index ) throws IOException {
+			sink.accept( song, index );
+			files.increment();
+			bytes.add( fileOf.apply( index ).length() );
+		}
+	}
+}
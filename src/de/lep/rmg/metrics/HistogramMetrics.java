@@ -0,0 +1,148 @@
+package de.lep.rmg.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Speichert die Dauern jedes {@link IMetrics.Stage}s als Histogramm im Speicher.<br>
+ * Jede Dauer wird in das Fach ihrer Zweierpotenz eingeordnet (Fach i enthält Dauern unter 2^i Nanosekunden),
+ * der Speicherbedarf ist also unabhängig von der Anzahl der Messungen. Perzentile werden daher als obere Grenze
+ * ihres Fachs zurückgegeben und sind bis auf einen Faktor 2 genau. Anzahl, Summe und Maximum sind exakt.<br>
+ * Alle Methoden können von mehreren Threads gleichzeitig aufgerufen werden.
+ */
+public class HistogramMetrics implements IMetrics {
+
+	private static final int BUCKETS = 64;
+
+	private final StageHistogram[] stages = new StageHistogram[ Stage.values().length ];
+	private final LongAdder[] counters = new LongAdder[ Counter.values().length ];
+
+	public HistogramMetrics() {
+		for( int i = 0; i < stages.length; i++ )
+			stages[ i ] = new StageHistogram();
+		for( int i = 0; i < counters.length; i++ )
+			counters[ i ] = new LongAdder();
+	}
+
+	@Override
+	public void record( Stage stage, long nanos ) {
+		stages[ stage.ordinal() ].add( Math.max( nanos, 0 ) );
+	}
+
+	@Override
+	public void count( Counter counter, long amount ) {
+		counters[ counter.ordinal() ].add( amount );
+	}
+
+	/**
+	 * @param stage Der Abschnitt
+	 * @return Die Anzahl der Messungen des Abschnitts
+	 */
+	public long getCount( Stage stage ) {
+		return stages[ stage.ordinal() ].count.sum();
+	}
+
+	/**
+	 * @param stage Der Abschnitt
+	 * @return Die Summe aller Dauern des Abschnitts in Nanosekunden
+	 */
+	public long getTotalNanos( Stage stage ) {
+		return stages[ stage.ordinal() ].total.sum();
+	}
+
+	/**
+	 * @param stage Der Abschnitt
+	 * @return Die längste Dauer des Abschnitts in Nanosekunden
+	 */
+	public long getMaxNanos( Stage stage ) {
+		return stages[ stage.ordinal() ].max.get();
+	}
+
+	/**
+	 * Gibt das Perzentil der Dauern eines Abschnitts zurück (Nearest-Rank-Verfahren, s. {@link de.lep.rmg.BatchStatistics}).
+	 * @param stage Der Abschnitt
+	 * @param percent Das Perzentil zwischen 0 und 100, z.B. 50 für den Median
+	 * @return Die obere Grenze des Fachs, in dem das Perzentil liegt, in Nanosekunden (höchstens das Maximum)
+	 * oder 0, falls es keine Messungen gibt
+	 */
+	public long getPercentile( Stage stage, double percent ) {
+		StageHistogram histogram = stages[ stage.ordinal() ];
+		long count = 0;
+		long[] buckets = new long[ BUCKETS ];
+		for( int i = 0; i < BUCKETS; i++ ) {
+			buckets[ i ] = histogram.buckets.get( i );
+			count += buckets[ i ];
+		}
+		if( count == 0 )
+			return 0;
+		long rank = Math.max( (long) Math.ceil( percent / 100 * count ), 1 );
+		for( int i = 0; i < BUCKETS; i++ ) {
+			rank -= buckets[ i ];
+			if( rank <= 0 )
+				return Math.min( i < BUCKETS - 1 ? 1L << i : Long.MAX_VALUE, histogram.max.get() );
+		}
+		return histogram.max.get();
+	}
+
+	/**
+	 * @param counter Der Zähler
+	 * @return Der Wert des Zählers
+	 */
+	public long getCount( Counter counter ) {
+		return counters[ counter.ordinal() ].sum();
+	}
+
+	/**
+	 * Setzt alle Messwerte und Zähler zurück
+	 */
+	public void reset() {
+		for( StageHistogram histogram : stages )
+			histogram.reset();
+		for( LongAdder counter : counters )
+			counter.reset();
+	}
+
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder();
+		for( Stage stage : Stage.values() ) {
+			long count = getCount( stage );
+			if( count == 0 )
+				continue;
+			sb.append( String.format( "%-12s %8d x, gesamt %10.2f ms, p50 <= %8.3f ms, p99 <= %8.3f ms, max %8.3f ms%n",
+					stage, count, getTotalNanos( stage ) / 1e6, getPercentile( stage, 50 ) / 1e6,
+					getPercentile( stage, 99 ) / 1e6, getMaxNanos( stage ) / 1e6 ) );
+		}
+		for( Counter counter : Counter.values() )
+			sb.append( String.format( "%-12s %8d%n", counter, getCount( counter ) ) );
+		return sb.toString();
+	}
+
+	/**
+	 * Histogramm, Anzahl, Summe und Maximum der Dauern eines Abschnitts
+	 */
+	private static class StageHistogram {
+
+		final AtomicLongArray buckets = new AtomicLongArray( BUCKETS );
+		final LongAdder count = new LongAdder();
+		final LongAdder total = new LongAdder();
+		final LongAccumulator max = new LongAccumulator( Math::max, 0 );
+
+		void add( long nanos ) {
+			//Fach i enthält Dauern von 2^(i-1) bis unter 2^i, Fach 0 nur die 0
+			buckets.incrementAndGet( Math.min( BUCKETS - Long.numberOfLeadingZeros( nanos ), BUCKETS - 1 ) );
+			count.increment();
+			total.add( nanos );
+			max.accumulate( nanos );
+		}
+
+		void reset() {
+			for( int i = 0; i < BUCKETS; i++ )
+				buckets.set( i, 0 );
+			count.reset();
+			total.reset();
+			max.reset();
+		}
+	}
+}
@@ -0,0 +1,82 @@
+package de.lep.rmg.metrics;
+
+/**
+ * Empfängt Messwerte der Generierung und Ausgabe eines Songs.<br>
+ * Gemessen werden die Dauern der einzelnen {@link Stage}s und die Anzahl der erzeugten Noten und Takte ({@link Counter}).
+ * Implementationen werden mit {@link Metrics#set(IMetrics)} registriert und müssen von mehreren Threads
+ * gleichzeitig aufgerufen werden können, da z.B. der {@link de.lep.rmg.BatchGenerator} parallel generiert.
+ *
+ * @see HistogramMetrics
+ */
+public interface IMetrics {
+
+	/**
+	 * Implementation, die alle Messwerte verwirft (Standard)
+	 */
+	IMetrics NONE = new IMetrics() {
+		@Override
+		public void record( Stage stage, long nanos ) {}
+
+		@Override
+		public void count( Counter counter, long amount ) {}
+	};
+
+	/**
+	 * Die gemessenen Abschnitte der Generierung und Ausgabe
+	 */
+	enum Stage {
+		/**
+		 * Generierung der Akkordfolge ({@link de.lep.rmg.musicgen.ChordGenerator})
+		 */
+		CHORDS,
+		/**
+		 * Generierung der Rhythmen ({@link de.lep.rmg.musicgen.RhythmGenerator})
+		 */
+		RHYTHM,
+		/**
+		 * Generierung der Melodien. Bei Fugen sind die Rhythmen der Gegenstimmen enthalten,
+		 * da sie vom {@link de.lep.rmg.musicgen.fuge.IFugenMelodyGenerator} selbst erzeugt werden.
+		 */
+		MELODY,
+		/**
+		 * Aufteilen der Noten in Takte ({@link de.lep.rmg.musicgen.helper.MelodyHelper#noteListToPart}, {@link de.lep.rmg.musicgen.CanonStream})
+		 */
+		ARRANGEMENT,
+		/**
+		 * Aufbau einer {@link javax.sound.midi.Sequence} oder Kodierung einer MIDI-Datei
+		 */
+		SEQUENCE,
+		/**
+		 * Schreiben einer MIDI- oder Music-XML-Datei
+		 */
+		WRITE
+	}
+
+	/**
+	 * Die gezählten Ergebnisse der Generierung
+	 */
+	enum Counter {
+		/**
+		 * In Takte eingeteilte Noten und Pausen
+		 */
+		NOTES,
+		/**
+		 * Erzeugte Takte
+		 */
+		MEASURES
+	}
+
+	/**
+	 * Speichert die Dauer eines Abschnitts
+	 * @param stage Der Abschnitt
+	 * @param nanos Die Dauer in Nanosekunden
+	 */
+	void record( Stage stage, long nanos );
+
+	/**
+	 * Erhöht einen Zähler
+	 * @param counter Der Zähler
+	 * @param amount Der Wert, um den erhöht wird
+	 */
+	void count( Counter counter, long amount );
+}
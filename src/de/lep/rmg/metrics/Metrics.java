@@ -0,0 +1,71 @@
+package de.lep.rmg.metrics;
+
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import de.lep.rmg.metrics.IMetrics.Counter;
+import de.lep.rmg.metrics.IMetrics.Stage;
+
+/**
+ * Hält die registrierten {@link IMetrics} für das ganze Programm.<br>
+ * Die Generatoren messen ihre Abschnitte so:
+ * <pre>
+ * long start = Metrics.start();
+ * ...
+ * Metrics.stop( Stage.CHORDS, start );
+ * </pre>
+ * Ohne registrierte Implementation werden die Messwerte verworfen ({@link IMetrics#NONE}).
+ * Ist der Logger <code>de.lep.rmg.metrics</code> auf {@link Level#FINER} gesetzt, wird zusätzlich jeder Abschnitt
+ * mit seiner Dauer protokolliert (Trace).
+ */
+public final class Metrics {
+
+	private static final Logger LOGGER = Logger.getLogger( Metrics.class.getPackage().getName() );
+
+	private static volatile IMetrics metrics = IMetrics.NONE;
+
+	private Metrics() {}
+
+	/**
+	 * @return Die registrierten Metriken, nie null
+	 */
+	public static IMetrics get() {
+		return metrics;
+	}
+
+	/**
+	 * Registriert die Metriken, an die alle folgenden Messwerte gehen
+	 * @param metrics Die Metriken oder null, um Messwerte wieder zu verwerfen
+	 */
+	public static void set( IMetrics metrics ) {
+		Metrics.metrics = metrics != null ? metrics : IMetrics.NONE;
+	}
+
+	/**
+	 * @return Der Startzeitpunkt eines Abschnitts für {@link #stop(Stage, long)}
+	 */
+	public static long start() {
+		return System.nanoTime();
+	}
+
+	/**
+	 * Beendet einen Abschnitt und speichert seine Dauer
+	 * @param stage Der Abschnitt
+	 * @param start Der Rückgabewert von {@link #start()}
+	 */
+	public static void stop( Stage stage, long start ) {
+		long nanos = System.nanoTime() - start;
+		metrics.record( stage, nanos );
+		if( LOGGER.isLoggable( Level.FINER ) )
+			LOGGER.finer( String.format( "%s: %.3f ms in %s", stage, nanos / 1e6, Thread.currentThread().getName() ) );
+	}
+
+	/**
+	 * Erhöht einen Zähler der registrierten Metriken
+	 * @param counter Der Zähler
+	 * @param amount Der Wert, um den erhöht wird
+	 */
+	public static void count( Counter counter, long amount ) {
+		metrics.count( counter, amount );
+	}
+}
@@ -0,0 +1,43 @@
+package de.lep.rmg.model;
+
+import java.util.Iterator;
+
+import de.lep.rmg.model.instruments.Instrument;
+
+/**
+ * Ein Musikstück, dessen {@link Measure}s erst beim Auslesen erzeugt werden.<br>
+ * Im Gegensatz zu einem {@link Song} liegt nie das ganze Stück im Speicher, die Ausgabe kann also
+ * mit dem ersten Takt beginnen, während die weiteren noch erzeugt werden. Ein Stream kann auch unendlich lang sein.
+ */
+public interface ISongStream {
+
+	/**
+	 * @return Die {@link SongConfig}, mit der das Stück generiert wird
+	 */
+	public SongConfig getConfig();
+
+	/**
+	 * @return Die Anzahl der Stimmen ({@link Part}s)
+	 */
+	public int getPartCount();
+
+	/**
+	 * @return Die {@link Instrument}e der Stimmen, in der Reihenfolge der Stimmen
+	 */
+	public Instrument[] getInstruments();
+
+	/**
+	 * Gibt die Takte einer Stimme zurück. Jeder Aufruf beginnt wieder beim ersten Takt der Stimme.
+	 *
+	 * @param part Der Index der Stimme
+	 * @return Ein Iterator, der die Takte der Stimme nacheinander erzeugt
+	 */
+	public Iterator<Measure> measures( int part );
+
+	/**
+	 * @return true, falls die Stimmen nie enden. Solche Streams können nur abgespielt, aber nicht gespeichert werden.
+	 */
+	public default boolean isEndless() {
+		return false;
+	}
+}
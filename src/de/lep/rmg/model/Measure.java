@@ -1,12 +1,28 @@
 package de.lep.rmg.model;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
 
+import de.lep.rmg.model.notes.Chord;
 import de.lep.rmg.model.notes.INote;
+import de.lep.rmg.model.notes.SNote;
 
 /**
  * Ein einzelner Takt.<br>
- * Teil des {@link Song}-Modells
+ * Teil des {@link Song}-Modells<br>
+ * Gesamtdauer, Anzahl der Noten sowie tiefste und höchste Tonhöhe werden beim Anhängen von Noten nachgeführt,
+ * so dass z.B. {@link #getRemainingDuration()} beim Füllen eines Taktes nicht über alle Noten läuft.
+ * Nach dem Ersetzen oder Entfernen von Noten werden die Werte beim nächsten Aufruf einmal neu berechnet.
+ * Änderungen an Noten, die bereits im Takt liegen, werden nicht erkannt.<br>
+ * <br>
+ * Ein fertiger Takt kann mit {@link #freeze()} eingefroren werden, z.B. wenn er in mehreren {@link Part}s oder mehrmals in
+ * einem Part vorkommt. Danach werfen alle Methoden, die Noten hinzufügen, ersetzen oder entfernen, und alle Setter eine
+ * {@link UnsupportedOperationException}. Die Noten selbst werden dabei nicht eingefroren.
  * 
  */
 public class Measure extends ArrayList<INote> implements Cloneable{
@@ -38,6 +54,19 @@ public class Measure extends ArrayList<INote> implements Cloneable{
 	 */
 	private Clef clef;
 	
+	/*
+	 * Zwischengespeicherte Summe der Dauern, Anzahl der Töne (Akkorde zählen jeden Ton) und Tonhöhen (ton + oktave * 12)
+	 * der tiefsten und höchsten Note. Gültig, solange validModCount gleich modCount ist.
+	 */
+	private int totalDuration, noteCount;
+	private int lowestPitch = Integer.MAX_VALUE, highestPitch = Integer.MIN_VALUE;
+	private int validModCount = modCount;
+	
+	/**
+	 * true, sobald der Takt nicht mehr verändert werden darf (s. {@link #freeze()})
+	 */
+	private boolean frozen;
+	
 	
 	public Measure( SongConfig config ) {
 		this.division = config.getMeasureDivision();
@@ -55,6 +84,172 @@ public class Measure extends ArrayList<INote> implements Cloneable{
 		this.clef = clef;
 	}
 	
+	/**
+	 * Friert den Takt ein, danach kann er nicht mehr verändert werden
+	 * @return dieser Takt
+	 */
+	public Measure freeze() {
+		frozen = true;
+		return this;
+	}
+	
+	/**
+	 * @return true, falls der Takt eingefroren ist (s. {@link #freeze()})
+	 */
+	public boolean isFrozen() {
+		return frozen;
+	}
+	
+	private void checkFrozen() {
+		if( frozen )
+			throw new UnsupportedOperationException( "Measure is frozen and may be shared, modify a clone instead" );
+	}
+	
+	@Override
+	public boolean add( INote iNote ) {
+		checkFrozen();
+		boolean valid = validModCount == modCount;
+		super.add( iNote );
+		if( valid ) {
+			include( iNote );
+			validModCount = modCount;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean addAll( Collection<? extends INote> notes ) {
+		checkFrozen();
+		boolean valid = validModCount == modCount && notes != this;
+		boolean changed = super.addAll( notes );
+		if( valid ) {
+			for( INote iNote : notes )
+				include( iNote );
+			validModCount = modCount;
+		}
+		return changed;
+	}
+	
+	@Override
+	public INote set( int index, INote iNote ) {
+		checkFrozen();
+		INote old = super.set( index, iNote );
+		validModCount = -1;//die ersetzte Note kann die tiefste oder höchste gewesen sein
+		return old;
+	}
+	
+	/*
+	 * Die übrigen verändernden Methoden prüfen nur, ob der Takt eingefroren ist.
+	 * Die zwischengespeicherten Werte werden über modCount neu berechnet.
+	 */
+	
+	@Override
+	public void add( int index, INote iNote ) {
+		checkFrozen();
+		super.add( index, iNote );
+	}
+	
+	@Override
+	public boolean addAll( int index, Collection<? extends INote> notes ) {
+		checkFrozen();
+		return super.addAll( index, notes );
+	}
+	
+	@Override
+	public INote remove( int index ) {
+		checkFrozen();
+		return super.remove( index );
+	}
+	
+	@Override
+	public boolean remove( Object o ) {
+		checkFrozen();
+		return super.remove( o );
+	}
+	
+	@Override
+	public boolean removeAll( Collection<?> c ) {
+		checkFrozen();
+		return super.removeAll( c );
+	}
+	
+	@Override
+	public boolean retainAll( Collection<?> c ) {
+		checkFrozen();
+		return super.retainAll( c );
+	}
+	
+	@Override
+	public boolean removeIf( Predicate<? super INote> filter ) {
+		checkFrozen();
+		return super.removeIf( filter );
+	}
+	
+	@Override
+	protected void removeRange( int fromIndex, int toIndex ) {
+		checkFrozen();
+		super.removeRange( fromIndex, toIndex );
+	}
+	
+	@Override
+	public void replaceAll( UnaryOperator<INote> operator ) {
+		checkFrozen();
+		super.replaceAll( operator );
+		validModCount = -1;//nicht jede Java-Version erhöht bei replaceAll modCount
+	}
+	
+	@Override
+	public void sort( Comparator<? super INote> c ) {
+		checkFrozen();
+		super.sort( c );
+	}
+	
+	@Override
+	public void clear() {
+		checkFrozen();
+		super.clear();
+	}
+	
+	/**
+	 * Die Teilliste eines eingefrorenen Taktes kann nicht verändert werden, da sie Noten direkt im Takt ersetzen würde
+	 */
+	@Override
+	public List<INote> subList( int fromIndex, int toIndex ) {
+		List<INote> subList = super.subList( fromIndex, toIndex );
+		return frozen ? Collections.unmodifiableList( subList ) : subList;
+	}
+	
+	/**
+	 * berechnet die zwischengespeicherten Werte neu, falls die Liste seitdem anders als durch Anhängen verändert wurde
+	 */
+	private void update() {
+		if( validModCount == modCount )
+			return;
+		totalDuration = 0;
+		noteCount = 0;
+		lowestPitch = Integer.MAX_VALUE;
+		highestPitch = Integer.MIN_VALUE;
+		for( INote iNote : this )
+			include( iNote );
+		validModCount = modCount;
+	}
+	
+	private void include( INote iNote ) {
+		totalDuration += iNote.getDuration();
+		if( iNote instanceof SNote ) {
+			SNote snote = (SNote) iNote;
+			int pitch = snote.getTone() + snote.getOctave() * 12;
+			noteCount++;
+			lowestPitch = Math.min( lowestPitch, pitch );
+			highestPitch = Math.max( highestPitch, pitch );
+		} else if( iNote instanceof Chord && !( (Chord) iNote ).isEmpty() ) {
+			Chord chord = (Chord) iNote;
+			noteCount += chord.size();
+			lowestPitch = Math.min( lowestPitch, chord.getLowestPitch() );
+			highestPitch = Math.max( highestPitch, chord.getHighestPitch() );
+		}
+	}
+	
 	/*#############################################################################
 	 * 						GETTER
 	 *###########################################################################*/
@@ -79,27 +274,85 @@ public class Measure extends ArrayList<INote> implements Cloneable{
 		return clef;
 	}
 	
+	/**
+	 * @return Die Länge des Taktes: <code>getBeats() * getDivision()</code>, wie {@link SongConfig#getMeasureLength()}
+	 */
+	public int getLength() {
+		return beats * division;
+	}
+	
+	/**
+	 * @return Die Summe der Dauern aller Noten, Pausen und Akkorde (s. {@link INote#getDuration()})
+	 */
+	public int getTotalDuration() {
+		update();
+		return totalDuration;
+	}
+	
+	/**
+	 * @return Die bis zur vollen Länge verbleibende Dauer, negativ falls die Noten über den Takt hinausgehen
+	 */
+	public int getRemainingDuration() {
+		return getLength() - getTotalDuration();
+	}
+	
+	/**
+	 * @return true, falls die Noten den Takt ausfüllen
+	 */
+	public boolean isFull() {
+		return getRemainingDuration() <= 0;
+	}
+	
+	/**
+	 * @return Die Anzahl der Töne ohne Pausen, Akkorde zählen mit jedem ihrer Töne
+	 */
+	public int getNoteCount() {
+		update();
+		return noteCount;
+	}
+	
+	/**
+	 * @return Tonhöhe (ton + oktave * 12) der tiefsten Note, -1 falls der Takt nur Pausen enthält
+	 */
+	public int getLowestPitch() {
+		update();
+		return noteCount == 0 ? -1 : lowestPitch;
+	}
+	
+	/**
+	 * @return Tonhöhe (ton + oktave * 12) der höchsten Note, -1 falls der Takt nur Pausen enthält
+	 */
+	public int getHighestPitch() {
+		update();
+		return noteCount == 0 ? -1 : highestPitch;
+	}
+	
 	/*#############################################################################
 	 * 						SETTER
 	 *###########################################################################*/
 	
 	public void setDivision(int division) {
+		checkFrozen();
 		this.division = division;
 	}
 	
 	public void setFifths(int fifths) {
+		checkFrozen();
 		this.fifths = fifths;
 	}
 	
 	public void setBeats(int beats) {
+		checkFrozen();
 		this.beats = beats;
 	}
 	
 	public void setBeattype(int beattype) {
+		checkFrozen();
 		this.beattype = beattype;
 	}
 
 	public void setClef( Clef clef ) {
+		checkFrozen();
 		this.clef = clef;
 	}
 
@@ -118,7 +371,7 @@ public class Measure extends ArrayList<INote> implements Cloneable{
 	}
 	
 	/**
-	 * im Measure enthaltene Noten werden nicht geklont
+	 * im Measure enthaltene Noten werden nicht geklont, der neue Takt ist nicht eingefroren
 	 */
 	public Measure clone(){
 		Measure mea = new Measure( division, fifths, beats, beattype, clef );
@@ -7,7 +7,10 @@ import de.lep.rmg.model.instruments.Instrument;
 /**
  * Ein Teil des gesamten {@link Song}s, der nur von einem {@link Instrument} gespielt wird.<br>
  * Er besteht aus einer nicht vorher festgelegten Anzahl an Takten ({@link Measure}).<br>
- * Ein Part hat nichts mit der Einteilung in Melodien des {@link MelodyGenerator} zu tun.
+ * Ein Part hat nichts mit der Einteilung in Melodien des {@link MelodyGenerator} zu tun.<br>
+ * Wiederholte Takte (z.B. Wiederholungen einer Melodie oder Pausentakte) können dasselbe {@link Measure}-Objekt sein,
+ * auch zwischen verschiedenen Parts. Die Generatoren frieren solche Takte ein (s. {@link Measure#freeze()}), Änderungen daran
+ * werfen eine {@link UnsupportedOperationException}. Um einen Takt zu verändern, muss er vorher mit {@link Measure#clone()} kopiert werden.
  */
 public class Part extends ArrayList<Measure> {
 	private static final long serialVersionUID = 1L;
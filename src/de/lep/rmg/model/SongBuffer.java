@@ -0,0 +1,532 @@
+package de.lep.rmg.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.INote;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Kompakte Darstellung eines {@link Song}s in primitiven Arrays.<br>
+ * Statt eines Objekts pro Note wird jedes Ereignis (Note, Pause oder Ton eines Akkords) in einem einzelnen <code>long</code> gespeichert:
+ * <ul>
+ * <li>Bit 0-3: Ton (0-11, s. {@link SNote#getTone()})</li>
+ * <li>Bit 4-11: Oktave (mit Vorzeichen)</li>
+ * <li>Bit 12-27: Dauer</li>
+ * <li>Bit 28-59: Tick, also der Beginn des Ereignisses im Part in Vielfachen von {@link SongConfig#measureDivision}</li>
+ * <li>Bit 60-63: Flags ({@link #FLAG_REST}, {@link #FLAG_CHORD}, {@link #FLAG_CHORD_START})</li>
+ * </ul>
+ * Pro Takt werden das erste Ereignis und die Attribute in je einem <code>int</code> gespeichert
+ * (s. {@link PartBuffer#getMeasureStart(int)} und {@link PartBuffer#getMeasureAttributes(int)}).<br>
+ * Mit {@link #fromSong(Song)} und {@link #toSong()} kann zwischen beiden Darstellungen gewechselt werden. Dabei bleiben alle Noten erhalten,
+ * auch Akkorde mit nur einem Ton und negative Oktaven. Nur leere {@link Chord}s gehen verloren: Sie haben weder Töne noch eine Dauer
+ * und ergeben daher kein Ereignis.
+ * Die {@link de.lep.rmg.out.midi.TrackFactory} und der {@link de.lep.rmg.out.xml.XMLGenerator} arbeiten direkt auf dieser Klasse.
+ *
+ * @see Song Song: Objekt-Modell des Songs
+ */
+public class SongBuffer {
+
+	/**
+	 * Das Ereignis ist eine Pause
+	 */
+	public static final int FLAG_REST = 1;
+	/**
+	 * Das Ereignis ist ein weiterer Ton des Akkords, der mit dem vorherigen Ereignis begonnen hat
+	 */
+	public static final int FLAG_CHORD = 2;
+	/**
+	 * Das Ereignis ist der erste Ton eines Akkords, damit auch ein Akkord mit nur einem Ton wieder als {@link Chord} gelesen wird.
+	 * Für die Ausgabe ist das Flag ohne Bedeutung, dort ist ein solcher Ton eine einzelne Note.
+	 */
+	public static final int FLAG_CHORD_START = 4;
+
+	private static final int OCTAVE_SHIFT = 4, DURATION_SHIFT = 12, TICK_SHIFT = 28, FLAG_SHIFT = 60;
+	private static final int MAX_DURATION = 0xFFFF;
+	private static final long MAX_TICK = 0xFFFFFFFFL;
+
+	/**
+	 * Das Konfigurationsobjekt des Songs
+	 */
+	private SongConfig config;
+
+	private final ArrayList<PartBuffer> parts = new ArrayList<PartBuffer>();
+
+
+	public SongBuffer( SongConfig config ) {
+		this.config = config;
+	}
+
+	/**
+	 * Wandelt einen {@link Song} in einen SongBuffer um.<br>
+	 * Die Noten werden dabei kopiert, spätere Änderungen am Song wirken sich nicht auf den SongBuffer aus.
+	 *
+	 * @param song Der umzuwandelnde Song
+	 * @return Ein neuer SongBuffer mit den gleichen Noten
+	 */
+	public static SongBuffer fromSong( Song song ) {
+		SongBuffer buffer = new SongBuffer( song.getConfig() );
+		for( Part part : song )
+			buffer.addPart( PartBuffer.fromPart( part ) );
+		return buffer;
+	}
+
+	/**
+	 * Baut aus dem SongBuffer wieder einen {@link Song} mit neuen Objekten für alle Takte und Noten.
+	 * @return Der Song
+	 */
+	public Song toSong() {
+		Song song = new Song( config );
+		for( PartBuffer part : parts )
+			song.add( part.toPart() );
+		return song;
+	}
+
+	/*#############################################################################
+	 * 						KODIERUNG
+	 *###########################################################################*/
+
+	/**
+	 * Packt ein Ereignis in einen <code>long</code>.
+	 *
+	 * @param tone Der Ton (0-11)
+	 * @param octave Die Oktave (-128 bis 127)
+	 * @param duration Die Dauer (0 bis 65535)
+	 * @param tick Der Beginn im Part (0 bis 2^32-1)
+	 * @param flags Kombination aus den FLAG-Konstanten
+	 * @return Das gepackte Ereignis
+	 */
+	public static long encode( int tone, int octave, int duration, long tick, int flags ) {
+		if( tone < 0 || tone > 11 )
+			throw new IllegalArgumentException( "Invalid tone: " + tone );
+		if( octave < Byte.MIN_VALUE || octave > Byte.MAX_VALUE )
+			throw new IllegalArgumentException( "Invalid octave: " + octave );
+		if( duration < 0 || duration > MAX_DURATION )
+			throw new IllegalArgumentException( "Invalid duration: " + duration );
+		if( tick < 0 || tick > MAX_TICK )
+			throw new IllegalArgumentException( "Invalid tick: " + tick );
+		return tone
+				| (long) ( octave & 0xFF ) << OCTAVE_SHIFT
+				| (long) duration << DURATION_SHIFT
+				| tick << TICK_SHIFT
+				| (long) ( flags & 0xF ) << FLAG_SHIFT;
+	}
+
+	public static int getTone( long event ) {
+		return (int) ( event & 0xF );
+	}
+
+	public static int getOctave( long event ) {
+		return (byte) ( event >>> OCTAVE_SHIFT );
+	}
+
+	public static int getDuration( long event ) {
+		return (int) ( event >>> DURATION_SHIFT ) & MAX_DURATION;
+	}
+
+	public static long getTick( long event ) {
+		return ( event >>> TICK_SHIFT ) & MAX_TICK;
+	}
+
+	public static int getFlags( long event ) {
+		return (int) ( event >>> FLAG_SHIFT );
+	}
+
+	/**
+	 * @return Die MIDI-Tonhöhe des Ereignisses, wie sie von der {@link de.lep.rmg.out.midi.TrackFactory} verwendet wird
+	 */
+	public static int getMidiPitch( long event ) {
+		return getTone( event ) + getOctave( event ) * 12 + 12;
+	}
+
+	public static boolean isRest( long event ) {
+		return ( getFlags( event ) & FLAG_REST ) != 0;
+	}
+
+	public static boolean isChordNote( long event ) {
+		return ( getFlags( event ) & FLAG_CHORD ) != 0;
+	}
+
+	public static boolean isChordStart( long event ) {
+		return ( getFlags( event ) & FLAG_CHORD_START ) != 0;
+	}
+
+	/**
+	 * Packt die Attribute eines Taktes in einen <code>int</code>:<br>
+	 * Bit 0-9: division, Bit 10-17: fifths (mit Vorzeichen), Bit 18-23: beats, Bit 24-29: beattype, Bit 30-31: Notenschlüssel
+	 *
+	 * @param measure Der Takt
+	 * @return Die gepackten Attribute
+	 */
+	public static int encodeAttributes( Measure measure ) {
+		int division = measure.getDivision(), fifths = measure.getFifths(), beats = measure.getBeats(), beattype = measure.getBeattype();
+		if( division < 0 || division > 0x3FF || fifths < Byte.MIN_VALUE || fifths > Byte.MAX_VALUE
+				|| beats < 0 || beats > 0x3F || beattype < 0 || beattype > 0x3F )
+			throw new IllegalArgumentException( "Measure attributes out of range: " + division + ", " + fifths + ", " + beats + ", " + beattype );
+		return division
+				| ( fifths & 0xFF ) << 10
+				| beats << 18
+				| beattype << 24
+				| clefToIndex( measure.getClef() ) << 30;
+	}
+
+	public static int getDivision( int attributes ) {
+		return attributes & 0x3FF;
+	}
+
+	public static int getFifths( int attributes ) {
+		return (byte) ( attributes >>> 10 );
+	}
+
+	public static int getBeats( int attributes ) {
+		return ( attributes >>> 18 ) & 0x3F;
+	}
+
+	public static int getBeattype( int attributes ) {
+		return ( attributes >>> 24 ) & 0x3F;
+	}
+
+	public static Clef getClef( int attributes ) {
+		switch( attributes >>> 30 ) {
+		case 1:
+			return Clef.CLEF_G;
+		case 2:
+			return Clef.CLEF_F;
+		case 3:
+			return Clef.CLEF_TAB;
+		default:
+			return null;
+		}
+	}
+
+	private static int clefToIndex( Clef clef ) {
+		if( clef == Clef.CLEF_G )
+			return 1;
+		else if( clef == Clef.CLEF_F )
+			return 2;
+		else if( clef == Clef.CLEF_TAB )
+			return 3;
+		else
+			return 0;
+	}
+
+	/*#############################################################################
+	 * 						GETTER/SETTER
+	 *###########################################################################*/
+
+	public SongConfig getConfig() {
+		return config;
+	}
+
+	public void setConfig( SongConfig config ) {
+		this.config = config;
+	}
+
+	public void addPart( PartBuffer part ) {
+		parts.add( part );
+	}
+
+	public PartBuffer getPart( int index ) {
+		return parts.get( index );
+	}
+
+	public int getPartCount() {
+		return parts.size();
+	}
+
+	/**
+	 * @return Die Instrumente der Parts in Reihenfolge der Parts
+	 */
+	public Instrument[] getInstruments() {
+		Instrument[] instruments = new Instrument[ parts.size() ];
+		for( int i = 0; i < parts.size(); i++ )
+			instruments[ i ] = parts.get( i ).getInstrument();
+		return instruments;
+	}
+
+	/**
+	 * Die Ereignisse eines einzelnen {@link Part}s.<br>
+	 * Neue Ereignisse werden immer am Ende angefügt, die Arrays wachsen dabei wie bei einer ArrayList.
+	 */
+	public static class PartBuffer {
+
+		private final Instrument instrument;
+
+		private long[] events;
+		private int size;
+
+		/**
+		 * Pro Takt: Index des ersten Ereignisses und gepackte Attribute
+		 */
+		private int[] measureStarts, measures;
+		private int measureCount;
+
+		/**
+		 * Der Tick, an dem das nächste Ereignis beginnt (= Länge des Parts)
+		 */
+		private long length;
+
+
+		public PartBuffer( Instrument instrument ) {
+			this( instrument, 16, 64 );
+		}
+
+		/**
+		 * @param instrument Das Instrument des Parts
+		 * @param measureCapacity Erwartete Anzahl an Takten
+		 * @param eventCapacity Erwartete Anzahl an Ereignissen
+		 */
+		public PartBuffer( Instrument instrument, int measureCapacity, int eventCapacity ) {
+			this.instrument = instrument;
+			this.measureStarts = new int[ Math.max( measureCapacity, 1 ) ];
+			this.measures = new int[ Math.max( measureCapacity, 1 ) ];
+			this.events = new long[ Math.max( eventCapacity, 1 ) ];
+		}
+
+		/**
+		 * Erzeugt einen PartBuffer direkt aus den Arrays eines anderen PartBuffers, z.B. aus einer gespeicherten Datei.
+		 * Die Arrays werden übernommen und nicht kopiert.
+		 *
+		 * @param instrument Das Instrument des Parts
+		 * @param measureStarts Pro Takt der Index des ersten Ereignisses (s. {@link #getMeasureStart(int)})
+		 * @param measureAttributes Pro Takt die gepackten Attribute (s. {@link #getMeasureAttributes(int)})
+		 * @param events Die gepackten Ereignisse (s. {@link #getEvent(int)})
+		 * @param length Die Länge des Parts in Ticks (s. {@link #getLength()})
+		 * @return Der PartBuffer
+		 * @throws IllegalArgumentException Falls die Arrays nicht zueinander passen
+		 */
+		public static PartBuffer wrap( Instrument instrument, int[] measureStarts, int[] measureAttributes, long[] events, long length ) {
+			if( measureStarts.length != measureAttributes.length )
+				throw new IllegalArgumentException( "Different number of measure starts and attributes" );
+			for( int m = 0; m < measureStarts.length; m++ ) {
+				if( measureStarts[ m ] < ( m == 0 ? 0 : measureStarts[ m - 1 ] ) || measureStarts[ m ] > events.length )
+					throw new IllegalArgumentException( "Invalid start of measure " + m + ": " + measureStarts[ m ] );
+			}
+			if( events.length > 0 && measureStarts.length == 0 )
+				throw new IllegalArgumentException( "Events without measure" );
+			if( length < 0 || length > MAX_TICK )
+				throw new IllegalArgumentException( "Invalid length: " + length );
+			PartBuffer buffer = new PartBuffer( instrument, 0, 0 );
+			buffer.measureStarts = measureStarts.length == 0 ? new int[ 1 ] : measureStarts;
+			buffer.measures = measureAttributes.length == 0 ? new int[ 1 ] : measureAttributes;
+			buffer.measureCount = measureStarts.length;
+			buffer.events = events.length == 0 ? new long[ 1 ] : events;
+			buffer.size = events.length;
+			buffer.length = length;
+			return buffer;
+		}
+
+		/**
+		 * Wandelt einen {@link Part} um. {@link Chord}s werden als ein Ereignis pro Ton gespeichert,
+		 * die Dauer des Akkords ist wie in {@link Chord#getDuration()} die seiner längsten Note.
+		 *
+		 * @param part Der Part
+		 * @return Ein neuer PartBuffer mit den Noten des Parts
+		 */
+		public static PartBuffer fromPart( Part part ) {
+			int eventCount = 0;
+			for( Measure measure : part )
+				eventCount += measure.size();
+			PartBuffer buffer = new PartBuffer( part.getInstrument(), part.size(), eventCount );
+			for( Measure measure : part )
+				buffer.addMeasure( measure );
+			return buffer;
+		}
+
+		/**
+		 * Baut die Takte des PartBuffers als {@link Part} wieder auf.
+		 * @return Ein neuer Part
+		 */
+		public Part toPart() {
+			Part part = new Part( instrument );
+			for( int m = 0; m < measureCount; m++ ) {
+				int attributes = measures[ m ];
+				Measure measure = new Measure( SongBuffer.getDivision( attributes ), SongBuffer.getFifths( attributes ),
+						SongBuffer.getBeats( attributes ), SongBuffer.getBeattype( attributes ), SongBuffer.getClef( attributes ) );
+				addNotesTo( measure, measureStarts[ m ], getMeasureEnd( m ) );
+				part.add( measure );
+			}
+			return part;
+		}
+
+		private void addNotesTo( Measure measure, int from, int to ) {
+			for( int i = from; i < to; i++ ) {
+				long event = events[ i ];
+				if( isRest( event ) ) {
+					measure.add( new Rest( getDuration( event ) ) );
+				} else {
+					SNote snote = toNote( event );
+					if( isChordStart( event ) || i + 1 < to && isChordNote( events[ i + 1 ] ) ) {//Akkord beginnt
+						ArrayList<SNote> notes = new ArrayList<SNote>();
+						notes.add( snote );
+						while( i + 1 < to && isChordNote( events[ i + 1 ] ) )
+							notes.add( toNote( events[ ++i ] ) );
+						measure.add( new Chord( notes ) );
+					} else {
+						measure.add( snote );
+					}
+				}
+			}
+		}
+
+		/**
+		 * Die Oktave wird über {@link SNote#addStep(int)} gesetzt, da {@link SNote#setOctave(int)} negative Oktaven auf 0 setzt
+		 */
+		private static SNote toNote( long event ) {
+			SNote snote = new SNote( getTone( event ), 0, getDuration( event ) );
+			snote.addStep( getOctave( event ) * 12 );
+			return snote;
+		}
+
+		/**
+		 * Hängt einen {@link Measure} mit all seinen Noten als neuen Takt an (s. {@link #fromPart(Part)}).
+		 *
+		 * @param measure Der Takt
+		 */
+		public void addMeasure( Measure measure ) {
+			startMeasure( encodeAttributes( measure ) );
+			for( INote iNote : measure ) {
+				if( iNote instanceof SNote ) {
+					SNote snote = (SNote) iNote;
+					addNote( snote.getTone(), snote.getOctave(), snote.getDuration() );
+				} else if( iNote instanceof Rest ) {
+					addRest( iNote.getDuration() );
+				} else if( iNote instanceof Chord ) {
+					Chord chord = (Chord) iNote;
+					int[] tones = new int[ chord.size() ];
+					int[] octaves = new int[ chord.size() ];
+					int[] durations = new int[ chord.size() ];
+					for( int c = 0; c < chord.size(); c++ ) {
+						tones[ c ] = chord.get( c ).getTone();
+						octaves[ c ] = chord.get( c ).getOctave();
+						durations[ c ] = chord.get( c ).getDuration();
+					}
+					addChord( tones, octaves, durations );
+				} else {
+					throw new IllegalArgumentException( "Unknown type of note: " + iNote );
+				}
+			}
+		}
+
+		/**
+		 * Beginnt einen neuen Takt. Alle folgenden Ereignisse gehören zu diesem Takt.
+		 *
+		 * @param attributes Die Attribute des Taktes (s. {@link SongBuffer#encodeAttributes(Measure)})
+		 */
+		public void startMeasure( int attributes ) {
+			if( measureCount == measures.length ) {
+				measures = Arrays.copyOf( measures, measureCount * 2 );
+				measureStarts = Arrays.copyOf( measureStarts, measureCount * 2 );
+			}
+			measureStarts[ measureCount ] = size;
+			measures[ measureCount++ ] = attributes;
+		}
+
+		/**
+		 * Fügt eine Note am Ende des Parts an.
+		 */
+		public void addNote( int tone, int octave, int duration ) {
+			add( tone, octave, duration, 0 );
+			length += duration;
+		}
+
+		/**
+		 * Fügt eine Pause am Ende des Parts an.
+		 */
+		public void addRest( int duration ) {
+			add( 0, 0, duration, FLAG_REST );
+			length += duration;
+		}
+
+		/**
+		 * Fügt einen Akkord am Ende des Parts an. Alle Töne beginnen am gleichen Tick,
+		 * der Part wird um die längste Dauer verlängert. Ein Akkord ohne Töne wird nicht gespeichert.
+		 */
+		public void addChord( int[] tones, int[] octaves, int[] durations ) {
+			int max = 0;
+			for( int c = 0; c < tones.length; c++ ) {
+				add( tones[ c ], octaves[ c ], durations[ c ], c == 0 ? FLAG_CHORD_START : FLAG_CHORD );
+				if( durations[ c ] > max )
+					max = durations[ c ];
+			}
+			length += max;
+		}
+
+		private void add( int tone, int octave, int duration, int flags ) {
+			if( measureCount == 0 )
+				throw new IllegalStateException( "startMeasure() must be called before adding notes" );
+			if( size == events.length )
+				events = Arrays.copyOf( events, size * 2 );
+			events[ size++ ] = encode( tone, octave, duration, length, flags );
+		}
+
+		public Instrument getInstrument() {
+			return instrument;
+		}
+
+		/**
+		 * @return Die Anzahl an Ereignissen
+		 */
+		public int size() {
+			return size;
+		}
+
+		/**
+		 * @param index Die Position des Ereignisses
+		 * @return Das gepackte Ereignis (s. {@link SongBuffer})
+		 */
+		public long getEvent( int index ) {
+			if( index >= size )
+				throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + size );
+			return events[ index ];
+		}
+
+		/**
+		 * @return Die Anzahl an Takten
+		 */
+		public int getMeasureCount() {
+			return measureCount;
+		}
+
+		/**
+		 * @param index Die Nummer des Taktes (beginnend bei 0)
+		 * @return Der Index des ersten Ereignisses des Taktes
+		 */
+		public int getMeasureStart( int index ) {
+			if( index >= measureCount )
+				throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + measureCount );
+			return measureStarts[ index ];
+		}
+
+		/**
+		 * @param index Die Nummer des Taktes (beginnend bei 0)
+		 * @return Der Index nach dem letzten Ereignis des Taktes
+		 */
+		public int getMeasureEnd( int index ) {
+			if( index >= measureCount )
+				throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + measureCount );
+			return index + 1 < measureCount ? measureStarts[ index + 1 ] : size;
+		}
+
+		/**
+		 * @param index Die Nummer des Taktes (beginnend bei 0)
+		 * @return Die gepackten Attribute des Taktes (s. {@link SongBuffer#encodeAttributes(Measure)})
+		 */
+		public int getMeasureAttributes( int index ) {
+			if( index >= measureCount )
+				throw new IndexOutOfBoundsException( "Index: " + index + ", Size: " + measureCount );
+			return measures[ index ];
+		}
+
+		/**
+		 * @return Die Länge des Parts in Ticks, einschließlich Pausen am Ende
+		 */
+		public long getLength() {
+			return length;
+		}
+	}
+}
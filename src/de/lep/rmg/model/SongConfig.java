@@ -1,15 +1,30 @@
 package de.lep.rmg.model;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
 import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import de.lep.rmg.model.Measure.Clef;
 import de.lep.rmg.model.helper.PercentPair;
 import de.lep.rmg.model.helper.RandomHelper;
+import de.lep.rmg.model.helper.SeededRandom;
+import de.lep.rmg.model.helper.WeightedSampler;
 import de.lep.rmg.model.instruments.AcusticGuitar;
 import de.lep.rmg.model.instruments.Flute;
 import de.lep.rmg.model.instruments.Instrument;
 import de.lep.rmg.model.instruments.Piano;
+import de.lep.rmg.model.instruments.helper.InstrumentHelper;
 import de.lep.rmg.model.notes.CType;
 import de.lep.rmg.model.notes.SChord;
 import de.lep.rmg.model.notes.SNote;
@@ -19,15 +34,22 @@ import de.lep.rmg.out.xml.XMLGenerator;
 
 /**
  * Klasse speichert die Konfiguration des Songs.<br>
- * Manche Einstellungen werden durch die GUI oder andere Methoden noch verändert.<br>
+ * Ein SongConfig ist unveränderlich und wird mit einem {@link Builder} erstellt (die Konstruktoren sind Abkürzungen dafür).
+ * Geänderte Einstellungen ergeben ein neues SongConfig, z.B. über {@link #toBuilder()} oder {@link #withTitle(String)}.
+ * Abgeleitete Werte (Taktlänge, Intervall-Tabelle, Sampler, Prüfung der Akkordlängen) werden einmal beim Erstellen berechnet.
+ * Daher kann ein SongConfig ohne Synchronisierung von mehreren Threads verwendet werden und eignet sich mit
+ * {@link #equals(Object)} und {@link #hashCode()} als Schlüssel.<br>
+ * Nur die {@link Instrument}e werden nicht kopiert, da die GUI ihre Lautstärke einstellt.<br>
  * <br>
  * Zu jeden Feld steht in '@category', in welchen Algorithmus sie verwendet wird (XML- oder MIDI-Felder ändern nichts am Musikgenerator):
  * XML: Wird in {@link XMLGenerator} verwendet.<br>
  * MIDI: Wird in {@link TrackFactory} verwendet.<br>
  * Musikgenerator: Wird beim Komponieren des Songs verwendet.
  */
-public class SongConfig {
+public final class SongConfig {
 
+	private static final Logger LOGGER = Logger.getLogger( SongConfig.class.getName() );
+	
 	/**
 	 * Gibt einen relativen Wert an, mit welchem die Dauer berechnet wird.<br>
 	 * Ein 4tel = 1*division, 8tel = 1/2*division, halb = 2*division, ...<br>
@@ -41,59 +63,59 @@ public class SongConfig {
 	 * Positiv: Kreuze, negativ: B
 	 * @category XML und MIDI
 	 */
-	private int fifth = 0;
+	private final int fifth;
 	
 	/**
 	 * Steht für die Taktart
 	 * @category XML, MIDI und Musikgenerator
 	 */
-	private int beats = 4, beatType = 4;
+	private final int beats, beatType;
 	
 	/**
 	 * Gibt den Notenschlüssel an.
 	 * @category XML
 	 */
-	private Clef clef = Clef.CLEF_G;//TODO In Instrument auslagern, da jedes Instrument anderen Notenschlüssel haben kann?
+	private final Clef clef;//TODO In Instrument auslagern, da jedes Instrument anderen Notenschlüssel haben kann?
 	
 	/**
 	 * Der Titel des Songs.<br>
 	 * Kann in der GUI geändert werden.
 	 * @category XML und MIDI
 	 */
-	private String title = "Untitled Song";
+	private final String title;
 	
 	/**
 	 * Der Komponist des Songs.
 	 * @category XML und MIDI
 	 */
-	private String composer = "RMG";
+	private final String composer;
 	
 	/**
 	 * Die Anzahl an Akkorden pro Melodie.<br>
 	 * <code>chordNr * chordDuration</code> muss ein Vielfaches von <code>beats sein (Melodie darf nicht mitten im Takt aufhören)
 	 * @category Musikgenerator
 	 */
-	private int chordNr = 4;
+	private final int chordNr;
 	
 	/**
 	 * Die Länge einer Akkordmelodie in Vierteln.<br>
 	 * <code>chordNr * chordDuration</code> muss ein Vielfaches von 4 sein (Melodie muss n Takte lang sein)
 	 * @category Musikgenerator
 	 */
-	private int chordDuration = 1;
+	private final int chordDuration;
 	
 	/**
 	 * Wie oft die Melodiefolge wiederholt wird.
 	 * @category Musikgenerator
 	 */
-	private int repeats = 1;
+	private final int repeats;
 	
 	/**
 	 * Die Anzahl an Melodien und an Instrumenten.<br>
 	 * Dieser Wert kann für den Musikgenerator verändert werden, falls allerdings die View verwendet wird nicht, da der Wert dort fest ist.
 	 * @category Musikgenerator
 	 */
-	private int melodyNr = 2;
+	private final int melodyNr;
 	
 	/**
 	 * Die Instrumente mit denen der Song abgespielt wird.<br>
@@ -101,14 +123,14 @@ public class SongConfig {
 	 * <code>melodyNr == instruments.length</code> muss True sein.
 	 * @category (XML, MIDI) und Musikgenerator
 	 */
-	private Instrument[] instruments = { new Piano(), new Flute(), new AcusticGuitar() };
+	private final Instrument[] instruments;
 	
 	/**
 	 * Der Grundton des Songs.<br>
 	 * Kann in der GUI verändert werden.
 	 * @category Musikgenerator
 	 */
-	private SChord key = new SChord( SNote.C, CType.MAJOR );
+	private final SChord key;
 	
 	/**
 	 * Speichert für jedes erlaubte Interval eine Wahrscheinlichkeit.<br>
@@ -116,7 +138,7 @@ public class SongConfig {
 	 * Es werden nur positive Intervalle oder 0 verwendet.
 	 * @category Musikgenerator
 	 */
-	private ArrayList<PercentPair> intervals;
+	private final List<PercentPair> intervals;
 	
 	/**
 	 * Die Wahrscheinlichkeiten für die Länge von Dauern (Im XML-/MIDI-Format).<br>
@@ -124,53 +146,140 @@ public class SongConfig {
 	 * Die Summe der Wahrscheinlichkeiten muss 1 sein
 	 * @category Musikgenerator
 	 */
-	private ArrayList<PercentPair> noteDurations;
+	private final List<PercentPair> noteDurations;
 	
 	/**
 	 * Die Wahrscheinlichkeit im Rhythmus statt eines Tones eine Pause einzubauen.
 	 * @category Musikgenerator
 	 */
-	private float restProbability = 0.1f;
+	private final float restProbability;
+	
+	/**
+	 * Der Startwert für alle Zufallsentscheidungen dieses Songs.<br>
+	 * Aus ihm werden die Wahrscheinlichkeiten und der Zufallsgenerator der Generierung ({@link #createRandom()}) abgeleitet,
+	 * so dass eine SongConfig mit gleichem Startwert und gleichen Einstellungen immer den gleichen Song ergibt.
+	 * @category Musikgenerator
+	 */
+	private final long seed;
+	
+	/*#############################################################################
+	 * 						ABGELEITETE WERTE
+	 *###########################################################################*/
+	
+	/**
+	 * Die Länge eines Taktes: <code>beats * measureDivision</code>
+	 */
+	private final int measureLength;
+	
+	/**
+	 * Die Intervalle als Tabelle, Index ist das Intervall. Nicht erlaubte Intervalle haben die Wahrscheinlichkeit 0.
+	 */
+	private final PercentPair[] intervalTable;
+	
+	/**
+	 * Sampler über {@link #noteDurations} und über {@link #intervals} mit Richtung
+	 */
+	private final WeightedSampler durationSampler, intervalSampler;
+	
+	/**
+	 * true, falls eine Melodie aus ganzen Takten besteht (<code>chordNr * chordDuration</code> ist ein Vielfaches von beats)
+	 */
+	private final boolean fullMeasures;
+	
+	/**
+	 * Der Hash aus allen Feldern außer den Instrumenten
+	 */
+	private final int hash;
 
 	public SongConfig( int chordNr, int repeats, int melodyNr, int chordDuration, SChord key, Instrument[] instruments ) {
-		this.chordNr = chordNr;
-		this.repeats = repeats;
-		this.melodyNr = melodyNr;
-		this.chordDuration = chordDuration;
+		this( chordNr, repeats, melodyNr, chordDuration, key, instruments, RandomHelper.newSeed() );
+	}
+	
+	public SongConfig( int chordNr, int repeats, int melodyNr, int chordDuration, SChord key, Instrument[] instruments, long seed ) {
+		this( new Builder().setChordNr( chordNr ).setRepeats( repeats ).setMelodyNr( melodyNr ).setChordDuration( chordDuration )
+				.setKey( key ).setInstruments( instruments ).setSeed( seed ) );
+	}
+	
+	public SongConfig(){
+		this( RandomHelper.newSeed() );
+	}
+	
+	public SongConfig( long seed ){
+		this( new Builder().setSeed( seed ) );
+	}
+	
+	private SongConfig( Builder builder ){
+		seed = builder.seed != null ? builder.seed : RandomHelper.newSeed();
+		chordNr = builder.chordNr;
+		repeats = builder.repeats;
+		melodyNr = builder.melodyNr;
+		chordDuration = builder.chordDuration;
 		if(chordDuration == 3){
 			beats = 3;
 			beatType = 3;
+		}else{
+			beats = 4;
+			beatType = 4;
 		}
-		this.key = key;
+		key = new SChord( builder.key.getKeynote(), builder.key.getType() );
 		fifth = ChordHelper.getCircleOfFifthPos(key);
-		if(instruments != null && instruments.length != 0){
-			this.instruments = instruments;
+		instruments = builder.instruments != null && builder.instruments.length != 0 ? copy( builder.instruments ) : defaultInstruments();
+		clef = builder.clef;
+		title = builder.title;
+		composer = builder.composer;
+		restProbability = builder.restProbability;
+		
+		//Die Wahrscheinlichkeiten werden immer aus dem Startwert gezogen, damit gesetzte Intervalle nicht die Notenlängen verändern
+		Random rand = new SeededRandom( ~seed );
+		List<PercentPair> alteredIntervals = alterIntervalProbabilities(rand);
+		List<PercentPair> alteredDurations = alterDurationProbabilities(rand);
+		intervals = copy( builder.intervals != null ? builder.intervals : alteredIntervals );
+		noteDurations = copy( builder.noteDurations != null ? builder.noteDurations : alteredDurations );
+		if( builder.intervals == null || builder.noteDurations == null )
+			printProbabilities();
+		
+		measureLength = beats * measureDivision;
+		fullMeasures = chordNr * chordDuration % beats == 0;
+		int maxInterval = 0;
+		for( PercentPair pair : intervals )
+			maxInterval = Math.max( maxInterval, Math.abs( pair.getValue() ) );
+		intervalTable = new PercentPair[ maxInterval + 1 ];
+		for( int i = intervalTable.length - 1; i >= 0; i-- )//bei doppelten Intervallen gilt wie bisher das erste
+			intervalTable[ i ] = new PercentPair( i, 0f );
+		for( int i = intervals.size() - 1; i >= 0; i-- ) {
+			if( intervals.get( i ).getValue() >= 0 )
+				intervalTable[ intervals.get( i ).getValue() ] = intervals.get( i );
+		}
+		durationSampler = WeightedSampler.of( noteDurations );
+		ArrayList<PercentPair> signed = new ArrayList<PercentPair>();
+		for( PercentPair pair : intervals ) {
+			signed.add( pair );
+			if( pair.getValue() != 0 )
+				signed.add( new PercentPair( -pair.getValue(), pair.getPercent() ) );
 		}
-		alterProbabilities();
-		printProbabilities();
+		intervalSampler = WeightedSampler.of( signed );
+		hash = computeHash();
 	}
 	
-	public SongConfig(){
-		alterProbabilities();
-		printProbabilities();
+	private static Instrument[] defaultInstruments(){
+		return new Instrument[]{ new Piano(), new Flute(), new AcusticGuitar() };
 	}
 	
 	/**
-	 * Initializations-Methode, welche in jedem Konstruktor vorkommt.<br>
-	 * Verändert zufällig folgende Werte:
-	 * <ul>
-	 * <li>Intervall-Wahrscheinlichkeiten.</li>
-	 * <li>Dauer-Wahrscheinlichkeiten.</li>
-	 * </ul>
+	 * Kopiert die Paare in eine unveränderliche Liste
 	 */
-	private void alterProbabilities(){
-		Random rand = RandomHelper.getRandom();
-		
-		alterIntervalProbabilities(rand);
-		alterDurationProbabilities(rand);
+	private static List<PercentPair> copy( List<PercentPair> pairs ){
+		List<PercentPair> copy = new ArrayList<PercentPair>( pairs.size() );
+		for( PercentPair pair : pairs )
+			copy.add( new PercentPair( pair.getValue(), pair.getPercent() ) );
+		return Collections.unmodifiableList( copy );
 	}
 	
-	private void alterIntervalProbabilities(Random rand){
+	/**
+	 * Zieht die Intervall-Wahrscheinlichkeiten zufällig.<br>
+	 * Der Zufall wird aus dem Startwert abgeleitet, aber unabhängig von {@link #createRandom()}.
+	 */
+	private static List<PercentPair> alterIntervalProbabilities(Random rand){
 		Float[] intervalProbs = new Float[5];
 		intervalProbs[0] = (float) ((rand.nextInt(25) + 2.5) / 100);//( 15 +- 12.5 )%
  		intervalProbs[1] = (float) ((rand.nextInt(40) + 5.0) / 100);//( 25 +- 20 )%
@@ -181,14 +290,18 @@ public class SongConfig {
 		for(float percent : intervalProbs){
 			sum += percent;
 		}
-		intervals = new ArrayList<PercentPair>();
+		List<PercentPair> intervals = new ArrayList<PercentPair>();
 		for(int i = 0; i < intervalProbs.length; i++){
 			intervalProbs[i] /= sum;
 			intervals.add(new PercentPair(i, intervalProbs[i]));
 		}
+		return intervals;
 	}
 	
-	private void alterDurationProbabilities(Random rand){
+	/**
+	 * Zieht die Dauer-Wahrscheinlichkeiten zufällig, nach den Intervall-Wahrscheinlichkeiten.
+	 */
+	private static List<PercentPair> alterDurationProbabilities(Random rand){
 		float eighthProb = (float) ((rand.nextInt(40) + 10.0) / 100);
 		float quarterProb = (float) ((rand.nextInt(40) + 10.0) / 100);
 		float quarterDotProb = (float) ((rand.nextInt(35) + 5.0) / 100);
@@ -198,31 +311,57 @@ public class SongConfig {
 		quarterProb /= sum;
 		quarterDotProb /= sum;
 		halfProb /= sum;
-		noteDurations = new ArrayList<PercentPair>();
+		List<PercentPair> noteDurations = new ArrayList<PercentPair>();
 		noteDurations.add(new PercentPair(SNote.EIGHTH, eighthProb));
 		noteDurations.add(new PercentPair(SNote.QUARTER, quarterProb));
 		noteDurations.add(new PercentPair(SNote.QUARTER_DOT, quarterDotProb));
 		noteDurations.add(new PercentPair(SNote.HALF, halfProb));
-		}
+		return noteDurations;
+	}
 	
+	/**
+	 * Protokolliert die Wahrscheinlichkeiten auf {@link Level#FINE}
+	 */
 	void printProbabilities(){
-		System.out.println("Intervalle: ");
+		if(!LOGGER.isLoggable(Level.FINE))
+			return;
+		StringBuilder sb = new StringBuilder("Intervalle: ");
 		for(PercentPair percent : intervals) {
-			System.out.println("Interval " + percent.getValue() + ": " + percent.getPercent());
+			sb.append("\n  Interval " + percent.getValue() + ": " + percent.getPercent());
 		}
-		System.out.println("\nNotenlängen: ");
+		sb.append("\nNotenlängen: ");
 		for(PercentPair percent : noteDurations) {
-			System.out.println("Dauer " + percent.getValue() + ": " + percent.getPercent());
+			sb.append("\n  Dauer " + percent.getValue() + ": " + percent.getPercent());
 		}
-		System.out.println("");
+		LOGGER.fine(sb.toString());
 	}
 	
-	/*#############################################################################
-	 * 						SETTER
-	 *###########################################################################*/
+	/**
+	 * Erzeugt den Zufallsgenerator für eine Generierung dieses Songs.<br>
+	 * Jeder Aufruf liefert einen neuen Generator mit der gleichen Zahlenfolge, daher ergibt jede Generierung
+	 * mit dieser SongConfig den gleichen Song. Der Generator wird in der Generierung an alle Methoden weitergereicht,
+	 * die Zufall benötigen, und darf nicht zwischen Threads geteilt werden (siehe {@link SeededRandom#split()}).
+	 * @return ein neuer, aus dem Startwert abgeleiteter Zufallsgenerator
+	 */
+	public SeededRandom createRandom(){
+		return new SeededRandom( seed );
+	}
+	
+	/**
+	 * @return Ein Builder mit allen Einstellungen dieses SongConfigs, auch den Wahrscheinlichkeiten
+	 */
+	public Builder toBuilder(){
+		return new Builder().setChordNr( chordNr ).setRepeats( repeats ).setMelodyNr( melodyNr ).setChordDuration( chordDuration )
+				.setKey( key ).setInstruments( instruments ).setSeed( seed ).setClef( clef ).setTitle( title ).setComposer( composer )
+				.setRestProbability( restProbability ).setIntervals( intervals ).setNoteDurations( noteDurations );
+	}
 	
-	public void setTitle(String title){
-		this.title = title;
+	/**
+	 * @param title Der neue Titel
+	 * @return Ein SongConfig mit den gleichen Einstellungen, aber dem übergebenen Titel
+	 */
+	public SongConfig withTitle(String title){
+		return toBuilder().setTitle( title ).build();
 	}
 	
 	/*#############################################################################
@@ -244,6 +383,24 @@ public class SongConfig {
 	public int getBeatType() {
 		return beatType;
 	}
+	
+	/**
+	 * @return Die Länge eines Taktes: <code>getBeats() * getMeasureDivision()</code>
+	 */
+	public int getMeasureLength() {
+		return measureLength;
+	}
+	
+	/**
+	 * Wird nicht schon von {@link Builder#build()} geprüft, da nur der Kanon ganze Takte braucht: {@link de.lep.rmg.musicgen.CanonStream}
+	 * lehnt andere SongConfigs mit einer IllegalStateException ab, die Fuge verwendet immer die Akkorddauer 4.
+	 * Aufrufer müssen nur selbst prüfen, wenn sie statt der Exception eine eigene Fehlermeldung ausgeben wollen.
+	 * @return true, falls <code>getChordNr() * getChordDuration()</code> ein Vielfaches von {@link #getBeats()} ist,
+	 * eine Melodie also aus ganzen Takten besteht
+	 */
+	public boolean hasFullMeasures() {
+		return fullMeasures;
+	}
 
 	public Clef getClef() {
 		return clef;
@@ -269,109 +426,74 @@ public class SongConfig {
 		return melodyNr;
 	}
 
+	/**
+	 * @return Eine Kopie des Grundtons des Songs
+	 */
 	public SChord getKey() {
-		return key;
+		return new SChord( key.getKeynote(), key.getType() );
 	}
 	
+	/**
+	 * @return Eine Kopie des Instrument-Arrays mit Kopien der Instrumente, Änderungen der Lautstärke wirken sich nicht auf das SongConfig aus
+	 */
 	public Instrument[] getInstruments() {
-		return instruments;
+		return copy( instruments );
+	}
+	
+	/**
+	 * kopiert das Array und die Instrumente, damit die Lautstärke beim Erstellen festgehalten wird
+	 */
+	private static Instrument[] copy( Instrument[] instruments ) {
+		Instrument[] copy = new Instrument[ instruments.length ];
+		for( int i = 0; i < instruments.length; i++ )
+			copy[ i ] = instruments[ i ].clone();
+		return copy;
 	}
 	
 	public float getRestProbability(){
 		return restProbability;
 	}
 	
-//	public void readArgs() {
-//		try {
-//			File paramF = new File( "res/init/args" );
-//			BufferedReader reader = new BufferedReader( new FileReader( paramF ) );
-//			
-//			chordNr = Integer.parseInt( reader.readLine() );
-//			repeats = Integer.parseInt( reader.readLine() );
-//			melodySameStart = Boolean.parseBoolean( reader.readLine() );
-//			melodyNr = Integer.parseInt( reader.readLine() );
-//			String keyS = reader.readLine();
-//			
-//			reader.close();
-//			
-//			if( keyS != null && keyS.length() == 3 ) {
-//				char noteC = keyS.charAt( 0 );
-//				char sharpC = keyS.charAt( 1 );
-//				char typeC = keyS.charAt( 2 );
-//				int note = 0;
-//				CType type = null;
-//				
-//				if( noteC == 'C' && sharpC == '+' )
-//					note = SNote.CIS;
-//				else if( noteC == 'C' && sharpC == '-' )
-//					note = SNote.C;
-//				else if( noteC == 'D' && sharpC == '+' )
-//					note = SNote.DIS;
-//				else if( noteC == 'D' && sharpC == '-' )
-//					note = SNote.D;
-//				else if( noteC == 'E' )
-//					note = SNote.E;
-//				else if( noteC == 'F' && sharpC == '+' )
-//					note = SNote.FIS;
-//				else if( noteC == 'F' && sharpC == '-' )
-//					note = SNote.F;
-//				else if( noteC == 'G' && sharpC == '+' )
-//					note = SNote.GIS;
-//				else if( noteC == 'G' && sharpC == '-' )
-//					note = SNote.G;
-//				else if( noteC == 'A' && sharpC == '+' )
-//					note = SNote.AIS;
-//				else if( noteC == 'A' && sharpC == '-' )
-//					note = SNote.A;
-//				else if( noteC == 'H' || noteC == 'B' )
-//					note = SNote.B;
-//				else
-//					return;
-//				
-//				if( typeC == 'D' )
-//					type = CType.MAJOR;
-//				else if( typeC == 'M' )
-//					type = CType.MINOR;
-//				else
-//					return;
-//				
-//				key = new SChord( note, type );
-//			}
-//			
-//			System.out.println( "Read init/args: " );
-//			System.out.println( "  Number of Chords: " + chordNr );
-//			System.out.println( "  Number of Repeats: " + repeats );
-//			System.out.println( "  Melodys start at same time: " + melodySameStart );
-//			System.out.println( "  Number of Melodys: " + melodyNr );
-//			if( key == null )
-//				System.out.println( "  Key: Undefinied" );
-//			else
-//				System.out.println( "  Key: " + key.toString() );
-//			
-//		} catch ( FileNotFoundException e ) {
-//			System.out.println( "Could not parse init/args" );
-//			e.printStackTrace();
-//		} catch( NumberFormatException e ) {
-//			System.out.println( "Could not parse init/args" );
-//			e.printStackTrace();
-//		} catch ( IOException e ) {
-//			System.out.println( "Could not parse init/args" );
-//			e.printStackTrace();
-//		}
-//	}
-
+	public long getSeed(){
+		return seed;
+	}
+	
 	public int getChordDuration() {
 		return chordDuration;
 	}
 
-	public ArrayList<PercentPair> getNoteDurations() {
+	/**
+	 * @return Die Wahrscheinlichkeiten der Notenlängen, unveränderlich
+	 */
+	public List<PercentPair> getNoteDurations() {
 		return noteDurations;
 	}
 	
-	public ArrayList<PercentPair> getIntervals() {
+	/**
+	 * @return Die Wahrscheinlichkeiten der Intervalle, unveränderlich
+	 */
+	public List<PercentPair> getIntervals() {
 		return intervals;
 	}
 	
+	/**
+	 * Gibt einen Sampler über die Notenlängen aus {@link #getNoteDurations()} zurück, in der gleichen Reihenfolge.
+	 * @return Der Sampler der Notenlängen
+	 */
+	public WeightedSampler getDurationSampler() {
+		return durationSampler;
+	}
+	
+	/**
+	 * Gibt einen Sampler über die Intervalle aus {@link #getIntervals()} mit Richtung zurück.<br>
+	 * Für jedes Intervall v gibt es die Werte v und -v (außer bei 0), beide mit der Wahrscheinlichkeit von v,
+	 * in der Reihenfolge <code>v0, -v0, v1, -v1, ...</code>
+	 * @return Der Sampler der Intervalle
+	 */
+	public WeightedSampler getIntervalSampler() {
+		return intervalSampler;
+	}
+	
 	/**
 	 * Gibt das PercentPair zum angefragten Interval zurück, falls es existiert.<br>
 	 * Negative Intervalle werden innerhalb der Methode wie positive behandelt und können ohne Einschränkungen übergeben werden.<br>
@@ -383,18 +505,308 @@ public class SongConfig {
 		if(interval < 0){
 			interval *= -1;
 		}
-		for(PercentPair pp: intervals){
-			if(pp.getValue() == interval){
-				return pp;
-			}
+		if(interval < intervalTable.length){
+			return intervalTable[interval];
 		}
 //		throw new NullPointerException("Interval " + interval + " not in this configs interval-list!");
 		return new PercentPair(interval, 0f);
 	}
+	
+	/**
+	 * @param interval - das gesuchte Interval, auch negativ
+	 * @return Die Wahrscheinlichkeit des Intervals, 0 falls es nicht erlaubt ist
+	 * @see #getInterval(int)
+	 */
+	public float getIntervalPercent(int interval) {
+		interval = Math.abs(interval);
+		return interval < intervalTable.length ? intervalTable[interval].getPercent() : 0f;
+	}
 
+	/**
+	 * Erstellt ein SongConfig mit den Einstellungen aus <code>res/init/args</code> (s. {@link Builder#readArgs(Properties)}).
+	 * Fehlt die Datei, werden die Standardwerte verwendet.
+	 * @return das SongConfig
+	 */
 	public static SongConfig getArgsInstance() {
-		SongConfig config = new SongConfig();
-//		config.readArgs();
-		return config;
+		Builder builder = new Builder();
+		File paramF = new File( "res/init/args" );
+		if( paramF.isFile() ) {
+			try( Reader reader = new InputStreamReader( new FileInputStream( paramF ), StandardCharsets.UTF_8 ) ) {
+				Properties args = new Properties();
+				args.load( reader );
+				builder.readArgs( args );
+			} catch( IOException | IllegalArgumentException e ) {
+				System.out.println( "Could not parse init/args" );
+				e.printStackTrace();
+			}
+		}
+		return builder.build();
+	}
+	
+	/**
+	 * Vergleicht alle Einstellungen inklusive Startwert und Wahrscheinlichkeiten.
+	 * Instrumente werden mit {@link Instrument#sameSettings(Instrument)} verglichen, ihre Lautstärke steht seit dem Erstellen fest.
+	 */
+	@Override
+	public boolean equals( Object obj ) {
+		if( this == obj )
+			return true;
+		if( !( obj instanceof SongConfig ) )
+			return false;
+		SongConfig other = (SongConfig) obj;
+		if( hash != other.hash || seed != other.seed || chordNr != other.chordNr || chordDuration != other.chordDuration
+				|| repeats != other.repeats || melodyNr != other.melodyNr || !key.equals( other.key ) || clef != other.clef
+				|| Float.compare( restProbability, other.restProbability ) != 0
+				|| !title.equals( other.title ) || !composer.equals( other.composer )
+				|| !samePairs( intervals, other.intervals ) || !samePairs( noteDurations, other.noteDurations )
+				|| instruments.length != other.instruments.length )
+			return false;
+		for( int i = 0; i < instruments.length; i++ ) {
+			if( !instruments[ i ].sameSettings( other.instruments[ i ] ) )
+				return false;
+		}
+		return true;
+	}
+	
+	private static boolean samePairs( List<PercentPair> a, List<PercentPair> b ) {
+		if( a.size() != b.size() )
+			return false;
+		for( int i = 0; i < a.size(); i++ ) {
+			if( a.get( i ).getValue() != b.get( i ).getValue() || Float.compare( a.get( i ).getPercent(), b.get( i ).getPercent() ) != 0 )
+				return false;
+		}
+		return true;
+	}
+	
+	@Override
+	public int hashCode() {
+		return hash;
+	}
+	
+	private int computeHash() {
+		int h = Long.hashCode( seed );
+		h = 31 * h + chordNr;
+		h = 31 * h + chordDuration;
+		h = 31 * h + repeats;
+		h = 31 * h + melodyNr;
+		h = 31 * h + key.getKeynote();
+		h = 31 * h + key.getType().ordinal();
+		h = 31 * h + Float.floatToIntBits( restProbability );
+		h = 31 * h + title.hashCode();
+		h = 31 * h + composer.hashCode();
+		for( PercentPair pair : intervals )
+			h = 31 * h + Float.floatToIntBits( pair.getPercent() );
+		for( PercentPair pair : noteDurations )
+			h = 31 * h + Float.floatToIntBits( pair.getPercent() );
+		for( Instrument instrument : instruments ) {
+			h = 31 * h + instrument.getMidiProgram();
+			h = 31 * h + Float.floatToIntBits( instrument.getVolume() );
+		}
+		return h;
+	}
+	
+	@Override
+	public String toString() {
+		return "SongConfig [seed=" + seed + ", key=" + key + ", chordNr=" + chordNr + ", chordDuration=" + chordDuration
+				+ ", repeats=" + repeats + ", melodyNr=" + melodyNr + ", instruments=" + Arrays.toString( instruments ) + "]";
+	}
+	
+	/**
+	 * Erstellt ein {@link SongConfig}. Nicht gesetzte Werte haben die gleichen Standardwerte wie bei <code>new SongConfig()</code>,
+	 * ohne Startwert wird ein zufälliger gewählt und ohne Wahrscheinlichkeiten werden sie aus dem Startwert gezogen.<br>
+	 * Ein Builder kann mehrmals verwendet werden und ist nicht threadsicher.
+	 */
+	public static class Builder {
+		
+		private Long seed;
+		private int chordNr = 4, chordDuration = 1, repeats = 1, melodyNr = 2;
+		private SChord key = new SChord( SNote.C, CType.MAJOR );
+		private Instrument[] instruments;
+		private Clef clef = Clef.CLEF_G;
+		private String title = "Untitled Song", composer = "RMG";
+		private float restProbability = 0.1f;
+		private List<PercentPair> intervals, noteDurations;
+		
+		public Builder setSeed( long seed ) {
+			this.seed = seed;
+			return this;
+		}
+		
+		public Builder setChordNr( int chordNr ) {
+			this.chordNr = chordNr;
+			return this;
+		}
+		
+		/**
+		 * @param chordDuration Die Länge einer Akkordmelodie in Vierteln. Bei 3 wird ein 3/3-Takt verwendet, sonst 4/4.
+		 */
+		public Builder setChordDuration( int chordDuration ) {
+			this.chordDuration = chordDuration;
+			return this;
+		}
+		
+		public Builder setRepeats( int repeats ) {
+			this.repeats = repeats;
+			return this;
+		}
+		
+		public Builder setMelodyNr( int melodyNr ) {
+			this.melodyNr = melodyNr;
+			return this;
+		}
+		
+		public Builder setKey( SChord key ) {
+			if( key == null )
+				throw new IllegalArgumentException( "key must not be null" );
+			this.key = key;
+			return this;
+		}
+		
+		/**
+		 * @param instruments Die Instrumente, bei null oder einem leeren Array Klavier, Flöte und Gitarre.
+		 * {@link #build()} kopiert sie mit ihrer aktuellen Lautstärke.
+		 */
+		public Builder setInstruments( Instrument[] instruments ) {
+			this.instruments = instruments;
+			return this;
+		}
+		
+		public Builder setClef( Clef clef ) {
+			this.clef = clef;
+			return this;
+		}
+		
+		public Builder setTitle( String title ) {
+			this.title = title;
+			return this;
+		}
+		
+		public Builder setComposer( String composer ) {
+			this.composer = composer;
+			return this;
+		}
+		
+		public Builder setRestProbability( float restProbability ) {
+			this.restProbability = restProbability;
+			return this;
+		}
+		
+		/**
+		 * @param intervals Die Intervall-Wahrscheinlichkeiten oder null, um sie aus dem Startwert zu ziehen
+		 */
+		public Builder setIntervals( List<PercentPair> intervals ) {
+			this.intervals = intervals;
+			return this;
+		}
+		
+		/**
+		 * @param noteDurations Die Wahrscheinlichkeiten der Notenlängen, nach Länge sortiert, oder null, um sie aus dem Startwert zu ziehen
+		 */
+		public Builder setNoteDurations( List<PercentPair> noteDurations ) {
+			this.noteDurations = noteDurations;
+			return this;
+		}
+		
+		/**
+		 * Übernimmt alle in den Properties gesetzten Einstellungen, die übrigen bleiben unverändert.<br>
+		 * Die Schlüssel sind die Namen der Setter ohne "set": <code>seed, chordNr, chordDuration, repeats, melodyNr, key,
+		 * instruments, clef, title, composer, restProbability</code>.<br>
+		 * Die Tonart wird wie früher in <code>res/init/args</code> angegeben: Grundton (C, D, E, F, G, A, H bzw. B),
+		 * optional + für ein Kreuz oder -, dann D für Dur oder M für Moll, z.B. <code>F+M</code> für fis-Moll.<br>
+		 * Instrumente werden durch Komma getrennt mit ihrem Klassennamen angegeben, z.B. <code>Piano,Flute</code>,
+		 * der Notenschlüssel mit G, F oder TAB.
+		 * 
+		 * @param args Die Einstellungen
+		 * @return dieser Builder
+		 * @throws IllegalArgumentException Falls ein Wert nicht gelesen werden kann
+		 */
+		public Builder readArgs( Properties args ) {
+			try {
+				if( args.getProperty( "seed" ) != null )
+					setSeed( Long.parseLong( args.getProperty( "seed" ).trim() ) );
+				chordNr = readInt( args, "chordNr", chordNr );
+				chordDuration = readInt( args, "chordDuration", chordDuration );
+				repeats = readInt( args, "repeats", repeats );
+				melodyNr = readInt( args, "melodyNr", melodyNr );
+				if( args.getProperty( "restProbability" ) != null )
+					restProbability = Float.parseFloat( args.getProperty( "restProbability" ).trim() );
+			} catch( NumberFormatException e ) {
+				throw new IllegalArgumentException( "Invalid number in args: " + e.getMessage(), e );
+			}
+			if( args.getProperty( "key" ) != null )
+				setKey( parseKey( args.getProperty( "key" ).trim() ) );
+			if( args.getProperty( "instruments" ) != null )
+				setInstruments( parseInstruments( args.getProperty( "instruments" ) ) );
+			if( args.getProperty( "clef" ) != null )
+				setClef( parseClef( args.getProperty( "clef" ).trim() ) );
+			title = args.getProperty( "title", title );
+			composer = args.getProperty( "composer", composer );
+			return this;
+		}
+		
+		private static int readInt( Properties args, String name, int value ) {
+			String property = args.getProperty( name );
+			return property != null ? Integer.parseInt( property.trim() ) : value;
+		}
+		
+		private static SChord parseKey( String key ) {
+			if( key.length() < 2 || key.length() > 3 )
+				throw new IllegalArgumentException( "Invalid key: " + key );
+			int note;
+			switch( Character.toUpperCase( key.charAt( 0 ) ) ) {
+			case 'C': note = SNote.C; break;
+			case 'D': note = SNote.D; break;
+			case 'E': note = SNote.E; break;
+			case 'F': note = SNote.F; break;
+			case 'G': note = SNote.G; break;
+			case 'A': note = SNote.A; break;
+			case 'H':
+			case 'B': note = SNote.B; break;
+			default: throw new IllegalArgumentException( "Invalid key: " + key );
+			}
+			if( key.length() == 3 ) {
+				if( key.charAt( 1 ) == '+' )
+					note = ( note + 1 ) % 12;
+				else if( key.charAt( 1 ) != '-' )
+					throw new IllegalArgumentException( "Invalid key: " + key );
+			}
+			char typeC = Character.toUpperCase( key.charAt( key.length() - 1 ) );
+			if( typeC == 'D' )
+				return new SChord( note, CType.MAJOR );
+			else if( typeC == 'M' )
+				return new SChord( note, CType.MINOR );
+			throw new IllegalArgumentException( "Invalid key: " + key );
+		}
+		
+		private static Instrument[] parseInstruments( String instruments ) {
+			String[] names = instruments.split( "," );
+			Instrument[] result = new Instrument[ names.length ];
+			for( int i = 0; i < names.length; i++ ) {
+				for( Instrument instrument : InstrumentHelper.getAllInstr() ) {
+					if( instrument.getClass().getSimpleName().equalsIgnoreCase( names[ i ].trim() ) )
+						result[ i ] = instrument;
+				}
+				if( result[ i ] == null )
+					throw new IllegalArgumentException( "Unknown instrument: " + names[ i ].trim() );
+			}
+			return result;
+		}
+		
+		private static Clef parseClef( String clef ) {
+			switch( clef.toUpperCase() ) {
+			case "G": return Clef.CLEF_G;
+			case "F": return Clef.CLEF_F;
+			case "TAB": return Clef.CLEF_TAB;
+			default: throw new IllegalArgumentException( "Invalid clef: " + clef );
+			}
+		}
+		
+		/**
+		 * Prüft nicht, ob die Melodien aus ganzen Takten bestehen (s. {@link SongConfig#hasFullMeasures()})
+		 * @return Ein neues SongConfig mit den Einstellungen dieses Builders
+		 */
+		public SongConfig build() {
+			return new SongConfig( this );
+		}
 	}
 }
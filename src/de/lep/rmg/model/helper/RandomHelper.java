@@ -2,23 +2,25 @@ package de.lep.rmg.model.helper;
 
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 
 /**
- * Hilfsklasse für Operationen mit zufälligen Ausgabewerten
+ * Hilfsklasse für Operationen mit zufälligen Ausgabewerten<br>
+ * Die Methoden ohne Random-Parameter verwenden den {@link ThreadLocalRandom} des aufrufenden Threads
+ * und sind nicht reproduzierbar. Für die Generierung von Songs wird stattdessen das Random-Objekt
+ * aus {@link de.lep.rmg.model.SongConfig#createRandom()} übergeben.
  *
  * @see PercentPair PercentPair
  */
 public class RandomHelper {
 	
-	static Random rand = new Random();
-	
 	/**
 	 * Gibt mit der angegebenen Wahrscheinlichkeit true zurück
 	 * @param probability Die Wahrscheinlichkeit für true
 	 * @return true oder false
 	 */
 	public static boolean randBoolean( float probability ) {
-		return randBoolean( rand, probability );
+		return randBoolean( getRandom(), probability );
 	}
 	
 	/**
@@ -37,7 +39,7 @@ public class RandomHelper {
 	 * @return Ein zufälliges Element aus dem Array
 	 */
 	public static int randFrom( int[] array ) {
-		return randFrom( array, rand );
+		return randFrom( array, getRandom() );
 	}
 	
 	/**
@@ -57,7 +59,7 @@ public class RandomHelper {
 	 * @return Ein zufälliges Element aus dem Array
 	 */
 	public static <T> T randFrom( T[] array ) {
-		return randFrom( array, rand );
+		return randFrom( array, getRandom() );
 	}
 	
 	/**
@@ -78,7 +80,7 @@ public class RandomHelper {
 	 * @return Ein zufälliges Objekt aus der Liste
 	 */
 	public static <T> T randFrom( List<T> list ) {
-		return list.get(rand.nextInt(list.size()));
+		return randFrom( list, getRandom() );
 	}
 	
 	/**
@@ -93,9 +95,17 @@ public class RandomHelper {
 	
 	/**
 	 * 
-	 * @return ein standard Random-Objekt, dass mit 'new Random()' erschaffen wurde
+	 * @return der {@link ThreadLocalRandom} des aufrufenden Threads
 	 */
 	public static Random getRandom(){
-		return rand;
+		return ThreadLocalRandom.current();
+	}
+	
+	/**
+	 * Erzeugt einen neuen zufälligen Startwert, z.B. für eine {@link de.lep.rmg.model.SongConfig}.
+	 * @return ein zufälliger Startwert
+	 */
+	public static long newSeed(){
+		return ThreadLocalRandom.current().nextLong();
 	}
 }
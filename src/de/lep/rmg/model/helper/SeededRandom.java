@@ -0,0 +1,56 @@
+package de.lep.rmg.model.helper;
+
+import java.util.Random;
+import java.util.SplittableRandom;
+
+/**
+ * Ein {@link Random}, dessen Zahlen aus einem {@link SplittableRandom} stammen.<br>
+ * Dadurch kann es überall verwendet werden, wo bisher ein Random-Objekt übergeben wird (z.B. {@link RandomHelper},
+ * {@link PercentPair#getRandomValue(PercentPair[], Random)} oder <code>Collections.shuffle</code>),
+ * ist aber reproduzierbar und kommt ohne die Synchronisierung von {@link Random} aus.<br><br>
+ * 
+ * Ein SeededRandom gehört immer zu genau einer Generierung bzw. einem Thread und ist nicht threadsicher.
+ * Für parallele Arbeit wird mit {@link #split()} ein unabhängiger Zahlenstrom abgeleitet.
+ */
+public class SeededRandom extends Random {
+	private static final long serialVersionUID = 1L;
+	
+	private SplittableRandom source;
+	
+	/**
+	 * @param seed Der Startwert. Gleiche Startwerte ergeben gleiche Zahlenfolgen.
+	 */
+	public SeededRandom( long seed ) {
+		this( new SplittableRandom( seed ) );
+	}
+	
+	private SeededRandom( SplittableRandom source ) {
+		super( 0 );
+		this.source = source;
+	}
+	
+	/**
+	 * Leitet einen neuen, unabhängigen Zufallsgenerator ab.<br>
+	 * Bei gleicher Reihenfolge der Aufrufe ergeben sich auch gleiche abgeleitete Zahlenfolgen.
+	 * @return Ein neues SeededRandom
+	 */
+	public SeededRandom split() {
+		return new SeededRandom( source.split() );
+	}
+	
+	@Override
+	protected int next( int bits ) {
+		return (int) ( source.nextLong() >>> ( 64 - bits ) );
+	}
+	
+	@Override
+	public long nextLong() {
+		return source.nextLong();
+	}
+	
+	@Override
+	public void setSeed( long seed ) {
+		if( source != null )//wird bereits vom Konstruktor von Random aufgerufen
+			source = new SplittableRandom( seed );
+	}
+}
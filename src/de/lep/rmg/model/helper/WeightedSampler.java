@@ -0,0 +1,200 @@
+package de.lep.rmg.model.helper;
+
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Zieht Werte mit festen Wahrscheinlichkeiten, wie {@link PercentPair#getRandomValue(PercentPair[], Random)},
+ * aber nach der Alias-Methode von Vose.<br>
+ * Die Tabellen werden einmal im Konstruktor aufgebaut, danach braucht jede Ziehung nur eine Zufallszahl,
+ * konstante Zeit und keinen neuen Speicher. Die Wahrscheinlichkeiten müssen nicht 1 ergeben, sie werden wie
+ * bei PercentPair auf ihre Summe bezogen. Ist die Summe 0, werden alle Werte gleich wahrscheinlich gezogen.<br>
+ * <br>
+ * Ein WeightedSampler ist unveränderlich und kann von mehreren Threads gleichzeitig verwendet werden.
+ * Teilmengen der Werte (z.B. nur die Notenlängen, die noch in einen Takt passen) werden mit
+ * {@link #restrict(long)} als eigene Sampler erzeugt und zwischengespeichert. Teilmengen werden als Bitmaske
+ * vom Typ long angegeben, ein Sampler kann daher höchstens {@link #MAX_SIZE} Werte haben.
+ */
+public class WeightedSampler {
+
+	/**
+	 * Die maximale Anzahl an Werten, ein Bit der Bitmaske von {@link #restrict(long)} pro Wert
+	 */
+	public static final int MAX_SIZE = Long.SIZE;
+
+	/**
+	 * Bis zu dieser Anzahl an Werten werden alle mit {@link #restrict(long)} erzeugten Teilmengen zwischengespeichert
+	 */
+	private static final int MAX_CACHED_SIZE = 10;
+
+	private final int[] values;
+	private final float[] percents;
+
+	//Alias-Tabelle: Fach i enthält mit Wahrscheinlichkeit prob[i] values[i], sonst values[alias[i]]
+	private final double[] prob;
+	private final int[] alias;
+
+	//Die bereits erzeugten Teilmengen, Index ist die Bitmaske
+	private WeightedSampler[] restricted;
+
+	/**
+	 * @param values Die Werte
+	 * @param percents Die Wahrscheinlichkeiten der Werte, gleich lang wie values
+	 * @throws IllegalArgumentException falls die Längen verschieden sind oder es mehr als {@link #MAX_SIZE} Werte sind
+	 */
+	public WeightedSampler( int[] values, float[] percents ) {
+		if( values.length != percents.length )
+			throw new IllegalArgumentException( "values and percents differ in length" );
+		if( values.length > MAX_SIZE )
+			throw new IllegalArgumentException( "A WeightedSampler supports at most " + MAX_SIZE + " values, got " + values.length );
+		this.values = values.clone();
+		this.percents = percents.clone();
+
+		int n = values.length;
+		prob = new double[ n ];
+		alias = new int[ n ];
+
+		double sum = 0;
+		for( float percent : percents )
+			sum += percent;
+
+		double[] scaled = new double[ n ];//Wahrscheinlichkeiten mal n, Durchschnitt ist also 1
+		for( int i = 0; i < n; i++ )
+			scaled[ i ] = sum > 0 ? percents[ i ] * n / sum : 1;
+
+		//Fächer unter 1 werden mit dem Rest eines Fachs über 1 aufgefüllt
+		int[] small = new int[ n ];
+		int[] large = new int[ n ];
+		int smallSize = 0, largeSize = 0;
+		for( int i = 0; i < n; i++ ) {
+			if( scaled[ i ] < 1 )
+				small[ smallSize++ ] = i;
+			else
+				large[ largeSize++ ] = i;
+		}
+		while( smallSize > 0 && largeSize > 0 ) {
+			int less = small[ --smallSize ];
+			int more = large[ --largeSize ];
+			prob[ less ] = scaled[ less ];
+			alias[ less ] = more;
+			scaled[ more ] = ( scaled[ more ] + scaled[ less ] ) - 1;
+			if( scaled[ more ] < 1 )
+				small[ smallSize++ ] = more;
+			else
+				large[ largeSize++ ] = more;
+		}
+		//Übrige Fächer sind bis auf Rundungsfehler genau 1
+		while( largeSize > 0 )
+			prob[ large[ --largeSize ] ] = 1;
+		while( smallSize > 0 )
+			prob[ small[ --smallSize ] ] = 1;
+	}
+
+	/**
+	 * Erstellt einen Sampler aus den Werten und Wahrscheinlichkeiten der PercentPairs
+	 * @param pairs Die Wert-Wahrscheinlichkeit-Paare
+	 * @return Ein neuer Sampler
+	 */
+	public static WeightedSampler of( List<PercentPair> pairs ) {
+		int[] values = new int[ pairs.size() ];
+		float[] percents = new float[ pairs.size() ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = pairs.get( i ).getValue();
+			percents[ i ] = pairs.get( i ).getPercent();
+		}
+		return new WeightedSampler( values, percents );
+	}
+
+	/**
+	 * Zieht einen zufälligen Wert unter Beachtung der jeweiligen Wahrscheinlichkeiten
+	 * @param rand Ein Random-Objekt
+	 * @return Einen zufällig gezogenen Wert
+	 * @throws IllegalStateException falls der Sampler keine Werte hat, z.B. nach {@link #restrict(long)} mit einer leeren Bitmaske
+	 */
+	public int sample( Random rand ) {
+		if( values.length == 0 )
+			throw new IllegalStateException( "No values to sample from" );
+		double u = rand.nextDouble() * values.length;//ganzzahliger Teil wählt das Fach, der Rest entscheidet zwischen Wert und Alias
+		int i = Math.min( (int) u, values.length - 1 );
+		return u - i < prob[ i ] ? values[ i ] : values[ alias[ i ] ];
+	}
+
+	/**
+	 * Gibt einen Sampler zurück, der nur aus den ausgewählten Werten zieht.
+	 * Die Wahrscheinlichkeiten werden dabei wieder auf ihre Summe bezogen.
+	 * @param mask Bitmaske der Werte, Bit i steht für den i-ten Wert
+	 * @return Der Sampler der Teilmenge
+	 */
+	public WeightedSampler restrict( long mask ) {
+		if( values.length < MAX_SIZE )
+			mask &= ( 1L << values.length ) - 1;
+		if( values.length > MAX_CACHED_SIZE )
+			return createRestricted( mask );
+
+		WeightedSampler[] cache = restricted;
+		if( cache == null )
+			restricted = cache = new WeightedSampler[ 1 << values.length ];
+		WeightedSampler sampler = cache[ (int) mask ];
+		if( sampler == null )
+			sampler = cache[ (int) mask ] = createRestricted( mask );
+		return sampler;
+	}
+
+	/**
+	 * Gibt einen Sampler zurück, der nur aus den Werten zieht, die höchstens max sind.<br>
+	 * Ist kein Wert klein genug, zieht der Sampler stattdessen immer den kleinsten Wert, damit z.B. ein zu kurzer Rest
+	 * eines Taktes die Generierung nicht abbricht. Nur ein Sampler ohne Werte ergibt wieder einen leeren Sampler.
+	 * @param max Der maximale Wert
+	 * @return Der Sampler der Teilmenge
+	 * @see PercentPair#removeValuesGreaterThan(int, PercentPair[])
+	 */
+	public WeightedSampler atMost( int max ) {
+		long mask = 0;
+		int smallest = -1;
+		for( int i = 0; i < values.length; i++ ) {
+			if( values[ i ] <= max )
+				mask |= 1L << i;
+			if( smallest == -1 || values[ i ] < values[ smallest ] )
+				smallest = i;
+		}
+		if( mask == 0 && smallest != -1 )
+			mask = 1L << smallest;
+		return restrict( mask );
+	}
+
+	private WeightedSampler createRestricted( long mask ) {
+		int n = Long.bitCount( mask );
+		int[] subValues = new int[ n ];
+		float[] subPercents = new float[ n ];
+		for( int i = 0, j = 0; j < n; i++ ) {
+			if( ( mask & ( 1L << i ) ) != 0 ) {
+				subValues[ j ] = values[ i ];
+				subPercents[ j++ ] = percents[ i ];
+			}
+		}
+		return new WeightedSampler( subValues, subPercents );
+	}
+
+	/**
+	 * @return Die Anzahl der Werte
+	 */
+	public int size() {
+		return values.length;
+	}
+
+	/**
+	 * @param index Der Index des Wertes
+	 * @return Der Wert an der Stelle index
+	 */
+	public int getValue( int index ) {
+		return values[ index ];
+	}
+
+	/**
+	 * @param index Der Index des Wertes
+	 * @return Die (nicht normierte) Wahrscheinlichkeit des Wertes an der Stelle index
+	 */
+	public float getPercent( int index ) {
+		return percents[ index ];
+	}
+}
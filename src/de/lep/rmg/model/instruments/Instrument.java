@@ -1,9 +1,10 @@
 package de.lep.rmg.model.instruments;
 
 /**
- * repräsentiert ein Instrument das einen bestimmten {@link Part} spielt
+ * repräsentiert ein Instrument das einen bestimmten {@link Part} spielt<br>
+ * Die Lautstärke kann verändert werden, ein {@link de.lep.rmg.model.SongConfig} speichert daher Kopien (s. {@link #clone()}).
  */
-public class Instrument {
+public class Instrument implements Cloneable {
 	
 	protected String name, shortName;
 	protected int midiProgram;
@@ -70,6 +71,27 @@ public class Instrument {
 		return volume;
 	}
 
+	/**
+	 * @param other
+	 * @return true, falls beide Instrumente die gleiche Klasse, den gleichen Namen, das gleiche MIDI-Programm und die gleiche Lautstärke haben
+	 */
+	public boolean sameSettings( Instrument other ) {
+		return getClass() == other.getClass() && name.equals( other.name )
+				&& midiProgram == other.midiProgram && Float.compare( volume, other.volume ) == 0;
+	}
+	
+	/**
+	 * @return Eine Kopie mit gleicher Klasse und gleichen Werten, Änderungen der Lautstärke wirken sich nicht auf das Original aus
+	 */
+	@Override
+	public Instrument clone() {
+		try {
+			return (Instrument) super.clone();
+		} catch( CloneNotSupportedException e ) {
+			throw new AssertionError( e );//Instrument ist Cloneable
+		}
+	}
+
 	/**
 	 * @see java.lang.Object#toString()
 	 * @return Instruments name
@@ -2,7 +2,9 @@ package de.lep.rmg.model.notes;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import de.lep.rmg.model.notes.helper.ChordHelper;
 import de.lep.rmg.out.midi.TrackFactory;
@@ -12,7 +14,11 @@ import de.lep.rmg.out.xml.XMLGenerator;
  * Speichert einen Akkord als Liste aus {@link SNote}s.<br>
  * Wird in {@link Song} verwendet.<br>
  * Diese Klasse wird nicht während der Produktion des Stückes, sondern nur zur Zwischenspeicherung und Datenweitergabe an den {@link XMLGenerator} und die Midi-{@link TrackFactory} verwendet.<br>
- * Die Getter- und Setter-Methoden sind in {@link ArrayList} implementiert. In dieser Klasse sind nur Zusatz-Methoden.
+ * Die Getter- und Setter-Methoden sind in {@link ArrayList} implementiert. In dieser Klasse sind nur Zusatz-Methoden.<br>
+ * Dauer sowie tiefste und höchste Tonhöhe werden zwischengespeichert und beim Hinzufügen von Noten und in
+ * {@link #setDuration(int)} und {@link #addStep(int)} nachgeführt, die Getter laufen also nicht jedes Mal über alle Noten.
+ * Nach dem Ersetzen oder Entfernen von Noten werden die Werte beim nächsten Aufruf einmal neu berechnet.
+ * Direkte Änderungen an enthaltenen {@link SNote}s werden nicht erkannt.
  *  
  * @see Song Song: Überklasse für Song-Daten 
  * @see INote Implementiert INote
@@ -23,12 +29,20 @@ import de.lep.rmg.out.xml.XMLGenerator;
 public class Chord extends ArrayList<SNote> implements INote {
 	private static final long serialVersionUID = 1L;
 
+	/*
+	 * Zwischengespeicherte Dauer der längsten Note und Tonhöhen (ton + oktave * 12) der tiefsten und höchsten Note.
+	 * Gültig, solange validModCount gleich modCount ist.
+	 */
+	private int duration, lowestPitch, highestPitch;
+	private int validModCount = -1;
+
 	/**
 	 * Konstruktor
 	 * @param notes Als {@link List}e aus {@link SNote}s
 	 */
 	public Chord( List<SNote> notes ) {
 		super( notes );
+		update();
 	}
 	
 	/**
@@ -37,6 +51,58 @@ public class Chord extends ArrayList<SNote> implements INote {
 	 */
 	public Chord( SNote[] notes ) {
 		super( new ArrayList<SNote>( Arrays.asList( notes ) ) );
+		update();
+	}
+	
+	@Override
+	public boolean add( SNote sno ) {
+		boolean valid = validModCount == modCount;
+		super.add( sno );
+		if( valid ) {
+			include( sno );
+			validModCount = modCount;
+		}
+		return true;
+	}
+	
+	@Override
+	public boolean addAll( Collection<? extends SNote> notes ) {
+		boolean valid = validModCount == modCount && notes != this;
+		boolean changed = super.addAll( notes );
+		if( valid ) {
+			for( SNote sno : notes )
+				include( sno );
+			validModCount = modCount;
+		}
+		return changed;
+	}
+	
+	@Override
+	public SNote set( int index, SNote sno ) {
+		SNote old = super.set( index, sno );
+		validModCount = -1;//die ersetzte Note kann die längste, tiefste oder höchste gewesen sein
+		return old;
+	}
+	
+	/**
+	 * berechnet die zwischengespeicherten Werte neu, falls die Liste seitdem anders als durch Anhängen verändert wurde
+	 */
+	private void update() {
+		if( validModCount == modCount )
+			return;
+		duration = 0;
+		lowestPitch = Integer.MAX_VALUE;
+		highestPitch = Integer.MIN_VALUE;
+		for( SNote sno : this )
+			include( sno );
+		validModCount = modCount;
+	}
+	
+	private void include( SNote sno ) {
+		int pitch = sno.getTone() + sno.getOctave() * 12;
+		duration = Math.max( duration, sno.getDuration() );
+		lowestPitch = Math.min( lowestPitch, pitch );
+		highestPitch = Math.max( highestPitch, pitch );
 	}
 	
 	/**
@@ -47,12 +113,24 @@ public class Chord extends ArrayList<SNote> implements INote {
 	 */
 	@Override
 	public int getDuration() {
-		int ret = 0;
-		for(SNote sno : this){
-			if(sno.getDuration() > ret)
-				ret = sno.getDuration();
-		}
-		return ret;
+		update();
+		return duration;
+	}
+	
+	/**
+	 * @return Tonhöhe (ton + oktave * 12) der tiefsten Note, -1 für einen leeren Akkord
+	 */
+	public int getLowestPitch() {
+		update();
+		return isEmpty() ? -1 : lowestPitch;
+	}
+	
+	/**
+	 * @return Tonhöhe (ton + oktave * 12) der höchsten Note, -1 für einen leeren Akkord
+	 */
+	public int getHighestPitch() {
+		update();
+		return isEmpty() ? -1 : highestPitch;
 	}
 	
 	/**
@@ -83,9 +161,12 @@ public class Chord extends ArrayList<SNote> implements INote {
 	
 	
 	public void addStep(int steps) {
+		update();
 		for(SNote sno : this){
 			sno.addStep(steps);
 		}
+		lowestPitch += steps;
+		highestPitch += steps;
 	}
 	
 	public int[] toInts() {
@@ -102,15 +183,9 @@ public class Chord extends ArrayList<SNote> implements INote {
 	 * @return Tonhöhe der tiefsten Note
 	 */
 	public int getTone() {
-		SNote lowest = null;
-		for(SNote sno : this){
-			if(lowest == null)
-				lowest = sno;
-			else
-				if(sno.getTone() + sno.getOctave() * 12 < lowest.getTone() + lowest.getOctave() * 12)
-					lowest = sno;
-		}
-		return lowest.getTone();
+		if(isEmpty())
+			throw new NoSuchElementException("Empty chord");
+		return Math.floorMod(getLowestPitch(), 12);
 	}
 	
 	public Chord clone(){
@@ -121,22 +196,22 @@ public class Chord extends ArrayList<SNote> implements INote {
 	 * @return Oktave der tiefsten Note
 	 */
 	public int getOctave() {
-		SNote lowest = null;
-		for(SNote sno : this){
-			if(lowest == null)
-				lowest = sno;
-			else
-				if(sno.getTone() + sno.getOctave() * 12 < lowest.getTone() + lowest.getOctave() * 12)
-					lowest = sno;
-		}
-		return lowest.getOctave();
+		if(isEmpty())
+			throw new NoSuchElementException("Empty chord");
+		return Math.floorDiv(getLowestPitch(), 12);
 	}
 
+	/**
+	 * setzt die Dauer aller Noten, Werte kleiner als 1 werden wie in {@link SNote#setDuration(int)} zu 1
+	 */
 	@Override
 	public void setDuration(int duration) {
+		update();
 		for( SNote sno : this) {
 			sno.setDuration(duration);
 		}
+		if(!isEmpty())
+			this.duration = Math.max(1, duration);
 	}
 	
 }
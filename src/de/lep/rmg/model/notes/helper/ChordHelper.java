@@ -1,5 +1,7 @@
 package de.lep.rmg.model.notes.helper;
 
+import java.util.Arrays;
+
 import de.lep.rmg.model.Song;
 import de.lep.rmg.model.notes.CType;
 import de.lep.rmg.model.notes.Chord;
@@ -27,10 +29,65 @@ import de.lep.rmg.model.notes.SNote;
  * Gehört zur Architektur vom {@link Song}-Modell</li>
  * </ul>
  * 
+ * <h1>Tabellen:</h1>
+ * Es gibt nur 12 Grundtöne für jede Tonart ({@link CType}). Tonleitern, Dreiklänge, Tonleiterpositionen, die Akkorde auf der Tonleiter
+ * und die Positionen auf dem Quintenzirkel werden daher beim Laden der Klasse einmal für jeden Grundakkord berechnet
+ * und danach nur noch nachgeschlagen. Nur für Grundtöne außerhalb von 0 bis 11 wird weiterhin gerechnet.
+ * 
  * @see ChordHelperTest Unit-Test für einige Methoden dieser Klasse
  */
 public class ChordHelper {
 	
+	/**
+	 * Anzahl der Grundakkorde, für die Tabellen angelegt werden: 12 Grundtöne für jede Tonart
+	 */
+	static final int KEY_COUNT = 12 * CType.values().length;
+	
+	//Tonleitern, Array-Akkorde und Quintenzirkelpositionen aller Grundakkorde, Index s. keyIndex(SChord)
+	private static final int[][] SCALES = new int[ KEY_COUNT ][];
+	private static final int[][] TRIADS = new int[ KEY_COUNT ][];
+	private static final int[] FIFTH_POS = new int[ KEY_COUNT ];
+	//Position jedes Tons (0 bis 11) auf der Tonleiter, -1 falls er nicht auf der Tonleiter liegt
+	private static final int[][] POSITIONS = new int[ KEY_COUNT ][ 12 ];
+	//Die Akkorde auf jeder Tonleiterposition, null falls sie weder Dur noch Moll sind
+	private static final SChord[][] SCALE_CHORDS = new SChord[ KEY_COUNT ][ 7 ];
+	
+	static {
+		for( CType type : CType.values() ) {
+			for( int keynote = 0; keynote < 12; keynote++ ) {
+				int key = keyIndex( keynote, type );
+				SCALES[ key ] = computeScale( keynote, type );
+				TRIADS[ key ] = computeArrayChord( keynote, type );
+				FIFTH_POS[ key ] = computeCircleOfFifthPos( keynote, type );
+				for( int note = 0; note < 12; note++ )
+					POSITIONS[ key ][ note ] = computePositionOnScale( note, SCALES[ key ] );
+				for( int step = 0; step < 7; step++ ) {
+					int[] chord = triadOnScale( SCALES[ key ], step );
+					CType chordType = getType( chord );
+					if( chordType != null )
+						SCALE_CHORDS[ key ][ step ] = new SChord( chord[ 0 ], chordType );
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gibt den Index der Tabellen für einen Grundakkord zurück
+	 * 
+	 * @param sChord Der Grundakkord
+	 * @return Der Index in den Tabellen oder -1, falls es für den Akkord keine Tabellen gibt
+	 */
+	static int keyIndex( SChord sChord ) {
+		int keynote = sChord.getKeynote();
+		if( keynote < 0 || keynote >= 12 || sChord.getType() == null )
+			return -1;
+		return keyIndex( keynote, sChord.getType() );
+	}
+	
+	private static int keyIndex( int keynote, CType type ) {
+		return type.ordinal() * 12 + keynote;
+	}
+	
 	/**
 	 * Wandelt einen {@link SChord} in einen Array-Akkord um.
 	 * 
@@ -41,9 +98,13 @@ public class ChordHelper {
 	 * @see ChordHelperTest#testCreateArrayChord() Unit-Test für diese Methode
 	 */
 	public static int[] createArrayChord( SChord sChord ) {
-		int keynote = sChord.getKeynote();
-		CType type = sChord.getType();
-		
+		int key = keyIndex( sChord );
+		if( key != -1 )
+			return TRIADS[ key ].clone();
+		return computeArrayChord( sChord.getKeynote(), sChord.getType() );
+	}
+	
+	private static int[] computeArrayChord( int keynote, CType type ) {
 		int[] chord = new int[ 3 ];
 		chord[ 0 ] = keynote;
 		
@@ -75,24 +136,29 @@ public class ChordHelper {
 	 * @see ChordHelperTest#testCreateSChord() Unit-Test für diese Methode
 	 */
 	public static SChord createSChord( int[] chord ) {
-		int keynote = chord[ 0 ];
-		CType type;
-		
+		CType type = getType( chord );
+		if( type == null )
+			throw new IllegalArgumentException( "Invalid chord " + Arrays.toString( chord ) );
+		return new SChord( chord[ 0 ], type );
+	}
+	
+	/**
+	 * Bestimmt die Tonart eines Array-Akkords. Die Töne im Array werden dabei aufsteigend gemacht.
+	 * 
+	 * @param chord Ein Array-Akkord
+	 * @return Dur oder Moll, null falls der Akkord keins von beiden ist
+	 */
+	private static CType getType( int[] chord ) {
 		if( chord[ 0 ] > chord[ 1 ] )
 			chord[ 1 ] += 12;
 		if( chord[ 1 ] > chord[ 2 ] )
 			chord[ 2 ] += 12;
 		
 		if( ( chord[ 1 ] - chord[ 0 ] ) % 12 == 4 && ( chord[ 2 ] - chord[ 1 ] ) % 12 == 3 )
-			type = CType.MAJOR;
+			return CType.MAJOR;
 		else if( ( chord[ 1 ] - chord[ 0 ] ) % 12 == 3 && ( chord[ 2 ] - chord[ 1 ] ) % 12 == 4 )
-			type = CType.MINOR;
-		else {
-			for( int c : chord )
-				System.out.println( c );
-			throw new IllegalArgumentException( "Invalid chord" );
-		}
-		return new SChord( keynote, type );
+			return CType.MINOR;
+		return null;
 	}
 	
 	/**
@@ -106,8 +172,21 @@ public class ChordHelper {
 	 * @see ChordHelperTest#testGetChordFromScaleAt() Unit-Test für diese Methode
 	 */
 	public static SChord getChordFromScaleAt( SChord sChord, int step ) {
+		int key = keyIndex( sChord );
+		if( key != -1 && step >= 0 && step < 7 && SCALE_CHORDS[ key ][ step ] != null ) {
+			SChord chord = SCALE_CHORDS[ key ][ step ];
+			//SChord ist veränderbar, daher wird eine Kopie zurückgegeben
+			return new SChord( chord.getKeynote(), chord.getType() );
+		}
 		//Wandelt die Tonleiterposition erst in Array-Akkord um
-		int[] scale = getScale( sChord );
+		//Array-Akkord wird zu SChord umgewandelt
+		return createSChord( triadOnScale( getScale( sChord ), step ) );
+	}
+	
+	/**
+	 * Gibt den Dreiklang auf einer Tonleiterposition als Array-Akkord zurück
+	 */
+	private static int[] triadOnScale( int[] scale, int step ) {
 		int[] chord = new int[ 3 ];
 		chord[ 0 ] = scale[ step ];
 		chord[ 1 ] = scale[ ( step +2 ) % scale.length ];
@@ -115,9 +194,7 @@ public class ChordHelper {
 		
 		for( int i = 0; i < chord.length; i++ )
 			chord[ i ] %= 12;
-		
-		//Array-Akkord wird zu SChord umgewandelt
-		return createSChord( chord );
+		return chord;
 	}
 	
 	/**
@@ -129,9 +206,34 @@ public class ChordHelper {
 	 * @return Ein Array aus 7 Tönen, welche die Tonleiter repräsentieren
 	 */
 	public static int[] getScale( SChord sChord ) {
-		int keynote = sChord.getKeynote();
-		CType type = sChord.getType();
-		
+		int key = keyIndex( sChord );
+		if( key != -1 )
+			return SCALES[ key ].clone();
+		return computeScale( sChord.getKeynote(), sChord.getType() );
+	}
+	
+	/**
+	 * Gibt einen Ton der Tonleiter des gegebenen Akkords zurück, ohne die Tonleiter zu kopieren (s. {@link #getScale(SChord)}).
+	 * 
+	 * @param sChord Der Grundakkord als {@link SChord}
+	 * @param step Die Position auf der Tonleiter (0 bis 6)
+	 * @return Der Ton an dieser Position
+	 */
+	public static int getScaleTone( SChord sChord, int step ) {
+		return getScaleTable( sChord )[ step ];
+	}
+	
+	/**
+	 * Gibt die Tonleiter aus der Tabelle zurück. Das Array darf nicht verändert werden.
+	 */
+	static int[] getScaleTable( SChord sChord ) {
+		int key = keyIndex( sChord );
+		if( key != -1 )
+			return SCALES[ key ];
+		return computeScale( sChord.getKeynote(), sChord.getType() );
+	}
+	
+	private static int[] computeScale( int keynote, CType type ) {
 		int[] scale = new int[ 7 ];
 		
 		if( type == CType.MAJOR ) {
@@ -182,8 +284,13 @@ public class ChordHelper {
 	 * @see ChordHelperTest#testGetPositionOnScale() Unit-Test für diese Methode
 	 */
 	public static int getPositionOnScale( int note, SChord key ) {
-		int[] scale = getScale( key );
-		
+		int index = keyIndex( key );
+		if( index != -1 )
+			return POSITIONS[ index ][ Math.floorMod( note, 12 ) ];
+		return computePositionOnScale( note, getScale( key ) );
+	}
+	
+	private static int computePositionOnScale( int note, int[] scale ) {
 		while( note < 0 )
 			note += 12;
 		
@@ -209,9 +316,13 @@ public class ChordHelper {
 	 * @see ChordHelperTest#testGetCircleOfFifthPos() Unit-Test für diese Methode
 	 */
 	public static int getCircleOfFifthPos( SChord sChord ) {
-		int keynote = sChord.getKeynote();
-		CType type = sChord.getType();
-		
+		int key = keyIndex( sChord );
+		if( key != -1 )
+			return FIFTH_POS[ key ];
+		return computeCircleOfFifthPos( sChord.getKeynote(), sChord.getType() );
+	}
+	
+	private static int computeCircleOfFifthPos( int keynote, CType type ) {
 		keynote = keynote % 12;
 		int pos = 0;
 		switch( keynote ) {
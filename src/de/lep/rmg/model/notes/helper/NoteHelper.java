@@ -1,7 +1,9 @@
 package de.lep.rmg.model.notes.helper;
 
 import java.util.Arrays;
+import java.util.logging.Logger;
 
+import de.lep.rmg.model.notes.CType;
 import de.lep.rmg.model.notes.Chord;
 import de.lep.rmg.model.notes.INote;
 import de.lep.rmg.model.notes.IRealNote;
@@ -11,12 +13,42 @@ import de.lep.rmg.model.notes.SNote;
 import de.lep.rmg.out.xml.XMLGenerator;
 
 /**
- * Hilfsklasse für Noten und Töne.
+ * Hilfsklasse für Noten und Töne.<br>
+ * Intervalle werden, wie die Tonleitern im {@link ChordHelper}, in beim Laden der Klasse berechneten Tabellen nachgeschlagen.
  *
  * @see NoteHelperTest Unit-Test für Methoden dieser Klasse
  */
 public class NoteHelper {
 	
+	private static final Logger LOGGER = Logger.getLogger( NoteHelper.class.getName() );
+	
+	/**
+	 * Die Intervalle für Halbtonschrittdifferenzen von -11 bis 11 (Index = Differenz + 11), s. {@link #getInterval(int, int)}
+	 */
+	private static final int[] INTERVALS = {
+		-6, -6, -5, -5, -4, -4, -3, -2, -2, -1, -1,
+		0,
+		1, 1, 2, 2, 3, 4, 4, 5, 5, 6, 6
+	};
+	
+	/**
+	 * Intervalladdition für jeden Grundakkord (Index s. {@link ChordHelper#keyIndex(SChord)}), jeden Ton von 0 bis 11 und jedes Intervall
+	 * von der Prime bis zur Septime. Enthält den Ergebniston in Halbtonschritten, s. {@link #addInterval(int, int, SChord)}.
+	 */
+	private static final int[][][] INTERVAL_ADDITION = new int[ ChordHelper.KEY_COUNT ][ 12 ][ 7 ];
+	
+	static {
+		for( CType type : CType.values() ) {
+			for( int keynote = 0; keynote < 12; keynote++ ) {
+				SChord key = new SChord( keynote, type );
+				int[][] table = INTERVAL_ADDITION[ ChordHelper.keyIndex( key ) ];
+				for( int tone = 0; tone < 12; tone++ )
+					for( int interval = 0; interval < 7; interval++ )
+						table[ tone ][ interval ] = computeInterval( tone, interval, key );
+			}
+		}
+	}
+	
 	/**
 	 * Gibt den Ton der Note in dem vom {@link XMLGenerator} benötigten Format zurück
 	 * 
@@ -24,7 +56,17 @@ public class NoteHelper {
 	 * @return Der Ton in einen vom {@link XMLGenerator} benötigten Format
 	 */
 	public static String getToneString( SNote note ) {
-		int modTone = note.getTone() % 12;
+		return getToneString( note.getTone() );
+	}
+	
+	/**
+	 * Gibt den Ton in dem vom {@link XMLGenerator} benötigten Format zurück
+	 * 
+	 * @param tone Der Ton in Halbtonschritten
+	 * @return Der Ton in einen vom {@link XMLGenerator} benötigten Format
+	 */
+	public static String getToneString( int tone ) {
+		int modTone = tone % 12;
 		while( modTone < 0 )
 			modTone += 12;
 		switch( modTone ) {
@@ -63,13 +105,22 @@ public class NoteHelper {
 	 * @return Die tatsächliche Oktave des Tons
 	 */
 	public static int getOctave( SNote note ) {
-		int tone = note.getTone();
+		return getOctave( note.getTone(), note.getOctave() );
+	}
+	
+	/**
+	 * Gibt die tatsächliche Oktave des Tons zurück
+	 * @param tone Der Ton in Halbtonschritten
+	 * @param octave Die Oktave der Note
+	 * @return Die tatsächliche Oktave des Tons
+	 */
+	public static int getOctave( int tone, int octave ) {
 		int addOctaves = tone / 12;
 		while( tone < 0 ) {
 			addOctaves--;
 			tone += 12;
 		}
-		return note.getOctave() + addOctaves;
+		return octave + addOctaves;
 	}
 	
 	/**
@@ -78,8 +129,15 @@ public class NoteHelper {
 	 * @return Die Dauer im XML kompatiblen Format
 	 */
 	public static String getDurationString( INote iNote ) {
-		int duration = iNote.getDuration();
-		
+		return getDurationString( iNote.getDuration() );
+	}
+	
+	/**
+	 * Gibt die Dauer in einen vom {@link XMLGenerator} akzeptierten Format zurück
+	 * @param duration Die Dauer in Vielfachen von {@link de.lep.rmg.model.SongConfig#measureDivision}
+	 * @return Die Dauer im XML kompatiblen Format
+	 */
+	public static String getDurationString( int duration ) {
 		switch( duration ) {
 		case SNote.A32TH:
 			return "32th";
@@ -125,6 +183,17 @@ public class NoteHelper {
 		else if( iNote instanceof Chord )
 			duration = ((Chord) iNote).size() != 0 ? ((Chord) iNote).get( 0 ).getDuration() : 0;
 			
+		return hasDot( duration );
+	}
+	
+	/**
+	 * Gibt zurück, ob die Dauer punktiert ist.<br>
+	 * Wird vom {@link XMLGenerator} benötigt.
+	 * 
+	 * @param duration Die Dauer
+	 * @return Boolean, welcher besagt, ob die dauer punktiert ist oder nicht
+	 */
+	public static boolean hasDot( int duration ) {
 		switch( duration ) {
 		case SNote.EIGHTH_DOT:
 		case SNote.QUARTER_DOT:
@@ -143,7 +212,17 @@ public class NoteHelper {
 	 * @return Einen Integer, welcher das Vorzeichen der Note repräsentiert
 	 */
 	public static int getAlter( SNote note ) {
-		int modStep = note.getTone() % 12;
+		return getAlter( note.getTone() );
+	}
+	
+	/**
+	 * Gibt das Vorzeichen des Tons zurück (s. {@link #getAlter(SNote)})
+	 * 
+	 * @param tone Der Ton in Halbtonschritten
+	 * @return Einen Integer, welcher das Vorzeichen des Tons repräsentiert
+	 */
+	public static int getAlter( int tone ) {
+		int modStep = tone % 12;
 		while( modStep < 0 )
 			modStep += 12;
 		switch( modStep ) {
@@ -190,46 +269,12 @@ public class NoteHelper {
 	 * @see NoteHelperTest#testGetInterval() Unit-Test für diese Methode
 	 */
 	public static int getInterval( int tone1, int tone2 ){
-		int interval = 0;
 		int steps = tone2 - tone1;
 		int correct = steps / 12;
 		steps %= 12;
-		if(steps != 0){
-			if(steps > 0){
-				if(steps < 3)
-					interval = 1;
-				else if(steps < 5)
-					interval = 2;
-				else if(steps == 5)
-					interval = 3;
-				else if(steps == 6){//ohne Tonart nicht eindeutig
-					interval = 4;
-					System.out.println("Halbtonschrittdifferenz 6 in NoteHelper#getInterval(int, int)");
-				}else if(steps == 7)
-					interval = 4;
-				else if(steps < 10)
-					interval = 5;
-				else interval = 6;
-			}else{
-				if(steps > -3)
-					interval = -1;
-				else if(steps > -5)
-					interval = -2;
-				else if(steps == -5)
-					interval = -3;
-				else if(steps == -6){//ohne Tonart nicht eindeutig
-					interval = -4;
-					System.out.println("Halbtonschrittdifferenz 6 in NoteHelper#getInterval(int, int)");
-				}else if(steps == -7)
-					interval = -4;
-				else if(steps > -10)
-					interval = -5;
-				else interval = -6;
-			}
-		}
-		interval += correct*7;
-		
-		return interval;				
+		if(steps == 6 || steps == -6)//ohne Tonart nicht eindeutig
+			LOGGER.fine("Halbtonschrittdifferenz 6 in NoteHelper#getInterval(int, int)");
+		return INTERVALS[ steps + 11 ] + correct*7;
 	}
 	
 	/**
@@ -244,7 +289,15 @@ public class NoteHelper {
 	 * @see NoteHelperTest#testAddInterval()
 	 */
 	public static int addInterval(int tone, int interval, SChord key){
-		int[] scale = ChordHelper.getScale(key);//Tonleiter der Tonart
+		int keyIndex = ChordHelper.keyIndex(key);
+		if(keyIndex != -1)//Ton und Intervall werden in Oktave und Rest innerhalb der Oktave aufgeteilt
+			return INTERVAL_ADDITION[keyIndex][Math.floorMod(tone, 12)][Math.floorMod(interval, 7)]
+					+ (Math.floorDiv(tone, 12) + Math.floorDiv(interval, 7)) * 12;
+		return computeInterval(tone, interval, key);
+	}
+	
+	private static int computeInterval(int tone, int interval, SChord key){
+		int[] scale = ChordHelper.getScaleTable(key);//Tonleiter der Tonart
 		int octavechange = 0;//Änderung der Oktave
 		int searchTone = tone;
 		while( searchTone < 0 ) {
@@ -286,7 +339,14 @@ public class NoteHelper {
 	 * @see NoteHelperTest#testAddIntervalRealNote()
 	 */
 	public static void addInterval(IRealNote note, int interval, SChord key){
-		int[] scale = ChordHelper.getScale(key);//Tonleiter
+		int keyIndex = ChordHelper.keyIndex(key);
+		if(keyIndex != -1 && note.getTone() >= 0 && note.getTone() < 12){
+			int newTone = INTERVAL_ADDITION[keyIndex][note.getTone()][Math.floorMod(interval, 7)] + Math.floorDiv(interval, 7) * 12;
+			note.setTone(Math.floorMod(newTone, 12));//zählt das Interval zum Ursprungston hinzu und gleicht Oktave an
+			note.setOctave(note.getOctave() + Math.floorDiv(newTone, 12));
+			return;
+		}
+		int[] scale = ChordHelper.getScaleTable(key);//Tonleiter
 		int octavechange = 0;//Änderung der Oktave
 		int index = Arrays.binarySearch(scale, note.getTone());
 		if( index == -1 ) {
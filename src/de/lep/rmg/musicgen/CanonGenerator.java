@@ -1,14 +1,11 @@
 package de.lep.rmg.musicgen;
 
-import java.util.ArrayList;
+import java.util.Iterator;
 
 import de.lep.rmg.model.Measure;
 import de.lep.rmg.model.Part;
 import de.lep.rmg.model.Song;
 import de.lep.rmg.model.SongConfig;
-import de.lep.rmg.model.notes.Rest;
-import de.lep.rmg.model.notes.SChord;
-import de.lep.rmg.model.notes.SNote;
 import de.lep.rmg.out.midi.MidiPlayer;
 import de.lep.rmg.view.panels.CanonControllPanel;
 import de.lep.rmg.view.panels.ControllPanel;
@@ -37,77 +34,48 @@ public class CanonGenerator implements IMusicGenerator {
 	 */
 	@Override
 	public Song generateSong( SongConfig config ) {
-		//Prüft die Konfiguration auf Fehler
-		if( config.getChordNr() * config.getChordDuration() % config.getBeats() != 0){
-			String errorMessage = String.format("SongConfig.getChordNr() * SongConfig.getChordDuration() "
-					+ "does not match SongConfig.getBeats!\nChordNr: %d\nChordDuration: %d\nBeats: %d\n", 
-					config.getChordNr(), config.getChordDuration(), config.getBeats());
-			throw new IllegalStateException(errorMessage);
-		}
-
+		return generateSong( config, IProgressListener.NONE );
+	}
+	
+	/**
+	 * Wie {@link #generateSong(SongConfig)}. Gemeldet werden die Schritte des {@link CanonStream}s und danach jeder fertige Part.
+	 * 
+	 * @param config Die {@link SongConfig} mit Optionen für den Song
+	 * @param progress Empfängt den Fortschritt
+	 * @return Ein komplett komponierter {@link Song}
+	 */
+	@Override
+	public Song generateSong( SongConfig config, IProgressListener progress ) {
+		int steps = CanonStream.STEPS + config.getMelodyNr();
+		CanonStream stream = new CanonStream( config, melGen, false, ( step, streamSteps ) -> progress.progress( step, steps ) );
 		Song song = new Song( config );
 		
-		//Legt den Grundton fest (falls noch nicht festgelegt)
-		SChord key = config.getKey();
-		if( key == null )
-			key = ChordGenerator.generateKey();
-		
-		//Generiere eine Akkordfolge
-		SChord[] chords = ChordGenerator.generateChords( key, config.getChordNr() );
-		//Generiert Rhythmen
-		//Array-Struktur: Alle Rhythmen / Nur ein Rhythmus aus mehreren Akkordrhythmen / Akkordrhythmus aus mehreren Dauern / Eine einzelne Dauer
-		ArrayList<Integer>[][] rhythm = RhythmGenerator.generateRhythm( config );
-		//Generiert Melodien
-		//Array-Struktur: Alle Melodien / Nur eine Melodie aus mehreren Akkordmelodien / Akkordmelodie aus mehreren Noten (mit Rhythmus) / SNote
-		ArrayList<SNote>[][] melody = melGen.generateMelodies( key, chords, rhythm, config );
-		
-		//Vorbereitung für Anordnung
-		int width = config.getChordDuration() * config.getChordNr() / config.getBeats();//Die Anzahl an Takten, die eine Melodie lang ist
-		
 		//Anordnung der Melodien
-		for( int p = 0; p < config.getMelodyNr(); p++ ) {
+		for( int p = 0; p < stream.getPartCount(); p++ ) {
+			IProgressListener.checkInterrupted();
 			Part part = new Part( config.getInstruments()[ p ] );//Ein Song besteht aus Instrument-Parts
-			
-			for( int m = 0; m < width * p; m++ ) {//Melodie-Einstieg wird verschoben
-				Measure m1 = new Measure( config );
-				m1.add( new Rest( SongConfig.measureDivision * config.getBeats() ) );//duration of one Measure
-				part.add( m1 );
-			}
-			
-			//Noten werden hinzugefügt
-			for( int r = 0; r < config.getRepeats(); r++ ) {
-				for( int m = 0; m < melody.length; m++ ) {
-
-					int duration = SongConfig.measureDivision*config.getBeats();
-					Measure m1 = new Measure( config );
-					for(ArrayList<SNote> chordList: melody[m]){
-						for(SNote sno: chordList){
-							m1.add(sno);
-							duration -= sno.getDuration();
-							if(duration <= 0){
-								part.add( m1.clone());
-								m1 = new Measure(config);
-								duration += SongConfig.measureDivision*config.getBeats();
-							}
-						}
-
-					}
-				}
-			}
-			
-			//Am Ende wieder Pausen entsprechend dem Einschub
-			for( int m = 0; m < width * ( melody.length - p-1 ); m++ ) {
-				Measure m1 = new Measure( config );
-				m1.add( new Rest( SongConfig.measureDivision * config.getBeats() ) );
-				part.add( m1 );
-			}
-			
+			Iterator<Measure> measures = stream.measures( p );
+			while( measures.hasNext() )
+				part.add( measures.next() );
 			song.add( part );
+			progress.progress( CanonStream.STEPS + p + 1, steps );
 		}
 		
 		//System.out.println( song.toString() );
 		return song;
 	}
+	
+	/**
+	 * Generiert die Melodien eines Kanons, ordnet sie aber erst beim Auslesen in Takte an (s. {@link CanonStream}).<br>
+	 * Mit den gleichen Werten entstehen die gleichen Takte wie bei {@link #generateSong(SongConfig)}.
+	 * 
+	 * @param config Die {@link SongConfig} mit Optionen für den Song
+	 * @param endless true, falls die Melodien unendlich oft statt {@link SongConfig#getRepeats()} mal wiederholt werden sollen
+	 * @return Der Kanon als {@link CanonStream}
+	 */
+	public CanonStream streamSong( SongConfig config, boolean endless ) {
+		return new CanonStream( config, melGen, endless );
+	}
 
 	@Override
 	public String getSongType() {
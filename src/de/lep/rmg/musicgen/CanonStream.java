@@ -0,0 +1,219 @@
+package de.lep.rmg.musicgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Random;
+
+import de.lep.rmg.metrics.IMetrics.Counter;
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
+import de.lep.rmg.model.ISongStream;
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Ein Kanon als {@link ISongStream}.<br>
+ * Akkordfolge, Rhythmen und Melodien werden beim Erzeugen einmal generiert und einmal in Takte aufgeteilt, ihre Größe hängt
+ * nur von der Anzahl der Akkorde und Stimmen ab. Die Anordnung (versetzter Einstieg, Wiederholungen, Pausen am Ende) geschieht
+ * erst beim Auslesen der Takte und verweist nur auf diese Takte, der Speicherbedarf wächst also nicht mit {@link SongConfig#getRepeats()}.<br>
+ * Alle Wiederholungen einer Melodie und alle Pausentakte sind daher dieselben {@link Measure}-Objekte, sie sind eingefroren (s. {@link Measure#freeze()}).<br>
+ * Ein unendlicher Kanon wiederholt die Melodien ohne Ende und hat daher keine Pausen am Ende.
+ */
+public class CanonStream implements ISongStream {
+
+	/**
+	 * Die Anzahl der Arbeitsschritte, die beim Erzeugen gemeldet werden: Akkorde, Rhythmen, Melodien und Aufteilung in Takte
+	 */
+	public static final int STEPS = 4;
+
+	private final SongConfig config;
+	private final boolean endless;
+	//Array-Struktur: Alle Melodien / Takte einer Melodie
+	private final Measure[][] melody;
+	//Der gemeinsame Pausentakt für Einstieg und Ende
+	private final Measure restMeasure;
+	//Die Anzahl an Takten, die eine Melodie lang ist
+	private final int width;
+
+	/**
+	 * Generiert die Melodien eines Kanons. Die Zufallsentscheidungen sind die gleichen wie in {@link CanonGenerator#generateSong(SongConfig)}.
+	 *
+	 * @param config Die {@link SongConfig} mit Optionen für den Song
+	 * @param melGen Der Generator für die Melodien
+	 * @param endless true, falls die Melodien unendlich oft wiederholt werden sollen
+	 */
+	public CanonStream( SongConfig config, ICanonMelodyGenerator melGen, boolean endless ) {
+		this( config, melGen, endless, IProgressListener.NONE );
+	}
+
+	/**
+	 * Generiert die Melodien eines Kanons und meldet dabei den Fortschritt in {@link #STEPS} Schritten.
+	 *
+	 * @param config Die {@link SongConfig} mit Optionen für den Song
+	 * @param melGen Der Generator für die Melodien
+	 * @param endless true, falls die Melodien unendlich oft wiederholt werden sollen
+	 * @param progress Empfängt den Fortschritt
+	 * @throws java.util.concurrent.CancellationException Falls der Thread während der Generierung unterbrochen wurde
+	 */
+	public CanonStream( SongConfig config, ICanonMelodyGenerator melGen, boolean endless, IProgressListener progress ) {
+		//Prüft die Konfiguration auf Fehler
+		if( !config.hasFullMeasures() ){
+			String errorMessage = String.format("SongConfig.getChordNr() * SongConfig.getChordDuration() "
+					+ "does not match SongConfig.getBeats!\nChordNr: %d\nChordDuration: %d\nBeats: %d\n", 
+					config.getChordNr(), config.getChordDuration(), config.getBeats());
+			throw new IllegalStateException(errorMessage);
+		}
+		this.config = config;
+		this.endless = endless;
+		//Alle Zufallsentscheidungen dieser Generierung stammen aus dem Startwert der Konfiguration
+		Random rand = config.createRandom();
+		
+		//Legt den Grundton fest (falls noch nicht festgelegt)
+		SChord key = config.getKey();
+		if( key == null )
+			key = ChordGenerator.generateKey( rand );
+		
+		//Generiere eine Akkordfolge
+		long start = Metrics.start();
+		SChord[] chords = ChordGenerator.generateChords( key, config.getChordNr(), rand );
+		Metrics.stop( Stage.CHORDS, start );
+		IProgressListener.checkInterrupted();
+		progress.progress( 1, STEPS );
+		//Generiert Rhythmen
+		//Array-Struktur: Alle Rhythmen / Nur ein Rhythmus aus mehreren Akkordrhythmen / Akkordrhythmus aus mehreren Dauern / Eine einzelne Dauer
+		start = Metrics.start();
+		ArrayList<Integer>[][] rhythm = RhythmGenerator.generateRhythm( config, rand );
+		Metrics.stop( Stage.RHYTHM, start );
+		IProgressListener.checkInterrupted();
+		progress.progress( 2, STEPS );
+		//Generiert Melodien
+		//Array-Struktur: Alle Melodien / Nur eine Melodie aus mehreren Akkordmelodien / Akkordmelodie aus mehreren Noten (mit Rhythmus) / SNote
+		start = Metrics.start();
+		ArrayList<SNote>[][] melodies = melGen.generateMelodies( key, chords, rhythm, config, rand );
+		Metrics.stop( Stage.MELODY, start );
+		progress.progress( 3, STEPS );
+		
+		//Jede Melodie wird nur einmal in Takte aufgeteilt
+		melody = new Measure[ melodies.length ][];
+		for( int m = 0; m < melodies.length; m++ ) {
+			IProgressListener.checkInterrupted();
+			melody[ m ] = arrange( melodies[ m ] );
+		}
+		restMeasure = new Measure( config );
+		restMeasure.add( new Rest( config.getMeasureLength() ) );//duration of one Measure
+		restMeasure.freeze();
+		width = config.getChordDuration() * config.getChordNr() / config.getBeats();
+		progress.progress( STEPS, STEPS );
+	}
+
+	@Override
+	public SongConfig getConfig() {
+		return config;
+	}
+
+	@Override
+	public int getPartCount() {
+		return config.getMelodyNr();
+	}
+
+	@Override
+	public Instrument[] getInstruments() {
+		return Arrays.copyOf( config.getInstruments(), getPartCount() );
+	}
+
+	/**
+	 * @return true, falls die Melodien unendlich oft wiederholt werden
+	 */
+	@Override
+	public boolean isEndless() {
+		return endless;
+	}
+
+	@Override
+	public Iterator<Measure> measures( int part ) {
+		if( part < 0 || part >= getPartCount() )
+			throw new IndexOutOfBoundsException( "Part " + part + " of " + getPartCount() );
+		return new PartIterator( part );
+	}
+
+	/**
+	 * teilt eine Melodie in eingefrorene Takte auf, ein angefangener letzter Takt wird verworfen
+	 */
+	private Measure[] arrange( ArrayList<SNote>[] chordMelodies ) {
+		long start = Metrics.start();
+		ArrayList<Measure> measures = new ArrayList<Measure>();
+		int overflow = 0;//Dauer, um die die letzte Note über den vorherigen Takt hinausging
+		Measure m1 = new Measure( config );
+		for(ArrayList<SNote> chordList: chordMelodies){
+			for(SNote sno: chordList){
+				m1.add(sno);
+				if(m1.getRemainingDuration() <= overflow){
+					overflow -= m1.getRemainingDuration();
+					measures.add( m1.freeze() );//die Takte werden von allen Wiederholungen und Stimmen geteilt
+					m1 = new Measure(config);
+				}
+			}
+		}
+		Metrics.stop( Stage.ARRANGEMENT, start );
+		return measures.toArray( new Measure[ measures.size() ] );
+	}
+
+	/**
+	 * Liefert die Takte einer Stimme: erst Pausen für den versetzten Einstieg, dann alle Melodien so oft wie angegeben
+	 * und am Ende wieder Pausen entsprechend dem Einschub.<br>
+	 * Es werden keine Takte erzeugt, der Iterator läuft nur über die fertigen Takte der Melodien.
+	 */
+	private class PartIterator implements Iterator<Measure> {
+
+		//verbleibende Pausentakte am Anfang und am Ende
+		private int leadingRests, trailingRests;
+		//aktuelle Wiederholung, Melodie und Takt innerhalb der Melodie
+		private int repeat, melodyIndex, measureIndex;
+
+		PartIterator( int part ) {
+			leadingRests = width * part;
+			trailingRests = width * ( melody.length - part - 1 );
+		}
+
+		@Override
+		public boolean hasNext() {
+			if( leadingRests > 0 )
+				return true;
+			while( endless || repeat < config.getRepeats() ) {
+				if( measureIndex < melody[ melodyIndex ].length )
+					return true;
+				measureIndex = 0;
+				if( ++melodyIndex == melody.length ) {
+					melodyIndex = 0;
+					repeat++;
+				}
+			}
+			return trailingRests > 0;
+		}
+
+		@Override
+		public Measure next() {
+			if( !hasNext() )
+				throw new NoSuchElementException();
+			Measure measure;
+			if( leadingRests > 0 ) {
+				leadingRests--;
+				measure = restMeasure;
+			} else if( endless || repeat < config.getRepeats() ) {
+				measure = melody[ melodyIndex ][ measureIndex++ ];
+			} else {
+				trailingRests--;
+				measure = restMeasure;
+			}
+			Metrics.count( Counter.MEASURES, 1 );
+			Metrics.count( Counter.NOTES, measure.size() );
+			return measure;
+		}
+	}
+}
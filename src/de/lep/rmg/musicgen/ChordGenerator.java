@@ -1,6 +1,9 @@
 package de.lep.rmg.musicgen;
 
+import java.util.Arrays;
 import java.util.Random;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import de.lep.rmg.model.helper.RandomHelper;
 import de.lep.rmg.model.notes.CType;
@@ -15,22 +18,23 @@ import de.lep.rmg.model.notes.helper.ChordHelper;
  */
 public class ChordGenerator {
 	
+	private static final Logger LOGGER = Logger.getLogger( ChordGenerator.class.getName() );
+	
 	/**
 	 * Generiert eine bestimmte Anzahl von Akkorden<br>
 	 * Die Tonika muss mindestens einmal vorkommen. Die anderen Akkorde sind ihre Subdominante und Dominante bzw. deren parallele Akkorde.
 	 * 
 	 * @param key Die Tonika
 	 * @param length Die Anzahl an Akkorden die generiert werden soll
+	 * @param r Der Zufallsgenerator der Generierung (s. {@link de.lep.rmg.model.SongConfig#createRandom()})
 	 * @return SChord[] Die generierten Akkorde als {@link SChord}
 	 */
-	static SChord[] generateChords( SChord key, int length ) {
+	public static SChord[] generateChords( SChord key, int length, Random r ) {
 		SChord[] chords = new SChord[ length ];
 		
 		//Array aus Tonleiterposition der Tonika, Subdominante, Dominante und parallelen Akkorden
 		int[] all = getAllChordsOf( key );
 		
-		Random r = new Random();
-		
 		boolean hasKey = false;
 		for( int c = 0; c < chords.length; c++ ) {
 			chords[ c ] = ChordHelper.getChordFromScaleAt( key, RandomHelper.randFrom( all, r ) );
@@ -44,10 +48,8 @@ public class ChordGenerator {
 		}
 		
 		//Ausgabe
-		System.out.println( "Chords: " );
-		for( SChord ch : chords )
-			System.out.println( "  " + ch.toString() );
-		System.out.println();
+		if( LOGGER.isLoggable( Level.FINE ) )
+			LOGGER.fine( "Chords: " + Arrays.toString( chords ) );
 		
 		return chords;
 	}
@@ -73,10 +75,10 @@ public class ChordGenerator {
 	
 	/**
 	 * Generiert einen zufälligen Tonika-Akkord
+	 * @param r Der Zufallsgenerator der Generierung (s. {@link de.lep.rmg.model.SongConfig#createRandom()})
 	 * @return Zufälliger Akkord vom Typ {@link SChord}
 	 */
-	static SChord generateKey() {
-		Random r = new Random();
+	public static SChord generateKey( Random r ) {
 		int note = r.nextInt( 12 ); //zufälliger Grundton
 		CType type = r.nextInt( 2 ) == 0 ? CType.MAJOR : CType.MINOR;//zufällige Tonart
 		return new SChord( note, type );
@@ -1,6 +1,7 @@
 package de.lep.rmg.musicgen;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import de.lep.rmg.model.SongConfig;
 import de.lep.rmg.model.notes.SChord;
@@ -14,13 +15,15 @@ public interface ICanonMelodyGenerator {
 	 * @param schords Die Akkorde des Songs (s. {@link ChordGenerator})
 	 * @param rhythm Der Rhythmus des Songs (s. {@link RhythmGenerator})
 	 * @param config Die Konfiguration des Songs (s. {@link SongConfig})
+	 * @param rand Der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()})
 	 * @return Eine 3-dimensionale Liste von SNoten, die bereits den übergebenen Rhythmus haben. Siehe oben zur Struktur.
 	 */
 	ArrayList<SNote>[][] generateMelodies( 
 			SChord key,
 			SChord[] schords,
 			ArrayList<Integer>[][] rhythm,
-			SongConfig config
+			SongConfig config,
+			Random rand
 			);
 	
 }
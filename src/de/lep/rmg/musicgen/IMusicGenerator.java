@@ -19,6 +19,19 @@ public interface IMusicGenerator {
 	 */
 	public Song generateSong( SongConfig config );
 	
+	/**
+	 * Wie {@link #generateSong(SongConfig)}, meldet dabei aber den Fortschritt und bricht ab, falls der Thread unterbrochen wird.<br>
+	 * Ohne eigene Implementation wird kein Fortschritt gemeldet.
+	 * 
+	 * @param config Die {@link SongConfig} für das Musikstück
+	 * @param progress Empfängt den Fortschritt der Generierung
+	 * @return Ein zufällig generierter {@link Song}
+	 * @throws java.util.concurrent.CancellationException Falls der Thread während der Generierung unterbrochen wurde
+	 */
+	public default Song generateSong( SongConfig config, IProgressListener progress ) {
+		return generateSong( config );
+	}
+	
 	/**
 	 * Gibt den Typ des {@link Song}s zurück.<br>
 	 * Z.B: Kanon
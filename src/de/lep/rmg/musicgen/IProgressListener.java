@@ -0,0 +1,32 @@
+package de.lep.rmg.musicgen;
+
+import java.util.concurrent.CancellationException;
+
+/**
+ * Empfängt den Fortschritt einer Generierung (s. {@link IMusicGenerator#generateSong(de.lep.rmg.model.SongConfig, IProgressListener)}).<br>
+ * Wird im Thread der Generierung aufgerufen, z.B. vom {@link de.lep.rmg.view.panels.ControllPanel} an den Event-Dispatch-Thread weitergegeben.
+ */
+public interface IProgressListener {
+
+	/**
+	 * Verwirft den Fortschritt
+	 */
+	IProgressListener NONE = ( step, steps ) -> {};
+
+	/**
+	 * Meldet einen abgeschlossenen Arbeitsschritt
+	 * @param step Die Anzahl der fertigen Schritte
+	 * @param steps Die Anzahl aller Schritte der Generierung
+	 */
+	void progress( int step, int steps );
+
+	/**
+	 * Bricht die Generierung ab, falls der Thread unterbrochen wurde, z.B. mit <code>Future.cancel(true)</code>.
+	 * Wird von den Generatoren in ihren Schleifen aufgerufen.
+	 * @throws CancellationException Falls der Thread unterbrochen wurde. Die Unterbrechung ist danach zurückgesetzt.
+	 */
+	static void checkInterrupted() {
+		if( Thread.interrupted() )
+			throw new CancellationException( "Generation interrupted" );
+	}
+}
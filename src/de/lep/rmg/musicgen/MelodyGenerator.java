@@ -17,7 +17,7 @@ import de.lep.rmg.musicgen.helper.MelodyHelper;
 
 /**
  * Was der Name sagt: Generiert Melodien<br>
- * Die Klasse beinhaltet die nur im Package sichtbare Methode {@link MelodyGenerator#generateMelodies(SChord[], ArrayList[][], SongConfig)}, welche die Melodien generiert.
+ * Die Klasse beinhaltet die nur im Package sichtbare Methode {@link MelodyGenerator#generateMelodies(SChord, SChord[], ArrayList[][], SongConfig, Random)}, welche die Melodien generiert.
  *
  * @see CanonGenerator Controller für diese Klasse
  */
@@ -29,6 +29,16 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 	 */
 	private static final int MIN = -5, MAX = 20;
 	
+	/**
+	 * Bitmaske aller Töne zwischen MIN und MAX, Bit <code>t - MIN</code> steht für den Ton t
+	 */
+	private static final int ALL = ( 1 << ( MAX - MIN + 1 ) ) - 1;
+	
+	/**
+	 * Bitmaske der Töne, die nach einem Ton außerhalb des Dreiklangs bevorzugt werden (die Werte 0, 2 und 4)
+	 */
+	private static final int THREE = bit( 0 ) | bit( 2 ) | bit( 4 );
+	
 	/**
 	 * Generiert die Melodie für den Song.<br>
 	 * Gibt eine 3-dimensionale Liste von SNoten, die bereits den übergebenen Rhythmus haben aus.<br>
@@ -54,13 +64,15 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 	 * @param schords Die Akkorde des Songs (s. {@link ChordGenerator})
 	 * @param rhythm Der Rhythmus des Songs (s. {@link RhythmGenerator})
 	 * @param config Die Konfiguration des Songs (s. {@link SongConfig})
+	 * @param rand Der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()})
 	 * @return Eine 3-dimensionale Liste von SNoten, die bereits den übergebenen Rhythmus haben. Siehe oben zur Struktur.
 	 */
 	 public ArrayList<SNote>[][] generateMelodies( 
 			SChord key,
 			SChord[] schords,
 			ArrayList<Integer>[][] rhythm,
-			SongConfig config
+			SongConfig config,
+			Random rand
 			) {
 		
 		MChord[] chords = MChord.toMChords( schords );//SChord zu MChord
@@ -68,7 +80,8 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 		@SuppressWarnings("unchecked")//Vorbereitung
 		ArrayList<Integer>[][] melody = new ArrayList[ config.getMelodyNr() ][ schords.length ];//Diese Liste hat die gleiche Struktur wie in der Methoden-Dokumentation beschrieben, nur mit Tönen statt Noten
 		int[][] firstTones = new int[ config.getMelodyNr() ][ schords.length ];//Anfangstöne der Akkordmelodieen
-		Random rand = new Random();
+		
+		TransitionIndex transitions = new TransitionIndex( key, config );//Erlaubte Folgetöne für jeden vorherigen Ton
 		
 		int previous = RandomHelper.randFrom( chords[ 0 ].getAvailableTones(), rand );//Zufälliger vorheriger Ton (Wird nicht gespielt)
 		
@@ -83,6 +96,7 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 		}
 		
 		for( int m = 0; m < melody.length; m++ ) {
+			IProgressListener.checkInterrupted();//jede Melodie ist ein eigener Arbeitsschritt
 			for( int c = 0; c < melody[ m ].length; c++ ) {
 //			###			Generiert Akkordmelodie			###
 				ArrayList<Integer> chordMelody = new ArrayList<Integer>();//Liste zur Aufbewahrung der Akkordmelodie
@@ -98,32 +112,21 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 				for( int n = 0; n < count; n++ ) {//Setzt folgende Töne
 					int allowDistance = ( count - n ) * 5;//Die erlaubte Intervall-Distanz von dem nächsten Anfangston (Garantiert, dass alle Töne zwischen Anfangston und nächstem Anfangston die Intervall-Schritte einhalten)
 					previous = chordMelody.get( chordMelody.size() -1 );//Der vorherige Ton
-					int[] allowed = getAllowedTones( previous, key, config );//Die von den Intervallen her erlaubten Töne
-					
-					List<Integer> realAllow = new ArrayList<Integer>();
-					for( int allow : allowed ) {//Berechnet mit allowDistance die tatsächlich erlaubten Töne
-						if( Math.abs( allow - next ) <= allowDistance )
-							realAllow.add( allow );
-					}
+					Transition transition = transitions.get( previous );//Die von den Intervallen her erlaubten Töne
 					
-					int posInScale = ChordHelper.getPositionOnScale( previous, key );//Position des vorherigen Tons auf der Tonleiter
-					int[] three = new int[]{ 0, 2, 4 };//Diese Tonleiterpositionen gehören zu Dreiklängen
+					int realAllow = transition.mask & window( next, allowDistance );//Die tatsächlich erlaubten Töne
 					int note = 0;//Der Ton
 					
-					if( !ArrayHelper.isIn( posInScale, three ) ) {//Wenn der vorherige Ton nicht zum Dreiklang gehört
-						List<Integer> allowedInThree = new ArrayList<Integer>();
-						for( int i = 0; i < realAllow.size(); i++ ) {//Werden nur Töne als nächstes erlaubt, die zum Dreiklang gehören
-							if( ArrayHelper.isIn( realAllow.get( i ), three ) )
-								allowedInThree.add( realAllow.get( i ) );
-						}
+					if( transition.toThree ) {//Wenn der vorherige Ton nicht zum Dreiklang gehört
+						int allowedInThree = realAllow & THREE;//Werden nur Töne als nächstes erlaubt, die zum Dreiklang gehören
 						
-						if( allowedInThree.size() == 0 )//Falls es keine Töne gibt, welche zum Dreiklang gehören, werden wieder normale ausgewählt
-							note = realAllow.get( rand.nextInt( realAllow.size() ) );//Zufälliger Ton wird ausgewählt
+						if( allowedInThree == 0 )//Falls es keine Töne gibt, welche zum Dreiklang gehören, werden wieder normale ausgewählt
+							note = transition.chooseAny( realAllow, rand );//Zufälliger Ton wird ausgewählt
 						else//Nur Töne des Dreiklangs werden ausgewählt
-							note = chooseNextTone(previous, allowedInThree, config);//Zufälliger des Dreiklangs Ton wird ausgewählt
+							note = transition.choose( allowedInThree, rand );//Zufälliger des Dreiklangs Ton wird ausgewählt
 						
 					} else//Ohne Dreiklang ist erlaubt
-						note = chooseNextTone(previous, realAllow, config);//Zufälliger Ton wird ausgewählt
+						note = transition.choose( realAllow, rand );//Zufälliger Ton wird ausgewählt
 					
 					chordMelody.add( note );//wird zur Akkordmelodie hinzugefügt
 				}
@@ -204,7 +207,7 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 		List<PercentPair> percent_tones = new ArrayList<PercentPair>();//Vorbereitung für zufällige Auswahl.
 		for( Integer tone : allowed_tones ) {
 			int interval = NoteHelper.getInterval( previous, tone );
-			percent_tones.add(new PercentPair(tone, config.getInterval(interval).getPercent()));//fügt der Auswahlliste ein PercentPair mit Interval und Wahrscheinlichkeit zu
+			percent_tones.add(new PercentPair(tone, config.getIntervalPercent(interval)));//fügt der Auswahlliste ein PercentPair mit Interval und Wahrscheinlichkeit zu
 		}
 		
 		PercentPair[] pn_array = percent_tones.toArray( new PercentPair[ percent_tones.size() ] );//List zu Array
@@ -224,10 +227,8 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 	 * @return Ein int-Array mit den erlaubten Tönen als Halbtonschritte
 	 */
 	private static int[] getAllowedTones( int previous, SChord chord, SongConfig config ) {
-		int[] scale = ChordHelper.getScale( chord );//Die Tonleiter des Akkords
-		
 		int preS = ChordHelper.getPositionOnScale( previous, chord );//Speichert die Position des vorherigen Tones auf der Tonleiter des Akkords
-		int octave = previous - scale[ preS ];//Der Oktave-Unterschied zwischen dem echten vorherigen Ton und dem gespeicherten
+		int octave = previous - ChordHelper.getScaleTone( chord, preS );//Der Oktave-Unterschied zwischen dem echten vorherigen Ton und dem gespeicherten
 		
 		ArrayList<Integer> allowed_scale_tones = new ArrayList<Integer>();//Die erlaubten Töne als Positionen auf der Tonleiter (Ganze Töne)
 		for(PercentPair pp: config.getIntervals()){
@@ -239,12 +240,12 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 		int[] steps = new int[ allowed_scale_tones.size() ];//Rechnet die Töne wieder zu Halbtonschritten um
 		for( int i = 0; i < allowed_scale_tones.size(); i++ ) {
 			int scale_tone = allowed_scale_tones.get(i);
-			if( scale_tone < 0 )
-				steps[ i ] = scale[ scale_tone + scale.length ] - 12;
-			else if( scale_tone >= scale.length )
-				steps[ i ] = scale[ scale_tone - scale.length ] + 12;
+			if( scale_tone < 0 )//Die Tonleiter hat 7 Töne
+				steps[ i ] = ChordHelper.getScaleTone( chord, scale_tone + 7 ) - 12;
+			else if( scale_tone >= 7 )
+				steps[ i ] = ChordHelper.getScaleTone( chord, scale_tone - 7 ) + 12;
 			else
-				steps[ i ] = scale[ scale_tone ];
+				steps[ i ] = ChordHelper.getScaleTone( chord, scale_tone );
 			
 			steps[ i ] = steps[ i ] + octave;//Oktaven-Unterschied wird addiert
 		}
@@ -260,22 +261,140 @@ public class MelodyGenerator implements ICanonMelodyGenerator{
 	}
 	
 	/**
-	 * Wählt nach den im SongConfig festgelegten Wahrscheinlichkeiten den nächsten Ton aus
-	 * @param previous - vorher gespielter Ton
-	 * @param tones - Liste der möglichen nächsten Töne
-	 * @param config - SongConfig für Intervalwahrscheinlichkeiten
-	 * @return den nächsten Ton
+	 * Berechnet die Bitmaske aller Töne zwischen MIN und MAX, die höchstens distance Halbtonschritte von tone entfernt sind
+	 * @param tone Der Ton in der Mitte des Fensters
+	 * @param distance Die erlaubte Distanz
+	 * @return Die Bitmaske, Bit <code>t - MIN</code> steht für den Ton t
+	 */
+	private static int window( int tone, int distance ) {
+		int low = Math.max( tone - distance, MIN );
+		int high = Math.min( tone + distance, MAX );
+		if( low > high )
+			return 0;
+		return ( ALL >>> ( MAX - high ) ) & ( ALL << ( low - MIN ) );
+	}
+	
+	/**
+	 * @return Das Bit des Tons in den Bitmasken
+	 */
+	private static int bit( int tone ) {
+		return 1 << ( tone - MIN );
+	}
+	
+	/**
+	 * Die erlaubten Folgetöne aller vorherigen Töne für eine Tonart und die Intervalle einer Konfiguration.<br>
+	 * Die Einträge werden beim ersten Zugriff mit {@link MelodyGenerator#getAllowedTones(int, SChord, SongConfig)} berechnet.
+	 */
+	private static class TransitionIndex {
+		
+		private final SChord key;
+		private final SongConfig config;
+		private final Transition[] transitions = new Transition[ MAX - MIN + 1 ];
+		
+		TransitionIndex( SChord key, SongConfig config ) {
+			this.key = key;
+			this.config = config;
+		}
+		
+		Transition get( int previous ) {
+			if( previous < MIN || previous > MAX )//kommt nicht vor, wird aber nicht zwischengespeichert
+				return new Transition( previous, key, config );
+			Transition transition = transitions[ previous - MIN ];
+			if( transition == null )
+				transition = transitions[ previous - MIN ] = new Transition( previous, key, config );
+			return transition;
+		}
+	}
+	
+	/**
+	 * Die erlaubten Folgetöne eines vorherigen Tons mit ihren Wahrscheinlichkeiten.<br>
+	 * Die Töne bleiben in der Reihenfolge von {@link MelodyGenerator#getAllowedTones(int, SChord, SongConfig)},
+	 * damit bei gleichem Seed die gleichen Melodien entstehen. Eine Auswahl wird als Bitmaske übergeben.
 	 */
-	private static int chooseNextTone(int previous, List<Integer> tones, SongConfig config){
-		int ret = 0;
-		ArrayList<PercentPair> intervals = new ArrayList<PercentPair>();
-		for(int tone: tones) {
-			int interval = NoteHelper.getInterval(previous, tone);
-			intervals.add( new PercentPair( tone, config.getInterval(interval).getPercent()));
+	private static class Transition {
+		
+		//Die erlaubten Töne als Halbtonschritte
+		private final int[] tones;
+		//Die Wahrscheinlichkeiten der Intervalle vom vorherigen Ton zu den erlaubten Tönen
+		private final float[] percents;
+		//Wiederverwendeter Speicher für die aufsummierten Wahrscheinlichkeiten
+		private final float[] ranges;
+		//Bitmaske aller erlaubten Töne
+		final int mask;
+		//true, falls der vorherige Ton nicht zum Dreiklang gehört
+		final boolean toThree;
+		
+		Transition( int previous, SChord key, SongConfig config ) {
+			tones = getAllowedTones( previous, key, config );
+			percents = new float[ tones.length ];
+			ranges = new float[ tones.length ];
+			int mask = 0;
+			for( int i = 0; i < tones.length; i++ ) {
+				mask |= bit( tones[ i ] );
+				percents[ i ] = config.getIntervalPercent( NoteHelper.getInterval( previous, tones[ i ] ) );
+			}
+			this.mask = mask;
+			int posInScale = ChordHelper.getPositionOnScale( previous, key );//Position des vorherigen Tons auf der Tonleiter
+			toThree = posInScale != 0 && posInScale != 2 && posInScale != 4;
+		}
+		
+		/**
+		 * Wählt nach den im SongConfig festgelegten Wahrscheinlichkeiten einen der ausgewählten Töne aus,
+		 * genauso wie {@link PercentPair#getRandomValue(PercentPair[], Random)}, damit gleiche Seeds gleiche Melodien ergeben.
+		 * Wie dort wird statt des Tons -1 der letzte Ton gezogen.
+		 * @param selection Bitmaske der möglichen nächsten Töne
+		 * @param rand Der Zufallsgenerator der Generierung
+		 * @return den nächsten Ton
+		 */
+		int choose( int selection, Random rand ) {
+			float ges = 0;//Setzt Summe zu 1
+			for( int i = 0; i < tones.length; i++ ) {
+				if( ( selection & bit( tones[ i ] ) ) != 0 )
+					ges += percents[ i ];
+			}
+			float diff = 1 / ges;
+			
+			int count = 0;//Die Wahrscheinlichkeiten als Skala von 0 bis 1
+			int last = -1;
+			ges = 0;
+			for( int i = 0; i < tones.length; i++ ) {
+				if( ( selection & bit( tones[ i ] ) ) != 0 ) {
+					ranges[ count++ ] = ges;
+					ges += percents[ i ] * diff;
+					last = i;
+				}
+			}
+			
+			float random_nr = rand.nextFloat();
+			for( int i = 0, c = 0; i < tones.length; i++ ) {
+				if( ( selection & bit( tones[ i ] ) ) != 0 ) {//Der nächst-größere Wert zur Zufallszahl wird gezogen
+					if( c + 1 < count && ranges[ c + 1 ] > random_nr )
+						return tones[ i ] != -1 ? tones[ i ] : tones[ last ];//-1 steht dort für "nicht gefunden"
+					c++;
+				}
+			}
+			return tones[ last ];
+		}
+		
+		/**
+		 * Wählt gleichverteilt einen der ausgewählten Töne aus
+		 * @param selection Bitmaske der möglichen nächsten Töne
+		 * @param rand Der Zufallsgenerator der Generierung
+		 * @return den nächsten Ton
+		 */
+		int chooseAny( int selection, Random rand ) {
+			int count = 0;
+			for( int tone : tones ) {
+				if( ( selection & bit( tone ) ) != 0 )
+					count++;
+			}
+			int index = rand.nextInt( count );
+			for( int tone : tones ) {
+				if( ( selection & bit( tone ) ) != 0 && index-- == 0 )
+					return tone;
+			}
+			throw new IllegalStateException();
 		}
-		PercentPair[] pp = new PercentPair[intervals.size()];
-		ret = PercentPair.getRandomValue( intervals.toArray(pp), new Random());
-		return ret;
 	}
 
 }
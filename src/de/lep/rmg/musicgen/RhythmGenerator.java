@@ -9,15 +9,15 @@ import java.util.Random;
 import de.lep.rmg.model.SongConfig;
 import de.lep.rmg.model.helper.ArrayHelper;
 import de.lep.rmg.model.helper.IntHelper;
-import de.lep.rmg.model.helper.PercentPair;
 import de.lep.rmg.model.helper.RandomHelper;
+import de.lep.rmg.model.helper.WeightedSampler;
 import de.lep.rmg.model.notes.INote;
 import de.lep.rmg.model.notes.Rest;
 import de.lep.rmg.model.notes.SNote;
 
 /**
  * Klasse zum generieren des Rhythmus.<br>
- * Enthält die Methode {@link RhythmGenerator#generateRhythm(SongConfig)}, welche den Rhythmus generiert.
+ * Enthält die Methode {@link RhythmGenerator#generateRhythm(SongConfig, Random)}, welche den Rhythmus generiert.
  *
  * @see CanonGenerator Controller für diese Klasse
  */
@@ -33,17 +33,17 @@ public class RhythmGenerator {
 	 * Gibt eine 3-dimensionale Liste an Integern zurück mit folgender Struktur:<br>
 	 * Die ganze Liste repräsentiert die Menge an Rhythmen (Nicht Instrument-Parts!!).<br>
 	 * <b>Erste Ebene</b>: Einzelner Rhythmus; Enthält Menge an Akkord-Rhythmen (s. unten).<br>
-	 * <b>Zweite Ebene</b>: Einzelner Akkord-Rhythmus (Näher erklärt in {@link MelodyGenerator#generateMelodies(de.lep.rmg.model.notes.SChord[], ArrayList[][], SongConfig)}).<br>
+	 * <b>Zweite Ebene</b>: Einzelner Akkord-Rhythmus (Näher erklärt in {@link MelodyGenerator#generateMelodies(de.lep.rmg.model.notes.SChord, de.lep.rmg.model.notes.SChord[], ArrayList[][], SongConfig, Random)}).<br>
 	 * Ein Akkord-Rhythmus besteht immer aus einen Mini-Rhythmus.<br>
 	 * Da ein Akkord-Rhythmus unterschiedlich viele Dauern beinhalten kann muss er in einer ArrayList gespeichert werden.<br>
 	 * <b>Dritte Ebene</b>: Die tatsächlichen Dauern (Als Integer).
 	 * 
 	 * @param config Die Konfiguration des Songs (s. {@link SongConfig}).
+	 * @param r Der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()}).
 	 * @return Eine 3-dimensionale Liste aus Dauern. Siehe oben zur Struktur.
 	 */
-	public static ArrayList<Integer>[][] generateRhythm( SongConfig config ) {
+	public static ArrayList<Integer>[][] generateRhythm( SongConfig config, Random r ) {
 		
-		Random r = new Random();
 		int duration = config.getChordDuration() * config.getMeasureDivision();
 		int[] miniRhythm1 = generateMiniRhythm( config, duration, r );//1. Mini-Rhythmus
 		int[] miniRhythm2 = generateMiniRhythm( config, duration, r );//2. Mini-Rhythmus
@@ -67,14 +67,15 @@ public class RhythmGenerator {
 	 * 
 	 * @param config - zum {@link Song} gehörendes {@link SongConfig}
 	 * @param length - Länge des rhythmischen Motivs in vielfachen der Länge des Themas (Beats * ChordNr * MeasureDivision)
+	 * @param rand - der Zufallsgenerator der Generierung
 	 * @return rhytmisches Motiv als ArrayList<INote>
 	 */
-	public static ArrayList<INote> generateMotif( SongConfig config, int length ) {
+	public static ArrayList<INote> generateMotif( SongConfig config, int length, Random rand ) {
 		ArrayList<INote> motif = new ArrayList<INote>();
-		int measure = config.getBeats() * config.getMeasureDivision();
+		int measure = config.getMeasureLength();
 		for(int i = 0; i < config.getChordNr() * length; i++){
-			for(int dur : generateMiniRhythm( config, measure, RandomHelper.getRandom() ) ){
-				motif.add( makeNote( config, dur) );
+			for(int dur : generateMiniRhythm( config, measure, rand ) ){
+				motif.add( makeNote( config, dur, rand) );
 			}
 		}
 		return motif;
@@ -86,11 +87,12 @@ public class RhythmGenerator {
 	 * eine zulässige Notenänge ergibt. Lange Notendauern werden meistens zu kürzeren aufgespalten.
 	 * @param config - zum {@link Song} gehörendes {@link SongConfig}
 	 * @param motif - rhythmisches Motiv, zu dem ein Gegenmotiv generiert werden soll. Bleibt unverändert.
+	 * @param rand - der Zufallsgenerator der Generierung
 	 * @return rhythmisches Gegenmotiv mit gleicher Länge, wie das Hauptmotiv
 	 */
-	public static ArrayList<INote> generateAntiMotif( SongConfig config, ArrayList<INote> motif ) {
+	public static ArrayList<INote> generateAntiMotif( SongConfig config, ArrayList<INote> motif, Random rand ) {
 		ArrayList<INote> antiMotif = new ArrayList<INote>();//Rhythmus der zurückgegeben wird
-		int measure = config.getBeats() * config.getMeasureDivision();//im Measure verbleibende Dauer
+		int measure = config.getMeasureLength();//im Measure verbleibende Dauer
 		int duration = 0;//Dauer einer noch nicht hinzugefügten Note
 		int[] possibleDurs = new int[config.getNoteDurations().size()];//mögliche Notenlängen, Wahrscheinlichkeiten aus SongConfig werden nicht gebraucht
 		for(int i = 0; i < possibleDurs.length; i++){
@@ -114,38 +116,38 @@ public class RhythmGenerator {
 			if( measure <= min ){//wenig Platz im Takt verbleibend
 				if( duration > inote.getDuration()){//es ist eine Note nicht hinzugefügt worden
 					if( Arrays.binarySearch(possibleDurs, duration) > 0) {
-						antiMotif.add( makeNote( config, duration) );
+						antiMotif.add( makeNote( config, duration, rand) );
 						measure -= duration;
 						while( measure <= 0)
-							measure += config.getBeats() * config.getMeasureDivision();
+							measure += config.getMeasureLength();
 						duration = 0;
 						continue;
 					}else{
 						duration -= inote.getDuration();
-						antiMotif.add( makeNote( config, duration) );
+						antiMotif.add( makeNote( config, duration, rand) );
 						measure -= inote.getDuration();
 					}
 				}
-				antiMotif.add( makeNote(config, duration));
+				antiMotif.add( makeNote(config, duration, rand));
 			}else{
 				if( duration > inote.getDuration()){//beim letzten Durchlauf wurde eine Note nicht hinzugefügt
 					if( Arrays.binarySearch(possibleDurs, duration) > 0) {//falls die Gesamtdauer beider Noten eine gültige Note ergibt
-						antiMotif.add( makeNote( config, duration) );//wird eine neue Note mit der Gesamtdauer hinzugefügt
+						antiMotif.add( makeNote( config, duration, rand) );//wird eine neue Note mit der Gesamtdauer hinzugefügt
 					}else{//andernfalls werden zwei einzelne Noten mit den ursprünglichen Dauern hinzugefügt
-						antiMotif.add( makeNote( config, duration - inote.getDuration()));
-						antiMotif.add( makeNote( config, inote.getDuration()));
+						antiMotif.add( makeNote( config, duration - inote.getDuration(), rand));
+						antiMotif.add( makeNote( config, inote.getDuration(), rand));
 					}
 				}else{//Normalfall
 					if( duration <= min){//kurze Note
 						continue;//es wird zunächst keine Note hinzugefügt, um eine längere Note (diese + nächste) hinzufügen
 					}else{
 						if( duration >= max){//lange Note
-							divisionCase( config, antiMotif, possibleDurs, duration);//es werden mehrere kürzere Noten gespielt
+							divisionCase( config, antiMotif, possibleDurs, duration, rand);//es werden mehrere kürzere Noten gespielt
 						}else{//falls duration zwischen min und max liegt, wird zufällig eine der zugehörigen Aktionen ausgewählt
-							if( RandomHelper.getRandom().nextBoolean()){
+							if( rand.nextBoolean()){
 								continue;
 							}else{
-								divisionCase( config, antiMotif, possibleDurs, duration);
+								divisionCase( config, antiMotif, possibleDurs, duration, rand);
 							}
 						}
 					}
@@ -153,11 +155,11 @@ public class RhythmGenerator {
 			}
 			measure -= duration;
 			while( measure <= 0)
-				measure += config.getBeats() * config.getMeasureDivision();
+				measure += config.getMeasureLength();
 			duration = 0;
 		}
 		if( duration > 0){
-			antiMotif.add( makeNote( config, duration));
+			antiMotif.add( makeNote( config, duration, rand));
 		}
 		return antiMotif;
 	}
@@ -168,26 +170,27 @@ public class RhythmGenerator {
 	 * es eine Pause ({@link Rest}, ansonsten eine {@link SNote} mit Tonhöhe und Oktave gleich 0
 	 * @param config - zum {@link Song} gehörendes {@link SongConfig}
 	 * @param dur - Dauer der Note
+	 * @param rand - der Zufallsgenerator der Generierung
 	 * @return eine INote
 	 */
-	private static INote makeNote( SongConfig config, int dur ) {
+	private static INote makeNote( SongConfig config, int dur, Random rand ) {
 		INote inote = null;
-		if(RandomHelper.getRandom().nextFloat() < config.getRestProbability())
+		if(rand.nextFloat() < config.getRestProbability())
 			inote = new Rest(dur);
 		else
 			inote = new SNote(0,0,dur);
 		return inote;
 	}
 
-	private static void divisionCase( SongConfig config, ArrayList<INote> antiMotif, int[] possibleDurs, int duration) {
+	private static void divisionCase( SongConfig config, ArrayList<INote> antiMotif, int[] possibleDurs, int duration, Random rand) {
 //		if(RandomHelper.getRandom().nextInt(10) <= 2){//30% Wahrscheinlichkeit eine Note der vollen Länge hinzuzufügen
 //			antiMotif.add( makeNote( config, duration));//soll übermäßiger Unregelmäßigkeit und der Tendenz zu kürzeren Notenwerten entgegenwirken
 //		}else{//zu testzwecken auskommentiert
 		ArrayList<ArrayList<Integer>> list = IntHelper.possibleSums(possibleDurs, duration);
-		ArrayList<Integer> durations = RandomHelper.randFrom(list);
-		Collections.shuffle(durations);
+		ArrayList<Integer> durations = RandomHelper.randFrom(list, rand);
+		Collections.shuffle(durations, rand);
 		for(int dur : durations){
-			antiMotif.add(makeNote( config, dur));
+			antiMotif.add(makeNote( config, dur, rand));
 //		}
 		}
 	}
@@ -206,10 +209,7 @@ public class RhythmGenerator {
 		List<Integer> rhythm = new ArrayList<Integer>();
 
 		//Die möglichen Dauern sind in SongConfig#getNoteDurations() abgelegt
-		ArrayList<PercentPair> allNotes = new ArrayList<PercentPair>();
-		for(PercentPair pair : config.getNoteDurations()){
-			allNotes.add(pair);
-		}
+		WeightedSampler allNotes = config.getDurationSampler();
 
 		//Speichert die 'unbenutzte' Länge
 		int left = duration;
@@ -217,11 +217,9 @@ public class RhythmGenerator {
 		//Solange noch 'unbenutzte' Länge vorhanden ist
 		while( left > 0 ) {
 
-			//Mögliche Dauern, die zu lang für die verfügbare Länge werden entfernt
-			allNotes = PercentPair.removeValuesGreaterThan( left, allNotes );
-
-			//Eine zufällige Dauer wird ausgewählt
-			rhythm.add( PercentPair.getRandomValue( allNotes, rand ) );
+			//Eine zufällige Dauer wird ausgewählt, Dauern, die zu lang für die verfügbare Länge sind, sind nicht möglich
+			//Passt keine Dauer mehr, wird die kürzeste gezogen und die Schleife endet (s. WeightedSampler#atMost)
+			rhythm.add( allNotes.atMost( left ).sample( rand ) );
 
 			//Die unbenutzte Länge wird neu berechnet
 			left = duration - ArrayHelper.getSum( rhythm );
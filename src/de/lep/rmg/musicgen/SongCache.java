@@ -0,0 +1,413 @@
+package de.lep.rmg.musicgen;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.helper.PercentPair;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.out.midi.MidiFileWriter;
+import de.lep.rmg.out.xml.XMLException;
+import de.lep.rmg.out.xml.XMLGenerator;
+import de.lep.rmg.view.panels.ControllPanel;
+
+/**
+ * Zwischenspeicher vor einem {@link IMusicGenerator}.<br>
+ * Da ein {@link SongConfig} mit gleichen Einstellungen und gleichem Seed immer den gleichen Song ergibt, wird jeder Song
+ * nur einmal generiert. Als Schlüssel dient ein Hash über alle Felder des SongConfigs und den Seed (s. {@link #getKey(SongConfig)}).<br>
+ * <br>
+ * Gespeichert werden die fertigen Songs als {@link SongBuffer} und, sobald sie angefragt wurden, auch ihre MIDI- und
+ * Music-XML-Dateien. Sind mehr als <code>maxEntries</code> Songs gespeichert, wird der am längsten nicht verwendete
+ * verworfen (LRU). Optional werden die Dateien zusätzlich in einem Ordner abgelegt (z.B. {@link #DEFAULT_DIRECTORY}),
+ * so dass sie auch nach einem Neustart nicht neu generiert werden müssen.<br>
+ * <br>
+ * Alle Methoden sind threadsicher. Pro Schlüssel wird ein {@link CompletableFuture} gespeichert, fragen mehrere Threads
+ * gleichzeitig den gleichen fehlenden Song an, generiert ihn also nur der erste und die anderen warten auf sein Ergebnis.
+ * Schlägt die Generierung fehl oder wird sie abgebrochen, wird nichts gespeichert.
+ * Jeder Aufruf von {@link #generateSong(SongConfig)} gibt einen neuen Song zurück,
+ * Änderungen daran wirken sich also nicht auf den Zwischenspeicher aus.<br>
+ * <br>
+ * Verschiedene Songs können gleichzeitig generiert werden. Für Generatoren, die während der Generierung Zustand halten
+ * (z.B. der {@link de.lep.rmg.musicgen.fuge.FugenGenerator}), wird daher mit {@link #SongCache(Supplier, int, File)}
+ * für jede Generierung ein eigener Generator erzeugt.
+ */
+public class SongCache implements IMusicGenerator {
+
+	/**
+	 * Der Standardordner für die Dateien auf der Festplatte
+	 */
+	public static final File DEFAULT_DIRECTORY = new File( "res/saves/cache" );
+
+	private final IMusicGenerator generator;
+	private final Supplier<? extends IMusicGenerator> factory;
+	private final File directory;
+	private final Map<String, CompletableFuture<Cached>> entries;
+
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Erstellt einen Zwischenspeicher nur im Arbeitsspeicher
+	 * @param generator Der Generator, der bei fehlenden Songs verwendet wird. Wird er von mehreren Threads gleichzeitig
+	 * verwendet, muss er threadsicher sein.
+	 * @param maxEntries Die maximale Anzahl an gespeicherten Songs
+	 */
+	public SongCache( IMusicGenerator generator, int maxEntries ) {
+		this( generator, maxEntries, null );
+	}
+
+	/**
+	 * @param generator Der Generator, der bei fehlenden Songs verwendet wird
+	 * @param maxEntries Die maximale Anzahl an gespeicherten Songs
+	 * @param directory Der Ordner für die Dateien auf der Festplatte oder null, falls nur im Arbeitsspeicher gespeichert wird
+	 */
+	public SongCache( IMusicGenerator generator, int maxEntries, File directory ) {
+		this( generator, () -> generator, maxEntries, directory );
+	}
+
+	/**
+	 * Erstellt einen Zwischenspeicher, der für jede Generierung einen neuen Generator erzeugt
+	 * @param factory Erzeugt die Generatoren für fehlende Songs, alle vom gleichen Typ
+	 * @param maxEntries Die maximale Anzahl an gespeicherten Songs
+	 * @param directory Der Ordner für die Dateien auf der Festplatte oder null, falls nur im Arbeitsspeicher gespeichert wird
+	 */
+	public SongCache( Supplier<? extends IMusicGenerator> factory, int maxEntries, File directory ) {
+		this( factory.get(), factory, maxEntries, directory );
+	}
+
+	private SongCache( IMusicGenerator generator, Supplier<? extends IMusicGenerator> factory, int maxEntries, File directory ) {
+		if( maxEntries < 1 )
+			throw new IllegalArgumentException( "maxEntries must be at least 1" );
+		this.generator = generator;
+		this.factory = factory;
+		this.directory = directory;
+		entries = new LinkedHashMap<String, CompletableFuture<Cached>>( 16, 0.75f, true ) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry( Map.Entry<String, CompletableFuture<Cached>> eldest ) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Gibt den Song zu dem SongConfig zurück und generiert ihn nur, falls er noch nicht gespeichert ist.
+	 * @param config Die {@link SongConfig} für das Musikstück
+	 * @return Ein neuer {@link Song} mit dem übergebenen SongConfig
+	 */
+	@Override
+	public Song generateSong( SongConfig config ) {
+		return generateSong( config, IProgressListener.NONE );
+	}
+
+	/**
+	 * Wie {@link #generateSong(SongConfig)}, der Fortschritt wird nur gemeldet, falls der Song generiert werden muss.
+	 * Wird der Thread unterbrochen, während er auf die Generierung eines anderen Threads wartet, wird eine
+	 * {@link CancellationException} geworfen (s. {@link IProgressListener#checkInterrupted()}).
+	 */
+	@Override
+	public Song generateSong( SongConfig config, IProgressListener progress ) {
+		return getEntry( config, getKey( config ), progress ).withConfig( config ).toSong();
+	}
+
+	/**
+	 * Gibt die MIDI-Datei des Songs zurück, der zu dem SongConfig gehört
+	 * @param config Die {@link SongConfig} für das Musikstück
+	 * @param miditype0 true: alle Parts auf einem Track, false: ein Track pro Part
+	 * @return Die Datei als Bytes, darf nicht verändert werden
+	 * @see MidiFileWriter#encode(SongBuffer, boolean)
+	 */
+	public byte[] getMidi( SongConfig config, boolean miditype0 ) {
+		String key = getKey( config );
+		String fileName = key + ( miditype0 ? ".0.midi" : ".1.midi" );
+		Cached entry = peek( key );
+		byte[] midi = entry != null ? entry.getMidi( miditype0 ) : null;
+		if( midi != null ) {
+			hits.incrementAndGet();
+			return midi;
+		}
+		midi = readFile( fileName );
+		if( midi == null ) {
+			entry = getEntry( config, key, IProgressListener.NONE );
+			ByteBuffer buffer = new MidiFileWriter().encode( entry.withConfig( config ), miditype0 );
+			midi = new byte[ buffer.remaining() ];
+			buffer.get( midi );
+			writeFile( fileName, midi );
+		}
+		if( entry != null )
+			entry.setMidi( miditype0, midi );
+		return midi;
+	}
+
+	/**
+	 * Gibt die Music-XML-Datei des Songs zurück, der zu dem SongConfig gehört
+	 * @param config Die {@link SongConfig} für das Musikstück
+	 * @return Die Datei als Bytes, darf nicht verändert werden
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public byte[] getMusicXML( SongConfig config ) throws XMLException {
+		String key = getKey( config );
+		String fileName = key + ".xml";
+		Cached entry = peek( key );
+		byte[] xml = entry != null ? entry.xml : null;
+		if( xml != null ) {
+			hits.incrementAndGet();
+			return xml;
+		}
+		xml = readFile( fileName );
+		if( xml == null ) {
+			entry = getEntry( config, key, IProgressListener.NONE );
+			ByteArrayOutputStream os = new ByteArrayOutputStream();
+			new XMLGenerator().save( os, entry.withConfig( config ) );
+			xml = os.toByteArray();
+			writeFile( fileName, xml );
+		}
+		if( entry != null )
+			entry.xml = xml;
+		return xml;
+	}
+
+	/**
+	 * Berechnet den Schlüssel eines SongConfigs.<br>
+	 * Er besteht aus einem SHA-256-Hash über den Generator, den Seed und alle Felder des SongConfigs in fester Reihenfolge,
+	 * gleiche Einstellungen ergeben also auch bei verschiedenen Objekten den gleichen Schlüssel.
+	 * @param config Das SongConfig
+	 * @return Der Schlüssel als Hexadezimalzahl, kann auch als Dateiname verwendet werden
+	 */
+	public String getKey( SongConfig config ) {
+		StringBuilder fields = new StringBuilder();
+		fields.append( generator.getClass().getName() );
+		fields.append( '|' ).append( config.getSeed() );
+		fields.append( '|' ).append( config.getKey().getKeynote() ).append( ':' ).append( config.getKey().getType() );
+		fields.append( '|' ).append( config.getChordNr() );
+		fields.append( '|' ).append( config.getChordDuration() );
+		fields.append( '|' ).append( config.getRepeats() );
+		fields.append( '|' ).append( config.getMelodyNr() );
+		fields.append( '|' ).append( config.getBeats() ).append( '/' ).append( config.getBeatType() );
+		fields.append( '|' ).append( config.getFifth() );
+		fields.append( '|' ).append( config.getClef().getSign() ).append( ':' ).append( config.getClef().getLine() );
+		fields.append( '|' ).append( Float.floatToIntBits( config.getRestProbability() ) );
+		appendPairs( fields, config.getIntervals() );
+		appendPairs( fields, config.getNoteDurations() );
+		for( Instrument instrument : config.getInstruments() ) {
+			fields.append( '|' ).append( instrument.getClass().getName() ).append( ':' ).append( instrument.getName() )
+					.append( ':' ).append( instrument.getMidiProgram() ).append( ':' ).append( Float.floatToIntBits( instrument.getVolume() ) );
+		}
+		//Titel und Komponist stehen in den Dateien
+		fields.append( '|' ).append( config.getTitle().length() ).append( ':' ).append( config.getTitle() );
+		fields.append( '|' ).append( config.getComposer().length() ).append( ':' ).append( config.getComposer() );
+
+		try {
+			byte[] hash = MessageDigest.getInstance( "SHA-256" ).digest( fields.toString().getBytes( StandardCharsets.UTF_8 ) );
+			StringBuilder hex = new StringBuilder( hash.length * 2 );
+			for( byte b : hash )
+				hex.append( Character.forDigit( ( b >> 4 ) & 0xF, 16 ) ).append( Character.forDigit( b & 0xF, 16 ) );
+			return hex.toString();
+		} catch( NoSuchAlgorithmException e ) {//SHA-256 gibt es in jeder Java-Version
+			throw new IllegalStateException( e );
+		}
+	}
+
+	private static void appendPairs( StringBuilder fields, Iterable<PercentPair> pairs ) {
+		fields.append( '|' );
+		for( PercentPair pair : pairs )
+			fields.append( pair.getValue() ).append( ':' ).append( Float.floatToIntBits( pair.getPercent() ) ).append( ',' );
+	}
+
+	/**
+	 * @return Der fertig generierte Eintrag oder null, falls keiner gespeichert ist oder er noch generiert wird
+	 */
+	private Cached peek( String key ) {
+		CompletableFuture<Cached> future;
+		synchronized( entries ) {
+			future = entries.get( key );
+		}
+		if( future == null || !future.isDone() || future.isCompletedExceptionally() )
+			return null;
+		return future.join();
+	}
+
+	/**
+	 * Gibt den gespeicherten Eintrag zurück oder generiert den Song. Zählt Treffer und Fehlschläge.<br>
+	 * Der erste Thread legt mit computeIfAbsent ein Future für den Schlüssel an und generiert den Song ohne Sperre,
+	 * damit andere Songs in der Zwischenzeit abgefragt werden können. Alle weiteren Threads warten auf dieses Future.
+	 * Wurde die Generierung des ersten Threads abgebrochen, generiert ein wartender Thread den Song selbst.
+	 */
+	private Cached getEntry( SongConfig config, String key, IProgressListener progress ) {
+		while( true ) {
+			CompletableFuture<Cached> created = new CompletableFuture<Cached>();
+			CompletableFuture<Cached> future;
+			synchronized( entries ) {
+				future = entries.computeIfAbsent( key, k -> created );
+			}
+			if( future == created ) {
+				misses.incrementAndGet();
+				return generate( config, key, created, progress );
+			}
+			try {
+				Cached entry = future.get();
+				hits.incrementAndGet();
+				return entry;
+			} catch( InterruptedException e ) {
+				throw new CancellationException( "Generation interrupted" );
+			} catch( ExecutionException e ) {
+				Throwable cause = e.getCause();
+				if( cause instanceof Error )
+					throw (Error) cause;
+				if( !( cause instanceof CancellationException ) )
+					throw (RuntimeException) cause;//generateSong wirft keine geprüften Exceptions
+			}
+		}
+	}
+
+	/**
+	 * Generiert den Song und vervollständigt das Future. Bei einem Fehler wird das Future vorher wieder entfernt,
+	 * damit spätere Anfragen es erneut versuchen.
+	 */
+	private Cached generate( SongConfig config, String key, CompletableFuture<Cached> future, IProgressListener progress ) {
+		try {
+			Cached entry = new Cached( SongBuffer.fromSong( factory.get().generateSong( config, progress ) ) );
+			future.complete( entry );
+			return entry;
+		} catch( RuntimeException | Error e ) {
+			synchronized( entries ) {
+				entries.remove( key, future );
+			}
+			future.completeExceptionally( e );
+			throw e;
+		}
+	}
+
+	private byte[] readFile( String fileName ) {
+		if( directory == null )
+			return null;
+		Path path = new File( directory, fileName ).toPath();
+		if( !Files.isRegularFile( path ) )
+			return null;
+		try {
+			byte[] bytes = Files.readAllBytes( path );
+			hits.incrementAndGet();
+			return bytes;
+		} catch( IOException e ) {
+			System.out.println( "Could not read cached file " + path );
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Schreibt die Datei erst unter einem temporären Namen, damit nie eine halbe Datei gelesen wird
+	 */
+	private void writeFile( String fileName, byte[] bytes ) {
+		if( directory == null )
+			return;
+		try {
+			Files.createDirectories( directory.toPath() );
+			Path temp = Files.createTempFile( directory.toPath(), fileName, ".tmp" );
+			Files.write( temp, bytes );
+			Files.move( temp, new File( directory, fileName ).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE );
+		} catch( IOException e ) {
+			System.out.println( "Could not cache file " + fileName + " in " + directory );
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Verwirft alle Songs im Arbeitsspeicher. Die Dateien auf der Festplatte bleiben erhalten.
+	 */
+	public void clear() {
+		synchronized( entries ) {
+			entries.clear();
+		}
+	}
+
+	/**
+	 * @return Die Anzahl der Songs im Arbeitsspeicher
+	 */
+	public int size() {
+		synchronized( entries ) {
+			return entries.size();
+		}
+	}
+
+	/**
+	 * @return Die Anzahl der Anfragen, die aus dem Arbeitsspeicher oder von der Festplatte beantwortet wurden
+	 */
+	public long getHits() {
+		return hits.get();
+	}
+
+	/**
+	 * @return Die Anzahl der Anfragen, für die der Song generiert werden musste
+	 */
+	public long getMisses() {
+		return misses.get();
+	}
+
+	@Override
+	public String getSongType() {
+		return generator.getSongType();
+	}
+
+	@Override
+	public String getGeneratorName() {
+		return generator.getGeneratorName();
+	}
+
+	@Override
+	public ControllPanel getGeneratorPanel() {
+		return generator.getGeneratorPanel();
+	}
+
+	/**
+	 * Ein gespeicherter Song mit seinen Dateien, falls sie bereits angefragt wurden
+	 */
+	private static class Cached {
+
+		private final SongBuffer song;
+		private volatile byte[] midi0, midi1, xml;
+
+		Cached( SongBuffer song ) {
+			this.song = song;
+		}
+
+		/**
+		 * @return Ein SongBuffer mit den gleichen Parts, aber dem übergebenen SongConfig
+		 */
+		SongBuffer withConfig( SongConfig config ) {
+			SongBuffer buffer = new SongBuffer( config );
+			for( int p = 0; p < song.getPartCount(); p++ )
+				buffer.addPart( song.getPart( p ) );
+			return buffer;
+		}
+
+		byte[] getMidi( boolean miditype0 ) {
+			return miditype0 ? midi0 : midi1;
+		}
+
+		void setMidi( boolean miditype0, byte[] midi ) {
+			if( miditype0 )
+				midi0 = midi;
+			else
+				midi1 = midi;
+		}
+	}
+}
@@ -3,17 +3,22 @@ package de.lep.rmg.musicgen.fuge;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Function;
 
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
 import de.lep.rmg.model.Measure;
 import de.lep.rmg.model.Part;
 import de.lep.rmg.model.Song;
 import de.lep.rmg.model.SongConfig;
-import de.lep.rmg.model.helper.RandomHelper;
+import de.lep.rmg.model.helper.SeededRandom;
 import de.lep.rmg.model.instruments.Instrument;
 import de.lep.rmg.model.notes.INote;
 import de.lep.rmg.model.notes.Rest;
 import de.lep.rmg.model.notes.SNote;
 import de.lep.rmg.musicgen.IMusicGenerator;
+import de.lep.rmg.musicgen.IProgressListener;
 import de.lep.rmg.musicgen.RhythmGenerator;
 import de.lep.rmg.musicgen.helper.MelodyHelper;
 import de.lep.rmg.out.midi.MidiPlayer;
@@ -25,6 +30,14 @@ public class FugenGenerator implements IMusicGenerator {
 	private IFugenMelodyGenerator melGen;
 	private MidiPlayer midiPlayer;
 	/*private*/ FugenSubjects fugenSubjects;//private disabled for testing
+	/**
+	 * Der Zufallsgenerator der laufenden Generierung (s. {@link SongConfig#createRandom()})
+	 */
+	/*private*/ SeededRandom rand;//private disabled for testing
+	/**
+	 * true, falls die freien Stimmen eines Abschnitts gleichzeitig generiert werden (s. {@link #generateVoices(List)})
+	 */
+	private boolean parallel = true;
 	
 	public FugenGenerator( MidiPlayer midiPlayer, IFugenMelodyGenerator FMG ) {
 		melGen = FMG;
@@ -45,7 +58,23 @@ public class FugenGenerator implements IMusicGenerator {
 	 */
 	@Override
 	public Song generateSong(SongConfig config) {
+		return generateSong(config, IProgressListener.NONE);
+	}
+	
+	/**
+	 * Wie {@link #generateSong(SongConfig)}. Gemeldet werden Thema und Gegenthema, jede Durchführung, die Engführung und die Schlusskadenz.
+	 * 
+	 * @param config - {@link SongConfig} für diese Fuge
+	 * @param progress - empfängt den Fortschritt
+	 * @return die fertig genrierte Fuge als {@link Song}
+	 */
+	@Override
+	public Song generateSong(SongConfig config, IProgressListener progress) {
+		int sections = Math.min(Math.max(config.getRepeats(), 1), 3);//Anzahl der Durchführungen
+		int steps = sections + 3, step = 0;
+		rand = config.createRandom();
 		fugenSubjects = generateSubjects(config);
+		progress.progress(++step, steps);
 		Instrument instrument = config.getInstruments()[0];
 		
 		//lege die Stimmen der Fuge als verschiedene Parts an
@@ -60,24 +89,29 @@ public class FugenGenerator implements IMusicGenerator {
 		
 		//Exposition, erste Durchführung
 		addSection(parts, config);
+		progress.progress(++step, steps);
 		if(config.getRepeats() > 1){
 			//Modulation
 			addModulation(parts, config);
 			//zweite Durchführung
 			addSection(parts, config);
+			progress.progress(++step, steps);
 		}
 		if(config.getRepeats() > 2){
 			//Modulation
 			addModulation(parts, config);
 			//Engführung
 			addSection(parts, config);
+			progress.progress(++step, steps);
 		}
 		//Modulation
 		addModulation(parts, config);
 		//Engführung
 		addFinalSection(parts, config);
+		progress.progress(++step, steps);
 		//Schlusskadenz
 		addFinalCadence(parts, config);
+		progress.progress(++step, steps);
 		
 		Song song = new Song(config);song.addAll(parts);
 		return song;
@@ -98,10 +132,14 @@ public class FugenGenerator implements IMusicGenerator {
 			voices = 6;
 		
 		//generiere Rhythmus für Hauptmotiv
-		ArrayList<INote> rhythm = RhythmGenerator.generateMotif(config, 1);//1: höhere Werte nur für freie Stimmen
+		long start = Metrics.start();
+		ArrayList<INote> rhythm = RhythmGenerator.generateMotif(config, 1, rand);//1: höhere Werte nur für freie Stimmen
+		Metrics.stop(Stage.RHYTHM, start);
 		//generiere Thema und Gegenthema
-		ArrayList<INote> themeList = melGen.generateSubject(config, rhythm);//Das Hauptthema
-		ArrayList <INote> antiThemeList = melGen.generateAntiSubject(config, themeList);//Das Gegenthema
+		start = Metrics.start();
+		ArrayList<INote> themeList = melGen.generateSubject(config, rhythm, rand);//Das Hauptthema
+		ArrayList <INote> antiThemeList = melGen.generateAntiSubject(config, themeList, rand);//Das Gegenthema
+		Metrics.stop(Stage.MELODY, start);
 		Part themePart = MelodyHelper.noteListToPart(config, themeList, instrument);
 		Part antiThemePart = MelodyHelper.noteListToPart(config, antiThemeList, instrument);
 		//erstelle FugenInfo-Objekt zum bündeln der Informationen
@@ -119,10 +157,11 @@ public class FugenGenerator implements IMusicGenerator {
 	 * @param config - das {@link SongConfig} der Fuge
 	 */
 	/*private*/ void addSection(ArrayList<Part> parts, SongConfig config){ //private disabled for testing
+		IProgressListener.checkInterrupted();
 		//speichert in welcher Reihenfolge die Stimmen zu spielen beginnen
 		@SuppressWarnings("unchecked")//clone benötigt, da ursprüngliche Reihenfolge in parts erhalten bleiben muss
 		ArrayList<Part> order = (ArrayList<Part>) parts.clone();//Objekte in order und parts sind die selben
-		Collections.shuffle(order);
+		Collections.shuffle(order, rand);
 		//Intervalle der Stimmen zur Tonhöhe im FugenInfo
 		ArrayList<Integer> intervals = intervals(parts, order);
 		
@@ -168,38 +207,50 @@ public class FugenGenerator implements IMusicGenerator {
 	 * @param config - das {@link SongConfig} der Fuge
 	 */
 	/*private*/ void addFinalSection(ArrayList<Part> parts, SongConfig config){//private disabled for testing
-		int subjectDuration = config.getChordNr() * config.getBeats() * config.getMeasureDivision();
+		IProgressListener.checkInterrupted();
+		int subjectDuration = config.getChordNr() * config.getMeasureLength();
 		//speichert in welcher Reihenfolge die Stimmen zu spielen beginnen
 		@SuppressWarnings("unchecked")//clone benötigt, da ursprüngliche Reihenfolge in parts erhalten bleiben muss
 		ArrayList<Part> order = (ArrayList<Part>) parts.clone();//Objekte in order und parts sind die selben
-		Collections.shuffle(order);
+		Collections.shuffle(order, rand);
 		//Intervalle der Stimmen zur Tonhöhe im FugenInfo
 		ArrayList<Integer> intervals = intervals(parts, order);
 		
+		List<Function<SeededRandom, Part>> voices = new ArrayList<Function<SeededRandom, Part>>();
 		for(int partnr = 0; partnr < order.size(); partnr++){
-			Part part = order.get(partnr);
-			ArrayList<INote> notes = new ArrayList<INote>();
-			//erste freie Stimmen hinzufügen
-			notes = melGen.generateSubVoice(config, fugenSubjects, partnr);//überlagernder Themeneinsatz
-			notes = MelodyHelper.subNoteList(notes, partnr * subjectDuration / 2, false);
-			//Thema hinzufügen
-			notes.addAll(fugenSubjects.getSubjectList());
-			//zweite freie Stimme hinzufügen
-			ArrayList<INote> subVoice = melGen.generateSubVoice(config, fugenSubjects, (order.size() - 1 - partnr));
-			subVoice = MelodyHelper.subNoteList(subVoice, (order.size() - 1 - partnr) * subjectDuration / 2, true);
-			notes.addAll(subVoice);
-			//transponieren und Part hinzufügen
-			notes = MelodyHelper.transpone(notes, intervals.get(partnr), config.getKey());
-			part.addAll(MelodyHelper.noteListToPart(config, notes, part.getInstrument()));
+			int voice = partnr, size = order.size();
+			Instrument instrument = order.get(partnr).getInstrument();
+			int interval = intervals.get(partnr);
+			voices.add(random -> {
+				ArrayList<INote> notes = new ArrayList<INote>();
+				//erste freie Stimmen hinzufügen
+				notes = generateSubVoice(config, voice, random);//überlagernder Themeneinsatz
+				notes = MelodyHelper.subNoteList(notes, voice * subjectDuration / 2, false);
+				//Thema hinzufügen
+				notes.addAll(fugenSubjects.getSubjectList());
+				//zweite freie Stimme hinzufügen
+				ArrayList<INote> subVoice = generateSubVoice(config, size - 1 - voice, random);
+				subVoice = MelodyHelper.subNoteList(subVoice, (size - 1 - voice) * subjectDuration / 2, true);
+				notes.addAll(subVoice);
+				//transponieren
+				notes = MelodyHelper.transpone(notes, interval, config.getKey());
+				return MelodyHelper.noteListToPart(config, notes, instrument);
+			});
+		}
+		//Parts in fester Reihenfolge erweitern
+		List<Part> measures = generateVoices(voices);
+		for(int partnr = 0; partnr < order.size(); partnr++){
+			order.get(partnr).addAll(measures.get(partnr));
 		}
 
 	}
 	
 	private void addFinalCadence(List<Part> parts, SongConfig config){
+		IProgressListener.checkInterrupted();
 		ArrayList<Integer> intervals = intervals(parts, parts);
 		boolean[] parallelFunction = new boolean[4];
 		for(int i = 0; i < parallelFunction.length; i++){
-			parallelFunction[i] = RandomHelper.getRandom().nextBoolean();
+			parallelFunction[i] = rand.nextBoolean();
 		}
 		for(int partnr = 0; partnr < parts.size(); partnr++){
 			ArrayList<INote> notes = new ArrayList<INote>();
@@ -288,12 +339,10 @@ public class FugenGenerator implements IMusicGenerator {
 	 */
 	private void fillWithRests(List<Part> partorder, int measures, SongConfig config){
 		Measure restMeasure = new Measure(config);
-		restMeasure.add(new Rest(config.getMeasureDivision() * config.getBeats()));
+		restMeasure.add(new Rest(config.getMeasureLength()));
+		restMeasure.freeze();
 		for(int partnr = 1; partnr < partorder.size(); partnr++){//erster Part beginnt direkt mit Thema, daher partnr = 1
-			Part part = partorder.get(partnr);
-			for(int j = 0; j < measures*partnr; j++){
-				part.add(restMeasure);
-			}
+			partorder.get(partnr).addAll(Collections.nCopies(measures*partnr, restMeasure));//alle Pausentakte sind derselbe Takt
 		}
 	}
 	
@@ -307,11 +356,13 @@ public class FugenGenerator implements IMusicGenerator {
 	 * @param config - ein {@link SongConfig}
 	 */
 	private void fillSubVoices(List<Part> partorder, List<Integer> transponationIntervals, SongConfig config){
+		List<Function<SeededRandom, Part>> voices = new ArrayList<Function<SeededRandom, Part>>();
 		for(int partnr = 1; partnr < partorder.size(); partnr++){//erster Part beginnt direkt mit Thema, daher partnr = 1
-			Part part = partorder.get(partnr);
-			ArrayList<INote> notes = melGen.generateSubVoice(config, fugenSubjects, partnr);
-			MelodyHelper.transpone(notes, transponationIntervals.get(partnr), config.getKey());
-			part.addAll(MelodyHelper.noteListToPart(config, notes, part.getInstrument()));
+			voices.add(subVoice(config, partorder.get(partnr).getInstrument(), partnr, transponationIntervals.get(partnr)));
+		}
+		List<Part> measures = generateVoices(voices);
+		for(int partnr = 1; partnr < partorder.size(); partnr++){
+			partorder.get(partnr).addAll(measures.get(partnr - 1));
 		}
 	}
 	
@@ -325,13 +376,84 @@ public class FugenGenerator implements IMusicGenerator {
 	 * @param config - ein {@link SongConfig}
 	 */
 	private void fillSubVoicesReverseOrder(List<Part> partorder, List<Integer> transponationIntervals, SongConfig config){
+		List<Function<SeededRandom, Part>> voices = new ArrayList<Function<SeededRandom, Part>>();
 		for(int partnr = 0; partnr < partorder.size() - 2; partnr++) {//letzte zwei Parts sind bereits fertig, daher partnr < parts.size() - 2 2
-			Part part = partorder.get(partnr);
 			int length = partorder.size() - partnr - 2;//Länge der freien Stimme; -2 : gleicher Grund
-			ArrayList<INote> notes = melGen.generateSubVoice(config, fugenSubjects, length);
-			MelodyHelper.transpone(notes, transponationIntervals.get(partnr), config.getKey());
-			part.addAll(MelodyHelper.noteListToPart(config, notes, part.getInstrument()));
+			voices.add(subVoice(config, partorder.get(partnr).getInstrument(), length, transponationIntervals.get(partnr)));
+		}
+		List<Part> measures = generateVoices(voices);
+		for(int partnr = 0; partnr < partorder.size() - 2; partnr++) {
+			partorder.get(partnr).addAll(measures.get(partnr));
+		}
+	}
+	
+	/**
+	 * Erstellt die Generierung einer freien Stimme für {@link #generateVoices(List)}
+	 * @param config - ein {@link SongConfig}
+	 * @param instrument - das Instrument der Stimme
+	 * @param length - die Länge der freien Stimme in Themenlängen
+	 * @param interval - das Interval, um das die Stimme transponiert werden soll
+	 * @return die Generierung der Takte der freien Stimme
+	 */
+	private Function<SeededRandom, Part> subVoice(SongConfig config, Instrument instrument, int length, int interval){
+		return random -> {
+			ArrayList<INote> notes = generateSubVoice(config, length, random);
+			MelodyHelper.transpone(notes, interval, config.getKey());
+			return MelodyHelper.noteListToPart(config, notes, instrument);
+		};
+	}
+	
+	/**
+	 * Generiert eine freie Stimme mit dem {@link IFugenMelodyGenerator} und misst die Dauer
+	 * @param config - ein {@link SongConfig}
+	 * @param length - die Länge der freien Stimme in Themenlängen
+	 * @param random - der Zufallsgenerator der Stimme
+	 * @return die freie Stimme
+	 */
+	private ArrayList<INote> generateSubVoice(SongConfig config, int length, SeededRandom random){
+		long start = Metrics.start();
+		ArrayList<INote> subVoice = melGen.generateSubVoice(config, fugenSubjects, length, random);
+		Metrics.stop(Stage.MELODY, start);
+		return subVoice;
+	}
+	
+	/**
+	 * Generiert die Takte mehrerer Stimmen eines Abschnitts.<br>
+	 * Jede Stimme erhält einen eigenen, in fester Reihenfolge mit {@link SeededRandom#split()} abgeleiteten Zufallsgenerator.
+	 * Die Stimmen hängen daher nicht voneinander ab und werden, falls {@link #isParallel()}, gleichzeitig als
+	 * {@link ForkJoinTask}s generiert (im Pool des aufrufenden Threads, sonst im gemeinsamen Pool).
+	 * Das Ergebnis ist in beiden Fällen gleich.
+	 * @param voices - die Generierungen der Stimmen
+	 * @return die Takte der Stimmen, in der Reihenfolge von voices
+	 */
+	private List<Part> generateVoices(List<Function<SeededRandom, Part>> voices){
+		List<ForkJoinTask<Part>> tasks = new ArrayList<ForkJoinTask<Part>>(voices.size());
+		for(Function<SeededRandom, Part> voice : voices){
+			SeededRandom random = rand.split();
+			tasks.add(ForkJoinTask.adapt(() -> voice.apply(random)));
+		}
+		if(parallel && tasks.size() > 1)
+			ForkJoinTask.invokeAll(tasks);
+		List<Part> measures = new ArrayList<Part>(tasks.size());
+		for(ForkJoinTask<Part> task : tasks){
+			IProgressListener.checkInterrupted();//die Tasks selbst sehen die Unterbrechung des aufrufenden Threads nicht
+			measures.add(task.invoke());//bereits fertige Tasks liefern nur ihr Ergebnis
 		}
+		return measures;
+	}
+	
+	/**
+	 * @param parallel - true, falls die freien Stimmen eines Abschnitts gleichzeitig generiert werden sollen (Standard)
+	 */
+	public void setParallel(boolean parallel) {
+		this.parallel = parallel;
+	}
+	
+	/**
+	 * @return true, falls die freien Stimmen eines Abschnitts gleichzeitig generiert werden
+	 */
+	public boolean isParallel() {
+		return parallel;
 	}
 	
 	@Override
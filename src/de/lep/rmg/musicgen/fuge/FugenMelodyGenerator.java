@@ -4,9 +4,10 @@ import java.util.ArrayList;
 import java.util.Random;
 
 import de.lep.rmg.model.SongConfig;
-import de.lep.rmg.model.helper.PercentPair;
+import de.lep.rmg.model.helper.WeightedSampler;
 import de.lep.rmg.model.notes.INote;
 import de.lep.rmg.model.notes.IRealNote;
+import de.lep.rmg.model.notes.SChord;
 import de.lep.rmg.model.notes.SNote;
 import de.lep.rmg.model.notes.helper.NoteHelper;
 import de.lep.rmg.musicgen.RhythmGenerator;
@@ -28,20 +29,19 @@ public class FugenMelodyGenerator implements IFugenMelodyGenerator {
 	 */
 	private int standardOctave = 3;
 	
-	private Random rand = new Random();
-	
 	@Override
-	public ArrayList<INote> generateSubject(SongConfig config, ArrayList<INote> rhythm) {
-		INote lastNote = new SNote(config.getKey().getKeynote(), standardOctave, config.getMeasureDivision());
+	public ArrayList<INote> generateSubject(SongConfig config, ArrayList<INote> rhythm, Random rand) {
+		SChord key = config.getKey();
+		INote lastNote = new SNote(key.getKeynote(), standardOctave, config.getMeasureDivision());
 		for(INote note : rhythm){
 			if(note instanceof IRealNote){//else assume it is a Rest
 				IRealNote thisNote = (IRealNote) note;
 				if(lastNote instanceof IRealNote){
-					setNextTone(config, thisNote, (IRealNote)lastNote);
+					setNextTone(config, thisNote, (IRealNote)lastNote, rand);
 				}else{
-					thisNote.setTone(config.getKey().getKeynote());
+					thisNote.setTone(key.getKeynote());
 					thisNote.setOctave(standardOctave);
-					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, config.getKey());
+					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, key);
 				}
 			}
 			lastNote = note;
@@ -51,8 +51,9 @@ public class FugenMelodyGenerator implements IFugenMelodyGenerator {
 	}
 	
 	@Override
-	public ArrayList<INote> generateAntiSubject(SongConfig config, ArrayList<INote> subject) {
-		ArrayList<INote> antiSubject = RhythmGenerator.generateAntiMotif(config, subject);
+	public ArrayList<INote> generateAntiSubject(SongConfig config, ArrayList<INote> subject, Random rand) {
+		ArrayList<INote> antiSubject = RhythmGenerator.generateAntiMotif(config, subject, rand);
+		SChord key = config.getKey();
 		
 		int noteCounter = 0;//zählt die bereits untersuchten Noten des subjects
 		int subjectDurCounter = 0;//zählt die Gesamtlänge der bereits untersuchten Noten des subjects
@@ -71,11 +72,11 @@ public class FugenMelodyGenerator implements IFugenMelodyGenerator {
 			if ( inote instanceof IRealNote ) {
 				IRealNote thisNote = (IRealNote) inote;
 				if(lastNote instanceof IRealNote){
-					setNextTone(config, thisNote, (IRealNote)lastNote);
+					setNextTone(config, thisNote, (IRealNote)lastNote, rand);
 				}else{
-					thisNote.setTone(config.getKey().getKeynote());
+					thisNote.setTone(key.getKeynote());
 					thisNote.setOctave(standardOctave);
-					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, config.getKey());
+					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, key);
 				}
 				for( INote subjectNote : playingNotes ){
 					if( subjectNote instanceof IRealNote ){
@@ -97,18 +98,19 @@ public class FugenMelodyGenerator implements IFugenMelodyGenerator {
 	}
 
 	@Override
-	public ArrayList<INote> generateSubVoice(SongConfig config, FugenSubjects fugenSubjects, int length) {
+	public ArrayList<INote> generateSubVoice(SongConfig config, FugenSubjects fugenSubjects, int length, Random rand) {
 		INote lastNote = fugenSubjects.getAntiSubjectList().get( fugenSubjects.getAntiSubjectList().size() - 1 );
-		ArrayList<INote> rhythm = RhythmGenerator.generateMotif(config, length);
+		ArrayList<INote> rhythm = RhythmGenerator.generateMotif(config, length, rand);
+		SChord key = config.getKey();
 		for(INote note : rhythm){
 			if(note instanceof IRealNote){//else assume it is a Rest
 				IRealNote thisNote = (IRealNote) note;
 				if(lastNote instanceof IRealNote){
-					setNextTone(config, thisNote, (IRealNote)lastNote);
+					setNextTone(config, thisNote, (IRealNote)lastNote, rand);
 				}else{
-					thisNote.setTone(config.getKey().getKeynote());
+					thisNote.setTone(key.getKeynote());
 					thisNote.setOctave(standardOctave);
-					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, config.getKey());
+					NoteHelper.addInterval(thisNote, rand.nextInt(3)*2, key);
 				}
 			}
 			lastNote = note;
@@ -124,39 +126,37 @@ public class FugenMelodyGenerator implements IFugenMelodyGenerator {
 	 * @param config - {@link SongConfig}
 	 * @param thisNote - die zu verändernde Note
 	 * @param previous - die vorhergehende Note
+	 * @param rand - der Zufallsgenerator der Generierung
 	 * @return thisNote mit geänderter Tonhöhe
 	 */
-	private IRealNote setNextTone(SongConfig config, IRealNote thisNote, IRealNote lastNote){
-		ArrayList<PercentPair> allowedIntervals = getAllowedIntervals(config, lastNote);
-		int interval = PercentPair.getRandomValue( allowedIntervals.toArray(new PercentPair[0]), rand);
+	private IRealNote setNextTone(SongConfig config, IRealNote thisNote, IRealNote lastNote, Random rand){
+		SChord key = config.getKey();
+		WeightedSampler intervals = config.getIntervalSampler();
+		long allowed = getAllowedIntervals(key, intervals, lastNote);
+		//liegt die vorherige Note schon außerhalb des Tonbereichs, kann kein Intervall erlaubt sein, dann sind alle möglich
+		int interval = (allowed != 0 ? intervals.restrict(allowed) : intervals).sample(rand);
 		thisNote.setTone(lastNote.getTone());
 		thisNote.setOctave(lastNote.getOctave());
-		NoteHelper.addInterval(thisNote, interval, config.getKey());
+		NoteHelper.addInterval(thisNote, interval, key);
 		return thisNote;
 	}
 	
 	/**
 	 * Gibt alle Intervalle die vom {@link SongConfig} und gleichzeitig vom Tonbereich her erlaubt sind zurück.<br>
-	 * Rückgabetyp ist dabei eine ArrayList von {@link PercentPair}s, wodurch auch die entsprechenden Wahscheinlichkeiten
-	 * transportiert werden.
-	 * @param config - das {@link SongConfig}
+	 * Die Intervalle werden als Bitmaske über die Werte von {@link SongConfig#getIntervalSampler()} angegeben,
+	 * aus der mit {@link WeightedSampler#restrict(long)} unter Beachtung der Wahrscheinlichkeiten gezogen wird.
+	 * @param key - der Grundton des Songs (s. {@link SongConfig#getKey()})
+	 * @param intervals - der Sampler der Intervalle mit Richtung
 	 * @param lastNote - die Note, in Bezug auf die das Interval angegeben wird
-	 * @return Liste von möglichen Intervallen
+	 * @return Bitmaske der möglichen Intervalle
 	 */
-	private ArrayList<PercentPair> getAllowedIntervals(SongConfig config, IRealNote lastNote){
-		int previous = NoteHelper.getInterval( config.getKey().getKeynote() + standardOctave * 12, lastNote.getTone() + lastNote.getOctave() *12);
-		ArrayList<Integer> intervals = new ArrayList<Integer>();
-		ArrayList<PercentPair> allowed = new ArrayList<PercentPair>();
-		for(PercentPair pair: config.getIntervals()){
-			intervals.add(pair.getValue());
-		}
-		for(int value: intervals){
-			if(previous + value <= upperMaxIntervalToKey){//Interval nach oben
-				allowed.add(new PercentPair(value, config.getInterval(value).getPercent()));
-			}
-			if(previous - value >= lowerMaxIntervalToKey && value != 0){//Interval nach unten
-				allowed.add(new PercentPair(-value, config.getInterval(value).getPercent()));
-			}
+	private long getAllowedIntervals(SChord key, WeightedSampler intervals, IRealNote lastNote){
+		int previous = NoteHelper.getInterval( key.getKeynote() + standardOctave * 12, lastNote.getTone() + lastNote.getOctave() *12);
+		long allowed = 0;
+		for(int i = 0; i < intervals.size(); i++){
+			int value = intervals.getValue(i);
+			if(value >= 0 ? previous + value <= upperMaxIntervalToKey : previous + value >= lowerMaxIntervalToKey)//Interval nach oben bzw. nach unten
+				allowed |= 1L << i;
 		}
 		return allowed;
 	}
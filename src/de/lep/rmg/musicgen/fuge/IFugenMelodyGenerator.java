@@ -1,6 +1,7 @@
 package de.lep.rmg.musicgen.fuge;
 
 import java.util.ArrayList;
+import java.util.Random;
 
 import de.lep.rmg.model.SongConfig;
 import de.lep.rmg.model.notes.INote;
@@ -13,18 +14,20 @@ public interface IFugenMelodyGenerator {
 	 * 
 	 * @param config - ein SongConfig
 	 * @param rhythm - der Rhythmus dem das Thema folgen soll, als INotes in einer ArrayList
+	 * @param rand - der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()})
 	 * @return Thema als ArrayList
 	 */
-	public ArrayList<INote> generateSubject( SongConfig config, ArrayList<INote> rhythm );
+	public ArrayList<INote> generateSubject( SongConfig config, ArrayList<INote> rhythm, Random rand );
 	/**
 	 * Generiert passened zu einem Thema ein Gegenthema, mit der gleichen Taktanzahl.
 	 * Es wird in der gleichen Tonhöhe und Tonart komponiert, wie das Hauptthema.
 	 * 
 	 * @param config - ein SongConfig
 	 * @param subject - das Thema dessen Gegenpart geschaffen werden soll als INotes in einer ArrayList
+	 * @param rand - der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()})
 	 * @return Gegenthema als ArrayList
 	 */
-	public ArrayList<INote> generateAntiSubject( SongConfig config, ArrayList<INote> sublect );
+	public ArrayList<INote> generateAntiSubject( SongConfig config, ArrayList<INote> sublect, Random rand );
 	/**
 	 * Generiert eine freie Stimme die mit Thema und Gegenthema harmoniert und
 	 * gut an das Gegenthema anschließt.<br>
@@ -33,9 +36,10 @@ public interface IFugenMelodyGenerator {
 	 * @param config - ein SongConfig
 	 * @param fugenSubjects - Haupt- und Gegenthema der Fuge
 	 * @param length - Dauer der freien Stimme in Vielfachen der Länge des Themas
+	 * @param rand - der Zufallsgenerator der Generierung (s. {@link SongConfig#createRandom()})
 	 * @return freie Stimme als ArrayList
 	 */
-	public ArrayList<INote> generateSubVoice( SongConfig config, FugenSubjects fugenSubjects, int length );
+	public ArrayList<INote> generateSubVoice( SongConfig config, FugenSubjects fugenSubjects, int length, Random rand );
 	/**
 	 * Gibt die verwendete Standardoktave zurück.
 	 * @return die Standardoktave
@@ -2,6 +2,9 @@ package de.lep.rmg.musicgen.helper;
 
 import java.util.ArrayList;
 
+import de.lep.rmg.metrics.IMetrics.Counter;
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
 import de.lep.rmg.model.Measure;
 import de.lep.rmg.model.Part;
 import de.lep.rmg.model.SongConfig;
@@ -41,7 +44,8 @@ public class MelodyHelper {
 	}
 	
 	/**
-	 * Wandelt eine Liste von Noten (ohne Takteinteilung) in einen {@link Part} (mit Einteilung in Takte) um
+	 * Wandelt eine Liste von Noten (ohne Takteinteilung) in einen {@link Part} (mit Einteilung in Takte) um.
+	 * Die Takte sind eingefroren (s. {@link Measure#freeze()}), da sie in mehrere Parts übernommen werden können.
 	 * 
 	 * @param config - {@link SongConfig} mit Angaben zu Taktlänge und -art
 	 * @param notes - Notenliste
@@ -49,23 +53,26 @@ public class MelodyHelper {
 	 * @return ein {@link Part}-Objekt
 	 */
 	public static Part noteListToPart( SongConfig config, ArrayList<INote> notes, Instrument instru){
+		long start = Metrics.start();
+		int noteCount = 0;
 		Part part = new Part(instru);
-		int duration = SongConfig.measureDivision * config.getBeats();
-		//int duration = 0;
+		int overflow = 0;//Dauer, um die die letzte Note über den vorherigen Takt hinausging
 		Measure mea = new Measure( config );
 		for(INote inote: notes){
 			mea.add(inote);
-			duration -= inote.getDuration();
-			//if(duration >= SongConfig.measureDivision*config.getBeats()){
-			if(duration <= 0){
-				part.add( mea.clone());
+			if(mea.getRemainingDuration() <= overflow){
+				overflow -= mea.getRemainingDuration();
+				noteCount += mea.size();
+				part.add( mea.freeze() );//mea kann danach nicht mehr verändert werden, eine Kopie ist unnötig
 				mea = new Measure(config);
-				duration += SongConfig.measureDivision * config.getBeats();
 			}
 		}
-		if(duration > 0){
-			mea.add(new Rest(duration));//fügt eine entsprechend lange Pause an, falls der letzte Takt nicht komplett  ist
+		if(mea.getRemainingDuration() > overflow){
+			mea.add(new Rest(mea.getRemainingDuration() - overflow));//fügt eine entsprechend lange Pause an, falls der letzte Takt nicht komplett  ist
 		}
+		Metrics.count(Counter.MEASURES, part.size());
+		Metrics.count(Counter.NOTES, noteCount);
+		Metrics.stop(Stage.ARRANGEMENT, start);
 		return part;
 	}
 
@@ -0,0 +1,171 @@
+package de.lep.rmg.out;
+
+import java.io.File;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.out.audio.WavRenderer;
+import de.lep.rmg.out.binary.RmgsFile;
+import de.lep.rmg.out.midi.MidiFileWriter;
+import de.lep.rmg.out.xml.XMLGenerator;
+
+/**
+ * Speichert einen {@link Song} gleichzeitig in mehreren Formaten, ohne den aufrufenden Thread (z.B. den EDT) zu blockieren.<br>
+ * Der Song wird beim Aufruf von {@link #export(Song, Map)} einmal in einen {@link SongBuffer} kopiert. Alle Formate werden
+ * aus dieser unveränderlichen Kopie parallel auf dem Executor geschrieben, spätere Änderungen am Song wirken sich also nicht
+ * auf den Export aus. MIDI, WAV und .rmgs werden über einen FileChannel, MusicXML über einen gepufferten Stream geschrieben.<br>
+ * Das Ergebnis kommt als {@link CompletableFuture} zurück, das fehlschlägt, sobald ein Format nicht geschrieben werden konnte.
+ */
+public class ExportService implements AutoCloseable {
+
+	/**
+	 * Die unterstützten Ausgabeformate
+	 */
+	public enum Format {
+		MIDI0( ".midi" ), MIDI1( ".midi" ), XML( ".xml" ), WAV( ".wav" ), RMGS( RmgsFile.EXTENSION );
+
+		private final String extension;
+
+		private Format( String extension ) {
+			this.extension = extension;
+		}
+
+		/**
+		 * @return Die Dateiendung des Formats inklusive Punkt
+		 */
+		public String getExtension() {
+			return extension;
+		}
+	}
+
+	//Zusatz für midi0-Dateien, falls gleichzeitig eine midi1-Datei gespeichert wird
+	private static final String MIDI0_SUFFIX = "-typ0";
+
+	private final ExecutorService executor;
+	private final boolean ownExecutor;
+
+	private final MidiFileWriter midiWriter = new MidiFileWriter();
+	private final XMLGenerator xmlGen = new XMLGenerator();
+	private final WavRenderer wavRenderer = new WavRenderer();
+	private final RmgsFile rmgsFile = new RmgsFile();
+
+	/**
+	 * Erstellt einen ExportService mit eigenem Pool aus Daemon-Threads, der mit {@link #close()} beendet wird
+	 */
+	public ExportService() {
+		this( Executors.newCachedThreadPool( r -> {
+			Thread thread = new Thread( r, "ExportService" );
+			thread.setDaemon( true );
+			return thread;
+		} ), true );
+	}
+
+	/**
+	 * @param executor Der Executor, auf dem die Formate geschrieben werden. Er wird von {@link #close()} nicht beendet.
+	 */
+	public ExportService( ExecutorService executor ) {
+		this( executor, false );
+	}
+
+	private ExportService( ExecutorService executor, boolean ownExecutor ) {
+		this.executor = executor;
+		this.ownExecutor = ownExecutor;
+	}
+
+	/**
+	 * @return Der WavRenderer, z.B. um die Geschwindigkeit der WAV-Dateien einzustellen
+	 */
+	public WavRenderer getWavRenderer() {
+		return wavRenderer;
+	}
+
+	/**
+	 * Bestimmt die Zieldateien der Formate aus einem gemeinsamen Dateinamen.<br>
+	 * Eine Endung eines der Formate wird durch die Endung des jeweiligen Formats ersetzt, sonst wird sie angehängt.
+	 * Werden midi0 und midi1 zusammen gespeichert, bekommt die midi0-Datei den Zusatz "-typ0", damit sich die Dateien nicht überschreiben.
+	 *
+	 * @param file Der gewählte Dateiname, mit oder ohne Endung
+	 * @param formats Die zu speichernden Formate
+	 * @return Die Zieldatei pro Format
+	 */
+	public static Map<Format, File> getTargets( File file, Set<Format> formats ) {
+		String base = file.getPath();
+		for( Format format : Format.values() ) {
+			if( base.endsWith( format.getExtension() ) ) {
+				base = base.substring( 0, base.length() - format.getExtension().length() );
+				break;
+			}
+		}
+		Map<Format, File> targets = new EnumMap<Format, File>( Format.class );
+		for( Format format : formats ) {
+			String name = base;
+			if( format == Format.MIDI0 && formats.contains( Format.MIDI1 ) )
+				name += MIDI0_SUFFIX;
+			targets.put( format, new File( name + format.getExtension() ) );
+		}
+		return targets;
+	}
+
+	/**
+	 * Speichert den Song in alle angegebenen Formate parallel
+	 *
+	 * @param song Der Song, wird sofort kopiert und danach nicht mehr gelesen
+	 * @param targets Die Zieldatei pro Format (s. {@link #getTargets(File, Set)})
+	 * @return Ein Future mit den geschriebenen Dateien, oder mit dem ersten Fehler als Ursache einer {@link CompletionException}
+	 */
+	public CompletableFuture<Map<Format, File>> export( Song song, Map<Format, File> targets ) {
+		SongBuffer buffer = SongBuffer.fromSong( song );
+		Map<Format, File> files = Collections.unmodifiableMap( new EnumMap<Format, File>( targets ) );
+		CompletableFuture<?>[] writes = new CompletableFuture<?>[ files.size() ];
+		int i = 0;
+		for( Map.Entry<Format, File> target : files.entrySet() ) {
+			Format format = target.getKey();
+			File file = target.getValue();
+			writes[ i++ ] = CompletableFuture.runAsync( () -> {
+				try {
+					write( buffer, format, file );
+				} catch( Exception e ) {
+					throw new CompletionException( "Failed to save Song in File " + file, e );
+				}
+			}, executor );
+		}
+		return CompletableFuture.allOf( writes ).thenApply( v -> files );
+	}
+
+	private void write( SongBuffer song, Format format, File file ) throws Exception {
+		switch( format ) {
+		case MIDI0:
+			midiWriter.write( song, true, file );
+			break;
+		case MIDI1:
+			midiWriter.write( song, false, file );
+			break;
+		case XML:
+			xmlGen.save( file, song );
+			break;
+		case WAV:
+			wavRenderer.render( song, file );
+			break;
+		case RMGS:
+			rmgsFile.write( song, file );
+			break;
+		}
+	}
+
+	/**
+	 * Beendet den eigenen Pool, laufende Exporte werden noch fertig geschrieben
+	 */
+	@Override
+	public void close() {
+		if( ownExecutor )
+			executor.shutdown();
+	}
+}
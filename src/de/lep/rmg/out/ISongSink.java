@@ -0,0 +1,23 @@
+package de.lep.rmg.out;
+
+import java.io.IOException;
+
+import de.lep.rmg.model.Song;
+
+/**
+ * Interface für Ausgabeziele, an die fertig generierte {@link Song}s weitergereicht werden.<br>
+ * Wird z.B. vom {@link de.lep.rmg.BatchGenerator} verwendet, um Songs direkt nach der Generierung
+ * in Dateien zu schreiben, ohne sie im Speicher zu sammeln.<br>
+ * Implementationen werden gleichzeitig von mehreren Threads aufgerufen und müssen daher threadsicher sein.
+ */
+public interface ISongSink {
+	
+	/**
+	 * Übernimmt einen fertig generierten {@link Song}.
+	 * 
+	 * @param song Der generierte Song
+	 * @param index Die laufende Nummer des Songs innerhalb des Durchlaufs
+	 * @throws IOException Falls der Song nicht ausgegeben werden konnte
+	 */
+	public void accept( Song song, int index ) throws IOException;
+}
@@ -0,0 +1,63 @@
+package de.lep.rmg.out.audio;
+
+/**
+ * Ergebnis eines Durchlaufs des {@link WavRenderer}s.<br>
+ * Der Echtzeitfaktor gibt an, wie viel mal schneller als in Echtzeit gerendert wurde.
+ */
+public class RenderStatistics {
+	
+	private final long frames;
+	private final float sampleRate;
+	private final int parts;
+	private final long wallNanos;
+	
+	RenderStatistics( long frames, float sampleRate, int parts, long wallNanos ) {
+		this.frames = frames;
+		this.sampleRate = sampleRate;
+		this.parts = parts;
+		this.wallNanos = wallNanos;
+	}
+	
+	/**
+	 * @return Die Anzahl der geschriebenen Frames (ein Frame enthält einen Sample pro Kanal)
+	 */
+	public long getFrames() {
+		return frames;
+	}
+	
+	/**
+	 * @return Die Länge der Audiodatei in Sekunden
+	 */
+	public double getAudioSeconds() {
+		return frames / (double) sampleRate;
+	}
+	
+	/**
+	 * @return Die Anzahl der parallel gerenderten Parts bzw. Tracks
+	 */
+	public int getParts() {
+		return parts;
+	}
+	
+	/**
+	 * @return Die Dauer des gesamten Durchlaufs in Nanosekunden
+	 */
+	public long getWallNanos() {
+		return wallNanos;
+	}
+	
+	/**
+	 * @return Länge der Audiodatei geteilt durch die Dauer des Renderns, z.B. 20 für zwanzigmal schneller als Echtzeit
+	 */
+	public double getRealTimeFactor() {
+		if( wallNanos == 0 )
+			return 0;
+		return getAudioSeconds() / ( wallNanos / 1e9 );
+	}
+	
+	@Override
+	public String toString() {
+		return String.format( "%.2f s Audio aus %d Parts in %.2f s gerendert (%.1fx Echtzeit)",
+				getAudioSeconds(), parts, wallNanos / 1e9, getRealTimeFactor() );
+	}
+}
@@ -0,0 +1,430 @@
+package de.lep.rmg.out.audio;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.MidiUnavailableException;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Synthesizer;
+import javax.sound.midi.Track;
+import javax.sound.sampled.AudioFormat;
+import javax.sound.sampled.AudioInputStream;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+
+/**
+ * Rendert {@link Song}s und {@link Sequence}s offline, also schneller als in Echtzeit, in eine WAV-Datei (PCM, s. {@link #FORMAT}).<br>
+ * Jeder Part (bzw. jeder Track einer Sequence) bekommt einen eigenen Software-Synthesizer aus dem JDK (Gervill),
+ * der in einem eigenen Thread Block für Block rendert. Die Blöcke werden der Reihe nach aufsummiert und direkt
+ * über einen {@link FileChannel} geschrieben, es liegt also nie die ganze Audiodatei im Speicher.<br>
+ * <br>
+ * Das Rendern ohne Soundkarte braucht die Schnittstelle <code>com.sun.media.sound.AudioSynthesizer</code>.
+ * Ab Java 9 muss die JVM dafür mit <code>--add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED</code> gestartet werden.
+ */
+public class WavRenderer {
+
+	/**
+	 * Das Ausgabeformat: 44,1 kHz, 16 Bit, Stereo, little-endian wie in WAV-Dateien üblich
+	 */
+	public static final AudioFormat FORMAT = new AudioFormat( 44100f, 16, 2, true, false );
+
+	//Anzahl der Frames, die pro Block gerendert und gemischt werden
+	private static final int BLOCK_FRAMES = 4096;
+	//Anzahl der Blöcke, die ein Part dem Mischen voraus sein darf
+	private static final int QUEUE_BLOCKS = 8;
+	//Nachklingzeit nach dem letzten Ereignis in Mikrosekunden
+	private static final long RELEASE_MICROS = 1000000;
+	//Größe des WAV-Headers in Bytes
+	private static final int HEADER_SIZE = 44;
+	//Meta-Nachricht für Tempowechsel
+	private static final int TEMPO = 0x51;
+
+	private float tempo = 120;
+
+	/**
+	 * setzt die Geschwindigkeit in Beats pro Minute. Gilt für Songs und für Sequences ohne Tempowechsel.
+	 * @param bpm
+	 */
+	public void setTempoInBPM( float bpm ) {
+		tempo = bpm;
+	}
+
+	public float getTempoInBPM() {
+		return tempo;
+	}
+
+	/**
+	 * Rendert einen {@link Song} in eine WAV-Datei
+	 * @param song Der Song
+	 * @param file Die Zieldatei
+	 * @return Dauer und Echtzeitfaktor des Renderns
+	 * @throws IOException Falls das Rendern oder Schreiben fehlschlägt
+	 */
+	public RenderStatistics render( Song song, File file ) throws IOException {
+		return render( SongBuffer.fromSong( song ), file );
+	}
+
+	/**
+	 * Rendert einen {@link SongBuffer} in eine WAV-Datei, jeder Part mit seinem Instrument und seiner Lautstärke
+	 * wie in der {@link de.lep.rmg.out.midi.TrackFactory}
+	 * @param song Der Song
+	 * @param file Die Zieldatei
+	 * @return Dauer und Echtzeitfaktor des Renderns
+	 * @throws IOException Falls das Rendern oder Schreiben fehlschlägt
+	 */
+	public RenderStatistics render( SongBuffer song, File file ) throws IOException {
+		double microsPerTick = 60000000.0 / ( tempo * SongConfig.measureDivision );
+		List<PartEvents> parts = new ArrayList<PartEvents>();
+		try {
+			for( int p = 0; p < song.getPartCount(); p++ ) {
+				PartBuffer part = song.getPart( p );
+				int velocity = (int) part.getInstrument().getVolume();
+				PartEvents events = new PartEvents( part.size() * 2 + 1 );
+				events.add( 0, new ShortMessage( ShortMessage.PROGRAM_CHANGE, 0, part.getInstrument().getMidiProgram(), 0 ) );
+				for( int i = 0; i < part.size(); i++ ) {
+					long event = part.getEvent( i );
+					if( SongBuffer.isRest( event ) )
+						continue;
+					int pitch = SongBuffer.getMidiPitch( event );
+					long tick = SongBuffer.getTick( event );
+					events.add( (long) ( tick * microsPerTick ), new ShortMessage( ShortMessage.NOTE_ON, 0, pitch, velocity ) );
+					events.add( (long) ( ( tick + SongBuffer.getDuration( event ) ) * microsPerTick ), new ShortMessage( ShortMessage.NOTE_OFF, 0, pitch, velocity ) );
+				}
+				parts.add( events );
+			}
+		} catch( InvalidMidiDataException e ) {
+			throw new IOException( "Invalid note in Song", e );
+		}
+		return render( parts, file );
+	}
+
+	/**
+	 * Rendert eine {@link Sequence} in eine WAV-Datei. Jeder Track wird einzeln gerendert,
+	 * Tempowechsel in einem beliebigen Track gelten für alle Tracks.
+	 * @param seq Die Sequence
+	 * @param file Die Zieldatei
+	 * @return Dauer und Echtzeitfaktor des Renderns
+	 * @throws IOException Falls das Rendern oder Schreiben fehlschlägt
+	 */
+	public RenderStatistics render( Sequence seq, File file ) throws IOException {
+		TempoMap tempoMap = new TempoMap( seq );
+		List<PartEvents> parts = new ArrayList<PartEvents>();
+		for( Track track : seq.getTracks() ) {
+			PartEvents events = new PartEvents( track.size() );
+			for( int i = 0; i < track.size(); i++ ) {
+				MidiEvent event = track.get( i );
+				if( !( event.getMessage() instanceof MetaMessage ) )
+					events.add( tempoMap.getMicros( event.getTick() ), event.getMessage() );
+			}
+			if( events.size > 0 )
+				parts.add( events );
+		}
+		return render( parts, file );
+	}
+
+	private RenderStatistics render( List<PartEvents> parts, File file ) throws IOException {
+		long start = System.nanoTime();
+		long endMicros = 0;
+		for( PartEvents part : parts )
+			endMicros = Math.max( endMicros, part.getEndMicros() );
+		int frameSize = FORMAT.getFrameSize();
+		int channels = FORMAT.getChannels();
+		long frames = (long) Math.ceil( ( endMicros + RELEASE_MICROS ) * (double) FORMAT.getSampleRate() / 1000000 );
+		long dataSize = frames * frameSize;
+		if( dataSize > 0xFFFFFFFFL - HEADER_SIZE )
+			throw new IOException( "Song is too long for a WAV file" );
+
+		ExecutorService pool = Executors.newFixedThreadPool( Math.max( parts.size(), 1 ), r -> {
+			Thread thread = new Thread( r, "WavRenderer" );
+			thread.setDaemon( true );
+			return thread;
+		} );
+		try( FileChannel channel = FileChannel.open( file.toPath(),
+				StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+			//jeder Part braucht einen eigenen Thread, da das Mischen auf alle Parts gleichzeitig wartet
+			PartRenderer[] renderers = new PartRenderer[ parts.size() ];
+			for( int p = 0; p < renderers.length; p++ ) {
+				renderers[ p ] = new PartRenderer( parts.get( p ), frames );
+				pool.execute( renderers[ p ] );
+			}
+
+			writeFully( channel, createHeader( dataSize ) );
+			ByteBuffer out = ByteBuffer.allocateDirect( BLOCK_FRAMES * frameSize ).order( ByteOrder.LITTLE_ENDIAN );
+			int[] mix = new int[ BLOCK_FRAMES * channels ];
+			for( long written = 0; written < frames; written += BLOCK_FRAMES ) {
+				int samples = (int) Math.min( BLOCK_FRAMES, frames - written ) * channels;
+				Arrays.fill( mix, 0 );
+				for( PartRenderer renderer : renderers ) {
+					byte[] block = renderer.take();
+					for( int i = 0; i < samples; i++ )
+						mix[ i ] += (short) ( ( block[ 2 * i ] & 0xFF ) | ( block[ 2 * i + 1 ] << 8 ) );
+				}
+				out.clear();
+				for( int i = 0; i < samples; i++ )//übersteuerte Samples werden abgeschnitten
+					out.putShort( (short) Math.max( Short.MIN_VALUE, Math.min( Short.MAX_VALUE, mix[ i ] ) ) );
+				out.flip();
+				writeFully( channel, out );
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+		return new RenderStatistics( frames, FORMAT.getSampleRate(), parts.size(), System.nanoTime() - start );
+	}
+
+	/**
+	 * @return Der WAV-Header (RIFF, fmt, data) für das {@link #FORMAT}
+	 */
+	private static ByteBuffer createHeader( long dataSize ) {
+		ByteBuffer header = ByteBuffer.allocate( HEADER_SIZE ).order( ByteOrder.LITTLE_ENDIAN );
+		header.put( new byte[]{ 'R', 'I', 'F', 'F' } ).putInt( (int) ( dataSize + HEADER_SIZE - 8 ) );
+		header.put( new byte[]{ 'W', 'A', 'V', 'E' } );
+		header.put( new byte[]{ 'f', 'm', 't', ' ' } ).putInt( 16 );
+		header.putShort( (short) 1 );//PCM
+		header.putShort( (short) FORMAT.getChannels() );
+		header.putInt( (int) FORMAT.getSampleRate() );
+		header.putInt( (int) FORMAT.getSampleRate() * FORMAT.getFrameSize() );
+		header.putShort( (short) FORMAT.getFrameSize() );
+		header.putShort( (short) FORMAT.getSampleSizeInBits() );
+		header.put( new byte[]{ 'd', 'a', 't', 'a' } ).putInt( (int) dataSize );
+		header.flip();
+		return header;
+	}
+
+	private static void writeFully( FileChannel channel, ByteBuffer buffer ) throws IOException {
+		while( buffer.hasRemaining() )
+			channel.write( buffer );
+	}
+
+	/**
+	 * Prüft, ob der Software-Synthesizer zum Rendern ohne Soundkarte verwendet werden kann, ohne ihn zu öffnen
+	 * @throws IOException Falls er fehlt oder die JVM ohne <code>--add-exports</code> gestartet wurde
+	 */
+	public static void checkAvailable() throws IOException {
+		try {
+			Class<?> audioSynthesizer = Class.forName( "com.sun.media.sound.AudioSynthesizer" );
+			if( !audioSynthesizer.getModule().isExported( audioSynthesizer.getPackageName(), WavRenderer.class.getModule() ) )
+				throw new IOException( "AudioSynthesizer is not accessible, start the JVM with "
+						+ "--add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED" );
+		} catch( ClassNotFoundException e ) {
+			throw new IOException( "No AudioSynthesizer available: " + e );
+		}
+	}
+
+	/**
+	 * Öffnet einen Audio-Stream auf dem Synthesizer, aus dem ohne Soundkarte gelesen werden kann.
+	 * Ereignisse mit Zeitstempel werden beim Lesen an der entsprechenden Stelle gerendert.
+	 */
+	private static AudioInputStream openStream( Synthesizer synth ) throws MidiUnavailableException {
+		try {
+			Class<?> audioSynthesizer = Class.forName( "com.sun.media.sound.AudioSynthesizer" );
+			if( !audioSynthesizer.isInstance( synth ) )
+				throw new MidiUnavailableException( "Synthesizer " + synth.getDeviceInfo().getName() + " cannot render offline" );
+			Method openStream = audioSynthesizer.getMethod( "openStream", AudioFormat.class, Map.class );
+			return (AudioInputStream) openStream.invoke( synth, FORMAT, null );
+		} catch( ClassNotFoundException | NoSuchMethodException e ) {
+			throw new MidiUnavailableException( "No AudioSynthesizer available: " + e );
+		} catch( IllegalAccessException e ) {
+			throw new MidiUnavailableException( "AudioSynthesizer is not accessible, start the JVM with "
+					+ "--add-exports java.desktop/com.sun.media.sound=ALL-UNNAMED" );
+		} catch( InvocationTargetException e ) {
+			if( e.getCause() instanceof MidiUnavailableException )
+				throw (MidiUnavailableException) e.getCause();
+			throw new MidiUnavailableException( "Could not open audio stream: " + e.getCause() );
+		}
+	}
+
+	/**
+	 * Die Ereignisse eines Parts mit ihren Zeitpunkten in Mikrosekunden
+	 */
+	private static class PartEvents {
+
+		private long[] micros;
+		private MidiMessage[] messages;
+		private int size;
+
+		PartEvents( int capacity ) {
+			micros = new long[ Math.max( capacity, 1 ) ];
+			messages = new MidiMessage[ micros.length ];
+		}
+
+		void add( long time, MidiMessage message ) {
+			if( size == micros.length ) {
+				micros = Arrays.copyOf( micros, size * 2 );
+				messages = Arrays.copyOf( messages, size * 2 );
+			}
+			micros[ size ] = time;
+			messages[ size++ ] = message;
+		}
+
+		long getEndMicros() {
+			long end = 0;
+			for( int i = 0; i < size; i++ )
+				end = Math.max( end, micros[ i ] );
+			return end;
+		}
+	}
+
+	/**
+	 * Rendert einen Part mit einem eigenen Synthesizer und stellt die Blöcke in eine Warteschlange
+	 */
+	private static class PartRenderer implements Runnable {
+
+		private final PartEvents events;
+		private final long frames;
+		private final BlockingQueue<byte[]> blocks = new ArrayBlockingQueue<byte[]>( QUEUE_BLOCKS );
+		private volatile Exception error;
+
+		PartRenderer( PartEvents events, long frames ) {
+			this.events = events;
+			this.frames = frames;
+		}
+
+		@Override
+		public void run() {
+			Synthesizer synth = null;
+			try {
+				synth = MidiSystem.getSynthesizer();
+				AudioInputStream stream = openStream( synth );
+				Receiver receiver = synth.getReceiver();
+				for( int i = 0; i < events.size; i++ )
+					receiver.send( events.messages[ i ], events.micros[ i ] );
+				int frameSize = FORMAT.getFrameSize();
+				for( long remaining = frames; remaining > 0; remaining -= BLOCK_FRAMES ) {
+					byte[] block = new byte[ (int) Math.min( BLOCK_FRAMES, remaining ) * frameSize ];
+					for( int read = 0; read < block.length; ) {
+						int n = stream.read( block, read, block.length - read );
+						if( n < 0 )
+							break;//der Rest des Blocks bleibt still
+						read += n;
+					}
+					blocks.put( block );
+				}
+			} catch( InterruptedException e ) {
+				//das Mischen wurde abgebrochen
+			} catch( Exception e ) {
+				error = e;
+			} finally {
+				if( synth != null )
+					synth.close();
+			}
+		}
+
+		/**
+		 * @return Der nächste gerenderte Block
+		 * @throws IOException Falls das Rendern des Parts fehlgeschlagen ist
+		 */
+		byte[] take() throws IOException {
+			try {
+				while( true ) {
+					byte[] block = blocks.poll( 100, TimeUnit.MILLISECONDS );
+					if( block != null )
+						return block;
+					if( error != null )
+						throw new IOException( "Rendering failed: " + error.getMessage(), error );
+				}
+			} catch( InterruptedException e ) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException( "Rendering interrupted" );
+			}
+		}
+	}
+
+	/**
+	 * Rechnet Ticks einer {@link Sequence} in Mikrosekunden um, unter Beachtung aller Tempowechsel
+	 */
+	private class TempoMap {
+
+		//Tick, Zeitpunkt in Mikrosekunden und Mikrosekunden pro Tick ab jedem Tempowechsel
+		private final long[] ticks;
+		private final double[] micros;
+		private final double[] microsPerTick;
+
+		TempoMap( Sequence seq ) {
+			List<long[]> changes = new ArrayList<long[]>();//Tick und Mikrosekunden pro Viertel
+			changes.add( new long[]{ 0, (long) ( 60000000 / tempo ) } );
+			if( seq.getDivisionType() == Sequence.PPQ ) {
+				for( Track track : seq.getTracks() ) {
+					for( int i = 0; i < track.size(); i++ ) {
+						MidiMessage message = track.get( i ).getMessage();
+						if( message instanceof MetaMessage && ( (MetaMessage) message ).getType() == TEMPO ) {
+							byte[] data = ( (MetaMessage) message ).getData();
+							if( data.length == 3 )
+								changes.add( new long[]{ track.get( i ).getTick(),
+										( ( data[ 0 ] & 0xFF ) << 16 ) | ( ( data[ 1 ] & 0xFF ) << 8 ) | ( data[ 2 ] & 0xFF ) } );
+						}
+					}
+				}
+			}
+			//stabil sortiert, das Anfangstempo bleibt vor einem Tempowechsel bei Tick 0
+			changes.sort( ( a, b ) -> Long.compare( a[ 0 ], b[ 0 ] ) );
+
+			int count = changes.size();
+			ticks = new long[ count ];
+			micros = new double[ count ];
+			microsPerTick = new double[ count ];
+			for( int c = 0; c < count; c++ ) {
+				ticks[ c ] = changes.get( c )[ 0 ];
+				if( seq.getDivisionType() == Sequence.PPQ )
+					microsPerTick[ c ] = changes.get( c )[ 1 ] / (double) seq.getResolution();
+				else
+					microsPerTick[ c ] = 1000000 / ( seq.getDivisionType() * seq.getResolution() );
+				if( c > 0 )
+					micros[ c ] = micros[ c - 1 ] + ( ticks[ c ] - ticks[ c - 1 ] ) * microsPerTick[ c - 1 ];
+			}
+		}
+
+		long getMicros( long tick ) {
+			int c = Arrays.binarySearch( ticks, tick );
+			if( c < 0 )
+				c = -c - 2;
+			else//bei mehreren Tempowechseln am gleichen Tick gilt der letzte
+				while( c + 1 < ticks.length && ticks[ c + 1 ] == tick )
+					c++;
+			return (long) ( micros[ c ] + ( tick - ticks[ c ] ) * microsPerTick[ c ] );
+		}
+	}
+
+	/**
+	 * Rendert eine .midi-Datei in eine WAV-Datei und gibt Dauer und Echtzeitfaktor aus.<br>
+	 * Parameter: <code>&lt;Eingabe.midi&gt; &lt;Ausgabe.wav&gt;</code>
+	 */
+	public static void main( String[] args ) {
+		if( args.length < 2 ) {
+			System.out.println( "Usage: WavRenderer <input.midi> <output.wav>" );
+			return;
+		}
+		try {
+			Sequence seq = MidiSystem.getSequence( new File( args[ 0 ] ) );
+			System.out.println( new WavRenderer().render( seq, new File( args[ 1 ] ) ) );
+		} catch( InvalidMidiDataException | IOException e ) {
+			System.out.println( "Failed to render " + args[ 0 ] );
+			e.printStackTrace();
+		}
+	}
+}
@@ -0,0 +1,44 @@
+package de.lep.rmg.out.audio;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.out.ISongSink;
+
+/**
+ * Rendert jeden übergebenen {@link Song} mit dem {@link WavRenderer} in eine eigene WAV-Datei im angegebenen Ordner.<br>
+ * Das Rendern verwendet nur den Software-Synthesizer, also weder Sequencer noch Soundkarte.
+ */
+public class WavSongSink implements ISongSink {
+
+	private final File directory;
+	private final String prefix;
+	private final float tempo;
+
+	/**
+	 * @param directory Der Ordner, in den die Dateien geschrieben werden
+	 * @param prefix Der Anfang jedes Dateinamens, gefolgt von der Nummer des Songs
+	 * @param tempo Die Geschwindigkeit in Beats pro Minute (s. {@link WavRenderer#setTempoInBPM(float)})
+	 */
+	public WavSongSink( File directory, String prefix, float tempo ) {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.tempo = tempo;
+	}
+
+	@Override
+	public void accept( Song song, int index ) throws IOException {
+		WavRenderer renderer = new WavRenderer();
+		renderer.setTempoInBPM( tempo );
+		renderer.render( song, getFile( index ) );
+	}
+
+	/**
+	 * @param index Die laufende Nummer des Songs
+	 * @return Die Datei, in die der Song mit dieser Nummer geschrieben wird
+	 */
+	public File getFile( int index ) {
+		return new File( directory, String.format( "%s%05d.wav", prefix, index ) );
+	}
+}
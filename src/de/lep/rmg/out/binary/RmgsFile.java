@@ -0,0 +1,331 @@
+package de.lep.rmg.out.binary;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.helper.PercentPair;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.instruments.helper.InstrumentHelper;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.SChord;
+
+/**
+ * Liest und schreibt Songs im binären .rmgs-Format.<br>
+ * Im Gegensatz zu MIDI enthält eine .rmgs-Datei die komplette {@link SongConfig} (mit Startwert und Wahrscheinlichkeiten)
+ * und die Takteinteilung, im Gegensatz zu Music-XML ist sie klein und schnell zu lesen: Die Ereignisse werden
+ * genau so gespeichert, wie sie im {@link SongBuffer} liegen, und beim Lesen nur am Stück kopiert.
+ * Geschrieben wird über einen {@link FileChannel}, gelesen aus einem {@link MappedByteBuffer}.<br>
+ * <br>
+ * Aufbau (Big Endian, Strings als Länge in Bytes und UTF-8):
+ * <ul>
+ * <li>Kopf: <code>"RMGS"</code>, Version (short), Flags (short, bisher immer 0)</li>
+ * <li>SongConfig: seed (long), chordNr, chordDuration, repeats, melodyNr (int), Grundton und Akkordtyp des Grundtons (byte),
+ * Notenschlüssel (byte, s. {@link Clef#getSign()}), restProbability (float), title, composer (String),
+ * Intervalle und Notendauern (Anzahl, dann je Wert (int) und Wahrscheinlichkeit (float)), Instrumente (Anzahl, dann je Instrument)</li>
+ * <li>Parts: Anzahl, dann je Part das Instrument, Anzahl der Takte (int), Anzahl der Ereignisse (int), Länge (long),
+ * die Anfänge und Attribute der Takte (int[]) und die Ereignisse (long[])</li>
+ * </ul>
+ * Ein Instrument besteht aus Klassenname, Name, Kurzname (String), MIDI-Programm (int) und Lautstärke (float).
+ * Dateien mit einer neueren Version werden abgelehnt.
+ */
+public class RmgsFile {
+
+	/**
+	 * Die Dateiendung
+	 */
+	public static final String EXTENSION = ".rmgs";
+
+	/**
+	 * Die aktuelle Version des Formats
+	 */
+	public static final short VERSION = 1;
+
+	private static final int MAGIC = 0x524D4753;//"RMGS"
+
+	/**
+	 * Speichert den Song als .rmgs-Datei
+	 *
+	 * @param song Der Song
+	 * @param file Die Datei
+	 * @throws IOException Falls die Datei nicht geschrieben werden kann
+	 */
+	public void write( Song song, File file ) throws IOException {
+		write( SongBuffer.fromSong( song ), file );
+	}
+
+	/**
+	 * Speichert den SongBuffer als .rmgs-Datei
+	 *
+	 * @param song Der SongBuffer
+	 * @param file Die Datei
+	 * @throws IOException Falls die Datei nicht geschrieben werden kann
+	 */
+	public void write( SongBuffer song, File file ) throws IOException {
+		long start = Metrics.start();
+		ByteBuffer buffer = encode( song );
+		try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING ) ) {
+			while( buffer.hasRemaining() )
+				channel.write( buffer );
+		}
+		Metrics.stop( Stage.WRITE, start );
+	}
+
+	/**
+	 * Liest eine .rmgs-Datei als Song
+	 *
+	 * @param file Die Datei
+	 * @return Der Song
+	 * @throws IOException Falls die Datei nicht gelesen werden kann oder kein gültiges .rmgs-Format hat
+	 */
+	public Song readSong( File file ) throws IOException {
+		return read( file ).toSong();
+	}
+
+	/**
+	 * Liest eine .rmgs-Datei als SongBuffer. Die Datei wird dafür in den Speicher abgebildet.
+	 *
+	 * @param file Die Datei
+	 * @return Der SongBuffer
+	 * @throws IOException Falls die Datei nicht gelesen werden kann oder kein gültiges .rmgs-Format hat
+	 */
+	public SongBuffer read( File file ) throws IOException {
+		try( FileChannel channel = FileChannel.open( file.toPath(), StandardOpenOption.READ ) ) {
+			MappedByteBuffer buffer = channel.map( FileChannel.MapMode.READ_ONLY, 0, channel.size() );
+			return decode( buffer );
+		}
+	}
+
+	/*#############################################################################
+	 * 						SCHREIBEN
+	 *###########################################################################*/
+
+	/**
+	 * Kodiert den SongBuffer im .rmgs-Format
+	 *
+	 * @param song Der SongBuffer
+	 * @return Die komplette Datei, bereit zum Lesen
+	 */
+	public ByteBuffer encode( SongBuffer song ) {
+		SongConfig config = song.getConfig();
+		byte[] title = bytes( config.getTitle() ), composer = bytes( config.getComposer() );
+		List<byte[]> instruments = new ArrayList<byte[]>();
+		for( Instrument instrument : config.getInstruments() )
+			instruments.add( encode( instrument ) );
+		for( int p = 0; p < song.getPartCount(); p++ )
+			instruments.add( encode( song.getPart( p ).getInstrument() ) );
+
+		int capacity = 8 + 8 + 4 * 4 + 3 + 4 + 4 + title.length + 4 + composer.length
+				+ 4 + config.getIntervals().size() * 8 + 4 + config.getNoteDurations().size() * 8 + 4 + 4;
+		for( byte[] instrument : instruments )
+			capacity += instrument.length;
+		for( int p = 0; p < song.getPartCount(); p++ ) {
+			PartBuffer part = song.getPart( p );
+			capacity += 4 + 4 + 8 + part.getMeasureCount() * 8 + part.size() * 8;
+		}
+		ByteBuffer buffer = ByteBuffer.allocate( capacity );
+
+		buffer.putInt( MAGIC );
+		buffer.putShort( VERSION );
+		buffer.putShort( (short) 0 );
+
+		buffer.putLong( config.getSeed() );
+		buffer.putInt( config.getChordNr() );
+		buffer.putInt( config.getChordDuration() );
+		buffer.putInt( config.getRepeats() );
+		buffer.putInt( config.getMelodyNr() );
+		buffer.put( (byte) config.getKey().getKeynote() );
+		buffer.put( (byte) config.getKey().getType().ordinal() );
+		buffer.put( (byte) ( config.getClef() == null ? 0 : config.getClef().getSign() ) );
+		buffer.putFloat( config.getRestProbability() );
+		putBytes( buffer, title );
+		putBytes( buffer, composer );
+		putPairs( buffer, config.getIntervals() );
+		putPairs( buffer, config.getNoteDurations() );
+		buffer.putInt( config.getInstruments().length );
+		int instrument = 0;
+		for( ; instrument < config.getInstruments().length; instrument++ )
+			buffer.put( instruments.get( instrument ) );
+
+		buffer.putInt( song.getPartCount() );
+		for( int p = 0; p < song.getPartCount(); p++ ) {
+			PartBuffer part = song.getPart( p );
+			buffer.put( instruments.get( instrument++ ) );
+			buffer.putInt( part.getMeasureCount() );
+			buffer.putInt( part.size() );
+			buffer.putLong( part.getLength() );
+			for( int m = 0; m < part.getMeasureCount(); m++ )
+				buffer.putInt( part.getMeasureStart( m ) );
+			for( int m = 0; m < part.getMeasureCount(); m++ )
+				buffer.putInt( part.getMeasureAttributes( m ) );
+			for( int e = 0; e < part.size(); e++ )
+				buffer.putLong( part.getEvent( e ) );
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	private static byte[] encode( Instrument instrument ) {
+		byte[] type = bytes( instrument.getClass().getName() ), name = bytes( instrument.getName() ), shortName = bytes( instrument.getShortName() );
+		ByteBuffer buffer = ByteBuffer.allocate( 12 + type.length + name.length + shortName.length + 8 );
+		putBytes( buffer, type );
+		putBytes( buffer, name );
+		putBytes( buffer, shortName );
+		buffer.putInt( instrument.getMidiProgram() );
+		buffer.putFloat( instrument.getVolume() );
+		return buffer.array();
+	}
+
+	private static byte[] bytes( String text ) {
+		return text == null ? new byte[ 0 ] : text.getBytes( StandardCharsets.UTF_8 );
+	}
+
+	private static void putBytes( ByteBuffer buffer, byte[] bytes ) {
+		buffer.putInt( bytes.length );
+		buffer.put( bytes );
+	}
+
+	private static void putPairs( ByteBuffer buffer, List<PercentPair> pairs ) {
+		buffer.putInt( pairs.size() );
+		for( PercentPair pair : pairs ) {
+			buffer.putInt( pair.getValue() );
+			buffer.putFloat( pair.getPercent() );
+		}
+	}
+
+	/*#############################################################################
+	 * 						LESEN
+	 *###########################################################################*/
+
+	/**
+	 * Liest einen SongBuffer im .rmgs-Format ab der aktuellen Position des Buffers
+	 *
+	 * @param buffer Der Buffer mit der Datei
+	 * @return Der SongBuffer
+	 * @throws IOException Falls der Buffer kein gültiges .rmgs-Format enthält
+	 */
+	public SongBuffer decode( ByteBuffer buffer ) throws IOException {
+		try {
+			if( buffer.getInt() != MAGIC )
+				throw new IOException( "Not a .rmgs file" );
+			short version = buffer.getShort();
+			if( version < 1 || version > VERSION )
+				throw new IOException( "Unsupported .rmgs version " + version + ", expected at most " + VERSION );
+			buffer.getShort();//Flags
+
+			SongConfig.Builder builder = new SongConfig.Builder()
+					.setSeed( buffer.getLong() )
+					.setChordNr( buffer.getInt() )
+					.setChordDuration( buffer.getInt() )
+					.setRepeats( buffer.getInt() )
+					.setMelodyNr( buffer.getInt() );
+			int keynote = buffer.get();
+			int type = buffer.get();
+			if( type < 0 || type >= CType.values().length )
+				throw new IOException( "Invalid type of key: " + type );
+			builder.setKey( new SChord( keynote, CType.values()[ type ] ) )
+					.setClef( clef( buffer.get() ) )
+					.setRestProbability( buffer.getFloat() )
+					.setTitle( getString( buffer ) )
+					.setComposer( getString( buffer ) )
+					.setIntervals( getPairs( buffer ) )
+					.setNoteDurations( getPairs( buffer ) );
+			Instrument[] instruments = new Instrument[ count( buffer, 8 ) ];
+			for( int i = 0; i < instruments.length; i++ )
+				instruments[ i ] = getInstrument( buffer );
+			SongBuffer song = new SongBuffer( builder.setInstruments( instruments ).build() );
+
+			int parts = count( buffer, 8 );
+			for( int p = 0; p < parts; p++ ) {
+				Instrument instrument = getInstrument( buffer );
+				int[] measureStarts = new int[ count( buffer, 8 ) ];
+				long[] events = new long[ count( buffer, 8 ) ];
+				int[] measures = new int[ measureStarts.length ];
+				long length = buffer.getLong();
+				buffer.asIntBuffer().get( measureStarts );
+				buffer.position( buffer.position() + measureStarts.length * 4 );
+				buffer.asIntBuffer().get( measures );
+				buffer.position( buffer.position() + measures.length * 4 );
+				buffer.asLongBuffer().get( events );
+				buffer.position( buffer.position() + events.length * 8 );
+				song.addPart( PartBuffer.wrap( instrument, measureStarts, measures, events, length ) );
+			}
+			return song;
+		} catch( BufferUnderflowException e ) {
+			throw new IOException( "Truncated .rmgs file", e );
+		} catch( IllegalArgumentException e ) {
+			throw new IOException( "Invalid .rmgs file: " + e.getMessage(), e );
+		}
+	}
+
+	/**
+	 * Liest eine Anzahl und prüft, ob der Rest des Buffers dafür überhaupt reichen kann
+	 * @param minSize Die minimale Größe eines Elements in Bytes
+	 */
+	private static int count( ByteBuffer buffer, int minSize ) throws IOException {
+		int count = buffer.getInt();
+		if( count < 0 || (long) count * minSize > buffer.remaining() )
+			throw new IOException( "Invalid count " + count + " in .rmgs file" );
+		return count;
+	}
+
+	private static String getString( ByteBuffer buffer ) throws IOException {
+		byte[] bytes = new byte[ count( buffer, 1 ) ];
+		buffer.get( bytes );
+		return new String( bytes, StandardCharsets.UTF_8 );
+	}
+
+	private static List<PercentPair> getPairs( ByteBuffer buffer ) throws IOException {
+		int count = count( buffer, 8 );
+		List<PercentPair> pairs = new ArrayList<PercentPair>( count );
+		for( int i = 0; i < count; i++ )
+			pairs.add( new PercentPair( buffer.getInt(), buffer.getFloat() ) );
+		return pairs;
+	}
+
+	/**
+	 * Liest ein Instrument. Instrumente des Generators werden wieder als ihre eigene Klasse erzeugt.
+	 */
+	private static Instrument getInstrument( ByteBuffer buffer ) throws IOException {
+		String type = getString( buffer ), name = getString( buffer ), shortName = getString( buffer );
+		int program = buffer.getInt();
+		float volume = buffer.getFloat();
+		for( Instrument instrument : InstrumentHelper.getAllInstrIncNull() ) {
+			if( instrument.getClass().getName().equals( type ) ) {
+				instrument.setVolume( volume );
+				return instrument;
+			}
+		}
+		return new Instrument( name, shortName, program, volume );
+	}
+
+	private static Clef clef( int sign ) throws IOException {
+		switch( sign ) {
+		case 0:
+			return null;
+		case Clef.G:
+			return Clef.CLEF_G;
+		case Clef.F:
+			return Clef.CLEF_F;
+		case Clef.TAB:
+			return Clef.CLEF_TAB;
+		default:
+			throw new IOException( "Invalid clef " + sign );
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package de.lep.rmg.out.binary;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.out.ISongSink;
+
+/**
+ * Schreibt jeden übergebenen {@link Song} in eine eigene .rmgs-Datei im angegebenen Ordner (s. {@link RmgsFile})
+ */
+public class RmgsSongSink implements ISongSink {
+
+	private final File directory;
+	private final String prefix;
+	private final RmgsFile writer = new RmgsFile();
+
+	/**
+	 * @param directory Der Ordner, in den die Dateien geschrieben werden
+	 * @param prefix Der Anfang jedes Dateinamens, gefolgt von der Nummer des Songs
+	 */
+	public RmgsSongSink( File directory, String prefix ) {
+		this.directory = directory;
+		this.prefix = prefix;
+	}
+
+	@Override
+	public void accept( Song song, int index ) throws IOException {
+		writer.write( song, getFile( index ) );
+	}
+
+	/**
+	 * @param index Die laufende Nummer des Songs
+	 * @return Die Datei, in die der Song mit dieser Nummer geschrieben wird
+	 */
+	public File getFile( int index ) {
+		return new File( directory, String.format( "%s%05d%s", prefix, index, RmgsFile.EXTENSION ) );
+	}
+}
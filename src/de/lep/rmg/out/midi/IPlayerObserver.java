@@ -5,7 +5,7 @@ package de.lep.rmg.out.midi;
  * when a {@link Sequence} is loaded or removed and when the playing state changes.<br>
  * <br>
  * Interface für MidiPlayerObserver. Das implementierende Objekt wird informiert, falls der {@link MidiPlayer} zu spielen
- * beginnt oder stoppt und falls eine {@link Sequence} geladen oder entfernt wird
+ * beginnt oder stoppt und falls eine {@link Sequence} geladen oder entfernt wird. Die Benachrichtigung erfolgt im Event-Dispatch-Thread.
  */
 public interface IPlayerObserver {
 	void playingStateChanged(boolean playing);
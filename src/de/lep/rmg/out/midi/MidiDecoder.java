@@ -0,0 +1,318 @@
+package de.lep.rmg.out.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MetaMessage;
+import javax.sound.midi.MidiEvent;
+import javax.sound.midi.MidiMessage;
+import javax.sound.midi.MidiSystem;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+import javax.sound.midi.Track;
+
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.instruments.helper.InstrumentHelper;
+
+/**
+ * reads MIDI-files back into a {@link SongBuffer} or {@link Song}<br>
+ * <br>
+ * liest MIDI-Dateien wieder in einen {@link SongBuffer} bzw. {@link Song} ein.<br>
+ * Alle Tracks werden in einem Durchlauf gelesen, jede Kombination aus Track und Channel mit Noten wird zu einem Part,
+ * sortiert nach Track und Channel. Damit ergeben sowohl midi0- (ein Track, ein Channel pro Part) als auch midi1-Dateien
+ * (ein Track pro Part) wieder die Parts in der ursprünglichen Reihenfolge.<br>
+ * Note-On (144) und Note-Off (128, oder Note-On mit Velocity 0) werden wie bei der {@link TrackFactory} pro Tonhöhe
+ * der Reihe nach gepaart. Die Ticks werden auf {@link SongConfig#measureDivision} umgerechnet, Noten mit gleichem
+ * Beginn werden zu einem {@link de.lep.rmg.model.notes.Chord}, Lücken zu Pausen. Überlappt eine Note die nächste,
+ * wird sie bis zum Beginn der nächsten gekürzt. Die Takte werden wie beim Generieren aufgeteilt:
+ * ein neuer Takt beginnt, sobald die Noten eines Taktes dessen Länge erreichen.<br>
+ * Am Ende werden alle Parts mit Pausen auf die Länge der Sequence aufgefüllt, so dass z.B. die Pausen am Ende eines Kanons erhalten bleiben.
+ *
+ * @see MidiFileWriter
+ */
+public class MidiDecoder {
+
+	private static final int NOTE_OFF = 128, NOTE_ON = 144, PROGRAM_CHANGE = 192, TIME_SIGNATURE = 0x58;
+
+	/**
+	 * reads the MIDI-file as Song<br>
+	 * <br>
+	 * liest die MIDI-Datei als Song ein
+	 * @param file
+	 * @return the Song
+	 * @throws IOException if the file can not be read or is no valid MIDI-file
+	 */
+	public Song decodeSong(File file) throws IOException{
+		return decode(file).toSong();
+	}
+
+	/**
+	 * reads the MIDI-file as SongBuffer<br>
+	 * <br>
+	 * liest die MIDI-Datei als SongBuffer ein
+	 * @param file
+	 * @return the SongBuffer
+	 * @throws IOException if the file can not be read or is no valid MIDI-file
+	 */
+	public SongBuffer decode(File file) throws IOException{
+		try{
+			return decode(MidiSystem.getSequence(file));
+		}catch(InvalidMidiDataException e){
+			throw new IOException("Invalid MIDI-file " + file, e);
+		}
+	}
+
+	/**
+	 * converts the Sequence into a SongBuffer<br>
+	 * <br>
+	 * wandelt die Sequence in einen SongBuffer um
+	 * @param seq a Sequence with PPQ timing
+	 * @return the SongBuffer with one part per track and channel
+	 * @throws IOException if the Sequence uses SMPTE timing
+	 */
+	public SongBuffer decode(Sequence seq) throws IOException{
+		if(seq.getDivisionType() != Sequence.PPQ)
+			throw new IOException("Only PPQ timing is supported: " + seq.getDivisionType());
+		int resolution = seq.getResolution();
+		int beats = 4;
+
+		//ein Durchlauf über alle Tracks, die Noten werden pro Track und Channel gesammelt
+		Map<Integer, Voice> voices = new TreeMap<Integer, Voice>();
+		Track[] tracks = seq.getTracks();
+		for(int t = 0; t < tracks.length; t++){
+			Track track = tracks[t];
+			int[] programs = new int[16];
+			for(int i = 0; i < track.size(); i++){
+				MidiEvent event = track.get(i);
+				MidiMessage message = event.getMessage();
+				if(message instanceof MetaMessage){
+					MetaMessage meta = (MetaMessage) message;
+					if(meta.getType() == TIME_SIGNATURE && meta.getData().length > 0 && event.getTick() == 0)
+						beats = meta.getData()[0];
+					continue;
+				}
+				if(!(message instanceof ShortMessage))
+					continue;
+				ShortMessage sm = (ShortMessage) message;
+				int channel = sm.getChannel();
+				int command = sm.getCommand();
+				long tick = quantise(event.getTick(), resolution);
+				if(command == PROGRAM_CHANGE){
+					programs[channel] = sm.getData1();
+				}else if(command == NOTE_ON && sm.getData2() > 0){
+					Integer key = t * 16 + channel;
+					Voice voice = voices.get(key);
+					if(voice == null){
+						voice = new Voice(programs[channel], sm.getData2());
+						voices.put(key, voice);
+					}
+					voice.noteOn(sm.getData1(), tick);
+				}else if(command == NOTE_OFF || command == NOTE_ON){
+					Voice voice = voices.get(t * 16 + channel);
+					if(voice != null)
+						voice.noteOff(sm.getData1(), tick);
+				}
+			}
+		}
+
+		long end = quantise(seq.getTickLength(), resolution);
+		Instrument[] instruments = new Instrument[voices.size()];
+		int v = 0;
+		for(Voice voice : voices.values())
+			instruments[v++] = voice.instrument();
+		SongConfig config = new SongConfig.Builder().setInstruments(instruments).setMelodyNr(instruments.length)
+				.setChordDuration(beats == 3 ? 3 : 4).build();
+		SongBuffer song = new SongBuffer(config);
+		v = 0;
+		for(Voice voice : voices.values())
+			song.addPart(voice.toPart(instruments[v++], config, end));
+		return song;
+	}
+
+	/**
+	 * rechnet einen Tick der Datei in Vielfache von {@link SongConfig#measureDivision} um
+	 */
+	private static long quantise(long tick, int resolution){
+		if(resolution == SongConfig.measureDivision)
+			return tick;
+		return (tick * SongConfig.measureDivision + resolution / 2) / resolution;
+	}
+
+	/**
+	 * collects the notes of one track and channel<br>
+	 * <br>
+	 * sammelt die Noten eines Tracks und Channels in der Reihenfolge ihres Beginns.<br>
+	 * Offene Noten werden pro Tonhöhe in einer verketteten Warteschlange gehalten.
+	 */
+	private static class Voice {
+
+		private final int program, velocity;
+
+		private long[] starts = new long[64], ends = new long[64];
+		private int[] pitches = new int[64], nextOpen = new int[64];
+		private int size;
+
+		//erste und letzte offene Note pro Tonhöhe
+		private final int[] firstOpen = new int[128], lastOpen = new int[128];
+
+		Voice(int program, int velocity){
+			this.program = program;
+			this.velocity = velocity;
+			Arrays.fill(firstOpen, -1);
+			Arrays.fill(lastOpen, -1);
+		}
+
+		void noteOn(int pitch, long tick){
+			if(size == starts.length){
+				starts = Arrays.copyOf(starts, size * 2);
+				ends = Arrays.copyOf(ends, size * 2);
+				pitches = Arrays.copyOf(pitches, size * 2);
+				nextOpen = Arrays.copyOf(nextOpen, size * 2);
+			}
+			starts[size] = tick;
+			ends[size] = -1;
+			pitches[size] = pitch;
+			nextOpen[size] = -1;
+			if(lastOpen[pitch] == -1)
+				firstOpen[pitch] = size;
+			else
+				nextOpen[lastOpen[pitch]] = size;
+			lastOpen[pitch] = size++;
+		}
+
+		void noteOff(int pitch, long tick){
+			int note = firstOpen[pitch];
+			if(note == -1)
+				return;//Note-Off ohne Note-On
+			ends[note] = tick;
+			firstOpen[pitch] = nextOpen[note];
+			if(firstOpen[pitch] == -1)
+				lastOpen[pitch] = -1;
+		}
+
+		/**
+		 * @return das Instrument des Generators mit diesem Programm oder ein neues
+		 */
+		Instrument instrument(){
+			for(Instrument instrument : InstrumentHelper.getAllInstr()){
+				if(instrument.getMidiProgram() == program){
+					instrument.setVolume(velocity);
+					return instrument;
+				}
+			}
+			return new Instrument("Program " + program, "P" + program, program, velocity);
+		}
+
+		/**
+		 * ordnet die Noten in Takte an
+		 * @param instrument
+		 * @param config
+		 * @param end der Tick, bis zu dem mit Pausen aufgefüllt wird
+		 * @return the PartBuffer
+		 */
+		PartBuffer toPart(Instrument instrument, SongConfig config, long end){
+			int measureLength = config.getMeasureLength();
+			Arranger arranger = new Arranger(new PartBuffer(instrument, 16, size), SongBuffer.encodeAttributes(new Measure(config)), measureLength);
+			int[] tones = new int[4], octaves = new int[4], durations = new int[4];
+			int i = 0;
+			while(i < size){
+				long start = starts[i];
+				//alle Noten mit gleichem Beginn bilden einen Akkord
+				int count = 0;
+				long next = -1;
+				while(i < size && starts[i] == start){
+					if(count == tones.length){
+						tones = Arrays.copyOf(tones, count * 2);
+						octaves = Arrays.copyOf(octaves, count * 2);
+						durations = Arrays.copyOf(durations, count * 2);
+					}
+					long noteEnd = ends[i] < 0 ? Math.max(end, start + 1) : ends[i];
+					tones[count] = pitches[i] % 12;
+					octaves[count] = pitches[i] / 12 - 1;
+					durations[count] = (int) Math.max(1, noteEnd - start);
+					count++;
+					i++;
+				}
+				if(i < size)
+					next = starts[i];
+				arranger.restUntil(start);
+				if(next != -1){//eine Note endet spätestens mit dem Beginn der nächsten
+					for(int c = 0; c < count; c++)
+						durations[c] = (int) Math.min(durations[c], next - start);
+				}
+				arranger.add(Arrays.copyOf(tones, count), Arrays.copyOf(octaves, count), Arrays.copyOf(durations, count));
+			}
+			arranger.restUntil(end);
+			return arranger.part;
+		}
+	}
+
+	/**
+	 * fügt Noten und Pausen an einen PartBuffer an und beginnt neue Takte wie beim Generieren
+	 */
+	private static class Arranger {
+
+		final PartBuffer part;
+		private final int attributes, measureLength;
+		//verbleibende Dauer im aktuellen Takt
+		private int space;
+		private boolean newMeasure = true;
+
+		Arranger(PartBuffer part, int attributes, int measureLength){
+			this.part = part;
+			this.attributes = attributes;
+			this.measureLength = measureLength;
+			this.space = measureLength;
+		}
+
+		/**
+		 * füllt die Lücke bis zum Tick mit Pausen, die an den Taktgrenzen geteilt werden
+		 */
+		void restUntil(long tick){
+			while(part.getLength() < tick){
+				int duration = (int) Math.min(tick - part.getLength(), space > 0 ? space : measureLength);
+				startMeasure();
+				part.addRest(duration);
+				advance(duration);
+			}
+		}
+
+		void add(int[] tones, int[] octaves, int[] durations){
+			startMeasure();
+			int max = 0;
+			if(tones.length == 1){
+				part.addNote(tones[0], octaves[0], durations[0]);
+				max = durations[0];
+			}else{
+				part.addChord(tones, octaves, durations);
+				for(int duration : durations)
+					max = Math.max(max, duration);
+			}
+			advance(max);
+		}
+
+		private void startMeasure(){
+			if(newMeasure){
+				part.startMeasure(attributes);
+				newMeasure = false;
+			}
+		}
+
+		private void advance(int duration){
+			space -= duration;
+			if(space <= 0){
+				newMeasure = true;
+				space += measureLength;
+			}
+		}
+	}
+}
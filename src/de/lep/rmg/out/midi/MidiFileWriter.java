@@ -0,0 +1,316 @@
+package de.lep.rmg.out.midi;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+
+/**
+ * writes Standard MIDI Files (type 0 and 1) directly from a {@link SongBuffer}, without building a {@link javax.sound.midi.Sequence}<br>
+ * <br>
+ * schreibt Standard-MIDI-Dateien (Typ 0 und 1) direkt aus einem {@link SongBuffer}, ohne eine {@link javax.sound.midi.Sequence} aufzubauen.<br>
+ * Die Events werden in einem Durchlauf mit Delta-Zeiten und Running Status in einen {@link ByteBuffer} geschrieben.
+ * Die Dateien sind Byte für Byte gleich mit denen von {@link SequenceGenerator#createSequence(Song, boolean)}
+ * und {@link SequenceGenerator#saveSequence(javax.sound.midi.Sequence, File)}:
+ * gleiche Channels, gleiche Reihenfolge von Events mit gleichem Tick und Typ 0, wenn es nur einen Track gibt.
+ * Der erste Track beginnt wie bei der {@link TrackFactory} mit der Taktart des Songs (Meta-Event 0x58).
+ *
+ * @see TrackFactory
+ */
+public class MidiFileWriter {
+
+	private static final int NOTE_OFF = 128, NOTE_ON = 144, PROGRAM_CHANGE = 192;
+
+	/**
+	 * saves the Song as .midi-file<br>
+	 * <br>
+	 * speichert den Song als .midi-Datei
+	 * @param song
+	 * @param miditype0 true: all parts on one track, false: one track per part
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(Song song, boolean miditype0, File file) throws IOException{
+		write(SongBuffer.fromSong(song), miditype0, file);
+	}
+
+	/**
+	 * saves the SongBuffer as .midi-file<br>
+	 * <br>
+	 * speichert den SongBuffer als .midi-Datei
+	 * @param song
+	 * @param miditype0 true: all parts on one track, false: one track per part
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(SongBuffer song, boolean miditype0, File file) throws IOException{
+		ByteBuffer buffer = encode(song, miditype0);
+		long start = Metrics.start();
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)){
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+		}
+		Metrics.stop(Stage.WRITE, start);
+	}
+
+	/**
+	 * writes the SongBuffer as .midi-file into the stream<br>
+	 * <br>
+	 * schreibt den SongBuffer als .midi-Datei in den Stream
+	 * @param song
+	 * @param miditype0 true: all parts on one track, false: one track per part
+	 * @param os
+	 * @throws IOException
+	 */
+	public void write(SongBuffer song, boolean miditype0, OutputStream os) throws IOException{
+		ByteBuffer buffer = encode(song, miditype0);
+		long start = Metrics.start();
+		os.write(buffer.array(), buffer.arrayOffset() + buffer.position(), buffer.remaining());
+		Metrics.stop(Stage.WRITE, start);
+	}
+
+	/**
+	 * encodes the SongBuffer as Standard MIDI File<br>
+	 * <br>
+	 * kodiert den SongBuffer als Standard-MIDI-Datei
+	 * @param song
+	 * @param miditype0 true: all parts on one track (channels 1, 2, ...), false: one track per part (channels 0, 1, ...)
+	 * @return the complete file, ready for reading
+	 */
+	public ByteBuffer encode(SongBuffer song, boolean miditype0){
+		long start = Metrics.start();
+		int parts = song.getPartCount();
+		int trackCount = miditype0 ? 1 : parts;
+
+		//Obergrenze: Header, Taktart, pro Track Header, Program Change und End of Track, pro Note zwei Events
+		int capacity = 14 + 8 + trackCount * 8 + parts * 8 + trackCount * 8;
+		for(int p = 0; p < parts; p++)
+			capacity += song.getPart(p).size() * 16;
+		ByteBuffer buffer = ByteBuffer.allocate(capacity);
+
+		buffer.putInt(0x4d546864);//MThd
+		buffer.putInt(6);
+		buffer.putShort((short) (trackCount == 1 ? 0 : 1));
+		buffer.putShort((short) trackCount);
+		buffer.putShort((short) SongConfig.measureDivision);
+
+		if(miditype0){
+			PartCursor[] cursors = new PartCursor[parts];
+			for(int p = 0; p < parts; p++)
+				cursors[p] = new PartCursor(song.getPart(p), p + 1);
+			writeTrack(buffer, cursors, song.getConfig());
+		}else{
+			for(int p = 0; p < parts; p++)
+				writeTrack(buffer, new PartCursor[]{ new PartCursor(song.getPart(p), p) }, p == 0 ? song.getConfig() : null);
+		}
+		buffer.flip();
+		Metrics.stop(Stage.SEQUENCE, start);
+		return buffer;
+	}
+
+	/**
+	 * writes one MTrk-chunk; the events of all parts are merged by tick, on equal ticks the earlier part comes first
+	 * @param buffer
+	 * @param cursors
+	 * @param timeSignature the SongConfig whose time signature starts the track, or null
+	 */
+	private void writeTrack(ByteBuffer buffer, PartCursor[] cursors, SongConfig timeSignature){
+		buffer.putInt(0x4d54726b);//MTrk
+		int lengthPosition = buffer.position();
+		buffer.putInt(0);
+
+		if(timeSignature != null){
+			byte[] data = TrackFactory.timeSignature(timeSignature);
+			writeVarInt(buffer, 0);
+			buffer.put((byte) 0xFF).put((byte) TrackFactory.TIME_SIGNATURE).put((byte) data.length).put(data);
+		}
+
+		long lastTick = 0;
+		int runningStatus = -1;
+		while(true){
+			PartCursor next = null;
+			for(PartCursor cursor : cursors){
+				if(cursor.hasNext() && (next == null || cursor.nextTick() < next.nextTick()))
+					next = cursor;
+			}
+			if(next == null)
+				break;
+			long tick = next.nextTick();
+			writeVarInt(buffer, tick - lastTick);
+			lastTick = tick;
+			int status = next.nextStatus();
+			if(status != runningStatus){
+				buffer.put((byte) status);
+				runningStatus = status;
+			}
+			next.writeNext(buffer);
+		}
+		//End of Track am Tick des letzten Events
+		writeVarInt(buffer, 0);
+		buffer.put((byte) 0xFF).put((byte) 0x2F).put((byte) 0);
+
+		buffer.putInt(lengthPosition, buffer.position() - lengthPosition - 4);
+	}
+
+	private static void writeVarInt(ByteBuffer buffer, long value){
+		int shift = 63;
+		while(shift > 0 && (value & (0x7FL << shift)) == 0)
+			shift -= 7;
+		while(shift > 0){
+			buffer.put((byte) (((value >> shift) & 0x7F) | 0x80));
+			shift -= 7;
+		}
+		buffer.put((byte) (value & 0x7F));
+	}
+
+	/**
+	 * iterates the MIDI-events of a part in the order the {@link TrackFactory} would add them to a Track<br>
+	 * <br>
+	 * durchläuft die MIDI-Events eines Parts in der Reihenfolge, in der die {@link TrackFactory} sie zum Track hinzufügen würde.<br>
+	 * Note-Offs, die noch ausstehen, liegen in einem kleinen Heap, sortiert nach Tick und Position der Note im Part.
+	 * Bei gleichem Tick kommt ein Note-Off immer vor einem späteren Note-On.
+	 */
+	private static class PartCursor {
+
+		private final PartBuffer part;
+		private final int channel, velocity, program;
+
+		/**
+		 * Index nach dem letzten gültigen Event (wie die TrackFactory bricht der Part bei ungültigen Daten ab)
+		 */
+		private final int limit;
+
+		private boolean programPending;
+		private int index;
+
+		/**
+		 * ausstehende Note-Offs: Tick &lt;&lt; 31 | Index des Events
+		 */
+		private long[] offs = new long[16];
+		private int offCount;
+
+		PartCursor(PartBuffer part, int channel){
+			this.part = part;
+			this.channel = channel;
+			this.velocity = (int) part.getInstrument().getVolume();
+			this.program = part.getInstrument().getMidiProgram();
+
+			this.programPending = isData(program) && isChannel(channel);
+			if(!programPending)
+				System.out.println("Failed to build MIDI-Track");
+
+			int limit = 0;
+			while(limit < part.size() && isValid(part.getEvent(limit)))
+				limit++;
+			if(limit < part.size())
+				System.out.println("Failure while building MIDI-Track");
+			this.limit = limit;
+			skipRests();
+		}
+
+		private boolean isValid(long event){
+			return SongBuffer.isRest(event) || (isData(SongBuffer.getMidiPitch(event)) && isData(velocity) && isChannel(channel));
+		}
+
+		private static boolean isData(int value){
+			return value >= 0 && value < 128;
+		}
+
+		private static boolean isChannel(int value){
+			return value >= 0 && value < 16;
+		}
+
+		private void skipRests(){
+			while(index < limit && SongBuffer.isRest(part.getEvent(index)))
+				index++;
+		}
+
+		boolean hasNext(){
+			return programPending || index < limit || offCount > 0;
+		}
+
+		/**
+		 * @return true if the next event is a note-off
+		 */
+		private boolean nextIsOff(){
+			if(offCount == 0)
+				return false;
+			if(index >= limit)
+				return true;
+			return (offs[0] >>> 31) <= SongBuffer.getTick(part.getEvent(index));
+		}
+
+		long nextTick(){
+			if(programPending)
+				return 0;
+			if(nextIsOff())
+				return offs[0] >>> 31;
+			return SongBuffer.getTick(part.getEvent(index));
+		}
+
+		int nextStatus(){
+			if(programPending)
+				return PROGRAM_CHANGE | channel;
+			return (nextIsOff() ? NOTE_OFF : NOTE_ON) | channel;
+		}
+
+		/**
+		 * writes the data bytes of the next event and moves on
+		 * @param buffer
+		 */
+		void writeNext(ByteBuffer buffer){
+			if(programPending){
+				buffer.put((byte) program);
+				programPending = false;
+			}else if(nextIsOff()){
+				long event = part.getEvent((int) (pollOff() & 0x7FFFFFFF));
+				buffer.put((byte) SongBuffer.getMidiPitch(event)).put((byte) velocity);
+			}else{
+				long event = part.getEvent(index);
+				buffer.put((byte) SongBuffer.getMidiPitch(event)).put((byte) velocity);
+				addOff((SongBuffer.getTick(event) + SongBuffer.getDuration(event)) << 31 | index);
+				index++;
+				skipRests();
+			}
+		}
+
+		private void addOff(long key){
+			if(offCount == offs.length)
+				offs = Arrays.copyOf(offs, offCount * 2);
+			int i = offCount++;
+			while(i > 0 && offs[(i - 1) / 2] > key){
+				offs[i] = offs[(i - 1) / 2];
+				i = (i - 1) / 2;
+			}
+			offs[i] = key;
+		}
+
+		private long pollOff(){
+			long top = offs[0];
+			long last = offs[--offCount];
+			int i = 0;
+			while(2 * i + 1 < offCount){
+				int child = 2 * i + 1;
+				if(child + 1 < offCount && offs[child + 1] < offs[child])
+					child++;
+				if(offs[child] >= last)
+					break;
+				offs[i] = offs[child];
+				i = child;
+			}
+			offs[i] = last;
+			return top;
+		}
+	}
+}
@@ -3,6 +3,10 @@ package de.lep.rmg.out.midi;
 import java.util.ArrayList;
 
 import javax.sound.midi.*;
+import javax.swing.SwingUtilities;
+
+import de.lep.rmg.model.ISongStream;
+import de.lep.rmg.model.Song;
 
 /**
  * Wrapper class for a {@link Sequencer} handed over by the {@link MidiSystem}.<br>
@@ -12,7 +16,10 @@ import javax.sound.midi.*;
  * Wrapperklasse für einen {@link Sequencer}, der vom {@link MidiSystem} übergeben wird.<br>
  * Verwaltet eine Beobachterliste. Alle Beobachter({@link IPlayerObserver}) werden informiert, wenn eine Sequence geladen wird
  * oder wenn der {@link Sequencer} zu spielen beginnt oder stoppt.<br>
- * Diese Klasse bietet keinen direkten Zugriff auf den {@link Sequencer}, sondern nur indirekt durch ihre Methoden.
+ * Diese Klasse bietet keinen direkten Zugriff auf den {@link Sequencer}, sondern nur indirekt durch ihre Methoden.<br>
+ * Die Beobachter werden immer im Event-Dispatch-Thread benachrichtigt, auch wenn z.B. {@link #play(Sequence)} im Hintergrund
+ * aufgerufen wird oder der Sequencer das Ende der Sequence meldet.<br>
+ * Mit {@link #playLive(Song)} wird ein Song ohne Sequence direkt von einem {@link MidiRenderer} gespielt.
  */
 public class MidiPlayer{
 	/**
@@ -21,9 +28,15 @@ public class MidiPlayer{
 	 */
 	private Sequencer player;
 	
+	//Typ der Meta-Nachricht, die das Ende eines Tracks markiert
+	private static final int END_OF_TRACK = 0x2F;
+	
 	//Beobachter die bei Zustandsänderung informiert werden
 	private ArrayList<IPlayerObserver> observers;
 	
+	//spielt Songs live ab, wird erst beim ersten Aufruf von playLive erzeugt
+	private MidiRenderer renderer;
+	
 	//Standardkonstruktor
 	public MidiPlayer(){
 		try {
@@ -31,6 +44,8 @@ public class MidiPlayer{
 			player = MidiSystem.getSequencer();
 			//startet den Sequncer
 			player.open();
+			//informiert über das Ende der Sequence, statt den Sequencer regelmäßig abzufragen
+			player.addMetaEventListener(new EndOfTrackListener());
 		} catch (MidiUnavailableException e) {
 			//sollte im normalen Programmablauf nicht passieren, da nur ein MidiPlayer benötigt und benutzt wird
 			System.out.println("Unable to get Sequencer!");
@@ -44,6 +59,8 @@ public class MidiPlayer{
 	 * @param seq
 	 */
 	public void play(Sequence seq){
+		if(renderer != null)
+			renderer.stop();
 		try {
 			player.setSequence(seq);
 			notifySequenceState();
@@ -57,14 +74,54 @@ public class MidiPlayer{
 			player.start();
 			notifyRunningState();
 			
-			playingCheck();
-			
 		} catch (InvalidMidiDataException e) {
 			System.out.println("Invalid Sequence " + seq);
 			e.printStackTrace();
 		}
 	}
 	
+	/**
+	 * spielt den {@link Song} live ab, ohne vorher eine {@link Sequence} zu erstellen (s. {@link MidiRenderer}).
+	 * Das Abspielen beginnt sofort, eine laufende Sequence wird gestoppt.
+	 * @param song
+	 */
+	public void playLive(Song song){
+		if(prepareLive())
+			renderer.play(song);
+		notifyRunningState();
+	}
+	
+	/**
+	 * spielt den {@link ISongStream} live ab, die Takte werden erst während des Abspielens erzeugt (s. {@link #playLive(Song)})
+	 * @param song
+	 */
+	public void playLive(ISongStream song){
+		if(prepareLive())
+			renderer.play(song);
+		notifyRunningState();
+	}
+	
+	/**
+	 * stoppt den Sequencer und erzeugt falls nötig den {@link MidiRenderer}
+	 * @return true, falls der MidiRenderer bereit ist
+	 */
+	private boolean prepareLive(){
+		if(player.isRunning())
+			player.stop();
+		if(renderer == null){
+			try {
+				renderer = new MidiRenderer(MidiSystem.getReceiver());
+				renderer.setTempoInBPM(player.getTempoInBPM());
+				renderer.setFinishListener(this::notifyRunningState);
+			} catch (MidiUnavailableException e) {
+				System.out.println("Unable to get Receiver!");
+				e.printStackTrace();
+				return false;
+			}
+		}
+		return true;
+	}
+	
 	/**
 	 * lädt eine {@link Sequence} in den MidiPlayer
 	 * @param seq
@@ -88,47 +145,37 @@ public class MidiPlayer{
 	 * startet den MidiPlayer falls eine Sequence geladen ist
 	 */
 	public void start(){
+		if(renderer != null)
+			renderer.stop();
 		player.start();
 		notifyRunningState();
-		playingCheck();
 	}
 	
 	/**
-	 * überprüft, ob der Player immer noch spielt oder das ende der Sequence erreciht hat. Dann wird er gestoppt.
+	 * Listener for the end-of-track meta message the {@link Sequencer} sends when the end of the {@link Sequence} is reached.
+	 * It stops and rewinds the player, so no thread has to poll the running state.<br>
+	 * <br>
+	 * Wird benachrichtigt, sobald der {@link Sequencer} das Ende der Sequence erreicht (Meta-Nachricht 0x2F),
+	 * stoppt den MidiPlayer dann und spult zum Anfang zurück.
 	 */
-	private void playingCheck() {
-		new Thread(new PlayingCheckJob()).start();
-	}
-	
-	private class PlayingCheckJob implements Runnable {
+	private class EndOfTrackListener implements MetaEventListener {
 
 		@Override
-		public void run() {
-			while( player.isRunning() ){
-				try {
-					//stops the thread for at least 500ms, to prevent unnecessary examination
-					Thread.sleep( 500 );
-				} catch ( InterruptedException e ) {
-//					stop();
-//					setTickPosition(0);
-					System.out.println("System Error: sleeping Thread interupted");
-					e.printStackTrace();
-				}
-				//as long the player is running continue the loop
-				continue;
+		public void meta(MetaMessage meta) {
+			if(meta.getType() == END_OF_TRACK){
+				stop();
+				//'rewind' the Sequence
+				setTickPosition(0);
 			}
-			//when the music has stopped:
-			stop();
-			//'rewind' the Sequence
-			setTickPosition(0);
 		}
-		
 	}
 	
 	/**
 	 * stoppt den MidiPlayer und benachrichtigt Beobachter
 	 */
 	public void stop(){
+		if(renderer != null)
+			renderer.stop();
 		if(player.isOpen()){
 			player.stop();
 			notifyRunningState();
@@ -156,6 +203,8 @@ public class MidiPlayer{
 	 * schließt den MidiPlayer
 	 */
 	public void close(){
+		if(renderer != null)
+			renderer.close();
 		player.close();
 	}
 	
@@ -165,6 +214,8 @@ public class MidiPlayer{
 	 */
 	public void setTempoInBPM(float bpm){
 		player.setTempoInBPM(bpm);
+		if(renderer != null)
+			renderer.setTempoInBPM(bpm);
 	}
 	
 	/**
@@ -178,7 +229,7 @@ public class MidiPlayer{
 	 * @return running state
 	 */
 	public boolean isRunning(){
-		return player.isRunning();
+		return player.isRunning() || (renderer != null && renderer.isRunning());
 	}
 	
 	/**
@@ -231,17 +282,34 @@ public class MidiPlayer{
 	 * benachrichtigt Beobachter darüber, ob der MidiPlayer spielt 
 	 */
 	private void notifyRunningState(){
-		for(IPlayerObserver playobs: observers){
-			playobs.playingStateChanged(player.isRunning());
-		}
+		boolean running = isRunning();
+		onEventDispatchThread(() -> {
+			for(IPlayerObserver playobs: observers){
+				playobs.playingStateChanged(running);
+			}
+		});
 	}
 	
 	/**
 	 * benachrichtigt Beobachter darüber, ob eine Sequence geladen ist
 	 */
 	private void notifySequenceState(){
-		for(IPlayerObserver playobs: observers){
-			playobs.sequenceStateChanged(sequenceLoaded());
-		}
+		boolean loaded = sequenceLoaded();
+		onEventDispatchThread(() -> {
+			for(IPlayerObserver playobs: observers){
+				playobs.sequenceStateChanged(loaded);
+			}
+		});
+	}
+	
+	/**
+	 * führt die Benachrichtigung im Event-Dispatch-Thread aus, da die Beobachter Swing-Komponenten ändern
+	 * @param notification
+	 */
+	private static void onEventDispatchThread(Runnable notification){
+		if(SwingUtilities.isEventDispatchThread())
+			notification.run();
+		else
+			SwingUtilities.invokeLater(notification);
 	}
 }
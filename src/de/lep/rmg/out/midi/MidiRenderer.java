@@ -0,0 +1,411 @@
+package de.lep.rmg.out.midi;
+
+import java.util.Iterator;
+import java.util.PriorityQueue;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiDevice;
+import javax.sound.midi.MidiDeviceReceiver;
+import javax.sound.midi.Receiver;
+import javax.sound.midi.Sequence;
+import javax.sound.midi.ShortMessage;
+
+import de.lep.rmg.model.ISongStream;
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Part;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+
+/**
+ * Plays a {@link Song} live by sending its notes straight to a {@link Receiver}, without building a {@link Sequence} first.<br>
+ * A render thread walks the parts measure by measure and sends every event shortly before it is due.
+ * Tempo changes apply to all events that have not been sent yet.<br>
+ * <br>
+ * Spielt einen {@link Song} live ab, indem die Noten direkt an einen {@link Receiver} geschickt werden, ohne vorher eine
+ * {@link Sequence} zu erstellen.<br>
+ * Ein eigener Thread geht die Parts Takt für Takt durch und schickt jedes Ereignis kurz bevor es fällig ist.
+ * Gehört der Receiver zu einem {@link MidiDevice} mit Zeitstempeln (z.B. dem Synthesizer), werden die Ereignisse mit Zeitstempel
+ * um die Vorlaufzeit ({@link #setLookahead(long)}) früher geschickt, sonst genau zum fälligen Zeitpunkt.<br>
+ * Wie bei {@link TrackFactory#createTracks(Sequence, SongBuffer)} spielt jeder Part auf einem eigenen Channel (0, 1, ...).
+ */
+public class MidiRenderer {
+
+	//Standard-Vorlaufzeit in Millisekunden
+	private static final long DEFAULT_LOOKAHEAD = 50;
+	//Wartezeit in Millisekunden vor dem ersten Ereignis, damit dieses nicht schon zu spät geschickt wird
+	private static final long START_DELAY = 10;
+	//Controller-Nummer für "All Notes Off"
+	private static final int ALL_NOTES_OFF = 123;
+
+	//Empfänger aller Ereignisse
+	private final Receiver receiver;
+	//Gerät des Empfängers, dessen Uhr für die Zeitstempel benutzt wird, null falls es keine Zeitstempel unterstützt
+	private final MidiDevice device;
+
+	//schützt alle folgenden Variablen, der RenderJob wartet auf diesem Objekt
+	private final Object lock = new Object();
+	private RenderJob job;
+	private float tempo = 120;
+	private long lookahead = DEFAULT_LOOKAHEAD * 1000000;
+	//Zeitpunkt (System.nanoTime) und Tick des letzten Tempowechsels bzw. des Starts
+	private long anchorNanos;
+	private double anchorTick;
+	private Runnable finishListener;
+
+	/**
+	 * @param receiver der Empfänger, an den alle Ereignisse geschickt werden
+	 */
+	public MidiRenderer(Receiver receiver){
+		this.receiver = receiver;
+		MidiDevice timedDevice = null;
+		if(receiver instanceof MidiDeviceReceiver){
+			timedDevice = ((MidiDeviceReceiver) receiver).getMidiDevice();
+			if(timedDevice.getMicrosecondPosition() < 0)
+				timedDevice = null;
+		}
+		device = timedDevice;
+	}
+
+	/**
+	 * spielt den {@link Song} ab. Die Parts werden erst während des Abspielens Takt für Takt umgewandelt.
+	 * Ein laufender Song wird vorher gestoppt.
+	 * @param song
+	 */
+	public void play(Song song){
+		PartCursor[] parts = new PartCursor[song.size()];
+		for(int p = 0; p < parts.length; p++){
+			Part part = song.get(p);
+			parts[p] = new PartCursor(part.getInstrument(), part.iterator(), p);
+		}
+		start(parts);
+	}
+
+	/**
+	 * spielt den {@link SongBuffer} ab. Ein laufender Song wird vorher gestoppt.
+	 * @param song
+	 */
+	public void play(SongBuffer song){
+		PartCursor[] parts = new PartCursor[song.getPartCount()];
+		for(int p = 0; p < parts.length; p++)
+			parts[p] = new PartCursor(song.getPart(p), p);
+		start(parts);
+	}
+
+	/**
+	 * spielt den {@link ISongStream} ab. Jeder Takt wird erst kurz vor dem Abspielen erzeugt,
+	 * so kann auch ein unendlicher Stream gespielt werden. Ein laufender Song wird vorher gestoppt.
+	 * @param song
+	 */
+	public void play(ISongStream song){
+		Instrument[] instruments = song.getInstruments();
+		PartCursor[] parts = new PartCursor[song.getPartCount()];
+		for(int p = 0; p < parts.length; p++)
+			parts[p] = new PartCursor(instruments[p], song.measures(p), p);
+		start(parts);
+	}
+
+	private void start(PartCursor[] parts){
+		stop();
+		synchronized(lock){
+			job = new RenderJob(parts);
+			Thread thread = new Thread(job, "MidiRenderer");
+			thread.setDaemon(true);
+			job.thread = thread;
+			thread.start();
+		}
+	}
+
+	/**
+	 * stoppt das Abspielen. Alle klingenden Töne werden beendet, bevor diese Methode zurückkehrt.
+	 */
+	public void stop(){
+		RenderJob stopped;
+		synchronized(lock){
+			stopped = job;
+			if(stopped == null)
+				return;
+			stopped.running = false;
+			job = null;
+			lock.notifyAll();
+		}
+		//wartet, bis der Thread "All Notes Off" geschickt hat, damit dies keine Töne eines neuen Songs beendet
+		if(stopped.thread != Thread.currentThread()){
+			try {
+				stopped.thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+
+	/**
+	 * stoppt das Abspielen und schließt den Receiver
+	 */
+	public void close(){
+		stop();
+		receiver.close();
+	}
+
+	/**
+	 * @return true, solange ein Song abgespielt wird
+	 */
+	public boolean isRunning(){
+		synchronized(lock){
+			return job != null;
+		}
+	}
+
+	/**
+	 * setzt die Abspielgeschwindigkeit in Beats pro Minute. Gilt sofort für alle Ereignisse, die noch nicht geschickt wurden.
+	 * @param bpm
+	 */
+	public void setTempoInBPM(float bpm){
+		synchronized(lock){
+			long now = System.nanoTime();
+			anchorTick = tickAt(now);
+			anchorNanos = now;
+			tempo = bpm;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * @return Abspielgeschwindigkeit in Beats pro Minute
+	 */
+	public float getTempoInBPM(){
+		synchronized(lock){
+			return tempo;
+		}
+	}
+
+	/**
+	 * setzt die Vorlaufzeit, mit der Ereignisse an einen Receiver mit Zeitstempeln geschickt werden
+	 * @param millis Vorlaufzeit in Millisekunden
+	 */
+	public void setLookahead(long millis){
+		synchronized(lock){
+			lookahead = millis * 1000000;
+			lock.notifyAll();
+		}
+	}
+
+	/**
+	 * setzt ein Runnable, das im Render-Thread aufgerufen wird, wenn ein Song bis zum Ende gespielt wurde
+	 * @param listener
+	 */
+	public void setFinishListener(Runnable listener){
+		synchronized(lock){
+			finishListener = listener;
+		}
+	}
+
+	//Die folgenden Methoden dürfen nur mit lock aufgerufen werden
+
+	private double nanosPerTick(){
+		return 60000000000.0 / (tempo * SongConfig.measureDivision);
+	}
+
+	private double tickAt(long nanos){
+		return anchorTick + (nanos - anchorNanos) / nanosPerTick();
+	}
+
+	private long nanosAt(long tick){
+		return anchorNanos + (long) ((tick - anchorTick) * nanosPerTick());
+	}
+
+	/**
+	 * Thread, der die Ereignisse aller Parts in der Reihenfolge ihrer Ticks verschickt
+	 */
+	private class RenderJob implements Runnable {
+
+		private final PartCursor[] parts;
+		//Note-Offs der klingenden Töne, sortiert nach Tick, s. offKey
+		private final PriorityQueue<Long> offs = new PriorityQueue<Long>();
+		//Differenz zwischen der Uhr des Geräts und System.nanoTime in Nanosekunden
+		private long clockOffset;
+		private volatile boolean running = true;
+		private Thread thread;
+
+		RenderJob(PartCursor[] parts){
+			this.parts = parts;
+		}
+
+		@Override
+		public void run(){
+			for(PartCursor part : parts)
+				send(ShortMessage.PROGRAM_CHANGE, part.channel, part.instrument.getMidiProgram(), 0, -1);
+			synchronized(lock){
+				anchorNanos = System.nanoTime() + START_DELAY * 1000000;
+				anchorTick = 0;
+			}
+			if(device != null)
+				clockOffset = device.getMicrosecondPosition() * 1000 - System.nanoTime();
+
+			long tick = nextTick();
+			long lastTick = 0;
+			while(tick >= 0 && waitFor(tick)){
+				long timeStamp = timeStamp(tick);
+				//Note-Offs zuerst, damit ein wiederholter Ton nicht sofort wieder beendet wird
+				while(!offs.isEmpty() && offs.peek() >> 11 == tick){
+					long off = offs.poll();
+					send(ShortMessage.NOTE_OFF, (int) (off >> 7) & 0xF, (int) off & 0x7F, 0, timeStamp);
+				}
+				for(PartCursor part : parts){
+					while(part.peekTick() == tick){
+						long event = part.next();
+						int pitch = SongBuffer.getMidiPitch(event);
+						if(send(ShortMessage.NOTE_ON, part.channel, pitch, part.velocity, timeStamp))
+							offs.add(((tick + SongBuffer.getDuration(event)) << 11) | (part.channel << 7) | pitch);
+					}
+				}
+				lastTick = tick;
+				tick = nextTick();
+			}
+
+			if(running && device != null)//die letzten Ereignisse wurden mit Vorlauf geschickt
+				waitUntil(lastTick, 0);
+			Runnable listener = null;
+			synchronized(lock){
+				if(running){//zu Ende gespielt
+					running = false;
+					job = null;
+					listener = finishListener;
+				}
+			}
+			for(PartCursor part : parts)
+				send(ShortMessage.CONTROL_CHANGE, part.channel, ALL_NOTES_OFF, 0, -1);
+			if(listener != null)
+				listener.run();
+		}
+
+		/**
+		 * @return der Tick des nächsten Ereignisses aller Parts oder -1, falls alle Parts zu Ende sind
+		 */
+		private long nextTick(){
+			long next = offs.isEmpty() ? -1 : offs.peek() >> 11;
+			for(PartCursor part : parts){
+				long tick = part.peekTick();
+				if(tick >= 0 && (next < 0 || tick < next))
+					next = tick;
+			}
+			return next;
+		}
+
+		/**
+		 * wartet, bis die Ereignisse des Ticks geschickt werden müssen
+		 * @return false, falls das Abspielen gestoppt wurde
+		 */
+		private boolean waitFor(long tick){
+			return waitUntil(tick, device != null ? -1 : 0);
+		}
+
+		/**
+		 * wartet bis zum Zeitpunkt des Ticks, abzüglich der Vorlaufzeit (-1) oder einer festen Zeit in Nanosekunden.
+		 * Ein Tempowechsel weckt den Thread, der Zeitpunkt wird dann neu berechnet.
+		 * @return false, falls das Abspielen gestoppt wurde
+		 */
+		private boolean waitUntil(long tick, long early){
+			synchronized(lock){
+				while(running){
+					long delay = nanosAt(tick) - (early < 0 ? lookahead : early) - System.nanoTime();
+					if(delay <= 0)
+						return true;
+					try {
+						lock.wait(delay / 1000000, (int) (delay % 1000000));
+					} catch (InterruptedException e) {
+						running = false;
+						Thread.currentThread().interrupt();
+					}
+				}
+				return false;
+			}
+		}
+
+		/**
+		 * @return der Zeitstempel des Ticks in Mikrosekunden auf der Uhr des Geräts, -1 falls das Gerät keine Zeitstempel unterstützt
+		 */
+		private long timeStamp(long tick){
+			if(device == null)
+				return -1;
+			synchronized(lock){
+				return (nanosAt(tick) + clockOffset) / 1000;
+			}
+		}
+
+		/**
+		 * schickt eine {@link ShortMessage} an den Receiver
+		 * @return false, falls die Nachricht ungültig war
+		 */
+		private boolean send(int command, int channel, int data1, int data2, long timeStamp){
+			try {
+				receiver.send(new ShortMessage(command, channel, data1, data2), timeStamp);
+				return true;
+			} catch (InvalidMidiDataException e) {
+				System.out.println("Invalid MIDI data while rendering: " + data1 + ", " + data2);
+				e.printStackTrace();
+				return false;
+			} catch (IllegalStateException e) {//Receiver wurde geschlossen
+				running = false;
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * liest die Töne eines Parts der Reihe nach, entweder aus einem fertigen {@link PartBuffer}
+	 * oder Takt für Takt aus einem Iterator
+	 */
+	private static class PartCursor {
+
+		private final Instrument instrument;
+		private final int channel;
+		private final int velocity;
+		//liefert die weiteren Takte, null falls buffer schon den ganzen Part enthält
+		private final Iterator<Measure> measures;
+		private PartBuffer buffer;
+		private int index;
+		//Tick, an dem buffer beginnt
+		private long offset;
+
+		PartCursor(PartBuffer part, int channel){
+			this(part.getInstrument(), null, channel);
+			buffer = part;
+		}
+
+		PartCursor(Instrument instrument, Iterator<Measure> measures, int channel){
+			this.instrument = instrument;
+			this.channel = channel;
+			this.velocity = (int) instrument.getVolume();
+			this.measures = measures;
+			buffer = new PartBuffer(instrument, 1, 1);
+		}
+
+		/**
+		 * @return der Tick des nächsten Tons oder -1, falls der Part zu Ende ist. Pausen werden übersprungen.
+		 */
+		long peekTick(){
+			while(true){
+				while(index < buffer.size() && SongBuffer.isRest(buffer.getEvent(index)))
+					index++;
+				if(index < buffer.size())
+					return offset + SongBuffer.getTick(buffer.getEvent(index));
+				if(measures == null || !measures.hasNext())
+					return -1;
+				offset += buffer.getLength();
+				buffer = new PartBuffer(instrument, 1, 8);
+				buffer.addMeasure(measures.next());
+				index = 0;
+			}
+		}
+
+		/**
+		 * @return das nächste Ereignis, {@link #peekTick()} muss vorher aufgerufen worden sein
+		 */
+		long next(){
+			return buffer.getEvent(index++);
+		}
+	}
+}
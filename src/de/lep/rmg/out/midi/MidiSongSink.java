@@ -0,0 +1,44 @@
+package de.lep.rmg.out.midi;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.out.ISongSink;
+
+/**
+ * writes every given {@link Song} into its own .midi-file in the given directory<br>
+ * <br>
+ * schreibt jeden übergebenen {@link Song} in eine eigene .midi-Datei im angegebenen Ordner
+ */
+public class MidiSongSink implements ISongSink {
+	
+	private final File directory;
+	private final String prefix;
+	private final boolean miditype0;
+	private final MidiFileWriter writer = new MidiFileWriter();
+	
+	/**
+	 * @param directory Der Ordner, in den die Dateien geschrieben werden
+	 * @param prefix Der Anfang jedes Dateinamens, gefolgt von der Nummer des Songs
+	 * @param miditype0 true für midi0-Dateien, sonst midi1 (siehe {@link MidiFileWriter#encode(de.lep.rmg.model.SongBuffer, boolean)})
+	 */
+	public MidiSongSink( File directory, String prefix, boolean miditype0 ) {
+		this.directory = directory;
+		this.prefix = prefix;
+		this.miditype0 = miditype0;
+	}
+
+	@Override
+	public void accept( Song song, int index ) throws IOException {
+		writer.write( song, miditype0, getFile( index ) );
+	}
+
+	/**
+	 * @param index Die laufende Nummer des Songs
+	 * @return Die Datei, in die der Song mit dieser Nummer geschrieben wird
+	 */
+	public File getFile( int index ) {
+		return new File( directory, String.format( "%s%05d.midi", prefix, index ) );
+	}
+}
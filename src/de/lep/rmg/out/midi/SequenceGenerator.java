@@ -5,7 +5,10 @@ import java.io.IOException;
 
 import javax.sound.midi.*;
 
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.metrics.Metrics;
 import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
 import de.lep.rmg.model.SongConfig;
 
 /**
@@ -50,6 +53,20 @@ public class SequenceGenerator {
 	 * @return Sequence
 	 */
 	public Sequence createSequence(Song song, boolean miditype0){
+		return createSequence(SongBuffer.fromSong(song), miditype0);
+	}
+	
+	/**
+	 * builds a {@link Sequence} on basis of the given {@link SongBuffer}, see {@link #createSequence(Song, boolean)}<br>
+	 * <br>
+	 * erschafft eine {@link Sequence} aus dem gegebenen {@link SongBuffer}, s. {@link #createSequence(Song, boolean)}
+	 * 
+	 * @param miditype0 decides about which type of MIDI-File the output will be
+	 * @param song
+	 * @return Sequence
+	 */
+	public Sequence createSequence(SongBuffer song, boolean miditype0){
+		long start = Metrics.start();
 		Sequence seq = null;
 		TrackFactory trackFac = new TrackFactory();
 		if(miditype0){
@@ -71,6 +88,7 @@ public class SequenceGenerator {
 				e.printStackTrace();
 			}
 		}
+		Metrics.stop(Stage.SEQUENCE, start);
 		return seq;
 	}
 	
@@ -80,6 +98,7 @@ public class SequenceGenerator {
 	 * @param outputFile
 	 */
 	public void saveSequence(Sequence seq, File outputFile){
+		long start = Metrics.start();
 		if(seq.getTracks().length == 1){
 			try {
 				MidiSystem.write(seq, 0, outputFile);
@@ -95,6 +114,7 @@ public class SequenceGenerator {
 				e.printStackTrace();
 			}
 		}
+		Metrics.stop(Stage.WRITE, start);
 	}
 	
 	/**
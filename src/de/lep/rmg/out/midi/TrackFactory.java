@@ -1,19 +1,25 @@
 package de.lep.rmg.out.midi;
 
-import java.util.Iterator;
-
 import javax.sound.midi.*;
 
 import de.lep.rmg.model.*;
-import de.lep.rmg.model.notes.*;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
 
 /**
- * stellt Factorymethoden und Änderungsmethoden für {@link Track}s zur Verfügung.
+ * stellt Factorymethoden und Änderungsmethoden für {@link Track}s zur Verfügung.<br>
+ * Alle Methoden arbeiten intern auf einem {@link SongBuffer}, {@link Song}s und {@link Part}s werden vorher umgewandelt.<br>
+ * Tracks, die aus einem ganzen Song erstellt werden, beginnen mit der Taktart des Songs (s. {@link #addTimeSignature(Track, SongConfig)}).
  * 
  * @author Lukas
  * 
  */
 public class TrackFactory {
+	
+	/**
+	 * Typ der Meta-Nachricht für die Taktart
+	 */
+	static final int TIME_SIGNATURE = 0x58;
+	
 	/**
 	 * macht einen neuen {@link Track} auf der {@link Sequence}, in dem der gegebene {@link Part} repräsentiert wird
 	 * @param seq
@@ -23,7 +29,7 @@ public class TrackFactory {
 	public Track createTrack(Sequence seq, Part part){
 		long counter = 0;
 		Track track = seq.createTrack();
-		eventMaking(counter, track, part, (byte) 1);
+		eventMaking(counter, track, PartBuffer.fromPart(part), (byte) 1);
 		return track;
 	}
 	
@@ -35,6 +41,17 @@ public class TrackFactory {
 	 * @return
 	 */
 	public Track createTrack(Sequence seq, Part part, byte channel){
+		return createTrack(seq, PartBuffer.fromPart(part), channel);
+	}
+	
+	/**
+	 * macht einen neuen {@link Track} auf der {@link Sequence} und fügt den {@link PartBuffer} auf dem angegebenen Channel hinzu
+	 * @param seq
+	 * @param part
+	 * @param channel
+	 * @return
+	 */
+	public Track createTrack(Sequence seq, PartBuffer part, byte channel){
 		long counter = 0;
 		Track track = seq.createTrack();
 		eventMaking(counter, track, part, channel);
@@ -49,7 +66,19 @@ public class TrackFactory {
 	 * @return einen neuen Track auf der Sequence
 	 */
 	public Track createTrack(Sequence seq, Song song, boolean partsOnSameChannel){
+		return createTrack(seq, SongBuffer.fromSong(song), partsOnSameChannel);
+	}
+	
+	/**
+	 * macht einen neuen {@link Track} in dem die Parts des {@link SongBuffer}s repräsentiert sind
+	 * @param seq die Sequence auf der der Track erstellt wird
+	 * @param song
+	 * @param partsOnSameChannel entscheidet, ob die Parts nacheinander oder gleichzeitig gespielt werden
+	 * @return einen neuen Track auf der Sequence
+	 */
+	public Track createTrack(Sequence seq, SongBuffer song, boolean partsOnSameChannel){
 		Track track = seq.createTrack();
+		addTimeSignature(track, song.getConfig());
 		long counter = 0;
 		if(partsOnSameChannel)
 			SongIteration(song, track, counter, (byte) 1);
@@ -64,13 +93,52 @@ public class TrackFactory {
 	 * @param song
 	 */
 	public void createTracks(Sequence seq, Song song){
+		createTracks(seq, SongBuffer.fromSong(song));
+	}
+	
+	/**
+	 * erstellt einen neuen Track auf der Sequence für jeden Part des SongBuffers, der erste Track beginnt mit der Taktart
+	 * @param seq
+	 * @param song
+	 */
+	public void createTracks(Sequence seq, SongBuffer song){
 		byte channel = 0;
-		for(Part part: song){
-			createTrack(seq, part, channel);
+		for(int p = 0; p < song.getPartCount(); p++){
+			Track track = seq.createTrack();
+			if(p == 0)
+				addTimeSignature(track, song.getConfig());
+			eventMaking(0, track, song.getPart(p), channel);
 			channel++;
 		}
 	}
 	
+	/**
+	 * adds the time signature of the SongConfig as meta event (0x58) at tick 0, before any other event at that tick<br>
+	 * <br>
+	 * fügt die Taktart des SongConfigs als Meta-Event (0x58) bei Tick 0 hinzu, z.B. damit der {@link MidiDecoder} 3/4-Takte erkennt.
+	 * Muss vor den Noten hinzugefügt werden, damit es vor den anderen Events bei Tick 0 steht.
+	 * @param track
+	 * @param config
+	 */
+	public void addTimeSignature(Track track, SongConfig config){
+		byte[] data = timeSignature(config);
+		try {
+			track.add(new MidiEvent(new MetaMessage(TIME_SIGNATURE, data, data.length), 0));
+		} catch (InvalidMidiDataException e) {
+			System.out.println("Failed to add time signature " + config.getBeats() + "/4");
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * @param config
+	 * @return the data of the time signature meta event: beats, beat type as power of two, 24 MIDI clocks per click, 8 32nd notes per quarter<br>
+	 * Ein Schlag ist immer eine Viertel (s. {@link SongConfig#measureDivision}), daher wird {@link SongConfig#getBeatType()} nicht verwendet.
+	 */
+	static byte[] timeSignature(SongConfig config){
+		return new byte[]{ (byte) config.getBeats(), 2, 24, 8 };
+	}
+	
 	/**
 	 * fügt den Part auf dem angegeben Channel zum Track hinzu
 	 * @param track
@@ -79,7 +147,7 @@ public class TrackFactory {
 	 */
 	public Track addToTrack(Track track, Part part, byte channel){
 		long counter = track.ticks();
-		eventMaking(counter, track, part, channel);
+		eventMaking(counter, track, PartBuffer.fromPart(part), channel);
 		return track;
 	}
 	
@@ -95,9 +163,9 @@ public class TrackFactory {
 	public Track addToTrack(Track track, Song song, boolean partsOnSameChannel){
 		long counter = track.ticks();
 		if(partsOnSameChannel)
-			SongIteration(song, track, counter, (byte) 1);
+			SongIteration(SongBuffer.fromSong(song), track, counter, (byte) 1);
 		else
-			SongIteration(song, track, counter);
+			SongIteration(SongBuffer.fromSong(song), track, counter);
 		return track;
 	}
 	
@@ -115,7 +183,7 @@ public class TrackFactory {
 		long counter = 0;
 		if(!startAtZero)
 			counter = track.ticks();
-		eventMaking(counter, track, part, channel);
+		eventMaking(counter, track, PartBuffer.fromPart(part), channel);
 		return track;
 	}
 	
@@ -133,7 +201,7 @@ public class TrackFactory {
 		long counter = 0;
 		if(!startAtZero)
 				counter = track.ticks();
-		SongIteration(song, track, counter, channel);
+		SongIteration(SongBuffer.fromSong(song), track, counter, channel);
 		return track;
 	}
 	
@@ -144,11 +212,9 @@ public class TrackFactory {
 	 * @param counter
 	 * @param channel
 	 */
-	private void SongIteration(Song song, Track track, long counter, byte channel){
-		Iterator<Part> partsIterator = song.iterator();
-		while(partsIterator.hasNext()){
-			Part part = partsIterator.next();
-			counter += eventMaking(counter, track, part, channel);
+	private void SongIteration(SongBuffer song, Track track, long counter, byte channel){
+		for(int p = 0; p < song.getPartCount(); p++){
+			counter += eventMaking(counter, track, song.getPart(p), channel);
 		}
 	}
 	
@@ -158,25 +224,24 @@ public class TrackFactory {
 	 * @param track
 	 * @param counter
 	 */
-	private void SongIteration(Song song, Track track, long counter){
-		Iterator<Part> partsIterator = song.iterator();
+	private void SongIteration(SongBuffer song, Track track, long counter){
 		byte channel = 1;
-		while(partsIterator.hasNext()){
-			Part part = partsIterator.next();
-			eventMaking(counter, track, part, channel);
+		for(int p = 0; p < song.getPartCount(); p++){
+			eventMaking(counter, track, song.getPart(p), channel);
 			channel++;
 		}
 	}
 	
 	/**
-	 * adds a Part on a specific channel of the given track
+	 * adds a Part on a specific channel of the given track<br>
+	 * Pausen erzeugen keine Events, die Töne eines Akkords beginnen am selben Tick.
 	 * @param counter specifies on which tick to add he first Note
 	 * @param track
 	 * @param part
 	 * @param channel
 	 * @return value of the counter after every Note is added
 	 */
-	private long eventMaking(long counter, Track track, Part part, byte channel){
+	private long eventMaking(long counter, Track track, PartBuffer part, byte channel){
 		int velocity = (int) part.getInstrument().getVolume();
 		
 		ShortMessage sm = new ShortMessage();
@@ -189,41 +254,20 @@ public class TrackFactory {
 		}
 		
 		try {
-			for( Measure measure : part ) {
-				Iterator<INote> iterator = measure.iterator();
-				while(iterator.hasNext()){
-					INote mn = iterator.next();
-					if(mn instanceof SNote){
-						SNote snote = (SNote) mn;
-						track.add(new MidiEvent(new ShortMessage(144, channel, snote.getTone() + snote.getOctave() * 12 + 12, velocity), counter));
-						track.add(new MidiEvent(new ShortMessage(128, channel, snote.getTone() + snote.getOctave() * 12 + 12, velocity), counter+snote.getDuration()));
-						counter += snote.getDuration();
-					}else{
-						if(mn instanceof Chord){
-							int x = 0;
-							Chord chord = (Chord) mn;
-							Iterator<SNote> it = chord.iterator();
-							while(it.hasNext()){
-								SNote snote = it.next();
-								track.add(new MidiEvent(new ShortMessage(144, channel, snote.getTone() + snote.getOctave() * 12 + 12, velocity), counter));
-								track.add(new MidiEvent(new ShortMessage(128, channel, snote.getTone() + snote.getOctave() * 12 + 12, velocity), counter+snote.getDuration()));
-								if(x < snote.getDuration())
-									x = snote.getDuration();
-							}
-							counter += x;
-						}else{
-							if(mn instanceof Rest){
-								counter += mn.getDuration();
-							}
-						}
-					}
-				}
+			for(int i = 0; i < part.size(); i++){
+				long event = part.getEvent(i);
+				if(SongBuffer.isRest(event))
+					continue;
+				int pitch = SongBuffer.getMidiPitch(event);
+				long tick = counter + SongBuffer.getTick(event);
+				track.add(new MidiEvent(new ShortMessage(144, channel, pitch, velocity), tick));
+				track.add(new MidiEvent(new ShortMessage(128, channel, pitch, velocity), tick + SongBuffer.getDuration(event)));
 			}
 		} catch (InvalidMidiDataException e) {
 			System.out.println("Failure while building MIDI-Track");
 			e.printStackTrace();
 		}
-		return counter;
+		return counter + part.getLength();
 	}
 	
 }
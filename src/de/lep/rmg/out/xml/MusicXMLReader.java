@@ -0,0 +1,376 @@
+package de.lep.rmg.out.xml;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.Part;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.instruments.helper.InstrumentHelper;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.INote;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.model.notes.helper.ChordHelper;
+
+/**
+ * Liest ein Music-XML Dokument (score-partwise), wie es der {@link MusicXMLWriter} schreibt, Takt für Takt aus einem {@link InputStream}.<br>
+ * Das Dokument wird mit StAX gelesen, es liegt also immer nur der aktuelle Takt im Speicher.
+ * Erst {@link #readSong()} baut den ganzen {@link Song} auf.<br>
+ * Die DTD wird nicht geladen, das Lesen braucht also keine Internetverbindung.<br>
+ * <br>
+ * Reihenfolge der Aufrufe: {@link #readHead()}, dann solange {@link #nextPart()} true zurückgibt
+ * {@link #nextMeasure()} bis null zurückgegeben wird, zuletzt {@link #close()}.
+ *
+ * @see MusicXMLWriter
+ */
+public class MusicXMLReader implements AutoCloseable {
+
+	private final InputStream in;
+	private final XMLStreamReader reader;
+
+	private SongConfig config;
+	private Instrument[] instruments;
+
+	/**
+	 * Attribute des vorherigen Taktes, ein Takt enthält nur die geänderten Attribute
+	 */
+	private int division = SongConfig.measureDivision, fifths, beats = 4, beattype = 4;
+	private Clef clef = Clef.CLEF_G;
+	/**
+	 * Das Tongeschlecht aus &lt;mode&gt;, ohne Angabe Dur
+	 */
+	private CType mode = CType.MAJOR;
+
+
+	/**
+	 * @param is Der Stream, aus dem das Dokument gelesen wird. Wird von {@link #close()} geschlossen.
+	 * @throws XMLException Falls der Stream nicht gelesen werden kann
+	 */
+	public MusicXMLReader( InputStream is ) throws XMLException {
+		this.in = is;
+		XMLInputFactory factory = XMLInputFactory.newDefaultFactory();
+		factory.setProperty( XMLInputFactory.SUPPORT_DTD, false );
+		factory.setProperty( XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false );
+		try {
+			reader = factory.createXMLStreamReader( is );
+		} catch ( XMLStreamException e ) {
+			throw new XMLException( "Could not read the File: " + e.getMessage() );
+		}
+	}
+
+	/**
+	 * Liest Titel, Komponist und die Instrumente der Parts
+	 *
+	 * @return Ein {@link SongConfig} mit Titel, Komponist und Instrumenten. Alle anderen Werte sind die Standardwerte.
+	 * @throws XMLException Falls das Dokument nicht gelesen werden kann
+	 */
+	public SongConfig readHead() throws XMLException {
+		String title = "", composer = "";
+		List<Instrument> parts = new ArrayList<Instrument>();
+		String name = null, shortName = null;
+		int program = 0;
+		float volume = 80f;
+		try {
+			while( reader.hasNext() ) {
+				int event = reader.next();
+				if( event == XMLStreamConstants.END_ELEMENT ) {
+					if( reader.getLocalName().equals( "score-part" ) )
+						parts.add( instrument( name, shortName, program, volume ) );
+					else if( reader.getLocalName().equals( "part-list" ) )
+						break;
+				} else if( event == XMLStreamConstants.START_ELEMENT ) {
+					switch( reader.getLocalName() ) {
+					case "score-part"://fehlende Angaben dürfen nicht vom vorherigen Part übernommen werden
+						name = null;
+						shortName = null;
+						program = 0;
+						volume = 80f;
+						break;
+					case "work-title":
+						title = reader.getElementText();
+						break;
+					case "creator":
+						composer = reader.getElementText();
+						break;
+					case "part-name":
+						name = reader.getElementText();
+						break;
+					case "part-abbreviation":
+						shortName = reader.getElementText();
+						break;
+					case "midi-program":
+						program = Integer.parseInt( reader.getElementText().trim() );
+						break;
+					case "volume":
+						volume = Float.parseFloat( reader.getElementText().trim() );
+						break;
+					default:
+					}
+				}
+			}
+		} catch ( XMLStreamException | NumberFormatException e ) {
+			throw new XMLException( "Could not read the File: " + e.getMessage() );
+		}
+		if( parts.isEmpty() )
+			throw new XMLException( "The File contains no parts" );
+		instruments = parts.toArray( new Instrument[ parts.size() ] );
+		config = new SongConfig.Builder().setTitle( title ).setComposer( composer )
+				.setInstruments( instruments ).setMelodyNr( instruments.length ).build();
+		return config;
+	}
+
+	/**
+	 * @return Die Instrumente der Parts (erst nach {@link #readHead()})
+	 */
+	public Instrument[] getInstruments() {
+		return instruments;
+	}
+
+	/**
+	 * Springt zum Anfang des nächsten Parts
+	 * @return false, falls es keinen weiteren Part gibt
+	 * @throws XMLException Falls das Dokument nicht gelesen werden kann
+	 */
+	public boolean nextPart() throws XMLException {
+		try {
+			while( reader.hasNext() ) {
+				int event = reader.next();
+				if( event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals( "part" ) )
+					return true;
+			}
+			return false;
+		} catch ( XMLStreamException e ) {
+			throw new XMLException( "Could not read the File: " + e.getMessage() );
+		}
+	}
+
+	/**
+	 * Liest den nächsten Takt des aktuellen Parts
+	 * @return Den Takt oder null, falls der Part keine weiteren Takte hat
+	 * @throws XMLException Falls das Dokument nicht gelesen werden kann
+	 */
+	public Measure nextMeasure() throws XMLException {
+		try {
+			while( reader.hasNext() ) {
+				int event = reader.next();
+				if( event == XMLStreamConstants.START_ELEMENT && reader.getLocalName().equals( "measure" ) )
+					return readMeasure();
+				if( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( "part" ) )
+					return null;
+			}
+			return null;
+		} catch ( XMLStreamException | NumberFormatException e ) {
+			throw new XMLException( "Could not read the File: " + e.getMessage() );
+		}
+	}
+
+	/**
+	 * Liest das ganze Dokument in einen {@link Song}.<br>
+	 * Notenschlüssel, Tonart und Taktart des {@link SongConfig}s werden aus dem ersten Takt übernommen.
+	 *
+	 * @return Der gelesene Song
+	 * @throws XMLException Falls das Dokument nicht gelesen werden kann
+	 */
+	public Song readSong() throws XMLException {
+		readHead();
+		Song song = new Song();
+		while( song.size() < instruments.length && nextPart() ) {
+			Part part = new Part( instruments[ song.size() ] );
+			for( Measure measure = nextMeasure(); measure != null; measure = nextMeasure() )
+				part.add( measure );
+			song.add( part );
+		}
+		if( song.size() != instruments.length )
+			throw new XMLException( "Expected " + instruments.length + " parts but found " + song.size() );
+
+		SongConfig.Builder builder = config.toBuilder();
+		if( !song.get( 0 ).isEmpty() ) {
+			Measure first = song.get( 0 ).get( 0 );
+			builder.setClef( first.getClef() ).setChordDuration( first.getBeats() == 3 ? 3 : 4 );
+			SChord key = keyOf( first.getFifths(), mode );
+			if( key != null )
+				builder.setKey( key );
+		}
+		song.setConfig( builder.build() );
+		return song;
+	}
+
+	/**
+	 * Schließt den Reader und den Stream
+	 * @throws XMLException Falls der Stream nicht geschlossen werden kann
+	 */
+	@Override
+	public void close() throws XMLException {
+		try {
+			reader.close();
+			in.close();
+		} catch ( XMLStreamException | IOException e ) {
+			throw new XMLException( "Could not close the File" );
+		}
+	}
+
+	/*#############################################################################
+	 * 						ELEMENTE
+	 *###########################################################################*/
+
+	private Measure readMeasure() throws XMLStreamException {
+		List<INote> notes = new ArrayList<INote>();
+		while( reader.hasNext() ) {
+			int event = reader.next();
+			if( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( "measure" ) )
+				break;
+			if( event != XMLStreamConstants.START_ELEMENT )
+				continue;
+			switch( reader.getLocalName() ) {
+			case "divisions":
+				division = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "fifths":
+				fifths = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "mode":
+				mode = "minor".equals( reader.getElementText().trim() ) ? CType.MINOR : CType.MAJOR;
+				break;
+			case "beats":
+				beats = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "beat-type":
+				beattype = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "sign":
+				clef = clefOf( reader.getElementText().trim() );
+				break;
+			case "note":
+				readNote( notes );
+				break;
+			default:
+			}
+		}
+		Measure measure = new Measure( config );
+		measure.setDivision( division );
+		measure.setFifths( fifths );
+		measure.setBeats( beats );
+		measure.setBeattype( beattype );
+		measure.setClef( clef );
+		measure.addAll( notes );
+		return measure;
+	}
+
+	/**
+	 * Liest eine Note und fügt sie an. Eine Note mit &lt;chord/&gt; wird mit der vorherigen Note zu einem {@link Chord} zusammengefasst.
+	 */
+	private void readNote( List<INote> notes ) throws XMLStreamException {
+		boolean chord = false, rest = false, pitch = false;
+		int step = 0, alter = 0, octave = 0, duration = 0;
+		while( reader.hasNext() ) {
+			int event = reader.next();
+			if( event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals( "note" ) )
+				break;
+			if( event != XMLStreamConstants.START_ELEMENT )
+				continue;
+			switch( reader.getLocalName() ) {
+			case "chord":
+				chord = true;
+				break;
+			case "rest":
+				rest = true;
+				break;
+			case "pitch":
+				pitch = true;
+				break;
+			case "step":
+				step = toneOf( reader.getElementText().trim() );
+				break;
+			case "alter":
+				alter = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "octave":
+				octave = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			case "duration":
+				duration = Integer.parseInt( reader.getElementText().trim() );
+				break;
+			default:
+			}
+		}
+
+		if( rest ) {
+			notes.add( new Rest( duration ) );
+		} else if( !pitch ) {//leerer Akkord, s. MusicXMLWriter#writeMeasure(Measure)
+			notes.add( new Chord( new ArrayList<SNote>() ) );
+		} else {
+			int tone = step + alter;
+			SNote snote = new SNote( Math.floorMod( tone, 12 ), octave + Math.floorDiv( tone, 12 ), duration );
+			INote last = notes.isEmpty() ? null : notes.get( notes.size() -1 );
+			if( chord && last instanceof Chord ) {
+				( (Chord) last ).add( snote );
+			} else if( chord && last instanceof SNote ) {
+				notes.set( notes.size() -1, new Chord( new SNote[]{ (SNote) last, snote } ) );
+			} else {
+				notes.add( snote );
+			}
+		}
+	}
+
+	/**
+	 * Sucht das passende Instrument des Musikgenerators, damit z.B. der Name gleich bleibt.
+	 * Unbekannte Instrumente werden neu erzeugt.
+	 */
+	private static Instrument instrument( String name, String shortName, int program, float volume ) {
+		for( Instrument instrument : InstrumentHelper.getAllInstrIncNull() ) {
+			if( instrument.getName().equals( name ) && instrument.getMidiProgram() == program ) {
+				instrument.setVolume( volume );
+				return instrument;
+			}
+		}
+		return new Instrument( name, shortName, program, volume );
+	}
+
+	private static int toneOf( String step ) throws XMLStreamException {
+		switch( step ) {
+		case "C": return SNote.C;
+		case "D": return SNote.D;
+		case "E": return SNote.E;
+		case "F": return SNote.F;
+		case "G": return SNote.G;
+		case "A": return SNote.A;
+		case "B": return SNote.B;
+		default: throw new XMLStreamException( "Unknown step " + step );
+		}
+	}
+
+	private static Clef clefOf( String sign ) throws XMLStreamException {
+		switch( sign ) {
+		case "G": return Clef.CLEF_G;
+		case "F": return Clef.CLEF_F;
+		case "TAB": return Clef.CLEF_TAB;
+		default: throw new XMLStreamException( "Unknown clef " + sign );
+		}
+	}
+
+	/**
+	 * @param type {@link CType#MAJOR} oder {@link CType#MINOR}
+	 * @return Die Dur- bzw. Moll-Tonart mit dieser Position im Quintenzirkel oder null
+	 */
+	private static SChord keyOf( int fifths, CType type ) {
+		for( int keynote = 0; keynote < 12; keynote++ ) {
+			SChord key = new SChord( keynote, type );
+			if( ChordHelper.getCircleOfFifthPos( key ) == fifths )
+				return key;
+		}
+		return null;
+	}
+}
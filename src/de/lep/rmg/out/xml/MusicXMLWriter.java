@@ -0,0 +1,470 @@
+package de.lep.rmg.out.xml;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.INote;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.model.notes.helper.NoteHelper;
+
+/**
+ * Schreibt ein Music-XML Dokument (score-partwise) Takt für Takt direkt in einen {@link OutputStream}.<br>
+ * Im Gegensatz zu einem DOM wird nie das ganze Dokument im Speicher gehalten, der Speicherbedarf ist unabhängig von der Länge des Songs.<br>
+ * Die Ausgabe entspricht Zeichen für Zeichen der des früheren DOM-basierten {@link XMLGenerator}s
+ * (Einrückung mit 4 Leerzeichen, Attribute alphabetisch sortiert). Nur Songs in Moll bekommen zusätzlich
+ * &lt;mode&gt;minor&lt;/mode&gt;, damit der {@link MusicXMLReader} die Tonart wieder erkennt.<br>
+ * <br>
+ * Reihenfolge der Aufrufe: {@link #writeHead(SongConfig, Instrument[])}, dann für jeden Part
+ * {@link #startPart(int)}, beliebig oft {@link #writeMeasure(Measure)} bzw. {@link #writeMeasure(PartBuffer, int)}
+ * und {@link #endPart()}, zuletzt {@link #close()}.
+ *
+ * @see XMLGenerator
+ */
+public class MusicXMLWriter implements AutoCloseable {
+
+	private static final String INDENT = "    ";
+
+	private final Writer out;
+
+	/**
+	 * Tiefe des aktuellen Elements im Dokument
+	 */
+	private int depth;
+
+	/**
+	 * Ob der Start-Tag des zuletzt geöffneten Elements noch nicht mit '&gt;' abgeschlossen ist
+	 */
+	private boolean pending;
+
+	/**
+	 * Nummer des nächsten Taktes im aktuellen Part
+	 */
+	private int measureNumber;
+
+	/**
+	 * Attribute des vorherigen Taktes im aktuellen Part (s. {@link SongBuffer#encodeAttributes(Measure)})
+	 */
+	private int lastAttributes;
+
+	/**
+	 * Ob der Grundton des Songs Moll ist (s. {@link #writeHead(SongConfig, Instrument[])})
+	 */
+	private boolean minor;
+
+
+	/**
+	 * @param os Der Stream, in den das Dokument geschrieben wird. Wird von {@link #close()} geschlossen.
+	 */
+	public MusicXMLWriter( OutputStream os ) {
+		this.out = new BufferedWriter( new OutputStreamWriter( os, StandardCharsets.UTF_8 ), 1 << 16 );
+	}
+
+	/**
+	 * Schreibt die XML-Deklaration, den Kopfteil und die Part-Liste des Dokuments
+	 *
+	 * @param config Das Konfigurationsobjekt mit Titel und Komponist
+	 * @param instruments Die Instrumente der Parts
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void writeHead( SongConfig config, Instrument[] instruments ) throws XMLException {
+		String title = config.getTitle();
+		String composer = config.getComposer();
+		minor = config.getKey().getType() == CType.MINOR;
+
+		write( "<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n" );
+		write( "<!DOCTYPE score-partwise PUBLIC \"-//Recordare//DTD MusicXML 3.0 Partwise//EN\" \"http://www.musicxml.org/dtds/partwise.dtd\">\n" );
+		start( "score-partwise" );
+
+		start( "work" );
+		text( "work-title", title );
+		end( "work" );
+
+		start( "identification" );
+		text( "creator", composer, "type", "composer" );
+		start( "encoding" );
+		text( "software", "Random Music Generator" );
+		text( "encoding-date", new SimpleDateFormat( "yyyy-MM-dd" ).format( new Date() ) );
+		empty( "supports", "element", "accidental", "type", "yes" );
+		empty( "supports", "element", "beam", "type", "no" );
+		empty( "supports", "attribute", "new-page", "element", "print", "type", "yes", "value", "yes" );
+		empty( "supports", "attribute", "new-system", "element", "print", "type", "yes", "value", "yes" );
+		empty( "supports", "element", "stem", "type", "no" );
+		end( "encoding" );
+		end( "identification" );
+
+		start( "defaults" );
+		start( "scaling" );
+		text( "millimeters", "7.05556" );
+		text( "tenths", "40" );
+		end( "scaling" );
+		start( "page-layout" );
+		text( "page-height", "1683.36" );
+		text( "page-width", "1190.88" );
+		writeMargins( "even" );
+		writeMargins( "odd" );
+		end( "page-layout" );
+		empty( "word-font", "font-family", "FreeSerif", "font-size", "10" );
+		empty( "lyric-font", "font-family", "FreeSerif", "font-size", "11" );
+		end( "defaults" );
+
+		start( "credit", "page", "1" );
+		text( "credit-words", title, "default-x", "595.44", "default-y", "1626.67", "font-size", "24", "justify", "center", "valign", "top" );
+		end( "credit" );
+		start( "credit", "page", "1" );
+		text( "credit-words", composer, "default-x", "1134.19", "default-y", "1526.67", "font-size", "12", "justify", "right", "valign", "bottom" );
+		end( "credit" );
+
+		start( "part-list" );
+		for( int i = 0; i < instruments.length; i++ ) {
+			Instrument instrument = instruments[ i ];
+			String id = "P" + ( i +1 );
+
+			start( "score-part", "id", id );
+			text( "part-name", instrument.getName() );
+			text( "part-abbreviation", instrument.getShortName() );
+			start( "score-instrument", "id", id + "-I1" );
+			text( "instrument-name", instrument.getName() );
+			end( "score-instrument" );
+			empty( "midi-device", "id", id + "-I1", "port", "1" );
+			start( "midi-instrument", "id", id + "-I1" );
+			text( "midi-channel", Integer.toString( i +1 ) );
+			text( "midi-program", Integer.toString( instrument.getMidiProgram() ) );
+			text( "volume", Float.toString( instrument.getVolume() ) );
+			text( "pan", "0" );
+			end( "midi-instrument" );
+			end( "score-part" );
+		}
+		end( "part-list" );
+	}
+
+	private void writeMargins( String type ) throws XMLException {
+		start( "page-margins", "type", type );
+		text( "left-margin", "56.6929" );
+		text( "right-margin", "56.6929" );
+		text( "top-margin", "56.6929" );
+		text( "bottom-margin", "113.386" );
+		end( "page-margins" );
+	}
+
+	/**
+	 * Beginnt einen neuen Part
+	 * @param index Die Position des Parts im Song (beginnend bei 0)
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void startPart( int index ) throws XMLException {
+		start( "part", "id", "P" + ( index +1 ) );
+		measureNumber = 1;
+	}
+
+	/**
+	 * Beendet den aktuellen Part
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void endPart() throws XMLException {
+		end( "part" );
+	}
+
+	/**
+	 * Schreibt alle Takte eines Parts
+	 * @param index Die Position des Parts im Song (beginnend bei 0)
+	 * @param measures Die Takte des Parts. Werden nur einmal durchlaufen.
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void writePart( int index, Iterable<Measure> measures ) throws XMLException {
+		startPart( index );
+		for( Measure measure : measures )
+			writeMeasure( measure );
+		endPart();
+	}
+
+	/**
+	 * Schreibt alle Takte eines {@link PartBuffer}s
+	 * @param index Die Position des Parts im Song (beginnend bei 0)
+	 * @param part Der Part
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void writePart( int index, PartBuffer part ) throws XMLException {
+		startPart( index );
+		for( int m = 0; m < part.getMeasureCount(); m++ )
+			writeMeasure( part, m );
+		endPart();
+	}
+
+	/**
+	 * Schreibt einen Takt als nächsten Takt des aktuellen Parts
+	 * @param measure Der Takt
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void writeMeasure( Measure measure ) throws XMLException {
+		startMeasure( SongBuffer.encodeAttributes( measure ) );
+		for( INote iNote : measure ) {
+			if( iNote instanceof SNote ) {
+				SNote snote = (SNote) iNote;
+				writeNote( snote.getTone(), snote.getOctave(), snote.getDuration(), false );
+			} else if( iNote instanceof Rest ) {
+				writeRest( iNote.getDuration() );
+			} else if( iNote instanceof Chord && ( (Chord) iNote ).size() > 0 ) {
+				Chord chord = (Chord) iNote;
+				for( int c = 0; c < chord.size(); c++ ) {
+					SNote snote = chord.get( c );
+					writeNote( snote.getTone(), snote.getOctave(), snote.getDuration(), c != 0 );
+				}
+			} else {
+				empty( "note" );//wie beim DOM: leerer Akkord bzw. unbekannte Note
+			}
+		}
+		end( "measure" );
+	}
+
+	/**
+	 * Schreibt einen Takt eines {@link PartBuffer}s als nächsten Takt des aktuellen Parts
+	 * @param part Der Part
+	 * @param index Die Nummer des Taktes im PartBuffer
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	public void writeMeasure( PartBuffer part, int index ) throws XMLException {
+		startMeasure( part.getMeasureAttributes( index ) );
+		for( int n = part.getMeasureStart( index ); n < part.getMeasureEnd( index ); n++ ) {
+			long event = part.getEvent( n );
+			if( SongBuffer.isRest( event ) )
+				writeRest( SongBuffer.getDuration( event ) );
+			else
+				writeNote( SongBuffer.getTone( event ), SongBuffer.getOctave( event ), SongBuffer.getDuration( event ), SongBuffer.isChordNote( event ) );
+		}
+		end( "measure" );
+	}
+
+	/**
+	 * Öffnet das measure-Element und schreibt die Attribute, falls es der erste Takt ist oder sie sich geändert haben
+	 * @param measure Die gepackten Attribute des Taktes
+	 */
+	private void startMeasure( int measure ) throws XMLException {
+		int number = measureNumber++;
+		int oldMeasure = lastAttributes;
+		lastAttributes = measure;
+		Clef clef = SongBuffer.getClef( measure );
+
+		start( "measure", "number", Integer.toString( number ) );
+		if( number == 1 ) {
+			start( "attributes" );
+			text( "divisions", Integer.toString( SongBuffer.getDivision( measure ) ) );
+			start( "key" );
+			text( "fifths", Integer.toString( SongBuffer.getFifths( measure ) ) );
+			if( minor )
+				text( "mode", "minor" );
+			end( "key" );
+			writeTime( measure );
+			writeClef( clef );
+			end( "attributes" );
+		} else {
+			boolean divisions = SongBuffer.getDivision( oldMeasure ) != SongBuffer.getDivision( measure );
+			boolean fifths = SongBuffer.getFifths( oldMeasure ) != SongBuffer.getFifths( measure );
+			boolean time = SongBuffer.getBeats( oldMeasure ) != SongBuffer.getBeats( measure )
+					|| SongBuffer.getBeattype( oldMeasure ) != SongBuffer.getBeattype( measure );
+			boolean clefs = !SongBuffer.getClef( oldMeasure ).equals( clef );
+			if( divisions || fifths || time || clefs ) {
+				start( "attributes" );
+				if( divisions )
+					text( "divisions", Integer.toString( SongBuffer.getDivision( measure ) ) );
+				if( fifths )//ohne key-Element, wie bisher
+					text( "fifths", Integer.toString( SongBuffer.getFifths( measure ) ) );
+				if( time )
+					writeTime( measure );
+				if( clefs )
+					writeClef( clef );
+				end( "attributes" );
+			}
+		}
+	}
+
+	private void writeTime( int measure ) throws XMLException {
+		start( "time" );
+		text( "beats", Integer.toString( SongBuffer.getBeats( measure ) ) );
+		text( "beat-type", Integer.toString( SongBuffer.getBeattype( measure ) ) );
+		end( "time" );
+	}
+
+	private void writeClef( Clef clef ) throws XMLException {
+		start( "clef" );
+		text( "sign", clef.signToString() );
+		text( "line", Integer.toString( clef.getLine() ) );
+		end( "clef" );
+	}
+
+	private void writeRest( int duration ) throws XMLException {
+		start( "note" );
+		empty( "rest" );
+		text( "duration", Integer.toString( duration ) );
+		text( "voice", "1" );
+		text( "type", NoteHelper.getDurationString( duration ) );
+		if( NoteHelper.hasDot( duration ) ) empty( "dot" );
+		end( "note" );
+	}
+
+	private void writeNote( int tone, int octave, int duration, boolean chord ) throws XMLException {
+		start( "note" );
+		if( chord ) empty( "chord" );
+		start( "pitch" );
+		text( "step", NoteHelper.getToneString( tone ) );
+		if( NoteHelper.getAlter( tone ) != 0 )
+			text( "alter", Integer.toString( NoteHelper.getAlter( tone ) ) );
+		text( "octave", Integer.toString( NoteHelper.getOctave( tone, octave ) ) );
+		end( "pitch" );
+		text( "duration", Integer.toString( duration ) );
+		text( "voice", "1" );
+		text( "type", NoteHelper.getDurationString( duration ) );
+		if( NoteHelper.hasDot( duration ) ) empty( "dot" );
+		end( "note" );
+	}
+
+	/**
+	 * Schließt das Wurzelelement und den Stream
+	 * @throws XMLException Falls ein Fehler beim Schreiben auftritt
+	 */
+	@Override
+	public void close() throws XMLException {
+		try {
+			if( depth > 0 )
+				end( "score-partwise" );
+			out.close();
+		} catch ( IOException e ) {
+			throw new XMLException( "Could not save the File" );
+		}
+	}
+
+	/*#############################################################################
+	 * 						ELEMENTE
+	 *###########################################################################*/
+
+	/**
+	 * Öffnet ein Element. Der Start-Tag bleibt offen, bis das erste Kind geschrieben wird,
+	 * damit Elemente ohne Kinder wie beim DOM als &lt;name/&gt; geschrieben werden.
+	 *
+	 * @param attrs Abwechselnd Name und Wert, alphabetisch nach Namen sortiert
+	 */
+	private void start( String name, String... attrs ) throws XMLException {
+		openTag( name, attrs );
+		pending = true;
+		depth++;
+	}
+
+	private void end( String name ) throws XMLException {
+		depth--;
+		if( pending ) {
+			write( "/>\n" );
+			pending = false;
+		} else {
+			indent();
+			write( "</" );
+			write( name );
+			write( ">\n" );
+		}
+	}
+
+	private void empty( String name, String... attrs ) throws XMLException {
+		openTag( name, attrs );
+		write( "/>\n" );
+	}
+
+	private void text( String name, String content, String... attrs ) throws XMLException {
+		openTag( name, attrs );
+		if( content == null || content.isEmpty() ) {
+			write( "/>\n" );
+		} else {
+			write( ">" );
+			escape( content, false );
+			write( "</" );
+			write( name );
+			write( ">\n" );
+		}
+	}
+
+	private void openTag( String name, String[] attrs ) throws XMLException {
+		if( pending ) {
+			write( ">\n" );
+			pending = false;
+		}
+		indent();
+		write( "<" );
+		write( name );
+		for( int i = 0; i < attrs.length; i += 2 ) {
+			write( " " );
+			write( attrs[ i ] );
+			write( "=\"" );
+			escape( attrs[ i +1 ], true );
+			write( "\"" );
+		}
+	}
+
+	private void indent() throws XMLException {
+		for( int i = 0; i < depth; i++ )
+			write( INDENT );
+	}
+
+	/**
+	 * Schreibt Text mit den gleichen Ersetzungen wie der Transformer des JDK
+	 * @param attribute Ob der Text in einem Attribut steht
+	 */
+	private void escape( String text, boolean attribute ) throws XMLException {
+		try {
+			for( int i = 0; i < text.length(); i++ ) {
+				char c = text.charAt( i );
+				switch( c ) {
+				case '&':
+					out.write( "&amp;" );
+					break;
+				case '<':
+					out.write( "&lt;" );
+					break;
+				case '>':
+					out.write( "&gt;" );
+					break;
+				case '"':
+					out.write( attribute ? "&quot;" : "\"" );
+					break;
+				case '\n':
+					out.write( attribute ? "&#10;" : "\n" );
+					break;
+				case '\t':
+					out.write( attribute ? "&#9;" : "\t" );
+					break;
+				default:
+					if( Character.isHighSurrogate( c ) && i + 1 < text.length() && Character.isLowSurrogate( text.charAt( i + 1 ) ) ) {
+						out.write( "&#" + Character.toCodePoint( c, text.charAt( ++i ) ) + ";" );
+					} else if( c == 0 || Character.isSurrogate( c ) ) {
+						throw new XMLException( "Invalid character in " + text );
+					} else if( c < 0x20 || ( c >= 0x7F && c <= 0x9F ) ) {
+						out.write( "&#" + (int) c + ";" );
+					} else {
+						out.write( c );
+					}
+				}
+			}
+		} catch ( IOException e ) {
+			throw new XMLException( "Could not save the File" );
+		}
+	}
+
+	private void write( String s ) throws XMLException {
+		try {
+			out.write( s );
+		} catch ( IOException e ) {
+			throw new XMLException( "Could not save the File" );
+		}
+	}
+}
@@ -1,7 +1,7 @@
 package de.lep.rmg.out.xml;
 
 /**
- * Die Exception für den {@link XMLGenerator}
+ * Die Exception für den {@link XMLGenerator}, {@link MusicXMLWriter} und {@link MusicXMLReader}
  *
  */
 public class XMLException extends Exception {
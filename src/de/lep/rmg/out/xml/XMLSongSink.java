@@ -0,0 +1,43 @@
+package de.lep.rmg.out.xml;
+
+import java.io.File;
+import java.io.IOException;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.out.ISongSink;
+
+/**
+ * Schreibt jeden übergebenen {@link Song} als Music-XML in eine eigene Datei im angegebenen Ordner.<br>
+ * Da der {@link XMLGenerator} Zustand hält, wird für jeden Song ein eigener Generator erzeugt.
+ */
+public class XMLSongSink implements ISongSink {
+	
+	private final File directory;
+	private final String prefix;
+	
+	/**
+	 * @param directory Der Ordner, in den die Dateien geschrieben werden
+	 * @param prefix Der Anfang jedes Dateinamens, gefolgt von der Nummer des Songs
+	 */
+	public XMLSongSink( File directory, String prefix ) {
+		this.directory = directory;
+		this.prefix = prefix;
+	}
+
+	@Override
+	public void accept( Song song, int index ) throws IOException {
+		try {
+			new XMLGenerator().save( getFile( index ), song );
+		} catch ( XMLException e ) {
+			throw new IOException( e.getMessage(), e );
+		}
+	}
+
+	/**
+	 * @param index Die laufende Nummer des Songs
+	 * @return Die Datei, in die der Song mit dieser Nummer geschrieben wird
+	 */
+	public File getFile( int index ) {
+		return new File( directory, String.format( "%s%05d.xml", prefix, index ) );
+	}
+}
@@ -5,6 +5,8 @@ import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.util.EnumSet;
+import java.util.Set;
 
 import javax.swing.JButton;
 import javax.swing.JCheckBox;
@@ -15,17 +17,18 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
 
 import de.lep.rmg.model.Song;
-import de.lep.rmg.model.SongConfig;
-import de.lep.rmg.out.midi.SequenceGenerator;
-import de.lep.rmg.out.xml.XMLException;
-import de.lep.rmg.out.xml.XMLGenerator;
+import de.lep.rmg.out.ExportService;
+import de.lep.rmg.out.ExportService.Format;
 
 /**
  * {@link JDialog} zum Speichern von {@link Song}.
- * Der Nutzer kann einen Titel einen Dateinamen und die Ausgabedateitypen(MIDI und XML) wählen
+ * Der Nutzer kann einen Titel einen Dateinamen und die Ausgabedateitypen(MIDI, XML und WAV) wählen
  * und anschließend mit einem {@link JFileChooser} den Speicherordner auswäklen.
+ * Gespeichert wird mit dem {@link ExportService} parallel im Hintergrund. Werden MIDI Typ 0 und Typ 1 gewählt,
+ * bekommt die Typ-0-Datei den Zusatz "-typ0".
  * 
  * @author Lukas
  */
@@ -41,13 +44,12 @@ public class SaveDialog extends JDialog {
 	JCheckBox xmlBox;
 	JCheckBox midi0Box;
 	JCheckBox midi1Box;
+	JCheckBox wavBox;
 	JButton cancelButton;
 	JButton fileButton;
 	
-	//SequenceGenerator für MIDI-Ausgabe
-	SequenceGenerator seqGen = new SequenceGenerator();
-	//XMLGenerator für XML-Ausgabe
-	XMLGenerator xmlGen = new XMLGenerator();
+	//ExportService für alle Ausgabeformate, wird von allen Dialogen gemeinsam verwendet
+	static final ExportService exportService = new ExportService();
 	
 	//Song der gespeichert wird
 	Song song;
@@ -80,10 +82,13 @@ public class SaveDialog extends JDialog {
 		midi0Box.setSelected(false);
 		midi1Box = new JCheckBox("MIDI Typ 1");
 		midi1Box.setSelected(true);
+		wavBox = new JCheckBox("WAV");
+		wavBox.setSelected(false);
 		centerPanel.add(fileTypLabel);
 		centerPanel.add(midi0Box);
 		centerPanel.add(midi1Box);
 		centerPanel.add(xmlBox);
+		centerPanel.add(wavBox);
 		
 		//unterste Zeile der Komponenten
 		fileButton = new JButton("Fertig"); 
@@ -103,71 +108,35 @@ public class SaveDialog extends JDialog {
 		@Override
 		public void actionPerformed(ActionEvent aE) {
 			if(aE.getSource() == fileButton){
-				if(!xmlBox.isSelected() && !midi0Box.isSelected() && ! midi1Box.isSelected()){
+				if(!xmlBox.isSelected() && !midi0Box.isSelected() && ! midi1Box.isSelected() && !wavBox.isSelected()){
 					//do nothing
 				}else{
-					SongConfig config = song.getConfig();
-					config.setTitle(titleTextField.getText());
-					song.setConfig(config);
+					song.setConfig(song.getConfig().withTitle(titleTextField.getText()));
 					//lets the user choose a savefile
 					JFileChooser filechoose = new JFileChooser(new File( "res/saves" ));
 					filechoose.setSelectedFile(new File(titleTextField.getText()));
-					File saveFile;
 					if(filechoose.showSaveDialog(SaveDialog.this) == JFileChooser.APPROVE_OPTION){
-						saveFile = filechoose.getSelectedFile();
-						String fileName = saveFile.getAbsolutePath();
-						//XML-Output
-						if(xmlBox.isSelected()){
-							if(fileName.endsWith(".xml")){
-								try {
-									xmlGen.save(saveFile, song);
-								} catch (XMLException e) {
-									e.printStackTrace();
-								}
-							}else{
-								if(fileName.endsWith(".midi")){
-									try {
-										//erstzt ".midi" mit ".xml"
-										xmlGen.save(new File(fileName.replace(".midi", ".xml")), song);
-									} catch (XMLException e) {
-										e.printStackTrace();
+						Set<Format> formats = EnumSet.noneOf(Format.class);
+						if(xmlBox.isSelected())
+							formats.add(Format.XML);
+						if(midi0Box.isSelected())
+							formats.add(Format.MIDI0);
+						if(midi1Box.isSelected())
+							formats.add(Format.MIDI1);
+						if(wavBox.isSelected())
+							formats.add(Format.WAV);
+						//alle Formate werden parallel im Hintergrund geschrieben, der EDT bleibt frei
+						exportService.export(song, ExportService.getTargets(filechoose.getSelectedFile(), formats))
+								.whenComplete((files, error) -> SwingUtilities.invokeLater(() -> {
+									if(error == null){
+										JOptionPane.showMessageDialog(null, "Erfolgreich gespeichert!");
+									}else{
+										System.out.println(error.getMessage());
+										error.printStackTrace();
+										JOptionPane.showMessageDialog(null, "Speichern fehlgeschlagen!\n" + error.getMessage());
 									}
-								}else{//falls filename weder mit ".xml" noch mit ".midi" endet
-									try {
-										//fügt Dateiendung hinzu
-										xmlGen.save(new File(fileName.concat(".xml")), song);
-									} catch (XMLException e) {
-										e.printStackTrace();
-									}
-								}
-							}
-						}
-						//MIDI0-Output gleicher Aufbau, wie für XML-Ausgabe
-						if(midi0Box.isSelected()){
-							if(fileName.endsWith(".midi")){
-								seqGen.saveSequence(seqGen.createSequence(song, true), saveFile);
-							}else{
-								if(fileName.endsWith(".xml")){
-									seqGen.saveSequence(seqGen.createSequence(song, true), new File(fileName.replace(".xml", ".midi")));
-								}else{
-									seqGen.saveSequence(seqGen.createSequence(song, true), new File(fileName.concat(".midi")));
-								}
-							}
-						}
-						//MIDI1-Output
-						if(midi1Box.isSelected()){
-							if(fileName.endsWith(".midi")){
-								seqGen.saveSequence(seqGen.createSequence(song, false), saveFile);
-							}else{
-								if(fileName.endsWith(".xml")){
-									seqGen.saveSequence(seqGen.createSequence(song, false), new File(fileName.replace(".xml", ".midi")));
-								}else{
-									seqGen.saveSequence(seqGen.createSequence(song, false), new File(fileName.concat(".midi")));
-								}
-							}
-						}
+								}));
 					}
-					JOptionPane.showMessageDialog(null, "Erfolgreich gespeichert!");
 					//schließt den Dialog
 					SaveDialog.this.dispose();
 				}
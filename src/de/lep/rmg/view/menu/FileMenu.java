@@ -3,7 +3,9 @@ package de.lep.rmg.view.menu;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.io.File;
+import java.io.IOException;
 
+import javax.sound.midi.Sequence;
 import javax.swing.JFileChooser;
 import javax.swing.JMenu;
 import javax.swing.JMenuItem;
@@ -11,8 +13,12 @@ import javax.swing.JOptionPane;
 import javax.swing.JSeparator;
 
 import de.lep.rmg.model.Song;
+import de.lep.rmg.out.binary.RmgsFile;
+import de.lep.rmg.out.midi.MidiDecoder;
 import de.lep.rmg.out.midi.MidiPlayer;
 import de.lep.rmg.out.midi.SequenceGenerator;
+import de.lep.rmg.out.xml.XMLException;
+import de.lep.rmg.out.xml.XMLGenerator;
 import de.lep.rmg.view.ISongChangeObserver;
 import de.lep.rmg.view.ISongChanger;
 import de.lep.rmg.view.SaveDialog;
@@ -35,6 +41,12 @@ public class FileMenu extends JMenu implements ISongChangeObserver{
 	MidiPlayer player;
 	//zum erzeugen einer Sequence aus einer ".midi"-Datei
 	SequenceGenerator seqGen = new SequenceGenerator();
+	//zum Umwandeln einer eingelesenen ".midi"-Datei in einen Song
+	MidiDecoder midiDecoder = new MidiDecoder();
+	//zum Einlesen eines Songs aus einer ".xml"-Datei
+	XMLGenerator xmlGen = new XMLGenerator();
+	//zum Einlesen eines Songs aus einer ".rmgs"-Datei
+	RmgsFile rmgsFile = new RmgsFile();
 	
 	public FileMenu(MidiPlayer midiPlayer, ISongChanger songChanger){
 		super("Datei");
@@ -87,15 +99,41 @@ public class FileMenu extends JMenu implements ISongChangeObserver{
 					if(fileCho.showOpenDialog(FileMenu.this) == JFileChooser.APPROVE_OPTION){
 						File openFile = fileCho.getSelectedFile();
 						if(openFile.getPath().endsWith(".xml")){
-							//TODO not yet implemented
-							System.out.println("Noch nicht implementiert. Nur '.midi' Dateien können gelesen werden!");
-							JOptionPane.showMessageDialog(null, "Das Öffnen von Music-XML-Formaten wurde noch nicht implementiert!\n"
-									+ "Nur MIDI-Formate können eingelesen werden.");
+							//liest den Song, spielt ihn und ermöglicht das erneute Speichern
+							try {
+								Song loaded = xmlGen.load(openFile);
+								FileMenu.this.songChange(loaded);
+								player.play(seqGen.createSequence(loaded, false));
+							} catch (XMLException e) {
+								System.out.println("Could not read " + openFile);
+								e.printStackTrace();
+								JOptionPane.showMessageDialog(null, "Die Datei konnte nicht gelesen werden!\n" + e.getMessage());
+							}
 						}else{
-							if(openFile.getPath().endsWith(".midi")){
-								//liest die Datei und spielt den Song
-								FileMenu.this.songChange(null);
-								player.play(seqGen.loadSequence(openFile));
+							if(openFile.getPath().endsWith(RmgsFile.EXTENSION)){
+								//liest den Song mit SongConfig aus der Binärdatei und spielt ihn
+								try {
+									Song loaded = rmgsFile.readSong(openFile);
+									FileMenu.this.songChange(loaded);
+									player.play(seqGen.createSequence(loaded, false));
+								} catch (IOException e) {
+									System.out.println("Could not read " + openFile);
+									e.printStackTrace();
+									JOptionPane.showMessageDialog(null, "Die Datei konnte nicht gelesen werden!\n" + e.getMessage());
+								}
+							}else if(openFile.getPath().endsWith(".midi")){
+								//liest die Datei als Song ein, spielt sie und ermöglicht das erneute Speichern
+								Sequence seq = seqGen.loadSequence(openFile);
+								Song loaded = null;
+								try {
+									if(seq != null)
+										loaded = midiDecoder.decode(seq).toSong();
+								} catch (IOException e) {
+									System.out.println("Could not decode " + openFile);
+									e.printStackTrace();
+								}
+								FileMenu.this.songChange(loaded);
+								player.play(seq);
 							}else{
 								System.out.println("Inkompatibler Dateityp!");
 								JOptionPane.showMessageDialog(null, "Inkompatiebler Dateityp!\nÖffnen nicht möglich!");
@@ -3,12 +3,11 @@ package de.lep.rmg.view.panels;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Random;
 
-import javax.sound.midi.Sequence;
 import javax.swing.JButton;
+import javax.swing.JCheckBox;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JOptionPane;
@@ -24,9 +23,9 @@ import de.lep.rmg.model.instruments.Instrument;
 import de.lep.rmg.model.instruments.helper.InstrumentHelper;
 import de.lep.rmg.model.notes.CType;
 import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.musicgen.CanonGenerator;
 import de.lep.rmg.musicgen.IMusicGenerator;
 import de.lep.rmg.out.midi.MidiPlayer;
-import de.lep.rmg.out.xml.XMLException;
 import de.lep.rmg.view.ISongChangeObserver;
 
 /**
@@ -62,6 +61,8 @@ public class CanonControllPanel extends ControllPanel{
 	JSlider volume5Slider;
 	JComboBox<Instrument> instrument6ComboBox;
 	JSlider volume6Slider;
+	JLabel liveLabel;
+	JCheckBox liveCheckBox;
 	//Anzahl an wählbaren Instrumenten
 	int instrNumber = InstrumentHelper.getAllInstrNumber();
 	
@@ -79,7 +80,7 @@ public class CanonControllPanel extends ControllPanel{
 			if( instruments > 6 )
 				instruments = 6;
 		//die Anzahl der Reihen hängt von der Anzahl an Instrumenten ab
-		setLayout(new GridLayout( 8 + instruments, 2 ));
+		setLayout(new GridLayout( 9 + instruments, 2 ));
 		observers = new ArrayList<ISongChangeObserver>();
 		this.musicGen = musicGen;
 		this.midiPlayer = midiPlayer;
@@ -116,6 +117,10 @@ public class CanonControllPanel extends ControllPanel{
 		instrumentsLabel = new JLabel("Instrumente");
 		volumeLabel = new JLabel("Lautstärke");
 		volumeLabel.setToolTipText("Anschlagstärke (velocity) in MIDI");
+		liveLabel = new JLabel("Endlos:");
+		liveCheckBox = new JCheckBox("live abspielen");
+		liveCheckBox.setToolTipText("Spielt den Kanon ohne Ende live ab, die Takte werden erst während des Abspielens erzeugt und nicht gespeichert");
+		liveCheckBox.setEnabled(musicGen instanceof CanonGenerator);
 
 		add(chordNrLabel);
 		add(chordNrSlider);
@@ -184,10 +189,12 @@ public class CanonControllPanel extends ControllPanel{
 		add(keyTypeComboBox);
 		add(startButton);
 		add(randomButton);
+		add(liveLabel);
+		add(liveCheckBox);
 	}
 	
 	/**
-	 * starts the MusicGenerator with the user input, saves the resulting Song in standardFiles and starts the MidiPlayer<br>
+	 * starts the MusicGenerator with the user input, saves the resulting Song in standardFiles and starts the MidiPlayer, or plays an endless canon live if liveCheckBox is selected<br>
 	 * 
 	 * this type of ActionHandler is only given to the start-button
 	 */
@@ -196,6 +203,11 @@ public class CanonControllPanel extends ControllPanel{
 		@Override
 		public void actionPerformed(ActionEvent aE) {
 			if(aE.getSource() == startButton){
+				//während der Generierung bricht der startButton sie ab
+				if(isGenerating()){
+					cancelGeneration();
+					return;
+				}
 				//Prüft Werte auf Stimmigkeit:
 				//Die Anzahl der Akkorde mal die Länge eines Akkords muss ein Vielfaches eines ganzen Takts ergeben
 				if((chordNrSlider.getValue() * chordDurationSlider.getValue()) % 4 == 0 ){
@@ -344,24 +356,16 @@ public class CanonControllPanel extends ControllPanel{
 				}
 			}
 		}
-		//macht das SongConfig und generiert einen Song mit dem MusicGenerator
+		//macht das SongConfig und generiert im Hintergrund einen Song mit dem MusicGenerator
 		SongConfig config = new SongConfig(chordNrSlider.getValue(), repeatsSlider.getValue(), instrumentNrSlider.getValue(), chordDurationSlider.getValue(),
 				new SChord(keyComboBox.getSelectedIndex(), ctype), instruments);
-		Song song = musicGen.generateSong(config);
-		//standard Speicherung
-		try {
-			xmlGen.save( new File( "res/saves/standardFile.xml" ), song );
-		} catch ( XMLException e ) {
-			e.printStackTrace();
-		}
-		Sequence seq = seqGen.createSequence(song, false);
-		seqGen.saveSequence( seq, new File( "res/saves/standardFile.midi" ) );
-		//informiert Beobachter
-		for(ISongChangeObserver sco : observers){
-			sco.songChange(song);
+		if(liveCheckBox.isSelected() && musicGen instanceof CanonGenerator){
+			//der Kanon wird endlos live gespielt statt als Song generiert
+			CanonGenerator canonGen = (CanonGenerator) musicGen;
+			startLive(() -> canonGen.streamSong(config, true));
+		}else{
+			startPipeline(config);
 		}
-		//spielt den Song ab
-		midiPlayer.play(seq);
 	}
 	
 	private void setInstrumentNr(int instrNr) {
@@ -375,7 +379,7 @@ public class CanonControllPanel extends ControllPanel{
 		remove(instrument6ComboBox);
 		remove(volume6Slider);
 		//Layout an InstrumentenAnzahl anpassen
-		setLayout(new GridLayout( 8 + instrNr, 2));
+		setLayout(new GridLayout( 9 + instrNr, 2));
 		//instrumentenspezifische Componenten hinzufügen
 		if(instrNr > 2){
 			add(instrument3ComboBox, 14);//TODO remove hard coded indices, replace by dynamic approach
@@ -1,15 +1,32 @@
 package de.lep.rmg.view.panels;
 
+import java.io.File;
 import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
 
+import javax.sound.midi.Sequence;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
 import javax.swing.JPanel;
+import javax.swing.SwingWorker;
 
+import de.lep.rmg.model.ISongStream;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Instrument;
 import de.lep.rmg.musicgen.IMusicGenerator;
+import de.lep.rmg.musicgen.IProgressListener;
+import de.lep.rmg.musicgen.SongCache;
 import de.lep.rmg.out.midi.MidiPlayer;
 import de.lep.rmg.out.midi.SequenceGenerator;
+import de.lep.rmg.out.xml.XMLException;
 import de.lep.rmg.out.xml.XMLGenerator;
 import de.lep.rmg.view.ISongChangeObserver;
 import de.lep.rmg.view.ISongChanger;
@@ -17,7 +34,12 @@ import de.lep.rmg.view.ISongChanger;
 /**
  * abstakte ElternKlasse für alle {@link JPanel}, die von {@link IMusicGenerator}en als
  * ControllPanel an das GUI weitergegeben werden können, um den IMusicGenerator zu starten.
- * Enthält Variablen und Methoden, die jedes solche ControllPanel verpflichtend enthalten muss.
+ * Enthält Variablen und Methoden, die jedes solche ControllPanel verpflichtend enthalten muss.<br>
+ * <br>
+ * Generierung, Speicherung und Abspielen laufen nicht im Event-Dispatch-Thread, sondern nacheinander in einem
+ * gemeinsamen Hintergrund-Thread (siehe {@link #startPipeline(SongConfig)}). Während der Song spielt, wird dort
+ * schon der nächste Song mit den gleichen Werten generiert. Alle Songs werden über einen {@link SongCache} generiert,
+ * ein Song mit gleicher Konfiguration und gleichem Startwert wird also nicht noch einmal generiert.
  */
 public abstract class ControllPanel extends JPanel implements ISongChanger{
 
@@ -41,6 +63,24 @@ public abstract class ControllPanel extends JPanel implements ISongChanger{
 	JLabel keyTypeLabel;
 	JComboBox<String> keyTypeComboBox;
 	
+	//Hintergrund-Thread, in dem alle Arbeitsschritte nacheinander ablaufen, so greifen nie zwei Threads gleichzeitig auf einen MusicGenerator zu
+	private static final ExecutorService pipeline = Executors.newSingleThreadExecutor( r -> {
+		Thread thread = new Thread( r, "Generator" );
+		thread.setDaemon( true );
+		return thread;
+	} );
+	//laufende Generierung, null wenn gerade keine läuft
+	private SongWorker worker;
+	//Text des startButtons, während keine Generierung läuft
+	private String startText;
+	//Anzahl der Songs im Zwischenspeicher
+	private static final int CACHE_SIZE = 8;
+	//Zwischenspeicher vor dem MusicGenerator, wird beim ersten Generieren erstellt, da musicGen erst von erbenden Klassen gesetzt wird
+	private SongCache songCache;
+	//im Voraus generierter Song und die Konfiguration, mit der er generiert wurde
+	private Future<Song> nextSong;
+	private SongConfig nextConfig;
+	
 	/**
 	 * registriert einen Beobachter
 	 * @param sco : Beobachter der registriert werden soll
@@ -58,4 +98,222 @@ public abstract class ControllPanel extends JPanel implements ISongChanger{
 	public void removeSongChangeObserver(ISongChangeObserver sco) {
 		observers.remove(sco);
 	}
+	
+	/**
+	 * @return true, falls gerade ein Song im Hintergrund generiert wird
+	 */
+	protected boolean isGenerating() {
+		return worker != null;
+	}
+	
+	/**
+	 * bricht die laufende Generierung ab. Der Hintergrund-Thread wird unterbrochen, so dass auch die Generierung selbst
+	 * abbricht (s. {@link IProgressListener#checkInterrupted()}). Der Song wird dann weder gespeichert noch abgespielt.
+	 */
+	protected void cancelGeneration() {
+		if( worker != null ){
+			worker.cancel( true );
+		}
+	}
+	
+	/**
+	 * Startet die Generierung eines Songs im Hintergrund. Der Song wird als Standarddatei gespeichert,
+	 * an die Beobachter übergeben und abgespielt.<br>
+	 * Wurde mit den gleichen Werten schon ein Song im Voraus generiert, wird dieser benutzt.
+	 * Während der Generierung zeigt der startButton den Fortschritt an und bricht die Generierung bei Klick ab.<br>
+	 * Muss im Event-Dispatch-Thread aufgerufen werden.
+	 * @param config : Konfiguration des zu generierenden Songs
+	 */
+	protected void startPipeline( SongConfig config ) {
+		if( worker != null ){
+			return;
+		}
+		Future<Song> prepared = null;
+		if( nextSong != null ){
+			if( sameValues( config, nextConfig ) ){
+				prepared = nextSong;
+			}else{
+				nextSong.cancel( true );//der nicht mehr benötigte Song wird nicht zu Ende generiert
+			}
+			nextSong = null;
+			nextConfig = null;
+		}
+		startText = startButton.getText();
+		startButton.setText( "Abbrechen" );
+		worker = new SongWorker( getSongCache(), config, prepared );
+		pipeline.execute( worker );
+	}
+	
+	/**
+	 * @return der Zwischenspeicher vor dem MusicGenerator, alle Generierungen laufen nacheinander im Hintergrund-Thread
+	 */
+	private SongCache getSongCache() {
+		if( songCache == null ){
+			songCache = new SongCache( musicGen, CACHE_SIZE );
+		}
+		return songCache;
+	}
+	
+	/**
+	 * Spielt einen {@link ISongStream} live ab, ohne vorher einen Song oder eine Sequence zu erstellen
+	 * (s. {@link MidiPlayer#playLive(ISongStream)}). Der Stream wird im Hintergrund-Thread erzeugt, seine Takte erst
+	 * während des Abspielens. Er wird weder gespeichert noch an die Beobachter übergeben und läuft, bis der MidiPlayer gestoppt wird.<br>
+	 * Muss im Event-Dispatch-Thread aufgerufen werden.
+	 * @param stream : erzeugt den abzuspielenden Stream
+	 */
+	protected void startLive( Supplier<? extends ISongStream> stream ) {
+		if( worker != null ){
+			return;
+		}
+		pipeline.execute( () -> {
+			try {
+				midiPlayer.playLive( stream.get() );
+			} catch ( RuntimeException e ) {
+				System.out.println( "Unable to generate " + musicGen.getSongType() );
+				e.printStackTrace();
+			}
+		} );
+	}
+	
+	/**
+	 * generiert im Hintergrund schon den nächsten Song mit den gleichen Werten, aber einem neuen Startwert
+	 * @param config : Konfiguration des zuletzt generierten Songs
+	 */
+	private void prepareNextSong( SongConfig config ) {
+		SongConfig next = new SongConfig.Builder().setChordNr( config.getChordNr() ).setRepeats( config.getRepeats() )
+				.setMelodyNr( config.getMelodyNr() ).setChordDuration( config.getChordDuration() )
+				.setKey( config.getKey() ).setInstruments( config.getInstruments() ).build();
+		nextConfig = next;
+		SongCache cache = getSongCache();
+		nextSong = pipeline.submit( () -> cache.generateSong( next ) );
+	}
+	
+	/**
+	 * vergleicht zwei Konfigurationen ohne ihren Startwert, die Instrumente inklusive Lautstärke
+	 */
+	private static boolean sameValues( SongConfig a, SongConfig b ) {
+		return a.getChordNr() == b.getChordNr()
+				&& a.getRepeats() == b.getRepeats()
+				&& a.getMelodyNr() == b.getMelodyNr()
+				&& a.getChordDuration() == b.getChordDuration()
+				&& a.getKey().equals( b.getKey() )
+				&& sameInstruments( a.getInstruments(), b.getInstruments() );
+	}
+	
+	private static boolean sameInstruments( Instrument[] a, Instrument[] b ) {
+		if( a.length != b.length ){
+			return false;
+		}
+		for( int i = 0; i < a.length; i++ ){
+			if( !a[ i ].sameSettings( b[ i ] ) ){
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * Generiert, speichert und erstellt die Sequence im Hintergrund und meldet den Fortschritt an den startButton.
+	 * Der Name des Arbeitsschritts wird mit {@link #publish(Object...)}, der Fortschritt in Prozent mit {@link #setProgress(int)}
+	 * gemeldet, während der Generierung Schritt für Schritt über einen {@link IProgressListener}.
+	 * Das Ergebnis wird im Event-Dispatch-Thread an die Beobachter übergeben, danach wird der Song im Hintergrund abgespielt.
+	 */
+	private class SongWorker extends SwingWorker<Sequence, String> {
+		
+		//Fortschritt in Prozent nach der Generierung und nach dem Speichern
+		private static final int GENERATED = 80, SAVED = 90;
+		
+		private final SongCache cache;
+		private final SongConfig config;
+		//im Voraus generierter Song, null falls keiner passt
+		private final Future<Song> prepared;
+		private Song song;
+		//zuletzt gemeldeter Arbeitsschritt
+		private String step = "";
+		
+		SongWorker( SongCache cache, SongConfig config, Future<Song> prepared ) {
+			this.cache = cache;
+			this.config = config;
+			this.prepared = prepared;
+			addPropertyChangeListener( event -> {
+				if( "progress".equals( event.getPropertyName() ) ){
+					showProgress();
+				}
+			} );
+		}
+		
+		@Override
+		protected Sequence doInBackground() throws Exception {
+			publish( "generiere" );
+			if( prepared != null ){
+				try {
+					song = prepared.get();
+				} catch ( CancellationException | ExecutionException e ) {
+					song = null;
+				}
+			}
+			if( song == null ){
+				song = cache.generateSong( config, ( done, steps ) -> setProgress( GENERATED * done / steps ) );
+			}
+			setProgress( GENERATED );
+			if( isCancelled() ){
+				return null;
+			}
+			//standard Speicherung
+			publish( "speichere" );
+			try {
+				xmlGen.save( new File( "res/saves/standardFile.xml" ), song );
+			} catch ( XMLException e ) {
+				e.printStackTrace();
+			}
+			setProgress( SAVED );
+			if( isCancelled() ){
+				return null;
+			}
+			Sequence seq = seqGen.createSequence( song, false );
+			seqGen.saveSequence( seq, new File( "res/saves/standardFile.midi" ) );
+			setProgress( 100 );
+			return seq;
+		}
+		
+		@Override
+		protected void process( List<String> steps ) {
+			step = steps.get( steps.size() - 1 );
+			showProgress();
+		}
+		
+		/**
+		 * zeigt Arbeitsschritt und Fortschritt auf dem startButton an
+		 */
+		private void showProgress() {
+			if( !isCancelled() && !isDone() ){
+				startButton.setText( "Abbrechen (" + step + "... " + getProgress() + "%)" );
+			}
+		}
+		
+		@Override
+		protected void done() {
+			worker = null;
+			startButton.setText( startText );
+			if( isCancelled() ){
+				return;
+			}
+			Sequence seq;
+			try {
+				seq = get();
+			} catch ( InterruptedException | ExecutionException e ) {
+				System.out.println( "Unable to generate " + musicGen.getSongType() );
+				e.printStackTrace();
+				return;
+			}
+			//informiert Beobachter
+			for( ISongChangeObserver sco : observers ){
+				sco.songChange( song );
+			}
+			//spielt den Song ab, MidiPlayer#play wartet kurz und darf daher nicht den Event-Dispatch-Thread blockieren,
+			//die Beobachter des MidiPlayers werden trotzdem im Event-Dispatch-Thread benachrichtigt
+			pipeline.execute( () -> midiPlayer.play( seq ) );
+			prepareNextSong( config );
+		}
+	}
 }
@@ -3,11 +3,9 @@ package de.lep.rmg.view.panels;
 import java.awt.GridLayout;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
-import java.io.File;
 import java.util.ArrayList;
 import java.util.Random;
 
-import javax.sound.midi.Sequence;
 import javax.swing.JButton;
 import javax.swing.JComboBox;
 import javax.swing.JLabel;
@@ -24,7 +22,6 @@ import de.lep.rmg.model.notes.CType;
 import de.lep.rmg.model.notes.SChord;
 import de.lep.rmg.musicgen.IMusicGenerator;
 import de.lep.rmg.out.midi.MidiPlayer;
-import de.lep.rmg.out.xml.XMLException;
 import de.lep.rmg.view.ISongChangeObserver;
 
 public class FugenControllPanel extends ControllPanel{
@@ -173,7 +170,12 @@ public class FugenControllPanel extends ControllPanel{
 		@Override
 		public void actionPerformed(ActionEvent aE) {
 			if(aE.getSource() == startButton){
-				startMusicGenerator();
+				//während der Generierung bricht der startButton sie ab
+				if(isGenerating()){
+					cancelGeneration();
+				}else{
+					startMusicGenerator();
+				}
 			}else{
 				if(aE.getSource() == randomButton){
 					setRandomValues();
@@ -276,24 +278,10 @@ public class FugenControllPanel extends ControllPanel{
 				}
 			}
 		}
-		//macht das SongConfig und generiert einen Song mit dem MusicGenerator
+		//macht das SongConfig und generiert im Hintergrund einen Song mit dem MusicGenerator
 		SongConfig config = new SongConfig(chordNrSlider.getValue(), repeatsSlider.getValue(), instrumentNrSlider.getValue(), 4,
 				new SChord(keyComboBox.getSelectedIndex(), ctype), instruments);
-		Song song = musicGen.generateSong(config);
-		//standard Speicherung
-		try {
-			xmlGen.save( new File( "res/saves/standardFile.xml" ), song );
-		} catch ( XMLException e ) {
-			e.printStackTrace();
-		}
-		Sequence seq = seqGen.createSequence(song, false);
-		seqGen.saveSequence( seq, new File( "res/saves/standardFile.midi" ) );
-		//informiert Beobachter
-		for(ISongChangeObserver sco : observers){
-			sco.songChange(song);
-		}
-		//spielt den Song ab
-		midiPlayer.play(seq);
+		startPipeline(config);
 	}
 	
 	private class ChangeHandler implements ChangeListener {
@@ -0,0 +1,61 @@
+package de.lep.rmg.metrics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.lep.rmg.metrics.IMetrics.Counter;
+import de.lep.rmg.metrics.IMetrics.Stage;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+
+/**
+ * Unit-Test für {@link HistogramMetrics}
+ *
+ */
+public class HistogramMetricsTest {
+
+	/**
+	 * Test für {@link HistogramMetrics#getPercentile(Stage, double)}
+	 */
+	@Test
+	public void testPercentile() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		assertEquals( 0, metrics.getPercentile( Stage.MELODY, 50 ) );
+		for( int i = 0; i < 99; i++ )
+			metrics.record( Stage.MELODY, 1000 );
+		metrics.record( Stage.MELODY, 1000000 );
+
+		assertEquals( 100, metrics.getCount( Stage.MELODY ) );
+		assertEquals( 99 * 1000 + 1000000, metrics.getTotalNanos( Stage.MELODY ) );
+		assertEquals( 1000000, metrics.getMaxNanos( Stage.MELODY ) );
+		assertEquals( 1024, metrics.getPercentile( Stage.MELODY, 50 ) );//obere Grenze des Fachs
+		assertEquals( 1024, metrics.getPercentile( Stage.MELODY, 99 ) );
+		assertEquals( 1000000, metrics.getPercentile( Stage.MELODY, 100 ) );//höchstens das Maximum
+
+		metrics.reset();
+		assertEquals( 0, metrics.getCount( Stage.MELODY ) );
+	}
+
+	/**
+	 * Die Generierung eines Kanons misst jeden Abschnitt und zählt die Takte
+	 */
+	@Test
+	public void testGeneration() {
+		HistogramMetrics metrics = new HistogramMetrics();
+		Metrics.set( metrics );
+		try {
+			SongConfig config = new SongConfig( 1 );
+			int measures = new CanonGenerator( null, new MelodyGenerator() ).generateSong( config ).get( 0 ).size();
+			assertEquals( 1, metrics.getCount( Stage.CHORDS ) );
+			assertEquals( 1, metrics.getCount( Stage.RHYTHM ) );
+			assertEquals( 1, metrics.getCount( Stage.MELODY ) );
+			assertEquals( config.getMelodyNr() * measures, metrics.getCount( Counter.MEASURES ) );
+			assertTrue( metrics.getCount( Counter.NOTES ) >= metrics.getCount( Counter.MEASURES ) );
+		} finally {
+			Metrics.set( null );
+		}
+	}
+}
@@ -0,0 +1,150 @@
+package de.lep.rmg.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.Collections;
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.notes.INote;
+
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Unit-Test für {@link Measure}
+ *
+ */
+public class MeasureTest {
+
+	/**
+	 * Dauer, Anzahl der Töne und Tonhöhen werden beim Anhängen nachgeführt
+	 */
+	@Test
+	public void testAdd() {
+		Measure measure = new Measure( new SongConfig.Builder().build() );
+		assertEquals( 4 * SongConfig.measureDivision, measure.getLength() );
+		assertEquals( measure.getLength(), measure.getRemainingDuration() );
+		assertEquals( -1, measure.getLowestPitch() );
+
+		measure.add( new Rest( SNote.QUARTER ) );
+		assertEquals( -1, measure.getHighestPitch() );
+		measure.add( new Chord( new SNote[]{ new SNote( SNote.E, 4, SNote.QUARTER ), new SNote( SNote.C, 5, SNote.HALF ) } ) );
+		measure.add( new SNote( SNote.B, 3, SNote.QUARTER ) );
+
+		assertEquals( 4 * SongConfig.measureDivision, measure.getTotalDuration() );
+		assertEquals( 0, measure.getRemainingDuration() );
+		assertTrue( measure.isFull() );
+		assertEquals( 3, measure.getNoteCount() );
+		assertEquals( SNote.B + 3 * 12, measure.getLowestPitch() );
+		assertEquals( SNote.C + 5 * 12, measure.getHighestPitch() );
+		assertEquals( measure.getTotalDuration(), measure.clone().getTotalDuration() );
+	}
+
+	/**
+	 * Nach dem Ersetzen und Entfernen von Noten werden die Werte neu berechnet
+	 */
+	@Test
+	public void testReplace() {
+		Measure measure = new Measure( new SongConfig.Builder().build() );
+		measure.add( new SNote( SNote.C, 3, SNote.HALF ) );
+		measure.add( new SNote( SNote.G, 4, SNote.HALF ) );
+		measure.set( 0, new Rest( SNote.QUARTER ) );
+
+		assertEquals( SNote.HALF + SNote.QUARTER, measure.getTotalDuration() );
+		assertEquals( SNote.G + 4 * 12, measure.getLowestPitch() );
+		assertFalse( measure.isFull() );
+
+		measure.remove( 1 );
+		assertEquals( SNote.QUARTER, measure.getTotalDuration() );
+		assertEquals( 0, measure.getNoteCount() );
+		measure.add( new SNote( SNote.D, 4, SNote.QUARTER ) );
+		assertEquals( SNote.HALF, measure.getTotalDuration() );
+		assertEquals( SNote.D + 4 * 12, measure.getHighestPitch() );
+	}
+
+	/**
+	 * Ein eingefrorener Takt kann weder über seine Methoden noch über Iterator und Teilliste verändert werden, eine Kopie schon
+	 */
+	@Test
+	public void testFreeze() {
+		Measure measure = new Measure( new SongConfig.Builder().build() );
+		measure.add( new SNote( SNote.C, 4, SNote.HALF ) );
+		assertFalse( measure.isFrozen() );
+		assertTrue( measure.freeze().isFrozen() );
+
+		Rest rest = new Rest( SNote.HALF );
+		Runnable[] changes = {
+				() -> measure.add( rest ),
+				() -> measure.add( 0, rest ),
+				() -> measure.addAll( Collections.singletonList( rest ) ),
+				() -> measure.set( 0, rest ),
+				() -> measure.remove( 0 ),
+				() -> measure.clear(),
+				() -> measure.removeIf( note -> true ),
+				() -> measure.subList( 0, 1 ).set( 0, rest ),
+				() -> { Iterator<INote> it = measure.iterator(); it.next(); it.remove(); },
+				() -> measure.setBeats( 3 ),
+				() -> measure.setClef( Measure.Clef.CLEF_F )
+		};
+		for( int i = 0; i < changes.length; i++ ) {
+			try {
+				changes[ i ].run();
+				fail( "Change " + i + " of a frozen Measure succeeded" );
+			} catch( UnsupportedOperationException e ) {
+				//erwartet
+			}
+		}
+		assertEquals( 1, measure.size() );
+		assertEquals( 4, measure.getBeats() );
+
+		Measure copy = measure.clone();
+		assertFalse( copy.isFrozen() );
+		copy.add( rest );
+		assertTrue( copy.isFull() );
+	}
+
+	/**
+	 * Ein {@link Chord} führt Dauer und tiefsten Ton auch bei {@link Chord#addStep(int)} und {@link Chord#setDuration(int)} nach
+	 */
+	@Test
+	public void testChord() {
+		Chord chord = new Chord( new SNote[]{ new SNote( SNote.G, 4, SNote.QUARTER ), new SNote( SNote.B, 3, SNote.EIGHTH ) } );
+		assertEquals( SNote.QUARTER, chord.getDuration() );
+		assertEquals( SNote.B, chord.getTone() );
+		assertEquals( 3, chord.getOctave() );
+
+		chord.addStep( 1 );
+		assertEquals( SNote.C, chord.getTone() );
+		assertEquals( 4, chord.getOctave() );
+		assertEquals( SNote.GIS + 4 * 12, chord.getHighestPitch() );
+
+		chord.add( new SNote( SNote.D, 2, SNote.HALF ) );
+		assertEquals( SNote.HALF, chord.getDuration() );
+		assertEquals( 2, chord.getOctave() );
+		chord.setDuration( SNote.EIGHTH );
+		assertEquals( SNote.EIGHTH, chord.getDuration() );
+		chord.remove( 2 );
+		assertEquals( 4, chord.getOctave() );
+	}
+
+	/**
+	 * Wie bei {@link SNote#setDuration(int)} wird eine Dauer kleiner als 1 zu 1, auch in der zwischengespeicherten Dauer
+	 */
+	@Test
+	public void testChordMinimumDuration() {
+		Chord chord = new Chord( new SNote[]{ new SNote( SNote.C, 4, SNote.QUARTER ), new SNote( SNote.E, 4, SNote.HALF ) } );
+		chord.setDuration( 0 );
+		assertEquals( 1, chord.getDuration() );
+		assertEquals( 1, chord.get( 1 ).getDuration() );
+		chord.setDuration( -4 );
+		assertEquals( 1, chord.getDuration() );
+		chord.add( new SNote( SNote.G, 4, SNote.EIGHTH ) );
+		assertEquals( SNote.EIGHTH, chord.getDuration() );
+	}
+}
@@ -0,0 +1,94 @@
+package de.lep.rmg.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.SongBuffer.PartBuffer;
+import de.lep.rmg.model.instruments.Piano;
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Unit-Test für {@link SongBuffer}
+ *
+ */
+public class SongBufferTest {
+
+	/**
+	 * Test für {@link SongBuffer#encode(int, int, int, long, int)} und die zugehörigen Getter
+	 */
+	@Test
+	public void testEncode() {
+		long event = SongBuffer.encode( SNote.GIS, -1, SNote.HALF_DOT, 1234567L, SongBuffer.FLAG_CHORD );
+		assertEquals( SNote.GIS, SongBuffer.getTone( event ) );
+		assertEquals( -1, SongBuffer.getOctave( event ) );
+		assertEquals( SNote.HALF_DOT, SongBuffer.getDuration( event ) );
+		assertEquals( 1234567L, SongBuffer.getTick( event ) );
+		assertTrue( SongBuffer.isChordNote( event ) );
+		assertFalse( SongBuffer.isRest( event ) );
+		
+		int attributes = SongBuffer.encodeAttributes( new Measure( 8, -3, 3, 4, Clef.CLEF_F ) );
+		assertEquals( 8, SongBuffer.getDivision( attributes ) );
+		assertEquals( -3, SongBuffer.getFifths( attributes ) );
+		assertEquals( 3, SongBuffer.getBeats( attributes ) );
+		assertEquals( 4, SongBuffer.getBeattype( attributes ) );
+		assertEquals( Clef.CLEF_F, SongBuffer.getClef( attributes ) );
+	}
+	
+	/**
+	 * Test für {@link PartBuffer#fromPart(Part)} und {@link PartBuffer#toPart()}
+	 */
+	@Test
+	public void testPartConversion() {
+		Part part = new Part( new Piano() );
+		Measure first = new Measure( 8, 0, 4, 4, Clef.CLEF_G );
+		first.add( new SNote( SNote.C, 4, SNote.QUARTER ) );
+		first.add( new Rest( SNote.QUARTER ) );
+		first.add( new Chord( new SNote[]{ new SNote( SNote.E, 3, SNote.HALF ), new SNote( SNote.G, 3, SNote.QUARTER ) } ) );
+		part.add( first );
+		part.add( new Measure( 8, 0, 4, 4, Clef.CLEF_G ) );//leerer Takt
+		
+		PartBuffer buffer = PartBuffer.fromPart( part );
+		assertEquals( 2, buffer.getMeasureCount() );
+		assertEquals( 4, buffer.size() );
+		assertEquals( SNote.WHOLE, buffer.getLength() );
+		assertEquals( 2 * SNote.QUARTER, SongBuffer.getTick( buffer.getEvent( 3 ) ) );
+		assertEquals( buffer.getMeasureStart( 1 ), buffer.getMeasureEnd( 1 ) );
+		
+		assertEquals( part.toString(), buffer.toPart().toString() );
+	}
+
+	/**
+	 * Akkorde mit nur einem Ton und negative Oktaven bleiben bei der Umwandlung erhalten, leere Akkorde gehen verloren
+	 */
+	@Test
+	public void testConversionLimits() {
+		Part part = new Part( new Piano() );
+		Measure measure = new Measure( 8, 0, 4, 4, Clef.CLEF_F );
+		measure.add( new Chord( new SNote[]{ new SNote( SNote.A, 2, SNote.HALF ) } ) );
+		SNote low = new SNote( SNote.C, 0, SNote.QUARTER );
+		low.addStep( -15 );
+		measure.add( low );
+		measure.add( new Chord( new SNote[ 0 ] ) );
+		measure.add( new Chord( new SNote[]{ low.clone(), new SNote( SNote.E, 0, SNote.QUARTER ) } ) );
+		part.add( measure );
+
+		PartBuffer buffer = PartBuffer.fromPart( part );
+		assertEquals( 4, buffer.size() );
+		assertTrue( SongBuffer.isChordStart( buffer.getEvent( 0 ) ) );
+		assertFalse( SongBuffer.isChordStart( buffer.getEvent( 1 ) ) );
+		assertEquals( -2, SongBuffer.getOctave( buffer.getEvent( 1 ) ) );
+
+		Measure converted = buffer.toPart().get( 0 );
+		assertEquals( 3, converted.size() );
+		assertTrue( converted.get( 0 ) instanceof Chord );
+		assertEquals( 1, ( (Chord) converted.get( 0 ) ).size() );
+		assertEquals( low.toString(), converted.get( 1 ).toString() );
+		assertEquals( measure.get( 3 ).toString(), converted.get( 2 ).toString() );
+	}
+}
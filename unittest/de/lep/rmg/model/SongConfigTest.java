@@ -0,0 +1,148 @@
+package de.lep.rmg.model;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.helper.PercentPair;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.instruments.Piano;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.model.notes.helper.ChordHelper;
+
+/**
+ * Unit-Test für {@link SongConfig}
+ *
+ */
+public class SongConfigTest {
+
+	/**
+	 * Gleiche Einstellungen ergeben gleiche SongConfigs, auch über den {@link SongConfig.Builder}
+	 */
+	@Test
+	public void testBuilder() {
+		SongConfig config = new SongConfig( 4, 2, 3, 2, new SChord( SNote.D, CType.MINOR ), null, 42 );
+		SongConfig built = new SongConfig.Builder().setChordNr( 4 ).setRepeats( 2 ).setMelodyNr( 3 ).setChordDuration( 2 )
+				.setKey( new SChord( SNote.D, CType.MINOR ) ).setSeed( 42 ).build();
+		assertEquals( config, built );
+		assertEquals( config.hashCode(), built.hashCode() );
+		assertEquals( config, config.toBuilder().build() );
+		assertNotEquals( config, config.toBuilder().setSeed( 43 ).build() );
+
+		SongConfig titled = config.withTitle( "Titel" );
+		assertEquals( "Titel", titled.getTitle() );
+		assertEquals( "Untitled Song", config.getTitle() );
+		assertNotEquals( config, titled );
+	}
+
+	/**
+	 * Test für die abgeleiteten Werte
+	 */
+	@Test
+	public void testDerivedValues() {
+		SongConfig config = new SongConfig.Builder().setChordNr( 3 ).setChordDuration( 3 ).setSeed( 1 ).build();
+		assertEquals( 3, config.getBeats() );
+		assertEquals( 3 * SongConfig.measureDivision, config.getMeasureLength() );
+		assertTrue( config.hasFullMeasures() );
+		assertFalse( new SongConfig.Builder().setChordNr( 3 ).setChordDuration( 1 ).setSeed( 1 ).build().hasFullMeasures() );
+
+		config = new SongConfig.Builder().setSeed( 1 ).setIntervals( Arrays.asList( new PercentPair( 0, 0.25f ), new PercentPair( 2, 0.75f ) ) ).build();
+		assertSame( config.getIntervals().get( 1 ), config.getInterval( -2 ) );
+		assertEquals( 0.75f, config.getIntervalPercent( 2 ), 0 );
+		assertEquals( 0f, config.getIntervalPercent( 1 ), 0 );
+		assertEquals( 0f, config.getInterval( 9 ).getPercent(), 0 );
+		//Gesetzte Intervalle verändern nicht die aus dem Startwert gezogenen Notenlängen
+		assertEquals( new SongConfig( 1 ).getNoteDurations().get( 0 ).getPercent(), config.getNoteDurations().get( 0 ).getPercent(), 0 );
+	}
+
+	/**
+	 * Test für {@link SongConfig.Builder#readArgs(Properties)}
+	 */
+	@Test
+	public void testReadArgs() {
+		Properties args = new Properties();
+		args.setProperty( "seed", "42" );
+		args.setProperty( "chordNr", "8" );
+		args.setProperty( "key", "F+M" );
+		args.setProperty( "instruments", "piano, Cello" );
+		args.setProperty( "title", "Titel" );
+		SongConfig config = new SongConfig.Builder().setRepeats( 3 ).readArgs( args ).build();
+		assertEquals( 42, config.getSeed() );
+		assertEquals( 8, config.getChordNr() );
+		assertEquals( 3, config.getRepeats() );
+		assertEquals( new SChord( SNote.FIS, CType.MINOR ), config.getKey() );
+		assertEquals( "Cello", config.getInstruments()[ 1 ].getClass().getSimpleName() );
+		assertEquals( "Titel", config.getTitle() );
+		//gleiche Einstellungen, gleicher Song
+		assertEquals( new SongConfig( 8, 3, 2, 1, new SChord( SNote.FIS, CType.MINOR ), config.getInstruments(), 42 ).withTitle( "Titel" ), config );
+
+		args.setProperty( "key", "HD" );
+		assertEquals( new SChord( SNote.B, CType.MAJOR ), new SongConfig.Builder().readArgs( args ).build().getKey() );
+	}
+
+	/**
+	 * Ungültige Werte werden mit einer IllegalArgumentException abgelehnt
+	 */
+	@Test( expected = IllegalArgumentException.class )
+	public void testReadInvalidArgs() {
+		Properties args = new Properties();
+		args.setProperty( "key", "X-D" );
+		new SongConfig.Builder().readArgs( args );
+	}
+
+	/**
+	 * Die Listen eines SongConfigs können nicht verändert werden
+	 */
+	@Test( expected = UnsupportedOperationException.class )
+	public void testImmutable() {
+		new SongConfig( 1 ).getIntervals().add( new PercentPair( 5, 1f ) );
+	}
+
+	/**
+	 * Grundton und Instrumente werden als Kopie zurückgegeben, Änderungen daran verändern das SongConfig nicht
+	 */
+	@Test
+	public void testCopies() {
+		SongConfig config = new SongConfig( 4, 2, 3, 2, new SChord( SNote.D, CType.MINOR ), null, 42 );
+		int hash = config.hashCode();
+		config.getKey().setKeynote( SNote.E );
+		config.getKey().setType( CType.MAJOR );
+		config.getInstruments()[ 0 ] = null;
+
+		assertEquals( new SChord( SNote.D, CType.MINOR ), config.getKey() );
+		assertEquals( ChordHelper.getCircleOfFifthPos( new SChord( SNote.D, CType.MINOR ) ), config.getFifth() );
+		assertEquals( hash, config.hashCode() );
+		assertEquals( new SongConfig( 4, 2, 3, 2, new SChord( SNote.D, CType.MINOR ), null, 42 ), config );
+		assertTrue( config.getInstruments()[ 0 ] != null );
+	}
+
+	/**
+	 * Die Lautstärke der Instrumente wird beim Erstellen festgehalten, spätere Änderungen verändern weder equals noch hashCode
+	 */
+	@Test
+	public void testInstrumentVolume() {
+		Instrument piano = new Piano();
+		piano.setVolume( 60 );
+		SongConfig.Builder builder = new SongConfig.Builder().setSeed( 42 ).setInstruments( new Instrument[]{ piano } );
+		SongConfig config = builder.build();
+		int hash = config.hashCode();
+		piano.setVolume( 100 );
+		config.getInstruments()[ 0 ].setVolume( 100 );
+
+		assertEquals( 60, config.getInstruments()[ 0 ].getVolume(), 0 );
+		assertEquals( hash, config.hashCode() );
+		assertNotEquals( config, builder.build() );
+		piano.setVolume( 60 );
+		assertEquals( config, builder.build() );
+		assertEquals( Piano.class, config.getInstruments()[ 0 ].getClass() );
+	}
+}
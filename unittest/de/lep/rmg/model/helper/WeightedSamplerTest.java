@@ -0,0 +1,109 @@
+package de.lep.rmg.model.helper;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Unit-Test für {@link WeightedSampler}
+ *
+ */
+public class WeightedSamplerTest {
+
+	private static final int DRAWS = 200000;
+
+	/**
+	 * Test für {@link WeightedSampler#sample(Random)}
+	 */
+	@Test
+	public void testSample() {
+		WeightedSampler sampler = new WeightedSampler( new int[]{ 4, 8, 12, 16 }, new float[]{ 0.1f, 0.4f, 0.2f, 0.3f } );
+		double[] frequencies = count( sampler, 16 );
+		assertEquals( 0.1, frequencies[ 4 ], 0.01 );
+		assertEquals( 0.4, frequencies[ 8 ], 0.01 );
+		assertEquals( 0.2, frequencies[ 12 ], 0.01 );
+		assertEquals( 0.3, frequencies[ 16 ], 0.01 );
+
+		//Wahrscheinlichkeiten werden auf ihre Summe bezogen, bei Summe 0 ist jeder Wert gleich wahrscheinlich
+		frequencies = count( new WeightedSampler( new int[]{ 0, 1 }, new float[]{ 3, 1 } ), 1 );
+		assertEquals( 0.75, frequencies[ 0 ], 0.01 );
+		frequencies = count( new WeightedSampler( new int[]{ 0, 1 }, new float[]{ 0, 0 } ), 1 );
+		assertEquals( 0.5, frequencies[ 0 ], 0.01 );
+	}
+
+	/**
+	 * Test für {@link WeightedSampler#restrict(long)} und {@link WeightedSampler#atMost(int)}
+	 */
+	@Test
+	public void testRestrict() {
+		WeightedSampler sampler = new WeightedSampler( new int[]{ 4, 8, 12, 16 }, new float[]{ 0.1f, 0.4f, 0.2f, 0.3f } );
+		double[] frequencies = count( sampler.restrict( 0b1010 ), 16 );
+		assertEquals( 0, frequencies[ 4 ], 0 );
+		assertEquals( 0.4 / 0.7, frequencies[ 8 ], 0.01 );
+		assertEquals( 0, frequencies[ 12 ], 0 );
+		assertEquals( 0.3 / 0.7, frequencies[ 16 ], 0.01 );
+
+		assertSame( sampler.restrict( 0b0011 ), sampler.atMost( 10 ) );
+		assertEquals( 3, sampler.atMost( 12 ).size() );
+	}
+
+	/**
+	 * Passt bei {@link WeightedSampler#atMost(int)} kein Wert, wird der kleinste gezogen, eine leere Bitmaske ergibt einen leeren Sampler
+	 */
+	@Test
+	public void testNothingFits() {
+		WeightedSampler sampler = new WeightedSampler( new int[]{ 8, 4, 16 }, new float[]{ 0.5f, 0.1f, 0.4f } );
+		WeightedSampler fallback = sampler.atMost( 2 );
+		assertEquals( 1, fallback.size() );
+		Random rand = new Random( 3 );
+		for( int i = 0; i < 100; i++ )
+			assertEquals( 4, fallback.sample( rand ) );
+		assertEquals( 0, new WeightedSampler( new int[ 0 ], new float[ 0 ] ).atMost( 2 ).size() );
+
+		try {
+			sampler.restrict( 0 ).sample( rand );
+			fail( "Sampled from an empty sampler" );
+		} catch( IllegalStateException e ) {
+			//erwartet
+		}
+	}
+
+	/**
+	 * Bitmasken mit mehr als 31 Werten laufen nicht über, mehr als {@link WeightedSampler#MAX_SIZE} Werte werden abgelehnt
+	 */
+	@Test
+	public void testManyValues() {
+		int[] values = new int[ 40 ];
+		float[] percents = new float[ values.length ];
+		for( int i = 0; i < values.length; i++ ) {
+			values[ i ] = i;
+			percents[ i ] = 1;
+		}
+		WeightedSampler sampler = new WeightedSampler( values, percents );
+		double[] frequencies = count( sampler.restrict( ( 1L << 33 ) | ( 1L << 39 ) ), 39 );
+		assertEquals( 0.5, frequencies[ 33 ], 0.01 );
+		assertEquals( 0.5, frequencies[ 39 ], 0.01 );
+		assertEquals( 0, frequencies[ 1 ], 0 );
+		assertEquals( 36, sampler.atMost( 35 ).size() );
+		assertEquals( 40, sampler.restrict( -1L ).size() );
+
+		try {
+			new WeightedSampler( new int[ WeightedSampler.MAX_SIZE + 1 ], new float[ WeightedSampler.MAX_SIZE + 1 ] );
+			fail( "More values than bits in the mask were accepted" );
+		} catch( IllegalArgumentException e ) {
+			//erwartet
+		}
+	}
+
+	private static double[] count( WeightedSampler sampler, int maxValue ) {
+		Random rand = new SeededRandom( 42 );
+		double[] frequencies = new double[ maxValue + 1 ];
+		for( int i = 0; i < DRAWS; i++ )
+			frequencies[ sampler.sample( rand ) ] += 1.0 / DRAWS;
+		return frequencies;
+	}
+}
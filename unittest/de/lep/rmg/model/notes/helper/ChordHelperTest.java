@@ -73,4 +73,20 @@ public class ChordHelperTest {
 		assertEquals( new SChord( SNote.C, CType.MINOR ), ChordHelper.createSChord( new int[]{ SNote.C, SNote.DIS, SNote.G } ) );
 		assertEquals( new SChord( SNote.D, CType.MAJOR ), ChordHelper.createSChord( new int[]{ SNote.D, SNote.FIS, SNote.A } ) );
 	}
+	
+	/**
+	 * Test für {@link ChordHelper#getScale(SChord)} und {@link ChordHelper#getScaleTone(SChord, int)}.<br>
+	 * Die Tonleiter kommt aus einer Tabelle, Änderungen am zurückgegebenen Array dürfen sie nicht verändern.
+	 */
+	@Test
+	public void testGetScale() {
+		SChord key = new SChord( SNote.A, CType.MINOR );
+		assertArrayEquals( new int[]{ 9, 11, 12, 14, 16, 17, 19 }, ChordHelper.getScale( key ) );
+		ChordHelper.getScale( key )[ 0 ] = 0;
+		assertArrayEquals( new int[]{ 9, 11, 12, 14, 16, 17, 19 }, ChordHelper.getScale( key ) );
+		for( int step = 0; step < 7; step++ )
+			assertEquals( ChordHelper.getScale( key )[ step ], ChordHelper.getScaleTone( key, step ) );
+		//Grundtöne außerhalb einer Oktave werden weiterhin berechnet
+		assertArrayEquals( new int[]{ 12, 14, 16, 17, 19, 21, 23 }, ChordHelper.getScale( new SChord( 12, CType.MAJOR ) ) );
+	}
 }
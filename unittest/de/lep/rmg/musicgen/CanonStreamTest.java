@@ -0,0 +1,125 @@
+package de.lep.rmg.musicgen;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Part;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Unit-Test für {@link CanonStream}
+ *
+ */
+public class CanonStreamTest {
+
+	/**
+	 * Der Stream muss mit dem gleichen Startwert die gleichen Takte liefern wie {@link CanonGenerator#generateSong(SongConfig)}
+	 */
+	@Test
+	public void testSameAsSong() {
+		CanonGenerator generator = new CanonGenerator( null, new MelodyGenerator() );
+		SongConfig config = new SongConfig( 42 );
+		Song song = generator.generateSong( config );
+		CanonStream stream = generator.streamSong( config, false );
+		
+		assertEquals( song.size(), stream.getPartCount() );
+		for( int p = 0; p < song.size(); p++ ) {
+			Part part = song.get( p );
+			assertTrue( part.getInstrument().sameSettings( stream.getInstruments()[ p ] ) );
+			Iterator<Measure> measures = stream.measures( p );
+			for( Measure measure : part ) {
+				assertTrue( measures.hasNext() );
+				assertEquals( measure.toString(), measures.next().toString() );
+			}
+			assertFalse( measures.hasNext() );
+		}
+	}
+	
+	/**
+	 * Ein unendlicher Kanon beginnt mit dem versetzten Einstieg und hört dann nicht mehr auf
+	 */
+	@Test
+	public void testEndless() {
+		SongConfig config = new SongConfig( 7 );
+		CanonStream stream = new CanonGenerator( null, new MelodyGenerator() ).streamSong( config, true );
+		int width = config.getChordDuration() * config.getChordNr() / config.getBeats();
+		
+		Iterator<Measure> measures = stream.measures( 1 );
+		for( int m = 0; m < width; m++ )
+			assertTrue( measures.next().get( 0 ) instanceof Rest );
+		int length = width * ( config.getRepeats() + 1 ) * config.getMelodyNr();
+		for( int m = 0; m < 10 * length; m++ )
+			assertTrue( measures.hasNext() && measures.next() != null );
+	}
+	
+	/**
+	 * Wiederholungen und versetzte Einstiege verweisen auf dieselben Takte, statt neue zu erzeugen
+	 */
+	@Test
+	public void testSharedMeasures() {
+		SongConfig config = new SongConfig.Builder().setSeed( 3 ).setRepeats( 2 ).setMelodyNr( 3 ).build();
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( config );
+		int width = config.getChordDuration() * config.getChordNr() / config.getBeats();
+		int length = width * config.getMelodyNr();//Takte aller Melodien einer Wiederholung
+		
+		Part first = song.get( 0 ), second = song.get( 1 );
+		assertSame( first.get( 0 ), first.get( length ) );
+		assertSame( first.get( 0 ), second.get( width ) );
+		assertSame( second.get( 0 ), song.get( 2 ).get( 0 ) );//gemeinsamer Pausentakt
+		
+		//geteilte Takte sind eingefroren
+		for( Part part : song )
+			for( Measure measure : part )
+				assertTrue( measure.isFrozen() );
+		try {
+			first.get( 0 ).add( new Rest( SNote.QUARTER ) );
+			fail( "A shared Measure could be modified" );
+		} catch( UnsupportedOperationException e ) {
+			assertEquals( second.get( width ).toString(), first.get( 0 ).toString() );
+		}
+	}
+	
+	/**
+	 * Der Fortschritt wird Schritt für Schritt bis zum letzten Schritt gemeldet
+	 */
+	@Test
+	public void testProgress() {
+		SongConfig config = new SongConfig( 11 );
+		List<Integer> steps = new ArrayList<Integer>();
+		new CanonGenerator( null, new MelodyGenerator() ).generateSong( config, ( step, total ) -> {
+			assertEquals( CanonStream.STEPS + config.getMelodyNr(), total );
+			steps.add( step );
+		} );
+		assertEquals( CanonStream.STEPS + config.getMelodyNr(), steps.size() );
+		for( int s = 0; s < steps.size(); s++ )
+			assertEquals( s + 1, (int) steps.get( s ) );
+	}
+	
+	/**
+	 * Eine Generierung in einem unterbrochenen Thread bricht ab und setzt die Unterbrechung zurück
+	 */
+	@Test
+	public void testInterrupted() {
+		Thread.currentThread().interrupt();
+		try {
+			new CanonGenerator( null, new MelodyGenerator() ).generateSong( new SongConfig( 11 ) );
+			fail( "Generation ignored the interrupt" );
+		} catch( CancellationException e ) {
+			assertFalse( Thread.currentThread().isInterrupted() );
+		}
+	}
+}
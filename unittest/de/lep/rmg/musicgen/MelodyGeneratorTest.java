@@ -0,0 +1,88 @@
+package de.lep.rmg.musicgen;
+
+import static org.junit.Assert.assertArrayEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+
+/**
+ * Unit-Test für {@link MelodyGenerator}<br>
+ * Hält die Melodien für einige Startwerte und Grundakkorde fest, damit Optimierungen der Generierung
+ * nicht unbemerkt andere Melodien erzeugen. Jede Zeile ist eine Melodie, die Akkordmelodien sind durch " | " getrennt,
+ * jede Note steht als Tonhöhe/Dauer (Tonhöhe = Ton + Oktave * 12).
+ */
+public class MelodyGeneratorTest {
+
+	/**
+	 * C-Dur mit Startwert 1
+	 */
+	@Test
+	public void testCMajor() {
+		assertArrayEquals( new String[]{
+				"52/16 | 48/16 | 48/16 | 50/16 | 52/4 57/4 50/8 | 48/4 57/4 52/8",
+				"59/4 50/4 52/8 | 52/4 53/4 48/8 | 57/4 52/4 50/8 | 59/4 48/4 50/8 | 48/16 | 57/16",
+				"59/4 52/4 50/8 | 52/16 | 57/16 | 59/16 | 48/4 50/4 48/8 | 57/4 48/4 55/8"
+		}, generate( 1, new SChord( SNote.C, CType.MAJOR ) ) );
+	}
+
+	/**
+	 * a-Moll mit Startwert 42
+	 */
+	@Test
+	public void testAMinor() {
+		assertArrayEquals( new String[]{
+				"52/16 | 50/12 50/4 | 52/12 53/4 | 50/12 48/4 | 48/12 55/4 | 50/16",
+				"59/16 | 59/12 48/4 | 59/16 | 59/16 | 57/12 57/4 | 59/12 48/4",
+				"59/16 | 59/16 | 59/16 | 59/16 | 57/16 | 59/16"
+		}, generate( 42, new SChord( SNote.A, CType.MINOR ) ) );
+	}
+
+	/**
+	 * Fis-Dur mit Startwert 2024
+	 */
+	@Test
+	public void testFisMajor() {
+		assertArrayEquals( new String[]{
+				"49/4 58/4 58/8 | 51/4 58/8 49/4 | 51/4 58/8 53/4 | 49/4 51/4 53/8 | 49/4 49/8 58/4 | 56/4 49/4 56/8",
+				"56/4 58/4 51/8 | 59/4 54/8 49/4 | 59/4 53/4 58/8 | 58/4 56/4 59/8 | 56/4 59/4 53/8 | 49/4 56/4 56/8",
+				"56/4 51/8 58/4 | 59/4 49/8 58/4 | 59/4 53/4 49/8 | 58/4 53/4 49/8 | 56/4 56/8 58/4 | 56/4 51/8 58/4"
+		}, generate( 2024, new SChord( SNote.FIS, CType.MAJOR ) ) );
+	}
+
+	/**
+	 * Generiert die Melodien wie {@link CanonStream} mit 6 Akkorden der Dauer 2 und 3 Melodien
+	 * @return Eine Zeile pro Melodie
+	 */
+	private static String[] generate( long seed, SChord key ) {
+		SongConfig config = new SongConfig.Builder().setSeed( seed ).setKey( key )
+				.setChordNr( 6 ).setChordDuration( 2 ).setMelodyNr( 3 ).build();
+		Random rand = config.createRandom();
+		SChord[] chords = ChordGenerator.generateChords( key, config.getChordNr(), rand );
+		ArrayList<Integer>[][] rhythm = RhythmGenerator.generateRhythm( config, rand );
+		ArrayList<SNote>[][] melodies = new MelodyGenerator().generateMelodies( key, chords, rhythm, config, rand );
+
+		String[] lines = new String[ melodies.length ];
+		for( int m = 0; m < melodies.length; m++ ) {
+			StringBuilder line = new StringBuilder();
+			for( ArrayList<SNote> chordMelody : melodies[ m ] ) {
+				if( line.length() > 0 )
+					line.append( " | " );
+				for( int n = 0; n < chordMelody.size(); n++ ) {
+					SNote note = chordMelody.get( n );
+					if( n > 0 )
+						line.append( ' ' );
+					line.append( note.getTone() + note.getOctave() * 12 ).append( '/' ).append( note.getDuration() );
+				}
+			}
+			lines[ m ] = line.toString();
+		}
+		return lines;
+	}
+}
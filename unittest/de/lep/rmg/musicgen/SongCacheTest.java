@@ -0,0 +1,171 @@
+package de.lep.rmg.musicgen;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.view.panels.ControllPanel;
+
+/**
+ * Unit-Test für {@link SongCache}
+ *
+ */
+public class SongCacheTest {
+
+	/**
+	 * Gleiche Einstellungen und gleicher Seed ergeben auch bei verschiedenen SongConfig-Objekten einen Treffer
+	 */
+	@Test
+	public void testHitsAndMisses() {
+		CountingGenerator generator = new CountingGenerator();
+		SongCache cache = new SongCache( generator, 2 );
+
+		Song first = cache.generateSong( new SongConfig( 1 ) );
+		Song second = cache.generateSong( new SongConfig( 1 ) );
+		assertEquals( 1, generator.count );
+		assertEquals( 1, cache.getHits() );
+		assertEquals( 1, cache.getMisses() );
+		assertNotSame( first, second );
+		assertEquals( first.toString(), second.toString() );
+		assertEquals( generator.generator.generateSong( new SongConfig( 1 ) ).toString(), first.toString() );
+
+		assertNotEquals( cache.getKey( new SongConfig( 1 ) ), cache.getKey( new SongConfig( 2 ) ) );
+	}
+
+	/**
+	 * Der am längsten nicht verwendete Song wird verworfen
+	 */
+	@Test
+	public void testEviction() {
+		CountingGenerator generator = new CountingGenerator();
+		SongCache cache = new SongCache( generator, 2 );
+
+		cache.generateSong( new SongConfig( 1 ) );
+		cache.generateSong( new SongConfig( 2 ) );
+		cache.generateSong( new SongConfig( 1 ) );//2 ist jetzt der älteste Eintrag
+		cache.generateSong( new SongConfig( 3 ) );
+		assertEquals( 2, cache.size() );
+		assertEquals( 3, generator.count );
+
+		cache.generateSong( new SongConfig( 1 ) );
+		assertEquals( 3, generator.count );
+		cache.generateSong( new SongConfig( 2 ) );
+		assertEquals( 4, generator.count );
+	}
+
+	/**
+	 * Gleichzeitige Anfragen nach dem gleichen Song warten auf eine einzige Generierung
+	 */
+	@Test
+	public void testConcurrent() throws Exception {
+		CountDownLatch started = new CountDownLatch( 1 );
+		CountDownLatch release = new CountDownLatch( 1 );
+		CountingGenerator generator = new CountingGenerator() {
+			@Override
+			public Song generateSong( SongConfig config ) {
+				started.countDown();
+				try {
+					release.await();
+				} catch( InterruptedException e ) {
+					throw new IllegalStateException( e );
+				}
+				return super.generateSong( config );
+			}
+		};
+		SongCache cache = new SongCache( generator, 2 );
+		ExecutorService pool = Executors.newFixedThreadPool( 3 );
+		try {
+			Future<Song> first = pool.submit( () -> cache.generateSong( new SongConfig( 1 ) ) );
+			assertTrue( started.await( 10, TimeUnit.SECONDS ) );
+			Future<Song> second = pool.submit( () -> cache.generateSong( new SongConfig( 1 ) ) );
+			Future<Song> third = pool.submit( () -> cache.generateSong( new SongConfig( 1 ) ) );
+			Thread.sleep( 100 );
+			release.countDown();
+
+			String song = first.get( 10, TimeUnit.SECONDS ).toString();
+			assertEquals( song, second.get( 10, TimeUnit.SECONDS ).toString() );
+			assertEquals( song, third.get( 10, TimeUnit.SECONDS ).toString() );
+			assertEquals( 1, generator.count );
+			assertEquals( 2, cache.getHits() );
+			assertEquals( 1, cache.getMisses() );
+		} finally {
+			pool.shutdownNow();
+		}
+	}
+
+	/**
+	 * Dateien werden auf der Festplatte gespeichert und nach {@link SongCache#clear()} von dort gelesen
+	 */
+	@Test
+	public void testDirectory() throws Exception {
+		File directory = Files.createTempDirectory( "songcache" ).toFile();
+		try {
+			CountingGenerator generator = new CountingGenerator();
+			SongCache cache = new SongCache( generator, 2, directory );
+
+			byte[] midi = cache.getMidi( new SongConfig( 1 ), false );
+			byte[] xml = cache.getMusicXML( new SongConfig( 1 ) );
+			assertEquals( 1, generator.count );
+			assertEquals( 2, directory.list().length );
+
+			cache = new SongCache( generator, 2, directory );
+			assertArrayEquals( midi, cache.getMidi( new SongConfig( 1 ), false ) );
+			assertArrayEquals( xml, cache.getMusicXML( new SongConfig( 1 ) ) );
+			assertEquals( 1, generator.count );
+			assertEquals( 2, cache.getHits() );
+		} finally {
+			delete( directory );
+		}
+	}
+
+	private static void delete( File directory ) throws IOException {
+		for( File file : directory.listFiles() )
+			Files.delete( file.toPath() );
+		Files.delete( directory.toPath() );
+	}
+
+	/**
+	 * Zählt die Generierungen eines {@link CanonGenerator}s
+	 */
+	private static class CountingGenerator implements IMusicGenerator {
+
+		final CanonGenerator generator = new CanonGenerator( null, new MelodyGenerator() );
+		int count;
+
+		@Override
+		public Song generateSong( SongConfig config ) {
+			count++;
+			return generator.generateSong( config );
+		}
+
+		@Override
+		public String getSongType() {
+			return generator.getSongType();
+		}
+
+		@Override
+		public String getGeneratorName() {
+			return generator.getGeneratorName();
+		}
+
+		@Override
+		public ControllPanel getGeneratorPanel() {
+			return null;
+		}
+	}
+}
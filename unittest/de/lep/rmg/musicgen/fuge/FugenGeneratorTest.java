@@ -21,6 +21,7 @@ public class FugenGeneratorTest {
 	public FugenGeneratorTest(){
 		fugen = new FugenGenerator(null, new FugenMelodyGenerator());
 		config = new SongConfig();
+		fugen.rand = config.createRandom();
 		fugen.fugenSubjects = fugen.generateSubjects(config);
 		pitchorder = new ArrayList<Part>();
 		playorder = new ArrayList<Part>();
@@ -93,6 +94,21 @@ public class FugenGeneratorTest {
 		sameSize("zweiter Durchlauf, 4 Parts");
 	}
 	
+	/**
+	 * Parallele und sequentielle Generierung der freien Stimmen ergeben die gleiche Fuge
+	 */
+	@Test
+	public void testParallel(){
+		SongConfig sixVoices = new SongConfig.Builder().setSeed(3).setChordDuration(4).setRepeats(3)
+				.setInstruments(new Instrument[]{new Piano(), new Piano(), new Flute(), new Flute(), new Cello(), new Cello()}).build();
+		FugenGenerator sequential = new FugenGenerator(null, new FugenMelodyGenerator());
+		sequential.setParallel(false);
+		String expected = sequential.generateSong(sixVoices).toString();
+		for(int i = 0; i < 5; i++){
+			assertEquals(expected, new FugenGenerator(null, new FugenMelodyGenerator()).generateSong(sixVoices).toString());
+		}
+	}
+	
 	private void sameSize(String message){
 		for(int partnr = 0; partnr < parts.length - 1; partnr++){
 			System.out.println(parts[partnr].size() + " " + parts[partnr + 1].size());
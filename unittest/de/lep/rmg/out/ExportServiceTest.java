@@ -0,0 +1,84 @@
+package de.lep.rmg.out;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.out.ExportService.Format;
+import de.lep.rmg.out.binary.RmgsFile;
+import de.lep.rmg.out.midi.MidiFileWriter;
+import de.lep.rmg.out.xml.XMLGenerator;
+
+/**
+ * Unit-Test für {@link ExportService}
+ *
+ */
+public class ExportServiceTest {
+
+	/**
+	 * Die parallel geschriebenen Dateien sind identisch mit einzeln geschriebenen, spätere Änderungen am Song wirken sich nicht aus
+	 */
+	@Test
+	public void testExport() throws Exception {
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( new SongConfig.Builder().setSeed( 9 ).build() );
+		File dir = Files.createTempDirectory( "export" ).toFile();
+		try( ExportService service = new ExportService() ) {
+			Map<Format, File> targets = ExportService.getTargets( new File( dir, "kanon.xml" ),
+					EnumSet.of( Format.MIDI0, Format.MIDI1, Format.XML, Format.RMGS ) );
+			assertEquals( new File( dir, "kanon-typ0.midi" ), targets.get( Format.MIDI0 ) );
+			assertEquals( new File( dir, "kanon.midi" ), targets.get( Format.MIDI1 ) );
+
+			File expected = new File( dir, "expected" );
+			new XMLGenerator().save( expected, song );
+			byte[] xml = Files.readAllBytes( expected.toPath() );
+			new MidiFileWriter().write( song, true, expected );
+			byte[] midi0 = Files.readAllBytes( expected.toPath() );
+			new MidiFileWriter().write( song, false, expected );
+			byte[] midi1 = Files.readAllBytes( expected.toPath() );
+			new RmgsFile().write( song, expected );
+			byte[] rmgs = Files.readAllBytes( expected.toPath() );
+
+			Map<Format, File> files = service.export( song, targets ).join();
+			song.clear();
+
+			assertEquals( targets, files );
+			assertArrayEquals( xml, Files.readAllBytes( files.get( Format.XML ).toPath() ) );
+			assertArrayEquals( midi0, Files.readAllBytes( files.get( Format.MIDI0 ).toPath() ) );
+			assertArrayEquals( midi1, Files.readAllBytes( files.get( Format.MIDI1 ).toPath() ) );
+			assertArrayEquals( rmgs, Files.readAllBytes( files.get( Format.RMGS ).toPath() ) );
+		} finally {
+			for( File file : dir.listFiles() )
+				file.delete();
+			dir.delete();
+		}
+	}
+
+	/**
+	 * Ein fehlgeschlagenes Format lässt das Future mit der IOException als Ursache fehlschlagen
+	 */
+	@Test
+	public void testFailure() {
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( new SongConfig.Builder().setSeed( 9 ).build() );
+		try( ExportService service = new ExportService() ) {
+			File missing = new File( new File( "does-not-exist" ), "kanon" );
+			service.export( song, ExportService.getTargets( missing, EnumSet.of( Format.MIDI1 ) ) ).join();
+			fail( "Export into a missing directory succeeded" );
+		} catch( CompletionException e ) {
+			assertTrue( e.getCause() instanceof IOException );
+		}
+	}
+}
@@ -0,0 +1,70 @@
+package de.lep.rmg.out.binary;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+
+/**
+ * Unit-Test für {@link RmgsFile}
+ *
+ */
+public class RmgsFileTest {
+
+	/**
+	 * Eine gespeicherte Datei enthält wieder die gleiche {@link SongConfig} und die gleichen Takte
+	 */
+	@Test
+	public void testRoundTrip() throws IOException {
+		SongConfig config = new SongConfig.Builder().setSeed( 17 ).setTitle( "Kanon Nr. 17 – Ä" ).setRestProbability( 0.1f ).build();
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( config );
+		File file = File.createTempFile( "song", RmgsFile.EXTENSION );
+		try {
+			new RmgsFile().write( song, file );
+			Song loaded = new RmgsFile().readSong( file );
+
+			assertEquals( config, loaded.getConfig() );
+			assertEquals( song.size(), loaded.size() );
+			for( int p = 0; p < song.size(); p++ ) {
+				assertEquals( song.get( p ).getInstrument().getClass(), loaded.get( p ).getInstrument().getClass() );
+				assertEquals( song.get( p ).toString(), loaded.get( p ).toString() );
+			}
+		} finally {
+			file.delete();
+		}
+	}
+
+	/**
+	 * Abgeschnittene Dateien und unbekannte Versionen werden mit einer IOException abgelehnt
+	 */
+	@Test
+	public void testInvalid() {
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( new SongConfig( 3 ) );
+		ByteBuffer buffer = new RmgsFile().encode( SongBuffer.fromSong( song ) );
+		byte[] bytes = new byte[ buffer.remaining() ];
+		buffer.get( bytes );
+
+		assertRejected( ByteBuffer.wrap( bytes, 0, bytes.length - 5 ) );
+		bytes[ 5 ] = 99;//Version
+		assertRejected( ByteBuffer.wrap( bytes ) );
+	}
+
+	private static void assertRejected( ByteBuffer buffer ) {
+		try {
+			new RmgsFile().decode( buffer );
+			fail( "IOException expected" );
+		} catch( IOException e ) {
+			//erwartet
+		}
+	}
+}
@@ -0,0 +1,89 @@
+package de.lep.rmg.out.midi;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import javax.sound.midi.InvalidMidiDataException;
+import javax.sound.midi.MidiSystem;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongBuffer;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+
+/**
+ * Unit-Test für {@link MidiDecoder}
+ *
+ */
+public class MidiDecoderTest {
+
+	/**
+	 * Ein Kanon ergibt nach dem Einlesen die gleichen Takte, auch die Pausen am Anfang und am Ende
+	 */
+	@Test
+	public void testCanon() throws Exception {
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( new SongConfig( 9 ) );
+		for( boolean miditype0 : new boolean[]{ false, true } ) {
+			Song decoded = decode( song, miditype0 ).toSong();
+			assertEquals( song.size(), decoded.size() );
+			for( int p = 0; p < song.size(); p++ ) {
+				assertEquals( song.get( p ).getInstrument().getName(), decoded.get( p ).getInstrument().getName() );
+				assertEquals( song.get( p ).toString(), decoded.get( p ).toString() );
+			}
+		}
+	}
+
+	/**
+	 * Eine eingelesene Fuge ergibt wieder die gleiche MIDI-Datei
+	 */
+	@Test
+	public void testFuge() throws Exception {
+		SongConfig config = new SongConfig.Builder().setSeed( 4 ).setChordDuration( 4 ).build();
+		Song song = new FugenGenerator( null, new FugenMelodyGenerator() ).generateSong( config );
+		for( boolean miditype0 : new boolean[]{ false, true } )
+			assertArrayEquals( bytes( SongBuffer.fromSong( song ), miditype0 ), bytes( decode( song, miditype0 ), miditype0 ) );
+	}
+
+	/**
+	 * Die Taktart wird beim Export geschrieben, ein Kanon im 3/4-Takt wird wieder im 3/4-Takt eingelesen.
+	 * Der {@link SequenceGenerator} schreibt die gleiche Datei wie der {@link MidiFileWriter}.
+	 */
+	@Test
+	public void testThreeBeats() throws Exception {
+		SongConfig config = new SongConfig.Builder().setSeed( 5 ).setChordNr( 4 ).setChordDuration( 3 ).build();
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( config );
+		for( boolean miditype0 : new boolean[]{ false, true } ) {
+			SongBuffer decoded = decode( song, miditype0 );
+			assertEquals( 3, decoded.getConfig().getBeats() );
+			Song decodedSong = decoded.toSong();
+			for( int p = 0; p < song.size(); p++ )
+				assertEquals( song.get( p ).toString(), decodedSong.get( p ).toString() );
+
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			MidiSystem.write( new SequenceGenerator().createSequence( SongBuffer.fromSong( song ), miditype0 ), miditype0 ? 0 : 1, out );
+			assertArrayEquals( bytes( SongBuffer.fromSong( song ), miditype0 ), out.toByteArray() );
+		}
+	}
+
+	private static SongBuffer decode( Song song, boolean miditype0 ) throws IOException, InvalidMidiDataException {
+		byte[] midi = bytes( SongBuffer.fromSong( song ), miditype0 );
+		return new MidiDecoder().decode( MidiSystem.getSequence( new ByteArrayInputStream( midi ) ) );
+	}
+
+	private static byte[] bytes( SongBuffer song, boolean miditype0 ) {
+		ByteBuffer buffer = new MidiFileWriter().encode( song, miditype0 );
+		byte[] bytes = new byte[ buffer.remaining() ];
+		buffer.get( bytes );
+		return bytes;
+	}
+}
@@ -0,0 +1,140 @@
+package de.lep.rmg.out.xml;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.Measure;
+import de.lep.rmg.model.Measure.Clef;
+import de.lep.rmg.model.Part;
+import de.lep.rmg.model.Song;
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.model.instruments.Cello;
+import de.lep.rmg.model.instruments.Instrument;
+import de.lep.rmg.model.notes.CType;
+import de.lep.rmg.model.notes.Chord;
+import de.lep.rmg.model.notes.Rest;
+import de.lep.rmg.model.notes.SChord;
+import de.lep.rmg.model.notes.SNote;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.MelodyGenerator;
+import de.lep.rmg.musicgen.fuge.FugenGenerator;
+import de.lep.rmg.musicgen.fuge.FugenMelodyGenerator;
+
+/**
+ * Unit-Test für {@link MusicXMLReader}
+ *
+ */
+public class MusicXMLReaderTest {
+
+	/**
+	 * Ein gespeicherter und wieder eingelesener Kanon ergibt die gleichen Takte und das gleiche Dokument
+	 */
+	@Test
+	public void testCanon() throws XMLException {
+		SongConfig config = new SongConfig.Builder().setSeed( 5 ).setTitle( "Kanon <5>" ).setComposer( "RMG & Co" ).build();
+		assertRoundTrip( new CanonGenerator( null, new MelodyGenerator() ).generateSong( config ) );
+	}
+
+	/**
+	 * Test mit einer Fuge (ganztaktige Akkorde)
+	 */
+	@Test
+	public void testFuge() throws XMLException {
+		SongConfig config = new SongConfig.Builder().setSeed( 11 ).setChordDuration( 4 ).build();
+		assertRoundTrip( new FugenGenerator( null, new FugenMelodyGenerator() ).generateSong( config ) );
+	}
+
+	/**
+	 * Noten mit &lt;chord/&gt; werden wieder zu {@link Chord}s zusammengefasst, Attribute wie der Notenschlüssel bleiben erhalten
+	 */
+	@Test
+	public void testChord() throws XMLException {
+		SongConfig config = new SongConfig.Builder().setSeed( 1 ).setMelodyNr( 1 )
+				.setInstruments( new Instrument[]{ new Cello() } ).setClef( Clef.CLEF_F ).build();
+		Measure measure = new Measure( config );
+		measure.add( new Chord( new SNote[]{ new SNote( SNote.C, 3, SNote.HALF ), new SNote( SNote.E, 3, SNote.HALF ),
+				new SNote( SNote.G, 3, SNote.HALF ) } ) );
+		measure.add( new Rest( SNote.QUARTER ) );
+		measure.add( new SNote( SNote.FIS, 2, SNote.QUARTER ) );
+		Part part = new Part( config.getInstruments()[ 0 ] );
+		part.add( measure );
+		Song song = new Song( config );
+		song.add( part );
+
+		assertRoundTrip( song );
+	}
+
+	/**
+	 * Die Tonart wird mit &lt;mode&gt; gelesen, ein Song in a-Moll wird nicht als C-Dur eingelesen
+	 */
+	@Test
+	public void testMinorKey() throws XMLException {
+		SongConfig config = new SongConfig.Builder().setSeed( 3 ).setKey( new SChord( SNote.A, CType.MINOR ) ).build();
+		Song song = new CanonGenerator( null, new MelodyGenerator() ).generateSong( config );
+		assertRoundTrip( song );
+		Song loaded = new XMLGenerator().load( new ByteArrayInputStream( save( new XMLGenerator(), song ) ) );
+		assertEquals( new SChord( SNote.A, CType.MINOR ), loaded.getConfig().getKey() );
+
+		loaded = new XMLGenerator().load( new ByteArrayInputStream( document( "<key><fifths>-1</fifths><mode>major</mode></key>" ) ) );
+		assertEquals( new SChord( SNote.F, CType.MAJOR ), loaded.getConfig().getKey() );
+	}
+
+	/**
+	 * Angaben, die bei einem Part fehlen, werden nicht vom vorherigen Part übernommen
+	 */
+	@Test
+	public void testMissingPartValues() throws XMLException {
+		Song loaded = new XMLGenerator().load( new ByteArrayInputStream( document( "" ) ) );
+		assertEquals( 2, loaded.size() );
+		Instrument first = loaded.get( 0 ).getInstrument(), second = loaded.get( 1 ).getInstrument();
+		assertEquals( "Cello", first.getName() );
+		assertEquals( 43, first.getMidiProgram() );
+		assertEquals( 50f, first.getVolume(), 0 );
+		assertEquals( "Stimme", second.getName() );
+		assertEquals( null, second.getShortName() );
+		assertEquals( 0, second.getMidiProgram() );
+		assertEquals( 80f, second.getVolume(), 0 );
+	}
+
+	/**
+	 * @return Ein Dokument mit zwei Parts aus je einem Pausentakt, der zweite ohne Kurzname, MIDI-Programm und Lautstärke
+	 */
+	private static byte[] document( String key ) {
+		String measure = "<measure number=\"1\"><attributes><divisions>8</divisions>" + key
+				+ "</attributes><note><rest/><duration>32</duration></note></measure>";
+		return ( "<?xml version=\"1.0\" encoding=\"UTF-8\"?><score-partwise><part-list>"
+				+ "<score-part id=\"P1\"><part-name>Cello</part-name><part-abbreviation>Vc.</part-abbreviation>"
+				+ "<midi-instrument id=\"P1-I1\"><midi-program>43</midi-program><volume>50</volume></midi-instrument></score-part>"
+				+ "<score-part id=\"P2\"><part-name>Stimme</part-name></score-part></part-list>"
+				+ "<part id=\"P1\">" + measure + "</part><part id=\"P2\">" + measure + "</part></score-partwise>" )
+				.getBytes( StandardCharsets.UTF_8 );
+	}
+
+	private static void assertRoundTrip( Song song ) throws XMLException {
+		XMLGenerator xmlGen = new XMLGenerator();
+		byte[] xml = save( xmlGen, song );
+		Song loaded = xmlGen.load( new ByteArrayInputStream( xml ) );
+
+		assertEquals( song.size(), loaded.size() );
+		assertEquals( song.getConfig().getTitle(), loaded.getConfig().getTitle() );
+		assertEquals( song.getConfig().getComposer(), loaded.getConfig().getComposer() );
+		for( int p = 0; p < song.size(); p++ ) {
+			assertEquals( song.get( p ).getInstrument().getName(), loaded.get( p ).getInstrument().getName() );
+			assertEquals( song.get( p ).size(), loaded.get( p ).size() );
+			for( int m = 0; m < song.get( p ).size(); m++ )
+				assertEquals( song.get( p ).get( m ).toString(), loaded.get( p ).get( m ).toString() );
+		}
+		assertEquals( new String( xml ), new String( save( xmlGen, loaded ) ) );
+	}
+
+	private static byte[] save( XMLGenerator xmlGen, Song song ) throws XMLException {
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		xmlGen.save( os, song );
+		return os.toByteArray();
+	}
+}
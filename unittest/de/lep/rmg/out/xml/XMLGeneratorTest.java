@@ -0,0 +1,51 @@
+package de.lep.rmg.out.xml;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayOutputStream;
+
+import org.junit.Test;
+
+import de.lep.rmg.model.SongConfig;
+import de.lep.rmg.musicgen.CanonGenerator;
+import de.lep.rmg.musicgen.CanonStream;
+import de.lep.rmg.musicgen.MelodyGenerator;
+
+/**
+ * Unit-Test für {@link XMLGenerator}
+ *
+ */
+public class XMLGeneratorTest {
+
+	/**
+	 * Ein endlicher {@link CanonStream} ergibt das gleiche Dokument wie der generierte Song
+	 */
+	@Test
+	public void testStream() throws XMLException {
+		CanonGenerator generator = new CanonGenerator( null, new MelodyGenerator() );
+		SongConfig config = new SongConfig( 21 );
+		XMLGenerator xmlGen = new XMLGenerator();
+		ByteArrayOutputStream song = new ByteArrayOutputStream(), stream = new ByteArrayOutputStream();
+		xmlGen.save( song, generator.generateSong( config ) );
+		xmlGen.save( stream, generator.streamSong( config, false ) );
+
+		assertArrayEquals( song.toByteArray(), stream.toByteArray() );
+	}
+
+	/**
+	 * Ein unendlicher Stream wird abgelehnt, ohne etwas zu schreiben
+	 */
+	@Test
+	public void testEndless() throws XMLException {
+		CanonStream stream = new CanonGenerator( null, new MelodyGenerator() ).streamSong( new SongConfig( 21 ), true );
+		ByteArrayOutputStream os = new ByteArrayOutputStream();
+		try {
+			new XMLGenerator().save( os, stream );
+			fail( "Endless stream was saved" );
+		} catch( IllegalArgumentException e ) {
+			assertEquals( 0, os.size() );
+		}
+	}
+}